@@ -0,0 +1,122 @@
+package com.shuyixiao.console;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 日志行分类基准：原 contains 链 vs {@link LogLineClassifier}（Aho-Corasick）
+ * 样本为 src/test/java/com/shuyixiao/esdsl 下各测试中捕获的真实控制台日志
+ *
+ * 运行：gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogLineClassifierBenchmark {
+
+    private static final String SAMPLE = "/esdsl-captured.log";
+
+    private String[] lines;
+
+    @Setup
+    public void loadSample() throws IOException {
+        List<String> loaded = new ArrayList<>();
+        try (InputStream in = LogLineClassifierBenchmark.class.getResourceAsStream(SAMPLE)) {
+            if (in == null) {
+                throw new IOException("sample not found: " + SAMPLE);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                loaded.add(line);
+            }
+        }
+        lines = loaded.toArray(new String[0]);
+    }
+
+    @Benchmark
+    public void legacyContainsChains(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(legacyClassify(line));
+        }
+    }
+
+    @Benchmark
+    public void keywordMatcher(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(LogLineClassifier.classify(line, 0, line.length()));
+        }
+    }
+
+    /**
+     * 原 SQL / ES 监听器中的过滤方式：先 toLowerCase，再逐个 contains
+     */
+    private static int legacyClassify(String text) {
+        String lowerText = text.toLowerCase();
+        int mask = 0;
+
+        if (lowerText.contains("basejdbclogger") ||
+            lowerText.contains("preparing:") ||
+            lowerText.contains("parameters:") ||
+            lowerText.contains("==>") ||
+            lowerText.contains("<==")) {
+            mask |= LogLineClassifier.SQL;
+        }
+
+        if (lowerText.contains("repositoryconfigurationdelegate") ||
+            lowerText.contains("tomcatwebserver") ||
+            lowerText.contains("dingtalkstreammanager") ||
+            lowerText.contains("dingtalkbootstrap") ||
+            lowerText.contains("nettyinternallogger") ||
+            lowerText.contains("rabbitmqregister") ||
+            lowerText.contains("shedlockconfiguration") ||
+            lowerText.contains("satoken") ||
+            lowerText.contains("redisson") ||
+            lowerText.contains("hikaripool") ||
+            lowerText.contains("servlet") ||
+            lowerText.contains("spring boot") ||
+            lowerText.contains("mybatisplus")) {
+            mask |= LogLineClassifier.FRAMEWORK_NOISE;
+        }
+
+        if (lowerText.contains("api:") || lowerText.contains("api：") || lowerText.contains("api :") ||
+            lowerText.contains("uri:") || lowerText.contains("uri：") || lowerText.contains("uri :") ||
+            lowerText.contains("controller")) {
+            mask |= LogLineClassifier.API_CONTEXT;
+        }
+
+        if (lowerText.contains("requestlogger") ||
+            lowerText.contains("elasticsearch") ||
+            lowerText.contains("elastic") ||
+            lowerText.contains("_search") ||
+            lowerText.contains("_cluster") ||
+            lowerText.contains("curl -") ||
+            lowerText.contains("vectordataretrieverelastic") ||
+            lowerText.contains("vectorassistant")) {
+            mask |= LogLineClassifier.ES;
+        }
+
+        return mask;
+    }
+}
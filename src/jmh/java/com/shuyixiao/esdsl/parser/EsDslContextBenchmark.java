@@ -0,0 +1,127 @@
+package com.shuyixiao.esdsl.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 单条记录的上下文提取基准（HTTP 方法、URL、状态码）：原实现每次调用编译正则 vs {@link EsDslPatterns}
+ * 样本为 TestRealLogProcessing 等测试中捕获的 RequestLogger 日志，每条带请求体的 curl 命令为一条记录，
+ * 上下文是该命令之前的全部日志
+ *
+ * 运行：gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EsDslContextBenchmark {
+
+    private static final String SAMPLE = "/esdsl-captured.log";
+
+    private String text;
+    // 每条记录的 DSL 起始位置
+    private int[] dslPositions;
+
+    @Setup
+    public void loadSample() throws IOException {
+        try (InputStream in = EsDslContextBenchmark.class.getResourceAsStream(SAMPLE)) {
+            if (in == null) {
+                throw new IOException("sample not found: " + SAMPLE);
+            }
+            text = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        List<Integer> positions = new ArrayList<>();
+        int at = text.indexOf(" -d '{");
+        while (at >= 0) {
+            positions.add(at + 5);
+            at = text.indexOf(" -d '{", at + 1);
+        }
+        if (positions.isEmpty()) {
+            throw new IOException("no request bodies in " + SAMPLE);
+        }
+        dslPositions = positions.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Benchmark
+    public void legacyCompilePerCall(Blackhole blackhole) {
+        for (int pos : dslPositions) {
+            blackhole.consume(legacyMethod(text, pos));
+            blackhole.consume(legacyUrl(text, pos));
+            blackhole.consume(legacyStatus(text));
+        }
+    }
+
+    @Benchmark
+    public void precompiledRegions(Blackhole blackhole) {
+        EsDslPatterns patterns = EsDslPatterns.get();
+        try {
+            for (int pos : dslPositions) {
+                blackhole.consume(patterns.lastMethod(text, pos));
+                blackhole.consume(patterns.lastUrl(text, pos));
+                blackhole.consume(patterns.httpStatus(text, pos));
+            }
+        } finally {
+            patterns.release();
+        }
+    }
+
+    // ==================== 原实现 ====================
+
+    private static String legacyMethod(CharSequence text, int jsonPos) {
+        int searchStart = Math.max(0, jsonPos - 200);
+        Pattern methodPattern = Pattern.compile("\\b(GET|POST|PUT|DELETE|PATCH)\\b", Pattern.CASE_INSENSITIVE);
+        Matcher matcher = methodPattern.matcher(text).region(searchStart, jsonPos);
+        String lastMethod = null;
+        while (matcher.find()) {
+            lastMethod = matcher.group(1).toUpperCase();
+        }
+        return lastMethod != null ? lastMethod : "POST";
+    }
+
+    private static String legacyUrl(CharSequence text, int jsonPos) {
+        int searchStart = Math.max(0, jsonPos - 300);
+        Pattern urlPattern = Pattern.compile("(https?://[^\\s'\"\\)\\]]+)", Pattern.CASE_INSENSITIVE);
+        Matcher matcher = urlPattern.matcher(text).region(searchStart, jsonPos);
+        String lastUrl = null;
+        while (matcher.find()) {
+            lastUrl = matcher.group(1);
+        }
+        return lastUrl;
+    }
+
+    private static Integer legacyStatus(CharSequence text) {
+        Pattern statusPattern1 = Pattern.compile("#\\s*HTTP/\\d\\.\\d\\s+(\\d{3})");
+        Pattern statusPattern2 = Pattern.compile("returned\\s+\\[HTTP/\\d\\.\\d\\s+(\\d{3})");
+        Pattern statusPattern3 = Pattern.compile("status[:\\s]+(\\d{3})", Pattern.CASE_INSENSITIVE);
+
+        Matcher matcher = statusPattern1.matcher(text);
+        if (!matcher.find()) {
+            matcher = statusPattern2.matcher(text);
+        }
+        if (!matcher.find()) {
+            matcher = statusPattern3.matcher(text);
+        }
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : null;
+    }
+}
@@ -0,0 +1,112 @@
+package com.shuyixiao.sql.parser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 参数块提取基准：原 PARAMETERS_PATTERN 正则 vs {@link SqlParser#extractParameters}
+ * 参数值由 src/test/java/com/shuyixiao/esdsl 测试中捕获的 ES 请求体（大 JSON）拼成多行 JSON，
+ * 分别测试结果行紧随其后和没有结果行（原正则最坏情况）两种缓冲区
+ *
+ * 运行：gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SqlParametersBenchmark {
+
+    private static final String SAMPLE = "/esdsl-captured.log";
+
+    // 原实现
+    private static final Pattern LEGACY_PARAMETERS_PATTERN = Pattern.compile(
+            "==>\\s+Parameters:\\s*([\\s\\S]*?)(?=\\n\\d{4}-\\d{2}-\\d{2}.*?<==|$)",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    @Param({"200", "1024"})
+    public int sizeKb;
+
+    @Param({"true", "false"})
+    public boolean withResultLine;
+
+    private String buffer;
+
+    @Setup
+    public void buildBuffer() throws IOException {
+        List<String> bodies = loadRequestBodies();
+        StringBuilder json = new StringBuilder("[\n");
+        for (int i = 0; json.length() < sizeKb * 1024; i++) {
+            json.append("  ").append(bodies.get(i % bodies.size())).append(",\n");
+        }
+        json.append("  {}\n]");
+
+        StringBuilder log = new StringBuilder()
+                .append("2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: ")
+                .append("UPDATE saas_prompt_template SET config=?, title=? WHERE id=?\n")
+                .append("2025-10-23 17:34:58,099 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: ")
+                .append(json).append("(String), DEFAULT(String), 4(Long)\n");
+        if (withResultLine) {
+            log.append("2025-10-23 17:34:58,101 DEBUG (BaseJdbcLogger.java:135)- <==    Updates: 1\n");
+        }
+        buffer = log.toString();
+    }
+
+    @Benchmark
+    public String legacyRegex() {
+        Matcher matcher = LEGACY_PARAMETERS_PATTERN.matcher(buffer);
+        return matcher.find() ? matcher.group(1).trim() : null;
+    }
+
+    @Benchmark
+    public String lineScanner() {
+        return SqlParser.extractParameters(buffer);
+    }
+
+    /**
+     * 样本中 curl 命令 -d '...' 的请求体
+     */
+    private static List<String> loadRequestBodies() throws IOException {
+        List<String> bodies = new ArrayList<>();
+        try (InputStream in = SqlParametersBenchmark.class.getResourceAsStream(SAMPLE)) {
+            if (in == null) {
+                throw new IOException("sample not found: " + SAMPLE);
+            }
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int start = line.indexOf(" -d '");
+                int end = line.lastIndexOf('\'');
+                if (start >= 0 && end > start + 5) {
+                    bodies.add(line.substring(start + 5, end));
+                }
+            }
+        }
+        if (bodies.isEmpty()) {
+            throw new IOException("no request bodies in " + SAMPLE);
+        }
+        return bodies;
+    }
+}
@@ -0,0 +1,269 @@
+package com.shuyixiao.console;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * API 上下文跟踪器
+ * 按日志行的线程名（配置了 MDC 追踪 ID 正则时优先按追踪 ID）分别记录最近的 API 路径和调用类，
+ * 并发请求交错输出时 SQL / ES 记录也能关联到自己线程的请求
+ *
+ * <ul>
+ *     <li>分发器在每条有分类的日志行上先调用 {@link #select}，之后的查询都针对该行所属的线程</li>
+ *     <li>日志头没有线程字段时（如 "(Xxx.java:12)- " 格式）退化为进程内共享的一个上下文</li>
+ *     <li>每个线程只保存一个不可变的 {@link LogContext}，按最近使用淘汰，查询是 O(1) 的</li>
+ * </ul>
+ * 只有控制台读取线程调用 {@link #select} 和 {@link #onContextLine}
+ */
+public class ApiContextTracker {
+
+    // 同时跟踪的线程 / 追踪 ID 数上限
+    static final int MAX_CONTEXTS = 256;
+    // 线程名只在日志头里查找
+    private static final int HEADER_SCAN_LIMIT = 200;
+    // MDC 字段可能在消息之后，追踪 ID 查找范围更大
+    private static final int TRACE_ID_SCAN_LIMIT = 512;
+    // 没有线程字段的日志行共用的上下文
+    private static final String SHARED_KEY = "";
+
+    // API路径匹配
+    private static final Pattern API_PATH_PATTERN = Pattern.compile(
+            "(?:API|uri)\\s*[:：]\\s*(/[^\\s,，;；\\)）}]+)",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    // 调用类匹配
+    private static final Pattern CALLER_CLASS_PATTERN = Pattern.compile(
+            "\\(([A-Z][a-zA-Z0-9]+\\.java:\\d+)\\)"
+    );
+
+    // 进程内唯一的运行标识，与请求序号组成请求 ID
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final Map<String, LogContext> contexts = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, LogContext> eldest) {
+            return size() > MAX_CONTEXTS;
+        }
+    };
+
+    // 追踪 ID 正则（group 1 为 ID，没有分组时取整个匹配），未配置时为 null
+    private volatile Pattern traceIdPattern;
+    private Matcher traceIdMatcher;
+
+    private String currentKey = SHARED_KEY;
+    private volatile LogContext current = LogContext.EMPTY;
+    // 每出现一条 API 路径日志加一，所有线程共用，保证请求 ID 唯一
+    private long requestSequence;
+
+    // locateThread 找到的线程名范围
+    private int keyStart;
+    private int keyEnd;
+
+    /**
+     * 设置 MDC 追踪 ID 正则，传入 null 表示只按线程名区分
+     */
+    public void setTraceIdPattern(Pattern pattern) {
+        this.traceIdPattern = pattern;
+    }
+
+    /**
+     * 切换到该行所属线程的上下文
+     * 非日志头的延续行（堆栈、多行 SQL 等）保持当前选择
+     */
+    public void select(CharSequence line, int start, int end) {
+        if (start >= end || !Character.isDigit(line.charAt(start))) {
+            return;
+        }
+
+        Pattern pattern = traceIdPattern;
+        if (pattern != null && locateTraceId(pattern, line, start, end)) {
+            switchTo(line, true);
+            return;
+        }
+        if (locateThread(line, start, end)) {
+            switchTo(line, false);
+            return;
+        }
+        if (!SHARED_KEY.equals(currentKey)) {
+            currentKey = SHARED_KEY;
+            current = contexts.getOrDefault(SHARED_KEY, LogContext.EMPTY);
+        }
+    }
+
+    /**
+     * 处理一条上下文日志行，更新当前线程的上下文
+     */
+    public void onContextLine(CharSequence line, int start, int end) {
+        String text = line.subSequence(start, end).toString();
+        LogContext context = current;
+
+        Matcher apiMatcher = API_PATH_PATTERN.matcher(text);
+        if (apiMatcher.find()) {
+            long sequence = ++requestSequence;
+            String traceId = context.getTraceId();
+            String requestId = traceId != null ? traceId : runId + "#" + sequence;
+            context = new LogContext(traceId, apiMatcher.group(1).trim(), null, requestId, sequence);
+        }
+
+        Matcher callerMatcher = CALLER_CLASS_PATTERN.matcher(text);
+        String callerClass = null;
+        while (callerMatcher.find()) {
+            String candidate = callerMatcher.group(1);
+            if (!candidate.startsWith("BaseJdbcLogger")) {
+                callerClass = candidate;
+            }
+        }
+        if (callerClass != null) {
+            context = context.withCallerClass(callerClass);
+        }
+
+        if (context != current) {
+            current = context;
+            contexts.put(currentKey, context);
+        }
+    }
+
+    /**
+     * 当前线程的上下文快照；需要等后续日志行才能完成的记录应在开始时保存
+     */
+    public LogContext current() {
+        return current;
+    }
+
+    public String getApiPath() {
+        return current.getApiPath();
+    }
+
+    public String getCallerClass() {
+        return current.getCallerClass();
+    }
+
+    /**
+     * 当前线程请求窗口的序号，该线程出现新的 API 路径日志时变化
+     */
+    public long getRequestSequence() {
+        return current.getRequestSequence();
+    }
+
+    /**
+     * 当前线程所属请求的 ID（运行标识 + 请求序号，或 MDC 追踪 ID），未知时返回 null
+     * 同一 ID 下的 SQL / ES 记录属于同一次 API 请求
+     */
+    public String getRequestId() {
+        return current.getRequestId();
+    }
+
+    /**
+     * 清空上下文（进程结束时调用）
+     */
+    public void reset() {
+        contexts.clear();
+        currentKey = SHARED_KEY;
+        current = LogContext.EMPTY;
+    }
+
+    // ==================== 线程键 ====================
+
+    /**
+     * 切换到 [keyStart, keyEnd) 对应的上下文，与当前键相同时不分配新字符串
+     */
+    private void switchTo(CharSequence line, boolean traceKey) {
+        int length = keyEnd - keyStart;
+        if (currentKey.length() == length && regionEquals(line, keyStart, currentKey)) {
+            return;
+        }
+        String key = line.subSequence(keyStart, keyEnd).toString();
+        LogContext context = contexts.get(key);
+        if (context == null) {
+            // 追踪 ID 本身就标识了一次请求
+            context = traceKey ? new LogContext(key, null, null, key, 0) : LogContext.EMPTY;
+            contexts.put(key, context);
+        }
+        currentKey = key;
+        current = context;
+    }
+
+    private boolean locateTraceId(Pattern pattern, CharSequence line, int start, int end) {
+        if (traceIdMatcher == null || traceIdMatcher.pattern() != pattern) {
+            traceIdMatcher = pattern.matcher(line);
+        } else {
+            traceIdMatcher.reset(line);
+        }
+        traceIdMatcher.region(start, Math.min(end, start + TRACE_ID_SCAN_LIMIT));
+        if (!traceIdMatcher.find()) {
+            return false;
+        }
+        int group = traceIdMatcher.groupCount() > 0 ? 1 : 0;
+        if (traceIdMatcher.start(group) < 0 || traceIdMatcher.start(group) == traceIdMatcher.end(group)) {
+            return false;
+        }
+        keyStart = traceIdMatcher.start(group);
+        keyEnd = traceIdMatcher.end(group);
+        return true;
+    }
+
+    /**
+     * 在日志头中查找 "[线程名]"：logback 默认的 "HH:mm:ss.SSS [thread] LEVEL" 和 Spring Boot 的 "--- [thread]"，
+     * Spring Boot 3.2+ 的 "--- [app] [thread]" 取第二个；遇到 "(" 或消息分隔符 " - " / " : " 时停止
+     */
+    private boolean locateThread(CharSequence line, int start, int end) {
+        int limit = Math.min(end, start + HEADER_SCAN_LIMIT);
+        for (int i = start; i < limit; i++) {
+            char c = line.charAt(i);
+            if (c == '(') {
+                return false;
+            }
+            if (c == ' ' && i + 2 < limit && line.charAt(i + 2) == ' '
+                    && (line.charAt(i + 1) == '-' || line.charAt(i + 1) == ':')) {
+                return false;
+            }
+            if (c != '[') {
+                continue;
+            }
+            int close = indexOf(line, ']', i + 1, limit);
+            if (close < 0) {
+                return false;
+            }
+            if (close + 2 < limit && line.charAt(close + 1) == ' ' && line.charAt(close + 2) == '[') {
+                int next = indexOf(line, ']', close + 3, limit);
+                if (next > close + 3) {
+                    i = close + 2;
+                    close = next;
+                }
+            }
+            // Spring Boot 对线程名左侧补空格
+            int from = i + 1;
+            while (from < close && line.charAt(from) == ' ') {
+                from++;
+            }
+            if (from == close) {
+                return false;
+            }
+            keyStart = from;
+            keyEnd = close;
+            return true;
+        }
+        return false;
+    }
+
+    private static int indexOf(CharSequence line, char target, int from, int limit) {
+        for (int i = from; i < limit; i++) {
+            if (line.charAt(i) == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean regionEquals(CharSequence line, int from, String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (line.charAt(from + i) != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,139 @@
+package com.shuyixiao.console;
+
+import com.intellij.execution.process.ProcessHandler;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 控制台日志接入服务
+ * 保证每个进程只挂一个 {@link ConsoleLogDemultiplexer}，SQL / ES DSL 等监控器作为 sink 共享同一条管线
+ * 汇总各进程的降载状态（见 {@link IngestGovernor}），供工具窗口展示
+ */
+@Service
+public final class ConsoleIngestService {
+
+    private static final Logger LOG = Logger.getInstance(ConsoleIngestService.class);
+
+    private final Project project;
+    private final Map<ProcessHandler, ConsoleLogDemultiplexer> pipelines = new ConcurrentHashMap<>();
+    // 降载状态变化的监听器（在进程输出读取线程上回调）
+    private final List<Runnable> governorListeners = new CopyOnWriteArrayList<>();
+
+    public ConsoleIngestService(@NotNull Project project) {
+        this.project = project;
+    }
+
+    public static ConsoleIngestService getInstance(@NotNull Project project) {
+        return project.getService(ConsoleIngestService.class);
+    }
+
+    /**
+     * 获取进程的分发器，不存在时创建并挂到进程上
+     */
+    @NotNull
+    public ConsoleLogDemultiplexer attach(@NotNull ProcessHandler processHandler) {
+        return pipelines.computeIfAbsent(processHandler, handler -> {
+            ConsoleLogDemultiplexer demultiplexer = new ConsoleLogDemultiplexer();
+            demultiplexer.setTerminationCallback(() -> release(handler));
+            demultiplexer.getGovernor().setStateListener(this::onGovernorStateChanged);
+            handler.addProcessListener(demultiplexer);
+            LOG.debug("[Console] Attached log pipeline to process: " + handler + " (" + project.getName() + ")");
+            return demultiplexer;
+        });
+    }
+
+    /**
+     * 从进程的分发器上移除 sink，没有 sink 时摘除整条管线
+     */
+    public void detach(@NotNull ProcessHandler processHandler, @NotNull ConsoleLineSink sink) {
+        ConsoleLogDemultiplexer demultiplexer = pipelines.get(processHandler);
+        if (demultiplexer == null) {
+            return;
+        }
+        demultiplexer.removeSink(sink);
+        if (!demultiplexer.hasSinks()) {
+            release(processHandler);
+        }
+    }
+
+    /**
+     * 活动管线数量
+     */
+    public int getPipelineCount() {
+        return pipelines.size();
+    }
+
+    /**
+     * 是否有进程处于降载采样状态
+     */
+    public boolean isDegraded() {
+        long now = System.currentTimeMillis();
+        for (ConsoleLogDemultiplexer demultiplexer : pipelines.values()) {
+            if (demultiplexer.getGovernor().isDegraded(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 降载进程中最大的采样率 N（只完整处理 1/N 的记录），没有降载时为 1
+     */
+    public int getSampleRate() {
+        long now = System.currentTimeMillis();
+        int sampleRate = 1;
+        for (ConsoleLogDemultiplexer demultiplexer : pipelines.values()) {
+            IngestGovernor governor = demultiplexer.getGovernor();
+            if (governor.isDegraded(now)) {
+                sampleRate = Math.max(sampleRate, governor.getSampleRate());
+            }
+        }
+        return sampleRate;
+    }
+
+    /**
+     * 各进程降载期间被采样丢弃的记录总数
+     */
+    public long getSkippedCount() {
+        long skipped = 0;
+        for (ConsoleLogDemultiplexer demultiplexer : pipelines.values()) {
+            skipped += demultiplexer.getGovernor().getSkippedCount();
+        }
+        return skipped;
+    }
+
+    public void addGovernorListener(@NotNull Runnable listener) {
+        governorListeners.add(listener);
+    }
+
+    public void removeGovernorListener(@NotNull Runnable listener) {
+        governorListeners.remove(listener);
+    }
+
+    private void onGovernorStateChanged() {
+        LOG.info("[Console] Ingest governor state changed, degraded: " + isDegraded() + ", sample rate: 1/" + getSampleRate());
+        for (Runnable listener : governorListeners) {
+            listener.run();
+        }
+    }
+
+    private void release(@NotNull ProcessHandler processHandler) {
+        ConsoleLogDemultiplexer demultiplexer = pipelines.remove(processHandler);
+        if (demultiplexer == null) {
+            return;
+        }
+        try {
+            processHandler.removeProcessListener(demultiplexer);
+            LOG.debug("[Console] Released log pipeline of process: " + processHandler);
+        } catch (Exception e) {
+            LOG.warn("[Console] Failed to release log pipeline", e);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.shuyixiao.console;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * 控制台日志行的消费者（SQL Monitor、ES DSL Monitor 等）
+ * 由 {@link ConsoleLogDemultiplexer} 在同一线程内串行回调，实现类无需自行加锁
+ */
+public interface ConsoleLineSink {
+
+    /**
+     * 关心的行类别（{@link LogLineClassifier} 常量的位组合）
+     */
+    int getInterestMask();
+
+    /**
+     * 是否正处于跨行捕获状态（如多行参数、curl 响应体）
+     * 捕获期间会收到所有行，包括未命中任何类别的延续行
+     */
+    boolean isCapturing();
+
+    /**
+     * 接收一行日志（不含换行符）
+     *
+     * @param line       日志文本
+     * @param start      行起始位置（包含）
+     * @param end        行结束位置（不包含）
+     * @param categories 该行命中的类别
+     * @param context    所属进程的 API 上下文
+     */
+    void onLine(@NotNull CharSequence line, int start, int end, int categories, @NotNull ApiContextTracker context);
+
+    /**
+     * 进程已启动
+     */
+    default void onProcessStarted() {
+    }
+
+    /**
+     * 进程已结束，丢弃未完成的状态
+     */
+    default void onProcessTerminated() {
+    }
+}
@@ -0,0 +1,174 @@
+package com.shuyixiao.console;
+
+import com.intellij.execution.process.ProcessEvent;
+import com.intellij.execution.process.ProcessListener;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.util.Key;
+import com.shuyixiao.diagnostics.PluginMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 控制台日志分发器
+ * 每个进程只挂一个，负责切分行、一次分类，再把行分发给关心它的监控器：
+ * SQL 行只给 SQL Monitor，ES 行只给 ES DSL Monitor，API 上下文行更新 {@link ApiContextTracker}
+ * 同时按进程统计接入速率，输出过多时由 {@link IngestGovernor} 通知各监控器降载采样
+ */
+public class ConsoleLogDemultiplexer implements ProcessListener {
+
+    private static final Logger LOG = Logger.getInstance(ConsoleLogDemultiplexer.class);
+
+    // 单行最大长度：1MB 足够容纳超大JSON参数行，超出时强制按行切分
+    private static final int MAX_LINE_LENGTH = 1024000;
+
+    private final List<ConsoleLineSink> sinks = new CopyOnWriteArrayList<>();
+    private final ApiContextTracker contextTracker = new ApiContextTracker();
+    private final IngestGovernor governor = new IngestGovernor();
+
+    // 跨 chunk 的未完成行（控制台输出不保证按行到达）
+    private final StringBuilder pendingLine = new StringBuilder();
+
+    private volatile Runnable terminationCallback;
+
+    public void addSink(@NotNull ConsoleLineSink sink) {
+        sinks.add(sink);
+    }
+
+    public void removeSink(@NotNull ConsoleLineSink sink) {
+        sinks.remove(sink);
+    }
+
+    public boolean hasSinks() {
+        return !sinks.isEmpty();
+    }
+
+    @NotNull
+    public ApiContextTracker getContextTracker() {
+        return contextTracker;
+    }
+
+    @NotNull
+    public IngestGovernor getGovernor() {
+        return governor;
+    }
+
+    void setTerminationCallback(Runnable terminationCallback) {
+        this.terminationCallback = terminationCallback;
+    }
+
+    @Override
+    public void startNotified(@NotNull ProcessEvent event) {
+        for (ConsoleLineSink sink : sinks) {
+            sink.onProcessStarted();
+        }
+    }
+
+    @Override
+    public void processTerminated(@NotNull ProcessEvent event) {
+        synchronized (this) {
+            pendingLine.setLength(0);
+            contextTracker.reset();
+            for (ConsoleLineSink sink : sinks) {
+                sink.onProcessTerminated();
+            }
+        }
+        Runnable callback = terminationCallback;
+        if (callback != null) {
+            callback.run();
+        }
+    }
+
+    @Override
+    public void processWillTerminate(@NotNull ProcessEvent event, boolean willBeDestroyed) {
+        // 进程即将终止
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
+        String text = event.getText();
+        if (text == null || text.isEmpty() || sinks.isEmpty()) {
+            return;
+        }
+
+        try {
+            feedText(text);
+        } catch (Exception e) {
+            LOG.error("[Console] Error dispatching console output", e);
+        }
+    }
+
+    /**
+     * 按换行切分文本并逐行分发
+     * stdout/stderr 可能由不同线程回调，分发需要串行
+     */
+    synchronized void feedText(String text) {
+        int length = text.length();
+        int start = 0;
+        governor.onText(length, System.currentTimeMillis());
+        PluginMetrics.CONSOLE_CHARS.add(length);
+
+        while (start < length) {
+            int newline = text.indexOf('\n', start);
+            if (newline < 0) {
+                // 不完整的行，等待后续 chunk
+                pendingLine.append(text, start, length);
+                if (pendingLine.length() > MAX_LINE_LENGTH) {
+                    dispatchLine(pendingLine, 0, pendingLine.length());
+                    pendingLine.setLength(0);
+                }
+                return;
+            }
+
+            int end = newline;
+            if (end > start && text.charAt(end - 1) == '\r') {
+                end--;
+            }
+
+            if (pendingLine.length() > 0) {
+                pendingLine.append(text, start, end);
+                dispatchLine(pendingLine, 0, pendingLine.length());
+                pendingLine.setLength(0);
+            } else {
+                dispatchLine(text, start, end);
+            }
+
+            start = newline + 1;
+        }
+    }
+
+    /**
+     * 分类一次并路由给各监控器
+     */
+    private void dispatchLine(CharSequence line, int start, int end) {
+        PluginMetrics.CONSOLE_LINES.increment();
+        int categories = LogLineClassifier.classify(line, start, end);
+        if (categories != 0) {
+            // 之后的上下文查询都针对该行所属的线程
+            contextTracker.select(line, start, end);
+        }
+
+        // SQL 行优先归 SQL Monitor，其余监控器不再各自重复过滤
+        if (LogLineClassifier.has(categories, LogLineClassifier.SQL)) {
+            categories &= ~(LogLineClassifier.ES | LogLineClassifier.ES_REQUEST_LOGGER | LogLineClassifier.ES_CURL
+                    | LogLineClassifier.API_CONTEXT);
+        } else if (LogLineClassifier.has(categories, LogLineClassifier.API_CONTEXT)
+                && !LogLineClassifier.has(categories, LogLineClassifier.ES)) {
+            // 排除 ES 的请求日志，避免把 ES 的 uri 当作 API 路径
+            contextTracker.onContextLine(line, start, end);
+        }
+
+        boolean delivered = false;
+        for (ConsoleLineSink sink : sinks) {
+            if ((categories & sink.getInterestMask()) != 0 || sink.isCapturing()) {
+                sink.onLine(line, start, end, categories, contextTracker);
+                delivered = true;
+            }
+        }
+        if (!delivered) {
+            PluginMetrics.CONSOLE_LINES_REJECTED.increment();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.shuyixiao.console;
+
+/**
+ * 控制台文本环形缓冲区（单线程使用，不加锁）
+ *
+ * 所有位置都是自创建以来写入字符的绝对序号（long），窗口为 [head, tail)：
+ * <ul>
+ *     <li>只追加，容量满时自动覆盖最旧的字符</li>
+ *     <li>{@link #view(long, long)} 返回不复制的 {@link CharSequence} 视图，只在下一次追加之前有效；
+ *     需要交给其他线程时用 toString() 复制</li>
+ *     <li>保留上下文、清空缓冲区只移动 head，不复制字符串</li>
+ * </ul>
+ * 所有方法都只能在同一线程（控制台读取线程）上调用；
+ * 底层数组在第一次写入时才分配，没有输出的进程不占内存
+ */
+public final class ConsoleRingBuffer {
+
+    private final int capacity;
+    private char[] data;
+
+    // 写指针：[0, tail) 为已写入的字符
+    private long tail;
+    // 逻辑起点：之前的字符视为已丢弃（只增不减）
+    private long head;
+
+    public ConsoleRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    // ==================== 写入 ====================
+
+    public void append(CharSequence text) {
+        append(text, 0, text.length());
+    }
+
+    /**
+     * 追加 [start, end) 范围的字符
+     * 超过容量的部分只保留末尾
+     */
+    public void append(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length <= 0) {
+            return;
+        }
+        if (length > capacity) {
+            start = end - capacity;
+            length = capacity;
+        }
+        if (data == null) {
+            data = new char[capacity];
+        }
+
+        long from = tail;
+        long to = from + length;
+
+        int offset = (int) (from % capacity);
+        int firstPart = Math.min(length, capacity - offset);
+        for (int i = 0; i < firstPart; i++) {
+            data[offset + i] = text.charAt(start + i);
+        }
+        for (int i = firstPart; i < length; i++) {
+            data[i - firstPart] = text.charAt(start + i);
+        }
+
+        // 被覆盖的旧字符移出窗口
+        advanceHead(to - capacity);
+        tail = to;
+    }
+
+    public void append(char c) {
+        if (data == null) {
+            data = new char[capacity];
+        }
+        long from = tail;
+        data[(int) (from % capacity)] = c;
+        advanceHead(from + 1 - capacity);
+        tail = from + 1;
+    }
+
+    // ==================== 窗口管理 ====================
+
+    public long head() {
+        return head;
+    }
+
+    public long tail() {
+        return tail;
+    }
+
+    /**
+     * 当前窗口内的字符数
+     */
+    public int size() {
+        return (int) (tail - head);
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 丢弃 position 之前的字符（只移动 head）
+     */
+    public void discardBefore(long position) {
+        advanceHead(Math.min(position, tail));
+    }
+
+    /**
+     * 只保留最后 chars 个字符作为上下文
+     */
+    public void retainLast(int chars) {
+        discardBefore(tail - chars);
+    }
+
+    /**
+     * 清空窗口
+     */
+    public void clear() {
+        discardBefore(tail);
+    }
+
+    private void advanceHead(long position) {
+        if (position > head) {
+            head = position;
+        }
+    }
+
+    // ==================== 读取 ====================
+
+    /**
+     * 当前窗口的视图
+     */
+    public CharSequence view() {
+        long to = tail;
+        return view(Math.max(head, to - capacity), to);
+    }
+
+    /**
+     * [from, to) 区域的零拷贝视图（不持有快照，下一次追加可能覆盖其中的字符）
+     */
+    public CharSequence view(long from, long to) {
+        if (from > to || to > tail) {
+            throw new IndexOutOfBoundsException("region [" + from + ", " + to + ") outside buffer, tail=" + tail);
+        }
+        return new Region(from, to);
+    }
+
+    /**
+     * 环形数组上的只读区域
+     */
+    private final class Region implements CharSequence {
+        private final long from;
+        private final int length;
+
+        Region(long from, long to) {
+            this.from = from;
+            this.length = (int) (to - from);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index " + index + ", length " + length);
+            }
+            return data[(int) ((from + index) % capacity)];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length || start > end) {
+                throw new IndexOutOfBoundsException("[" + start + ", " + end + "), length " + length);
+            }
+            return new Region(from + start, from + end);
+        }
+
+        @Override
+        public String toString() {
+            if (length == 0) {
+                return "";
+            }
+            char[] copy = new char[length];
+            int offset = (int) (from % capacity);
+            int firstPart = Math.min(length, capacity - offset);
+            System.arraycopy(data, offset, copy, 0, firstPart);
+            System.arraycopy(data, 0, copy, firstPart, length - firstPart);
+            return new String(copy);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.shuyixiao.console;
+
+import com.shuyixiao.diagnostics.PluginMetrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 控制台接入的降载调节器
+ * 每个进程一个（挂在 {@link ConsoleLogDemultiplexer} 上），按秒统计接入字符数、完成的记录数和解析耗时：
+ * <ul>
+ *     <li>任一项超出预算时进入降载状态，只完整处理 1/N 的记录（N 按超出倍数计算），慢查询等重要记录始终保留</li>
+ *     <li>连续 {@link #RECOVERY_WINDOWS} 秒都在预算内（或没有输出）时恢复正常</li>
+ * </ul>
+ * 统计在读取线程上进行；解析耗时可以从解析线程上报
+ */
+public final class IngestGovernor {
+
+    static final long WINDOW_MILLIS = 1_000;
+    // 每秒接入字符数预算（约 60MB/分钟）
+    static final long MAX_CHARS_PER_SECOND = 1_000_000;
+    // 每秒完成的记录数预算
+    static final long MAX_RECORDS_PER_SECOND = 500;
+    // 每秒解析 / 保存耗时预算（占用半个核）
+    static final long MAX_PARSE_NANOS_PER_SECOND = 500_000_000L;
+    static final int RECOVERY_WINDOWS = 5;
+    static final int MAX_SAMPLE_RATE = 64;
+
+    private long windowStart = -1;
+    private long windowChars;
+    private long windowRecords;
+    private final AtomicLong windowParseNanos = new AtomicLong();
+    private int calmWindows;
+
+    private volatile long lastTextAt;
+    private volatile boolean degraded;
+    private volatile int sampleRate = 1;
+    private long sampleCounter;
+    private final AtomicLong skipped = new AtomicLong();
+
+    private volatile Runnable stateListener;
+
+    /**
+     * 收到一段控制台输出
+     */
+    public void onText(int chars, long nowMillis) {
+        if (windowStart < 0) {
+            windowStart = nowMillis;
+        } else if (nowMillis - windowStart >= WINDOW_MILLIS) {
+            closeWindow(nowMillis);
+        }
+        windowChars += chars;
+        lastTextAt = nowMillis;
+    }
+
+    /**
+     * 一条记录完成，决定是否完整处理
+     *
+     * @param important 慢查询等必须保留的记录
+     * @return false 表示降载期间被采样丢弃
+     */
+    public boolean admit(boolean important) {
+        windowRecords++;
+        if (!degraded || important) {
+            return true;
+        }
+        if (++sampleCounter % sampleRate == 0) {
+            return true;
+        }
+        skipped.incrementAndGet();
+        PluginMetrics.CONSOLE_SAMPLED_OUT.increment();
+        return false;
+    }
+
+    /**
+     * 下游来不及处理、直接丢弃了一条记录（如解析队列已满），同样计入跳过的记录数（可在任意线程调用）
+     */
+    public void shed() {
+        skipped.incrementAndGet();
+        PluginMetrics.CONSOLE_SAMPLED_OUT.increment();
+    }
+
+    /**
+     * 上报一条记录的解析 / 保存耗时（可在任意线程调用）
+     */
+    public void recordParseTime(long nanos) {
+        windowParseNanos.addAndGet(nanos);
+    }
+
+    /**
+     * 是否处于降载状态；进程停止输出后，降载状态最多保持 {@link #RECOVERY_WINDOWS} 秒
+     */
+    public boolean isDegraded(long nowMillis) {
+        return degraded && nowMillis - lastTextAt < RECOVERY_WINDOWS * WINDOW_MILLIS;
+    }
+
+    /**
+     * 当前采样率 N（只完整处理 1/N 的记录），正常状态为 1
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * 降载期间被采样丢弃的记录数（包括下游来不及处理而丢弃的）
+     */
+    public long getSkippedCount() {
+        return skipped.get();
+    }
+
+    /**
+     * 进入或退出降载状态时回调（在读取线程上）
+     */
+    void setStateListener(Runnable stateListener) {
+        this.stateListener = stateListener;
+    }
+
+    private void closeWindow(long nowMillis) {
+        long elapsed = nowMillis - windowStart;
+        // 按一秒折算，超出多少倍就采样 1/N
+        double load = Math.max(Math.max(
+                (double) windowChars / MAX_CHARS_PER_SECOND,
+                (double) windowRecords / MAX_RECORDS_PER_SECOND),
+                (double) windowParseNanos.getAndSet(0) / MAX_PARSE_NANOS_PER_SECOND) * WINDOW_MILLIS / elapsed;
+        windowStart = nowMillis;
+        windowChars = 0;
+        windowRecords = 0;
+
+        boolean wasDegraded = degraded;
+        if (load > 1) {
+            calmWindows = 0;
+            sampleRate = (int) Math.min(MAX_SAMPLE_RATE, Math.max(2, Math.ceil(load)));
+            degraded = true;
+        } else if (degraded && (calmWindows += (int) Math.min(RECOVERY_WINDOWS, elapsed / WINDOW_MILLIS)) >= RECOVERY_WINDOWS) {
+            calmWindows = 0;
+            sampleRate = 1;
+            degraded = false;
+        }
+
+        Runnable listener = stateListener;
+        if (listener != null && wasDegraded != degraded) {
+            listener.run();
+        }
+    }
+}
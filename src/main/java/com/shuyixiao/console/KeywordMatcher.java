@@ -0,0 +1,220 @@
+package com.shuyixiao.console;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 多关键词匹配器（Aho-Corasick 自动机）
+ * 构建一次后可在多线程中共享；每次匹配只对文本做一遍扫描，
+ * 忽略 ASCII 大小写且不创建小写副本，返回命中类别的位掩码
+ *
+ * 用法：
+ * <pre>
+ * KeywordMatcher matcher = KeywordMatcher.builder()
+ *         .add(SQL, "basejdbclogger", "preparing:")
+ *         .add(ES, "requestlogger", "_search")
+ *         .build();
+ * int mask = matcher.match(line, start, end);
+ * </pre>
+ */
+public final class KeywordMatcher {
+
+    // 字符 -> 字母表下标（0 表示不在任何关键词中出现的字符）
+    private final byte[] asciiSymbols;
+    private final char[] extraChars;
+    private final int[] extraSymbols;
+    private final int alphabetSize;
+
+    // 完整的 DFA 转移表：transitions[state * alphabetSize + symbol]
+    private final int[] transitions;
+    // 每个状态命中的类别（已合并失败链上的输出）
+    private final int[] outputs;
+    // 所有关键词类别的并集，全部命中后可提前结束扫描
+    private final int allCategories;
+
+    private KeywordMatcher(byte[] asciiSymbols, char[] extraChars, int[] extraSymbols, int alphabetSize,
+                           int[] transitions, int[] outputs, int allCategories) {
+        this.asciiSymbols = asciiSymbols;
+        this.extraChars = extraChars;
+        this.extraSymbols = extraSymbols;
+        this.alphabetSize = alphabetSize;
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.allCategories = allCategories;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 匹配整段文本
+     */
+    public int match(CharSequence text) {
+        return text == null ? 0 : match(text, 0, text.length());
+    }
+
+    /**
+     * 匹配 [start, end) 范围内的文本
+     *
+     * @return 命中类别的位掩码，未命中时返回 0
+     */
+    public int match(CharSequence text, int start, int end) {
+        int state = 0;
+        int mask = 0;
+        for (int i = start; i < end; i++) {
+            state = transitions[state * alphabetSize + symbolOf(text.charAt(i))];
+            int hit = outputs[state];
+            if (hit != 0) {
+                mask |= hit;
+                if (mask == allCategories) {
+                    break;
+                }
+            }
+        }
+        return mask;
+    }
+
+    private int symbolOf(char c) {
+        if (c < 128) {
+            return asciiSymbols[c];
+        }
+        int index = Arrays.binarySearch(extraChars, c);
+        return index >= 0 ? extraSymbols[index] : 0;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    /**
+     * 构建器：按类别添加关键词（关键词忽略 ASCII 大小写）
+     */
+    public static class Builder {
+        private final List<String> keywords = new ArrayList<>();
+        private final List<Integer> categories = new ArrayList<>();
+
+        public Builder add(int category, String... words) {
+            if (category == 0) {
+                throw new IllegalArgumentException("category must not be 0");
+            }
+            for (String word : words) {
+                if (word == null || word.isEmpty()) {
+                    throw new IllegalArgumentException("keyword must not be empty");
+                }
+                keywords.add(word);
+                categories.add(category);
+            }
+            return this;
+        }
+
+        public KeywordMatcher build() {
+            // 1. 字母表压缩：只为关键词中出现的字符分配下标
+            byte[] asciiSymbols = new byte[128];
+            List<Character> extra = new ArrayList<>();
+            int alphabetSize = 1;
+            for (String keyword : keywords) {
+                for (int i = 0; i < keyword.length(); i++) {
+                    char c = fold(keyword.charAt(i));
+                    if (c < 128) {
+                        if (asciiSymbols[c] == 0) {
+                            asciiSymbols[c] = (byte) alphabetSize++;
+                        }
+                    } else if (!extra.contains(c)) {
+                        extra.add(c);
+                    }
+                }
+            }
+            // 大写字母与小写字母共用同一个下标
+            for (char c = 'A'; c <= 'Z'; c++) {
+                asciiSymbols[c] = asciiSymbols[fold(c)];
+            }
+            extra.sort(null);
+            char[] extraChars = new char[extra.size()];
+            int[] extraSymbols = new int[extra.size()];
+            for (int i = 0; i < extraChars.length; i++) {
+                extraChars[i] = extra.get(i);
+                extraSymbols[i] = alphabetSize++;
+            }
+
+            // 2. 构建 trie
+            List<int[]> goTo = new ArrayList<>();
+            List<Integer> out = new ArrayList<>();
+            goTo.add(newRow(alphabetSize));
+            out.add(0);
+            int allCategories = 0;
+            for (int k = 0; k < keywords.size(); k++) {
+                String keyword = keywords.get(k);
+                int state = 0;
+                for (int i = 0; i < keyword.length(); i++) {
+                    int symbol = symbol(asciiSymbols, extraChars, extraSymbols, fold(keyword.charAt(i)));
+                    int next = goTo.get(state)[symbol];
+                    if (next < 0) {
+                        next = goTo.size();
+                        goTo.add(newRow(alphabetSize));
+                        out.add(0);
+                        goTo.get(state)[symbol] = next;
+                    }
+                    state = next;
+                }
+                out.set(state, out.get(state) | categories.get(k));
+                allCategories |= categories.get(k);
+            }
+
+            // 3. BFS 计算失败链，并把 trie 补全为 DFA
+            int stateCount = goTo.size();
+            int[] transitions = new int[stateCount * alphabetSize];
+            int[] outputs = new int[stateCount];
+            int[] fail = new int[stateCount];
+            Deque<Integer> queue = new ArrayDeque<>();
+
+            for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                int next = goTo.get(0)[symbol];
+                if (next < 0) {
+                    transitions[symbol] = 0;
+                } else {
+                    transitions[symbol] = next;
+                    fail[next] = 0;
+                    queue.add(next);
+                }
+            }
+            outputs[0] = out.get(0);
+
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                outputs[state] = out.get(state) | outputs[fail[state]];
+                int[] row = goTo.get(state);
+                for (int symbol = 0; symbol < alphabetSize; symbol++) {
+                    int next = row[symbol];
+                    int fallback = transitions[fail[state] * alphabetSize + symbol];
+                    if (next < 0) {
+                        transitions[state * alphabetSize + symbol] = fallback;
+                    } else {
+                        transitions[state * alphabetSize + symbol] = next;
+                        fail[next] = fallback;
+                        queue.add(next);
+                    }
+                }
+            }
+
+            return new KeywordMatcher(asciiSymbols, extraChars, extraSymbols, alphabetSize,
+                    transitions, outputs, allCategories);
+        }
+
+        private static int[] newRow(int alphabetSize) {
+            int[] row = new int[alphabetSize];
+            Arrays.fill(row, -1);
+            return row;
+        }
+
+        private static int symbol(byte[] asciiSymbols, char[] extraChars, int[] extraSymbols, char c) {
+            if (c < 128) {
+                return asciiSymbols[c];
+            }
+            return extraSymbols[Arrays.binarySearch(extraChars, c)];
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.shuyixiao.console;
+
+/**
+ * 某个线程（或 MDC 追踪 ID）当前所处的请求上下文快照
+ * 不可变，由 {@link ApiContextTracker} 在上下文变化时替换，可以跨线程传递
+ */
+public final class LogContext {
+
+    public static final LogContext EMPTY = new LogContext(null, null, null, null, 0);
+
+    private final String traceId;
+    private final String apiPath;
+    private final String callerClass;
+    private final String requestId;
+    private final long requestSequence;
+
+    LogContext(String traceId, String apiPath, String callerClass, String requestId, long requestSequence) {
+        this.traceId = traceId;
+        this.apiPath = apiPath;
+        this.callerClass = callerClass;
+        this.requestId = requestId;
+        this.requestSequence = requestSequence;
+    }
+
+    /**
+     * MDC 追踪 ID，按线程名区分的上下文为 null
+     */
+    public String getTraceId() {
+        return traceId;
+    }
+
+    public String getApiPath() {
+        return apiPath;
+    }
+
+    public String getCallerClass() {
+        return callerClass;
+    }
+
+    /**
+     * 所属请求的 ID，同一 ID 下的 SQL / ES 记录属于同一次 API 请求；未知时为 null
+     */
+    public String getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * 该上下文最近一条 API 路径日志的序号，0 表示还没有出现过
+     */
+    public long getRequestSequence() {
+        return requestSequence;
+    }
+
+    LogContext withCallerClass(String callerClass) {
+        return new LogContext(traceId, apiPath, callerClass, requestId, requestSequence);
+    }
+}
@@ -0,0 +1,165 @@
+package com.shuyixiao.console;
+
+/**
+ * 控制台日志行分类器
+ * 基于 {@link KeywordMatcher} 一次扫描即可得到一行命中的全部类别（SQL / ES / API上下文 / 框架噪音），
+ * 忽略 ASCII 大小写，不创建小写副本
+ */
+public final class LogLineClassifier {
+
+    /** MyBatis、Hibernate、p6spy、JdbcTemplate、jOOQ 等 SQL 日志 */
+    public static final int SQL = 1;
+    /** Elasticsearch 请求/响应日志 */
+    public static final int ES = 1 << 1;
+    /** 携带 API 路径或 Controller 的上下文日志 */
+    public static final int API_CONTEXT = 1 << 2;
+    /** Spring 启动等框架噪音 */
+    public static final int FRAMEWORK_NOISE = 1 << 3;
+    /** ES 客户端 RequestLogger 的日志（同时属于 {@link #ES}） */
+    public static final int ES_REQUEST_LOGGER = 1 << 4;
+    /** curl 命令形式的 ES 请求（同时属于 {@link #ES}） */
+    public static final int ES_CURL = 1 << 5;
+
+    // 关键词忽略大小写；SQL 关键词需覆盖 SqlLogDialects 中各方言的触发词
+    private static final String[] SQL_KEYWORDS = {
+            "basejdbclogger", "preparing:", "parameters:", "==>", "<==",
+            "org.hibernate.sql", "hibernate:", "binding parameter",
+            "|statement|", "| statement |", "|batch|", "| batch |",
+            "executing prepared sql", "executing sql", "setting sql statement parameter", "sql update affected",
+            "executing query", "with bind values", "fetched row", "affected row", "query executed"
+    };
+
+    private static final String[] ES_KEYWORDS = {
+            "requestlogger", "elasticsearch", "elastic", "_search", "_cluster", "curl -",
+            "vectordataretrieverelastic", "vectorassistant"
+    };
+
+    private static final String[] API_CONTEXT_KEYWORDS = {
+            "api:", "api：", "api :", "uri:", "uri：", "uri :", "controller"
+    };
+
+    private static final String[] FRAMEWORK_NOISE_KEYWORDS = {
+            "repositoryconfigurationdelegate", "tomcatwebserver", "dingtalkstreammanager",
+            "dingtalkbootstrap", "nettyinternallogger", "rabbitmqregister", "shedlockconfiguration",
+            "satoken", "redisson", "hikaripool", "servlet", "spring boot", "mybatisplus"
+    };
+
+    private static final KeywordMatcher MATCHER = KeywordMatcher.builder()
+            .add(SQL, SQL_KEYWORDS)
+            .add(ES, ES_KEYWORDS)
+            .add(API_CONTEXT, API_CONTEXT_KEYWORDS)
+            .add(FRAMEWORK_NOISE, FRAMEWORK_NOISE_KEYWORDS)
+            .add(ES_REQUEST_LOGGER, "requestlogger")
+            .add(ES_CURL, "curl -")
+            .build();
+
+    private LogLineClassifier() {
+    }
+
+    /**
+     * 对 [start, end) 范围内的一行进行分类
+     *
+     * @return 命中类别的位掩码，未命中任何关键词时返回 0
+     */
+    public static int classify(CharSequence line, int start, int end) {
+        return MATCHER.match(line, start, end);
+    }
+
+    public static boolean has(int mask, int category) {
+        return (mask & category) != 0;
+    }
+
+    /**
+     * 判断是否以 yyyy-MM-dd 开头（新日志行）
+     */
+    public static boolean startsWithDate(CharSequence line, int start, int end) {
+        if (end - start < 10) {
+            return false;
+        }
+        for (int i = 0; i < 10; i++) {
+            char c = line.charAt(start + i);
+            if (i == 4 || i == 7) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 解析行首的日志时间戳 yyyy-MM-dd HH:mm:ss[.SSS]（日期与时间之间可为空格或 T，毫秒前可为 . 或 ,）
+     *
+     * @return 本地时间的毫秒数（不含时区，仅用于计算同一日志中两行的时间差）；无法解析时返回 -1
+     */
+    public static long parseTimestampMillis(CharSequence line, int start, int end) {
+        if (!startsWithDate(line, start, end) || end - start < 19) {
+            return -1;
+        }
+        char separator = line.charAt(start + 10);
+        if ((separator != ' ' && separator != 'T') || line.charAt(start + 13) != ':' || line.charAt(start + 16) != ':') {
+            return -1;
+        }
+        int year = digits(line, start, 4);
+        int month = digits(line, start + 5, 2);
+        int day = digits(line, start + 8, 2);
+        int hour = digits(line, start + 11, 2);
+        int minute = digits(line, start + 14, 2);
+        int second = digits(line, start + 17, 2);
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return -1;
+        }
+
+        int millis = 0;
+        int i = start + 19;
+        if (i < end && (line.charAt(i) == '.' || line.charAt(i) == ',')) {
+            int scale = 100;
+            i++;
+            while (i < end && scale > 0 && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+                millis += (line.charAt(i) - '0') * scale;
+                scale /= 10;
+                i++;
+            }
+        }
+
+        long epochDay = epochDay(year, month, day);
+        return ((epochDay * 24 + hour) * 60 + minute) * 60_000L + second * 1000L + millis;
+    }
+
+    /**
+     * 解析固定位数的数字，包含非数字时返回 -1
+     */
+    private static int digits(CharSequence line, int at, int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            char c = line.charAt(at + i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 公历日期到 1970-01-01 的天数（与 LocalDate#toEpochDay 相同的算法，不创建对象）
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+            if (!leap) {
+                total--;
+            }
+        }
+        return total - 719528;
+    }
+}
@@ -0,0 +1,47 @@
+package com.shuyixiao.diagnostics;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 计数器：只增不减（重置除外）
+ */
+public final class Counter extends Metric {
+
+    private final AtomicLong count = new AtomicLong();
+
+    Counter(String name, String description) {
+        super(name, description);
+    }
+
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    public void add(long delta) {
+        count.addAndGet(delta);
+    }
+
+    public long get() {
+        return count.get();
+    }
+
+    @Override
+    public String format() {
+        return String.valueOf(count.get());
+    }
+
+    @Override
+    JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", "counter");
+        json.addProperty("count", count.get());
+        return json;
+    }
+
+    @Override
+    void reset() {
+        count.set(0);
+    }
+}
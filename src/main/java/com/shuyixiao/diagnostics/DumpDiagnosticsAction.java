@@ -0,0 +1,52 @@
+package com.shuyixiao.diagnostics;
+
+import com.intellij.openapi.actionSystem.ActionUpdateThread;
+import com.intellij.openapi.actionSystem.AnAction;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.Messages;
+import com.shuyixiao.ui.EnhancedNotificationUtil;
+import org.jetbrains.annotations.NotNull;
+
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+
+/**
+ * 导出诊断信息 Action
+ * 把插件自身的运行指标（{@link PluginMetrics}）以 JSON 复制到剪贴板，方便附在问题反馈里
+ */
+public class DumpDiagnosticsAction extends AnAction {
+
+    @Override
+    public @NotNull ActionUpdateThread getActionUpdateThread() {
+        return ActionUpdateThread.BGT;
+    }
+
+    @Override
+    public void actionPerformed(@NotNull AnActionEvent e) {
+        Project project = e.getProject();
+        if (project == null) {
+            return;
+        }
+        copyToClipboard(project);
+    }
+
+    /**
+     * 复制诊断 JSON（诊断面板的 "复制 JSON" 按钮也使用这里）
+     */
+    public static void copyToClipboard(@NotNull Project project) {
+        try {
+            Toolkit.getDefaultToolkit()
+                    .getSystemClipboard()
+                    .setContents(new StringSelection(PluginMetrics.toJson()), null);
+            EnhancedNotificationUtil.showCopySuccess(project, "诊断信息已复制到剪贴板");
+        } catch (Exception ex) {
+            Messages.showErrorDialog(project, "复制失败: " + ex.getMessage(), "错误");
+        }
+    }
+
+    @Override
+    public void update(@NotNull AnActionEvent e) {
+        e.getPresentation().setEnabledAndVisible(e.getProject() != null);
+    }
+}
@@ -0,0 +1,54 @@
+package com.shuyixiao.diagnostics;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 瞬时值（例如缓冲区大小、队列长度），同时记录出现过的最大值
+ */
+public final class Gauge extends Metric {
+
+    private final AtomicLong value = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    Gauge(String name, String description) {
+        super(name, description);
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+        long current;
+        while (newValue > (current = max.get()) && !max.compareAndSet(current, newValue)) {
+            // 其他线程更新了最大值，重试
+        }
+    }
+
+    public long get() {
+        return value.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    @Override
+    public String format() {
+        return value.get() + "（峰值 " + max.get() + "）";
+    }
+
+    @Override
+    JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", "gauge");
+        json.addProperty("value", value.get());
+        json.addProperty("max", max.get());
+        return json;
+    }
+
+    @Override
+    void reset() {
+        value.set(0);
+        max.set(0);
+    }
+}
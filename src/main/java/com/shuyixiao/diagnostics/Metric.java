@@ -0,0 +1,43 @@
+package com.shuyixiao.diagnostics;
+
+import com.google.gson.JsonObject;
+
+/**
+ * 插件自身的运行指标（见 {@link PluginMetrics}）
+ * 名称按 "模块.指标" 命名，例如 sql.record.save
+ */
+public abstract class Metric {
+
+    private final String name;
+    private final String description;
+
+    Metric(String name, String description) {
+        this.name = name;
+        this.description = description;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 所属模块（名称中第一个点之前的部分）
+     */
+    public String getGroup() {
+        int dot = name.indexOf('.');
+        return dot > 0 ? name.substring(0, dot) : name;
+    }
+
+    /**
+     * 当前值的简短文本，用于诊断面板
+     */
+    public abstract String format();
+
+    abstract JsonObject toJson();
+
+    abstract void reset();
+}
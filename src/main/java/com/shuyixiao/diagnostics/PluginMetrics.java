@@ -0,0 +1,120 @@
+package com.shuyixiao.diagnostics;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 插件自身的运行指标注册表
+ * 指标在类加载时注册为静态常量，热路径上直接引用常量，只做原子自增，不加锁、不查表、不分配对象
+ * 通过 PandaCoder 工具窗口的诊断面板和 "导出诊断信息" 动作查看
+ */
+public final class PluginMetrics {
+
+    private static final List<Metric> METRICS = new CopyOnWriteArrayList<>();
+
+    // ==================== 控制台接入 ====================
+
+    public static final Counter CONSOLE_LINES = counter("console.lines", "控制台接入行数");
+    public static final Counter CONSOLE_LINES_REJECTED = counter("console.lines.rejected", "未被任何监控器接收的行数");
+    public static final Counter CONSOLE_CHARS = counter("console.chars", "控制台接入字符数");
+    public static final Counter CONSOLE_SAMPLED_OUT = counter("console.sampled.skipped", "降载采样跳过的记录数");
+
+    // ==================== SQL Monitor ====================
+
+    public static final Timer SQL_LINE_PARSE = timer("sql.line.parse", "SQL 行解析耗时（每行）");
+    public static final Timer SQL_RECORD_SAVE = timer("sql.record.save", "SQL 记录保存耗时（去重、存储、聚合）");
+    public static final Counter SQL_DEDUPE_HITS = counter("sql.dedupe.hits", "SQL 去重命中数");
+
+    // ==================== ES DSL Monitor ====================
+
+    public static final Timer ES_RECORD_PARSE = timer("es.record.parse", "ES 请求解析保存耗时（每条）");
+    public static final Gauge ES_BUFFER_CHARS = gauge("es.buffer.chars", "ES 上下文缓冲区字符数");
+    public static final Gauge ES_PARSE_QUEUE = gauge("es.parse.queue", "ES 解析队列长度");
+    public static final Counter ES_PENDING_FORCED = counter("es.pending.forced", "等待响应的请求超出上限、不带响应提前解析的 ES 请求数");
+    public static final Counter ES_PARSE_DROPPED = counter("es.parse.dropped", "解析队列已满时丢弃的 ES 请求数");
+    public static final Counter ES_DEDUPE_HITS = counter("es.dedupe.hits", "ES 去重命中数");
+
+    // ==================== 持久化 ====================
+
+    public static final Timer JOURNAL_APPEND = timer("journal.append", "记录日志追加耗时（每批）");
+    public static final Counter JOURNAL_RECORDS = counter("journal.records", "追加到日志的记录数");
+    public static final Timer JOURNAL_COMPACT = timer("journal.compact", "记录日志压缩耗时");
+
+    // ==================== AI 代码检测 ====================
+
+    public static final Timer AI_CODE_DETECT = timer("aicode.detect", "实时 AI 代码检测耗时（每次编辑）");
+
+    // ==================== Git 统计 ====================
+
+    public static final Timer GIT_REFRESH = timer("gitstat.refresh", "Git 统计刷新总耗时");
+    public static final Timer GIT_REFRESH_LOG = timer("gitstat.refresh.log", "git log 读取与解析耗时（每个仓库）");
+    public static final Timer GIT_REFRESH_PROJECT = timer("gitstat.refresh.project", "项目统计计算耗时（每个仓库）");
+    public static final Timer GIT_REFRESH_AI = timer("gitstat.refresh.ai", "AI 统计分析耗时（每个仓库）");
+
+    private PluginMetrics() {
+    }
+
+    private static Counter counter(String name, String description) {
+        return register(new Counter(name, description));
+    }
+
+    private static Gauge gauge(String name, String description) {
+        return register(new Gauge(name, description));
+    }
+
+    private static Timer timer(String name, String description) {
+        return register(new Timer(name, description));
+    }
+
+    private static <T extends Metric> T register(T metric) {
+        METRICS.add(metric);
+        return metric;
+    }
+
+    /**
+     * 全部指标（按注册顺序）
+     */
+    public static List<Metric> getMetrics() {
+        return Collections.unmodifiableList(METRICS);
+    }
+
+    /**
+     * 清零全部指标
+     */
+    public static void reset() {
+        for (Metric metric : METRICS) {
+            metric.reset();
+        }
+    }
+
+    /**
+     * 导出为 JSON（附带当前堆内存占用）
+     */
+    public static String toJson() {
+        JsonObject root = new JsonObject();
+        root.addProperty("timestamp", LocalDateTime.now().toString());
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        JsonObject memory = new JsonObject();
+        memory.addProperty("heapUsedMb", heap.getUsed() / (1024 * 1024));
+        memory.addProperty("heapMaxMb", heap.getMax() / (1024 * 1024));
+        root.add("memory", memory);
+
+        JsonObject metrics = new JsonObject();
+        for (Metric metric : METRICS) {
+            JsonObject json = metric.toJson();
+            json.addProperty("description", metric.getDescription());
+            metrics.add(metric.getName(), json);
+        }
+        root.add("metrics", metrics);
+
+        return new GsonBuilder().setPrettyPrinting().create().toJson(root);
+    }
+}
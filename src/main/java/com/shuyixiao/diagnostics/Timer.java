@@ -0,0 +1,97 @@
+package com.shuyixiao.diagnostics;
+
+import com.google.gson.JsonObject;
+import com.shuyixiao.util.ConcurrentLatencyHistogram;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 计时器：累计耗时和微秒级延迟直方图
+ * 用法：{@code long start = System.nanoTime(); ...; timer.recordSince(start);}
+ */
+public final class Timer extends Metric {
+
+    private final ConcurrentLatencyHistogram micros = new ConcurrentLatencyHistogram();
+    private final AtomicLong totalNanos = new AtomicLong();
+
+    Timer(String name, String description) {
+        super(name, description);
+    }
+
+    /**
+     * 记录从 startNanos（{@link System#nanoTime()}）到现在的耗时
+     */
+    public void recordSince(long startNanos) {
+        recordNanos(System.nanoTime() - startNanos);
+    }
+
+    public void recordNanos(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        totalNanos.addAndGet(nanos);
+        micros.record(nanos / 1_000);
+    }
+
+    public long getCount() {
+        return micros.getTotalCount();
+    }
+
+    public long getTotalNanos() {
+        return totalNanos.get();
+    }
+
+    /**
+     * 分位数（微秒）
+     */
+    public long getPercentileMicros(double percentile) {
+        return micros.getPercentile(percentile);
+    }
+
+    public long getMaxMicros() {
+        return micros.getMax();
+    }
+
+    @Override
+    public String format() {
+        long count = getCount();
+        if (count == 0) {
+            return "0 次";
+        }
+        return String.format("%d 次 | 累计 %s | p50 %s | p99 %s | 最大 %s",
+                count,
+                formatMicros(totalNanos.get() / 1_000),
+                formatMicros(micros.getPercentile(50)),
+                formatMicros(micros.getPercentile(99)),
+                formatMicros(micros.getMax()));
+    }
+
+    @Override
+    JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", "timer");
+        json.addProperty("count", getCount());
+        json.addProperty("totalMillis", totalNanos.get() / 1_000_000);
+        json.addProperty("p50Micros", micros.getPercentile(50));
+        json.addProperty("p90Micros", micros.getPercentile(90));
+        json.addProperty("p99Micros", micros.getPercentile(99));
+        json.addProperty("maxMicros", micros.getMax());
+        return json;
+    }
+
+    @Override
+    void reset() {
+        micros.clear();
+        totalNanos.set(0);
+    }
+
+    static String formatMicros(long micros) {
+        if (micros < 1_000) {
+            return micros + "µs";
+        }
+        if (micros < 1_000_000) {
+            return String.format("%.1fms", micros / 1_000.0);
+        }
+        return String.format("%.2fs", micros / 1_000_000.0);
+    }
+}
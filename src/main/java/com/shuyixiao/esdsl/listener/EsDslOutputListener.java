@@ -1,24 +1,36 @@
 package com.shuyixiao.esdsl.listener;
 
-import com.intellij.execution.process.ProcessEvent;
-import com.intellij.execution.process.ProcessListener;
-import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
-import com.intellij.openapi.util.Key;
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.console.ConsoleLineSink;
+import com.shuyixiao.console.ConsoleRingBuffer;
+import com.shuyixiao.console.IngestGovernor;
+import com.shuyixiao.console.LogContext;
+import com.shuyixiao.console.LogLineClassifier;
+import com.shuyixiao.diagnostics.PluginMetrics;
 import com.shuyixiao.esdsl.model.EsDslRecord;
 import com.shuyixiao.esdsl.parser.EsDslParser;
+import com.shuyixiao.esdsl.parser.EsResponseSniffer;
+import com.shuyixiao.esdsl.parser.JsonObjectFramer;
 import com.shuyixiao.esdsl.service.EsDslRecordService;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.ArrayDeque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * ES DSL 输出监听器 - 高性能异步版
  * 监听控制台输出，异步捕获 Elasticsearch 查询 DSL
- * 使用合理的缓冲区大小和异步处理，不影响 IDEA 性能
+ * 使用固定容量的环形缓冲区和异步处理，不影响 IDEA 性能
+ * 作为控制台分发器的 sink，只接收 ES / API 上下文行，以及 curl 请求到下一条日志之间的延续行（请求体、响应）
+ * 行的类别由分发器的 {@link LogLineClassifier} 一次分类得到，这里不再重复匹配关键词
+ * 解析由切分事件驱动：curl 请求体切分完成后等待响应，响应结束（或确认没有响应）时
+ * 该请求即完整，连同其上下文一起交给单线程解析队列，不再按时间间隔和关键词猜测何时解析
  */
-public class EsDslOutputListener implements ProcessListener {
+public class EsDslOutputListener implements ConsoleLineSink {
     
     private static final Logger LOG = Logger.getInstance(EsDslOutputListener.class);
     
@@ -30,80 +42,138 @@ public class EsDslOutputListener implements ProcessListener {
     // ⚠️ 从50KB增加到200KB以确保大型响应不会丢失上下文
     private static final int CROSS_LINE_RETAIN_SIZE = 200000;
     
-    // 触发解析的最小缓冲区大小 (降低门槛)
-    private static final int MIN_PARSE_TRIGGER_SIZE = 200;
+    // 环形缓冲区容量：超过 MAX_BUFFER_SIZE 触发解析后，余量保证新输出不会马上覆盖待解析内容
+    private static final int RING_CAPACITY = MAX_BUFFER_SIZE + CROSS_LINE_RETAIN_SIZE;
     
-    // TRACE 日志结束标记（响应 JSON 的结束）
-    private static final String TRACE_END_MARKER_1 = "]}}}";
-    private static final String TRACE_END_MARKER_2 = "# {\"took\":";
+    // 等待解析的 DSL 上限，超出时最早的一个不再等待响应，直接交给解析队列
+    private static final int MAX_PENDING_DSL = 64;
     
-    // RequestLogger 日志标记
-    private static final String REQUEST_LOGGER_MARKER = "RequestLogger.java";
-    private static final String CURL_MARKER = "curl -";
+    // 解析队列容量：队列满时丢弃新的请求并计入降载跳过数，读取线程自己从不解析（不阻塞控制台输出）
+    private static final int MAX_QUEUED_PARSES = 256;
     
-    // 调试模式：输出详细日志(优化后减少噪音)
-    private static final boolean DEBUG_MODE = true;
-    private static final boolean VERBOSE_MODE = true; // 超详细模式(临时启用用于诊断)
+    // 慢查询阈值：降载采样期间，took 达到该值的请求始终保留
+    private static final long SLOW_QUERY_MILLIS = 1000;
     
     private final Project project;
     private final EsDslRecordService recordService;
-    private final StringBuilder buffer = new StringBuilder();
+    // 所属进程的降载调节器：输出过多时只解析部分请求
+    private final IngestGovernor governor;
+    // 环形缓冲区，只在读取线程上访问；交给解析线程的上下文在分发时复制出来
+    private final ConsoleRingBuffer buffer = new ConsoleRingBuffer(RING_CAPACITY);
     
-    // 标记是否正在解析（避免并发解析）
-    private final AtomicBoolean isParsing = new AtomicBoolean(false);
+    // 最近一条 curl 请求之后还没有出现新的日志行：其间的延续行（请求体、响应）都要保留
+    private boolean requestOpen = false;
     
-    // 上次解析时间（避免频繁解析）
-    private long lastParseTime = 0;
-    private static final long MIN_PARSE_INTERVAL_MS = 50; // 减少到 50ms
+    // 最近一条 RequestLogger 日志所在线程的上下文，解析出的记录归入该请求
+    // 并发请求交错输出时，直接取该线程的 API 路径，不再依赖缓冲区里最后出现的那一条
+    private volatile LogContext lastContext = LogContext.EMPTY;
+    
+    // 追加到缓冲区的行同时喂给切分器，每个 JSON 对象只切分和验证一次
+    private final JsonObjectFramer framer = new JsonObjectFramer(this::onJsonObject);
+    // 已验证为 DSL、还没有解析成记录的对象（按出现顺序，只有读取线程访问）
+    private final ArrayDeque<PendingDsl> pendingDsl = new ArrayDeque<>();
+    // "# " 开头的响应行交给嗅探器，只提取 took、hits.total 等字段，响应正文不进入缓冲区
+    private final EsResponseSniffer responseSniffer = new EsResponseSniffer(this::onResponse);
+    // 该位置之前的 DSL 不会再有响应（之后出现了非响应行），可以直接解析
+    private long responsesEndedAt = 0;
+    // 已交给解析队列的上下文终点，下一个请求的上下文从这里开始
+    private long dispatchedTo = 0;
+    
+    // 单消费者解析队列：按请求完成的顺序解析，空闲时线程自动退出
+    // 记录服务的去重和保存只在这个线程上进行
+    private final ThreadPoolExecutor parser = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(MAX_QUEUED_PARSES), r -> {
+                Thread thread = new Thread(r, "ES-DSL-Parser");
+                thread.setDaemon(true);
+                return thread;
+            }, this::onParseRejected);
     
     public EsDslOutputListener(@NotNull Project project) {
+        this(project, new IngestGovernor());
+    }
+    
+    public EsDslOutputListener(@NotNull Project project, @NotNull IngestGovernor governor) {
         this.project = project;
         this.recordService = project.getService(EsDslRecordService.class);
+        this.governor = governor;
+        this.parser.allowCoreThreadTimeOut(true);
+    }
+    
+    @Override
+    public int getInterestMask() {
+        return LogLineClassifier.ES | LogLineClassifier.API_CONTEXT;
+    }
+    
+    @Override
+    public boolean isCapturing() {
+        return requestOpen || framer.isInObject() || responseSniffer.isInResponse();
     }
     
     @Override
-    public void startNotified(@NotNull ProcessEvent event) {
+    public void onProcessStarted() {
         LOG.warn("===============================================");
         LOG.warn("[ES DSL] 🚀 监听器已启动！");
         LOG.warn("[ES DSL] 项目: " + project.getName());
         LOG.warn("[ES DSL] 项目路径: " + (project.getBasePath() != null ? project.getBasePath() : "Unknown"));
-        LOG.warn("[ES DSL] DEBUG 模式: " + DEBUG_MODE);
+        LOG.warn("[ES DSL] DEBUG 模式: " + LOG.isDebugEnabled());
         LOG.warn("===============================================");
     }
     
     @Override
-    public void processTerminated(@NotNull ProcessEvent event) {
+    public void onProcessTerminated() {
         LOG.debug("Process terminated, ES DSL monitoring stopped");
+        // 进程结束后不会再有响应，先把等待中的请求交给解析队列
+        if (!framer.isInObject()) {
+            responsesEndedAt = buffer.tail();
+            dispatchCompleted();
+        }
         // 清空缓冲区
-        buffer.setLength(0);
+        buffer.clear();
+        framer.reset();
+        responseSniffer.reset();
+        pendingDsl.clear();
+        responsesEndedAt = 0;
+        dispatchedTo = 0;
+        requestOpen = false;
+        lastContext = LogContext.EMPTY;
     }
     
     @Override
-    public void processWillTerminate(@NotNull ProcessEvent event, boolean willBeDestroyed) {
-        // 进程即将终止
-    }
-    
-    @Override
-    @SuppressWarnings("rawtypes")
-    public void onTextAvailable(@NotNull ProcessEvent event, @NotNull Key outputType) {
-        String text = event.getText();
-        if (text == null || text.isEmpty()) {
+    public void onLine(@NotNull CharSequence line, int start, int end, int categories,
+                       @NotNull ApiContextTracker context) {
+        // SQL 日志交给 SQL Monitor（捕获期间分发器也会送来 SQL 行）
+        if (LogLineClassifier.has(categories, LogLineClassifier.SQL)) {
             return;
         }
         
+        boolean newLogLine = LogLineClassifier.startsWithDate(line, start, end);
+        if (!isResponseLine(line, start, end) && !framer.isInObject()) {
+            // 响应行之后的第一行（包括下一条 TRACE 日志）：此前的请求要么已拿到响应，要么没有响应
+            responseSniffer.reset();
+            responsesEndedAt = buffer.tail();
+            dispatchCompleted();
+            if (newLogLine) {
+                // 新的日志行结束了上一个请求的延续行，之后只接收 ES / API 上下文行
+                requestOpen = false;
+            }
+        }
         try {
             // ✅ 优先处理新的TRACE RequestLogger日志(不通过shouldKeepText检查)
-            if (text.contains("TRACE") && text.contains("RequestLogger") && text.contains("curl")) {
+            if (LogLineClassifier.has(categories, LogLineClassifier.ES_REQUEST_LOGGER)
+                    && LogLineClassifier.has(categories, LogLineClassifier.ES_CURL)
+                    && isTraceLevel(line, start, end)) {
                 // ✅ 不要清空缓冲区!保留之前的API路径等上下文信息
-                // 直接添加新TRACE日志到缓冲区
-                buffer.append(text);
+                // 先记下上下文，同一行切分出的 DSL 归入该请求
+                requestOpen = true;
+                lastContext = context.current();
+                appendLine(line, start, end);
                 
                 // 调试：如果包含关键词，输出日志
-                if (DEBUG_MODE) {
-                    LOG.warn("[ES DSL] 📨 检测到 TRACE RequestLogger 日志！");
-                    LOG.warn("[ES DSL] 文本长度: " + text.length());
-                    LOG.warn("[ES DSL] 当前缓冲区大小: " + (buffer.length() / 1024) + "KB");
-                    LOG.warn("[ES DSL] 前150字符: " + text.substring(0, Math.min(150, text.length())));
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("[ES DSL] 📨 检测到 TRACE RequestLogger 日志！");
+                    LOG.debug("[ES DSL] 文本长度: " + (end - start));
+                    LOG.debug("[ES DSL] 当前缓冲区大小: " + (buffer.size() / 1024) + "KB");
+                    LOG.debug("[ES DSL] 前150字符: " + line.subSequence(start, Math.min(end, start + 150)));
                 }
                 
                 // ⚠️ 不要立即解析，等待后续的响应数据
@@ -111,365 +181,337 @@ public class EsDslOutputListener implements ProcessListener {
             }
             
             // ✅ 智能过滤：只保留ES相关的日志行
-            if (shouldKeepText(text)) {
-                buffer.append(text);
-            }
-            
-            // 快速检查：缓冲区太大时立即触发解析（避免丢失API路径等重要信息）
-            if (buffer.length() > MAX_BUFFER_SIZE) {
-                if (DEBUG_MODE) {
-                    LOG.warn("[ES DSL] ⚠️ 缓冲区超过限制(" + (buffer.length() / 1024) + "KB)，立即触发解析");
+            if (shouldKeepText(line, start, end, categories)) {
+                if (LogLineClassifier.has(categories, LogLineClassifier.ES_REQUEST_LOGGER)) {
+                    lastContext = context.current();
                 }
-                // ✅ 立即解析缓冲区内容，不要丢弃前面的部分（API路径在前面）
-                ApplicationManager.getApplication().executeOnPooledThread(() -> {
-                    try {
-                        String bufferedText = buffer.toString();
-                        parseAndSave(bufferedText);
-                    } catch (Exception e) {
-                        LOG.error("[ES DSL] 解析失败", e);
-                    }
-                });
-                return;
+                appendLine(line, start, end);
             }
             
-            // 智能触发：只在检测到可能的完整日志时才解析
-            if (shouldTriggerParse(text)) {
-                // 异步解析，不阻塞主线程
-                triggerAsyncParse();
-            }
-            
-            // 轻量级清理：定期清理缓冲区
-            if (shouldCleanBuffer(text)) {
-                cleanBuffer();
+            // 缓冲区太大时只保留最近的上下文（待解析的 DSL 已单独保存，不会丢失）
+            if (buffer.size() > MAX_BUFFER_SIZE) {
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("[ES DSL] ⚠️ 缓冲区超过限制(" + (buffer.size() / 1024) + "KB)，只保留最近的上下文");
+                }
+                buffer.retainLast(CROSS_LINE_RETAIN_SIZE);
             }
+            PluginMetrics.ES_BUFFER_CHARS.set(buffer.size());
             
         } catch (Exception e) {
             LOG.error("Error processing ES DSL output", e);
         }
     }
     
-    
     /**
-     * 判断是否应该保留该文本到缓冲区
-     * 只保留ES相关的日志,过滤掉Spring Boot启动日志等无关内容
+     * 追加一行到缓冲区，同时喂给切分器或响应嗅探器
      */
-    private boolean shouldKeepText(String text) {
-        if (text == null || text.isEmpty()) {
-            return false;
+    private void appendLine(CharSequence line, int start, int end) {
+        if (isResponseLine(line, start, end)) {
+            if (responseSniffer.feedLine(line, start, end, buffer.tail())) {
+                // 响应正文已提取摘要，不再保存（大型响应可达数 MB）
+                return;
+            }
+        } else {
+            framer.feedLine(line, start, end, buffer.tail());
         }
-        
-        String lowerText = text.toLowerCase();
-        
-        // ✅ 明确过滤掉SQL日志（让SQL Monitor处理）
-        // SQL日志特征：basejdbclogger, preparing:, parameters:, ==>, <==
-        if (lowerText.contains("basejdbclogger") ||
-            lowerText.contains("preparing:") ||
-            lowerText.contains("parameters:") ||
-            (lowerText.contains("==>") && (lowerText.contains("preparing") || lowerText.contains("parameters"))) ||
-            (lowerText.contains("<==") && lowerText.contains("total:"))) {
-            return false;
+        buffer.append(line, start, end);
+        buffer.append('\n');
+    }
+    
+    /**
+     * 切分出一个完整的 JSON 对象：只在这里验证一次，是 DSL 时记下它在缓冲区中的位置
+     */
+    private void onJsonObject(CharSequence json, long offset) {
+        if (!EsDslParser.isEsDsl(json)) {
+            return;
         }
-        
-        // ❌ 明确过滤掉Spring框架日志
-        // ⚠️ 注意：不要过滤掉包含API路径的Controller日志和调用ES的Service日志
-        if (lowerText.contains("repositoryconfigurationdelegate") ||
-            lowerText.contains("tomcatwebserver") ||
-            lowerText.contains("dingtalkstreammanager") ||
-            lowerText.contains("dingtalkbootstrap") ||
-            lowerText.contains("nettyinternallogger") ||
-            lowerText.contains("rabbitmqregister") ||
-            lowerText.contains("shedlockconfiguration") ||
-            lowerText.contains("satoken") ||
-            lowerText.contains("redisson") ||
-            lowerText.contains("hikaripool") ||
-            lowerText.contains("servlet") ||
-            lowerText.contains("spring boot") ||
-            lowerText.contains("mybatisplus")) {
-            return false;
+        if (pendingDsl.size() >= MAX_PENDING_DSL) {
+            dispatchEvicted();
         }
-        
-        // ✅ 保留包含API路径的日志（Controller、Service等）
-        // 但要排除SQL相关的Controller日志
-        if ((lowerText.contains("api:") || lowerText.contains("uri:") || 
-            lowerText.contains("controller")) && 
-            !lowerText.contains("basejdbclogger")) {
-            return true;
+        pendingDsl.addLast(new PendingDsl(json.toString(), offset, lastContext));
+    }
+    
+    /**
+     * 一个完整的响应：归入最近一个还在等待响应的 DSL
+     */
+    private void onResponse(EsResponseSniffer.Response response, long offset) {
+        PendingDsl dsl = pendingDsl.peekLast();
+        if (dsl != null && dsl.response == null && dsl.offset >= responsesEndedAt && dsl.offset < offset) {
+            dsl.response = response;
+            // 响应结束：该请求已完整
+            dispatchCompleted();
         }
-        
-        // ✅ 保留调用ES的Service类日志
-        if (lowerText.contains("vectordataretrieverelastic") ||
-            lowerText.contains("vectorassistant") ||
-            (lowerText.contains("elastic") && !lowerText.contains("basejdbclogger"))) {
-            return true;
+    }
+    
+    /**
+     * 取出第一个已完整的 DSL（拿到了响应，或之后出现了非响应行）
+     * 第一个 DSL 还在等待响应时返回 null，保证按出现顺序解析
+     */
+    private PendingDsl nextCompletedDsl() {
+        PendingDsl dsl = pendingDsl.peekFirst();
+        if (dsl == null || (dsl.response == null && dsl.offset >= responsesEndedAt)) {
+            return null;
         }
-        
-        // ✅ 只保留RequestLogger的TRACE日志(完整行),不保留DEBUG日志
-        if (lowerText.contains("requestlogger") && lowerText.contains("trace")) {
-            return true;
+        return pendingDsl.pollFirst();
+    }
+    
+    /**
+     * 把已完整的请求连同上下文交给解析队列
+     * 上下文是上一个请求之后到现在的缓冲区内容（API 路径、调用类、curl 命令、响应头），
+     * 在读取线程中复制出来，之后缓冲区怎样覆盖都不影响解析
+     */
+    private void dispatchCompleted() {
+        PendingDsl dsl = nextCompletedDsl();
+        if (dsl == null) {
+            return;
         }
-        
-        // ✅ 如果缓冲区已经有RequestLogger内容,保留后续的所有行直到遇到新的日志
-        if (buffer.length() > 0) {
-            String bufferedText = buffer.toString();
-            // 检查缓冲区是否有RequestLogger日志
-            if (bufferedText.contains("RequestLogger")) {
-                // 保留后续的行(可能是curl命令的continuation、响应头、JSON响应等)
-                if (text.startsWith("#") ||                    // 响应行
-                    text.contains("'") ||                       // curl参数
-                    text.contains("-d") ||                      // curl data
-                    text.contains("{") ||                       // JSON
-                    text.trim().isEmpty() ||                    // 空行
-                    (!text.matches("^\\d{4}-\\d{2}-\\d{2}.*") && !lowerText.contains("info") && !lowerText.contains("debug"))) {  // 不是新日志行
-                    return true;
-                }
-                
-                // ⚠️ 如果是新的日志行,但包含API路径或ES相关信息,也要保留
-                // 这种情况发生在:TRACE日志先到达,然后才是Controller日志
-                if (text.matches("^\\d{4}-\\d{2}-\\d{2}.*")) {
-                    // 检查是否包含API路径或ES相关信息
-                    if (lowerText.contains("api:") || lowerText.contains("uri:") ||
-                        lowerText.contains("controller") || lowerText.contains("vectordata") ||
-                        lowerText.contains("elastic")) {
-                        return true;
-                    }
-                }
+        long from = Math.max(buffer.head(), dispatchedTo);
+        long to = buffer.tail();
+        String text = null;
+        do {
+            // 降载期间只解析部分请求，慢查询和失败的请求始终保留
+            if (!governor.admit(isImportant(dsl.response))) {
+                continue;
             }
-        }
+            if (text == null) {
+                text = buffer.view(from, to).toString();
+            }
+            submit(dsl, text, from);
+        } while ((dsl = nextCompletedDsl()) != null);
+        PluginMetrics.ES_PARSE_QUEUE.set(parser.getQueue().size());
         
-        return false;
+        dispatchedTo = to;
+        consumeParsed(to);
     }
     
     /**
-     * 判断是否应该触发解析
-     * 优化后的触发条件，降低门槛
+     * 等待中的 DSL 超出上限：最早的一个按响应未知处理，立即交给解析队列，不丢弃
+     * 上下文只到该 DSL 结束处，之后的内容仍留给后面的请求
      */
-    private boolean shouldTriggerParse(String text) {
-        // 检查时间间隔（避免过于频繁）
-        long now = System.currentTimeMillis();
-        if (now - lastParseTime < MIN_PARSE_INTERVAL_MS) {
-            if (DEBUG_MODE && buffer.length() > 1000) {
-                LOG.debug("[ES DSL] 跳过触发：时间间隔太短 (" + (now - lastParseTime) + "ms < " + MIN_PARSE_INTERVAL_MS + "ms)");
-            }
-            return false;
+    private void dispatchEvicted() {
+        PendingDsl dsl = pendingDsl.pollFirst();
+        PluginMetrics.ES_PENDING_FORCED.increment();
+        long from = Math.max(buffer.head(), dispatchedTo);
+        long to = Math.max(from, Math.min(buffer.tail(), dsl.offset + dsl.json.length()));
+        if (governor.admit(false)) {
+            submit(dsl, buffer.view(from, to).toString(), from);
         }
+        dispatchedTo = to;
+    }
+    
+    /**
+     * 交给单线程解析队列
+     *
+     * @param context 该请求的上下文（已从缓冲区复制）
+     * @param from    上下文在缓冲区中的起始位置
+     */
+    private void submit(PendingDsl dsl, String context, long from) {
+        // DSL 所在行已被覆盖时（超大请求）只能从上下文开头查找方法和 URL
+        int dslPos = (int) Math.max(0, dsl.offset - from);
+        parser.execute(() -> parseAndSave(context, dsl, dslPos));
+    }
+    
+    /**
+     * 判断是否应该保留该文本到缓冲区
+     * 只保留ES相关的日志,过滤掉Spring Boot启动日志等无关内容
+     */
+    private boolean shouldKeepText(CharSequence line, int start, int end, int categories) {
+        // SQL 日志已由控制台分发器路由给 SQL Monitor，这里不再重复过滤
         
-        // 检查缓冲区大小
-        if (buffer.length() < MIN_PARSE_TRIGGER_SIZE) {
+        // ❌ 明确过滤掉Spring框架日志
+        // ⚠️ 注意：不要过滤掉包含API路径的Controller日志和调用ES的Service日志
+        if (LogLineClassifier.has(categories, LogLineClassifier.FRAMEWORK_NOISE)) {
             return false;
         }
         
-        // 检查是否包含关键标记
-        String lowerText = text.toLowerCase();
-        String bufferedText = buffer.toString();
-        String bufferedLower = bufferedText.toLowerCase();
-        
-        // 1. TRACE 日志完整标记（包含响应）
-        if (text.contains(TRACE_END_MARKER_1) || text.contains(TRACE_END_MARKER_2)) {
-            if (DEBUG_MODE) {
-                LOG.info("[ES DSL] ✅ 触发解析：检测到 TRACE 日志结束标记，缓冲区大小: " + (buffer.length() / 1024) + "K");
-            }
-            return true;
-        }
-        
-        // 2. RequestLogger 日志（放宽条件）
-        if (text.contains(REQUEST_LOGGER_MARKER) || bufferedLower.contains("requestlogger")) {
-            if (DEBUG_MODE) {
-                LOG.info("[ES DSL] ✅ 触发解析：检测到 RequestLogger 日志，缓冲区大小: " + (buffer.length() / 1024) + "K");
-            }
+        // ✅ 保留包含API路径的日志（Controller、Service等）
+        if (LogLineClassifier.has(categories, LogLineClassifier.API_CONTEXT)) {
             return true;
         }
         
-        // 3. curl 命令（放宽条件：只要有 curl 和 -d）
-        if (lowerText.contains(CURL_MARKER)) {
-            // 检查缓冲区中是否有 -d 参数
-            if (bufferedLower.contains("-d")) {
-                // 检查是否有 JSON 结束
-                if (bufferedText.contains("'}") || bufferedText.contains("\"}") || 
-                    bufferedText.contains("'}\n") || bufferedText.contains("\"}\n")) {
-                    if (DEBUG_MODE) {
-                        LOG.info("[ES DSL] ✅ 触发解析：检测到完整 curl 命令，缓冲区大小: " + (buffer.length() / 1024) + "K");
-                    }
-                    return true;
-                }
-            }
-        }
-        
-        // 4. ES 查询相关关键词 + JSON 结束（缓冲区检查）
-        if ((bufferedLower.contains("_search") || bufferedLower.contains("elasticsearch")) 
-            && bufferedText.contains("}")) {
-            // 确保有 JSON 对象
-            if (bufferedText.contains("{\"") || bufferedText.contains("{ \"")) {
-                if (DEBUG_MODE) {
-                    LOG.info("[ES DSL] ✅ 触发解析：检测到 ES 查询关键词 + JSON，缓冲区大小: " + (buffer.length() / 1024) + "K");
-                }
-                return true;
-            }
+        // ✅ 只保留RequestLogger的TRACE日志(完整行),不保留DEBUG日志
+        if (LogLineClassifier.has(categories, LogLineClassifier.ES_REQUEST_LOGGER)) {
+            return isTraceLevel(line, start, end);
         }
         
-        // 5. 缓冲区较大时，定期尝试解析（避免遗漏）
-        if (buffer.length() > 5000 && text.contains("\n")) {
-            if (bufferedLower.contains("elastic") || bufferedLower.contains("_search") || 
-                bufferedLower.contains("query") || bufferedLower.contains("curl")) {
-                if (DEBUG_MODE) {
-                    LOG.info("[ES DSL] ⚠️ 触发解析：缓冲区较大 (" + (buffer.length() / 1024) + "K)，尝试解析");
-                }
-                return true;
-            }
+        // ✅ 保留调用ES的Service类日志
+        if (LogLineClassifier.has(categories, LogLineClassifier.ES)) {
+            return true;
         }
         
-        return false;
+        // ✅ curl 请求之后、下一条日志之前的延续行(curl参数、请求体、响应头、响应JSON、空行)
+        return isCapturing() && !LogLineClassifier.startsWithDate(line, start, end);
     }
     
     /**
-     * 异步触发解析
+     * 解析队列已满：丢弃该请求并计数，不在读取线程（持有分发器的锁）上解析
      */
-    private void triggerAsyncParse() {
-        // 避免并发解析
-        if (!isParsing.compareAndSet(false, true)) {
-            return;
+    private void onParseRejected(Runnable task, ThreadPoolExecutor executor) {
+        governor.shed();
+        PluginMetrics.ES_PARSE_DROPPED.increment();
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("[ES DSL] ⚠️ 解析队列已满(" + MAX_QUEUED_PARSES + ")，丢弃一条请求");
         }
-        
-        lastParseTime = System.currentTimeMillis();
-        
-        // 获取当前缓冲区内容的快照
-        final String bufferedText = buffer.toString();
-        
-        // 在后台线程异步解析（不阻塞 IDEA）
-        ApplicationManager.getApplication().executeOnPooledThread(() -> {
-            try {
-                parseAndSave(bufferedText);
-            } finally {
-                isParsing.set(false);
-            }
-        });
+    }
+    
+    private static boolean isImportant(EsResponseSniffer.Response response) {
+        if (response == null) {
+            return false;
+        }
+        Long took = response.getTook();
+        Integer shardsFailed = response.getShardsFailed();
+        return (took != null && took >= SLOW_QUERY_MILLIS)
+                || Boolean.TRUE.equals(response.getTimedOut())
+                || (shardsFailed != null && shardsFailed > 0);
     }
     
     /**
-     * 解析并保存 DSL
+     * 解析并保存 DSL（在解析队列的线程中执行）
+     *
+     * @param bufferedText 该请求的上下文（分发时复制）
+     * @param dslPos       DSL 在上下文中的起始位置
      */
-    private void parseAndSave(String bufferedText) {
+    private void parseAndSave(String bufferedText, PendingDsl dsl, int dslPos) {
+        long startNanos = System.nanoTime();
         try {
-            if (DEBUG_MODE) {
+            if (LOG.isDebugEnabled()) {
                 LOG.debug("[ES DSL] 🔍 开始解析，文本长度: " + (bufferedText.length() / 1024) + "K");
             }
             
-            // 快速检查
-            if (!EsDslParser.containsEsDsl(bufferedText)) {
-                if (DEBUG_MODE) {
-                    LOG.debug("[ES DSL] ⚠️ 不包含 ES DSL 关键词，跳过");
-                }
-                // ✅ 即使不包含ES DSL，也要清理缓冲区
-                clearBufferInUIThread();
-                return;
-            }
+            // 用切分时记下的 DSL 构建记录，不再重新提取和验证 JSON 块
+            EsDslRecord record = EsDslParser.parseEsDsl(bufferedText, project.getName(), dsl.json,
+                    dslPos, dsl.response);
             
-            if (DEBUG_MODE) {
-                LOG.debug("[ES DSL] 📝 包含 ES DSL 关键词，开始详细解析...");
-            }
-            
-            // 解析 DSL
-            EsDslRecord record = EsDslParser.parseEsDsl(bufferedText, project.getName());
             if (record != null) {
+                if (dsl.context != LogContext.EMPTY) {
+                    record = withContext(record, dsl.context);
+                }
+                
                 // 保存记录（在后台线程，带去重）
                 recordService.addRecord(record);
                 
-                // 日志输出
-                LOG.info("✅ 成功捕获 ES DSL 查询:");
-                LOG.info("  ├─ 索引: " + record.getIndex());
-                LOG.info("  ├─ 方法: " + record.getMethod());
-                LOG.info("  ├─ 端点: " + record.getEndpoint());
-                LOG.info("  ├─ 来源: " + record.getSource());
-                LOG.info("  ├─ API路径: " + (record.getApiPath() != null ? record.getApiPath() : "N/A"));
-                LOG.info("  ├─ 调用类: " + (record.getCallerClass() != null ? record.getCallerClass() : "N/A"));
-                LOG.info("  └─ DSL 长度: " + ((record.getDslQuery() != null ? record.getDslQuery().length() : 0) / 1024) + "K");
-                
-                // ✅ 立即清理缓冲区（在 UI 线程）
-                clearBufferInUIThread();
-            } else {
-                if (DEBUG_MODE) {
-                    LOG.warn("[ES DSL] ❌ 解析失败，返回 null (缓冲区: " + (bufferedText.length() / 1024) + "KB)");
+                // 日志输出（每条记录一组，只在调试时输出）
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("✅ 成功捕获 ES DSL 查询:");
+                    LOG.debug("  ├─ 索引: " + record.getIndex());
+                    LOG.debug("  ├─ 方法: " + record.getMethod());
+                    LOG.debug("  ├─ 端点: " + record.getEndpoint());
+                    LOG.debug("  ├─ 来源: " + record.getSource());
+                    LOG.debug("  ├─ API路径: " + (record.getApiPath() != null ? record.getApiPath() : "N/A"));
+                    LOG.debug("  ├─ 调用类: " + (record.getCallerClass() != null ? record.getCallerClass() : "N/A"));
+                    if (record.getHitsTotal() != null) {
+                        LOG.debug("  ├─ took: " + record.getExecutionTime() + "ms, 命中: " + record.getFormattedHitsTotal()
+                                + ", 返回: " + record.getReturnedHits() + ", 响应: " + (record.getResponseSize() / 1024) + "K");
+                    }
+                    LOG.debug("  └─ DSL 长度: " + ((record.getDslQuery() != null ? record.getDslQuery().length() : 0) / 1024) + "K");
                 }
-                
-                // ✅ 解析失败也要清理缓冲区，避免重复解析
-                clearBufferInUIThread();
-                
-                // ✅ 只在超详细模式下输出完整诊断信息
-                if (VERBOSE_MODE && bufferedText.contains("TRACE") && bufferedText.contains("RequestLogger")) {
-                    LOG.warn("[ES DSL] 调试信息:");
-                    LOG.warn("  - 文本长度: " + bufferedText.length());
-                    LOG.warn("  - 包含 'TRACE': " + bufferedText.contains("TRACE"));
-                    LOG.warn("  - 包含 'RequestLogger': " + bufferedText.contains("RequestLogger"));
-                    LOG.warn("  - 包含 'curl': " + bufferedText.contains("curl"));
-                    LOG.warn("  - 包含 '-d': " + bufferedText.contains("-d"));
-                    LOG.warn("  - 包含 'GET': " + bufferedText.contains("GET"));
+            } else {
+                // ✅ 只在调试时输出完整诊断信息
+                if (LOG.isDebugEnabled()) {
+                    LOG.debug("[ES DSL] ❌ 解析失败，返回 null (缓冲区: " + (bufferedText.length() / 1024) + "KB)");
                     
-                    // 输出前500字符用于诊断
-                    LOG.warn("[ES DSL] 前500字符: " + bufferedText.substring(0, Math.min(500, bufferedText.length())));
+                    int found = LogLineClassifier.classify(bufferedText, 0, bufferedText.length());
+                    if (LogLineClassifier.has(found, LogLineClassifier.ES_REQUEST_LOGGER)) {
+                        LOG.debug("[ES DSL] 调试信息:");
+                        LOG.debug("  - 文本长度: " + bufferedText.length());
+                        LOG.debug("  - 包含 'curl': " + LogLineClassifier.has(found, LogLineClassifier.ES_CURL));
+                        LOG.debug("  - 包含 '-d': " + bufferedText.contains("-d"));
+                        
+                        // 输出前500字符用于诊断
+                        LOG.debug("[ES DSL] 前500字符: " + bufferedText.subSequence(0, Math.min(500, bufferedText.length())));
+                    }
                 }
             }
         } catch (Exception e) {
             LOG.warn("[ES DSL] ❌ 解析异常", e);
-            // ✅ 异常时也要清理缓冲区
-            clearBufferInUIThread();
+        } finally {
+            long elapsed = System.nanoTime() - startNanos;
+            governor.recordParseTime(elapsed);
+            PluginMetrics.ES_RECORD_PARSE.recordNanos(elapsed);
         }
     }
     
     /**
-     * 在UI线程中清理缓冲区（保留上下文）
+     * 复制记录并设置所属请求：API 路径以线程上下文为准，上下文没有时保留从缓冲区提取的值
      */
-    private void clearBufferInUIThread() {
-        ApplicationManager.getApplication().invokeLater(() -> {
-            if (buffer.length() > CROSS_LINE_RETAIN_SIZE) {
-                String remaining = buffer.substring(buffer.length() - CROSS_LINE_RETAIN_SIZE);
-                buffer.setLength(0);
-                buffer.append(remaining);
-                if (DEBUG_MODE) {
-                    LOG.debug("[ES DSL] 🧹 已清理缓冲区，保留 " + (remaining.length() / 1024) + "KB 上下文");
-                }
-            } else {
-                // 如果缓冲区不大，完全清空
-                buffer.setLength(0);
-                if (DEBUG_MODE) {
-                    LOG.debug("[ES DSL] 🧹 已完全清空缓冲区");
-                }
-            }
-        });
+    private static EsDslRecord withContext(EsDslRecord record, LogContext context) {
+        return EsDslRecord.builder()
+                .id(record.getId())
+                .project(record.getProject())
+                .timestamp(record.getTimestamp())
+                .dslQuery(record.getDslQuery())
+                .index(record.getIndex())
+                .method(record.getMethod())
+                .endpoint(record.getEndpoint())
+                .response(record.getResponse())
+                .executionTime(record.getExecutionTime())
+                .httpStatus(record.getHttpStatus())
+                .source(record.getSource())
+                .apiPath(context.getApiPath() != null ? context.getApiPath() : record.getApiPath())
+                .callerClass(record.getCallerClass() != null ? record.getCallerClass() : context.getCallerClass())
+                .requestId(context.getRequestId())
+                .queryShape(record.getQueryShape())
+                .fingerprint(record.getFingerprint())
+                .issues(record.getIssues())
+                .timedOut(record.getTimedOut())
+                .shardsFailed(record.getShardsFailed())
+                .hitsTotal(record.getHitsTotal())
+                .hitsTotalRelation(record.getHitsTotalRelation())
+                .returnedHits(record.getReturnedHits())
+                .responseSize(record.getResponseSize())
+                .build();
     }
     
     /**
-     * 判断是否应该清理缓冲区
+     * 分发完成后推进缓冲区起点（保留上下文）
+     * 只移动索引，不复制字符串
      */
-    private boolean shouldCleanBuffer(String text) {
-        // 1. 检测到完整的 TRACE 日志响应结束
-        if (text.contains(TRACE_END_MARKER_1) || text.contains(TRACE_END_MARKER_2)) {
-            return true;
-        }
-        
-        // 2. 检测到多个连续换行（日志段落结束）
-        if (text.contains("\n\n")) {
-            return true;
+    private void consumeParsed(long parsedTo) {
+        if (buffer.size() > CROSS_LINE_RETAIN_SIZE) {
+            buffer.retainLast(CROSS_LINE_RETAIN_SIZE);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("[ES DSL] 🧹 已清理缓冲区，保留 " + (CROSS_LINE_RETAIN_SIZE / 1024) + "KB 上下文");
+            }
+        } else {
+            // 如果缓冲区不大，丢弃已解析的部分（解析期间新到的行保留）
+            buffer.discardBefore(parsedTo);
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("[ES DSL] 🧹 已清空已解析的缓冲区内容");
+            }
         }
-        
-        // 3. 缓冲区接近上限
-        if (buffer.length() > MAX_BUFFER_SIZE * 0.8) {
-            return true;
+    }
+    
+    private static boolean isResponseLine(CharSequence line, int start, int end) {
+        return end > start && line.charAt(start) == '#';
+    }
+    
+    /**
+     * 日志级别是否为 TRACE（只对 RequestLogger 行调用）
+     */
+    private static boolean isTraceLevel(CharSequence line, int start, int end) {
+        for (int i = start; i + 5 <= end; i++) {
+            if (line.charAt(i) == 'T' && line.charAt(i + 1) == 'R' && line.charAt(i + 2) == 'A'
+                    && line.charAt(i + 3) == 'C' && line.charAt(i + 4) == 'E') {
+                return true;
+            }
         }
-        
-        // 注意: 新TRACE日志的清理已经在 onTextAvailable 中处理了
-        
         return false;
     }
     
     /**
-     * 清理缓冲区
+     * 已验证的 DSL、它在缓冲区中的绝对位置及所属请求的线程上下文
      */
-    private void cleanBuffer() {
-        if (buffer.length() > CROSS_LINE_RETAIN_SIZE) {
-            String remaining = buffer.substring(Math.max(0, buffer.length() - CROSS_LINE_RETAIN_SIZE));
-            buffer.setLength(0);
-            buffer.append(remaining);
+    private static final class PendingDsl {
+        final String json;
+        final long offset;
+        final LogContext context;
+        // 该请求的响应摘要（读取线程在交给解析线程之前写入）
+        EsResponseSniffer.Response response;
+        
+        PendingDsl(String json, long offset, LogContext context) {
+            this.json = json;
+            this.offset = offset;
+            this.context = context;
         }
     }
-    
 }
-
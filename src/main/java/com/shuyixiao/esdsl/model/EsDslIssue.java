@@ -0,0 +1,53 @@
+package com.shuyixiao.esdsl.model;
+
+/**
+ * ES 查询中发现的性能隐患（见 EsDslAnalyzer）
+ */
+public class EsDslIssue {
+
+    /**
+     * 严重程度，按从低到高排列
+     */
+    public enum Severity {
+        INFO("提示"),
+        WARNING("警告"),
+        CRITICAL("严重");
+
+        private final String label;
+
+        Severity(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    private final String rule;        // 规则标识，例如 DEEP_PAGINATION
+    private final Severity severity;
+    private final String message;     // 说明及建议
+
+    public EsDslIssue(String rule, Severity severity, String message) {
+        this.rule = rule;
+        this.severity = severity;
+        this.message = message;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public Severity getSeverity() {
+        return severity;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + severity.getLabel() + "] " + message;
+    }
+}
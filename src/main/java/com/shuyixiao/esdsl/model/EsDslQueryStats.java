@@ -0,0 +1,243 @@
+package com.shuyixiao.esdsl.model;
+
+import com.shuyixiao.sql.model.LatencySummary;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * ES 查询形状的聚合统计快照
+ * 同一指纹（与取值无关的查询形状）的所有查询合并为一条
+ */
+public class EsDslQueryStats {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final long fingerprint;
+    private final String queryShape;        // 查询形状
+    private final String sampleDsl;         // 最近一次查询的 DSL
+    private final String method;            // 最近一次查询的 HTTP 方法
+    private final long count;               // 查询次数
+    private final long failureCount;        // 非 2xx 的次数
+    private final LocalDateTime firstSeen;
+    private final LocalDateTime lastSeen;
+    private final long timedCount;          // 带执行时间的次数
+    private final long totalExecutionTime;  // 执行时间合计（毫秒）
+    private final long maxExecutionTime;    // 最大执行时间（毫秒）
+    private final LatencySummary latency;   // 执行时间分位数
+    private final Map<String, Long> indexCounts;    // 命中的索引及次数
+    private final Map<String, Long> apiPathCounts;  // 触发该查询的接口及次数
+    private final Map<String, Long> callerCounts;   // 调用方及次数
+
+    private EsDslQueryStats(Builder builder) {
+        this.fingerprint = builder.fingerprint;
+        this.queryShape = builder.queryShape;
+        this.sampleDsl = builder.sampleDsl;
+        this.method = builder.method;
+        this.count = builder.count;
+        this.failureCount = builder.failureCount;
+        this.firstSeen = builder.firstSeen;
+        this.lastSeen = builder.lastSeen;
+        this.timedCount = builder.timedCount;
+        this.totalExecutionTime = builder.totalExecutionTime;
+        this.maxExecutionTime = builder.maxExecutionTime;
+        this.latency = builder.latency;
+        this.indexCounts = Collections.unmodifiableMap(new LinkedHashMap<>(builder.indexCounts));
+        this.apiPathCounts = Collections.unmodifiableMap(new LinkedHashMap<>(builder.apiPathCounts));
+        this.callerCounts = Collections.unmodifiableMap(new LinkedHashMap<>(builder.callerCounts));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // Getters
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getFingerprintHex() {
+        return Long.toHexString(fingerprint);
+    }
+
+    public String getQueryShape() {
+        return queryShape;
+    }
+
+    public String getSampleDsl() {
+        return sampleDsl;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 指定接口触发的次数；apiPath 为空时返回总次数
+     */
+    public long getCount(String apiPath) {
+        if (apiPath == null || apiPath.isEmpty()) {
+            return count;
+        }
+        Long pathCount = apiPathCounts.get(apiPath);
+        return pathCount != null ? pathCount : 0;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public LocalDateTime getFirstSeen() {
+        return firstSeen;
+    }
+
+    public LocalDateTime getLastSeen() {
+        return lastSeen;
+    }
+
+    public String getFormattedLastSeen() {
+        return lastSeen != null ? lastSeen.format(FORMATTER) : "";
+    }
+
+    public long getTotalExecutionTime() {
+        return totalExecutionTime;
+    }
+
+    public long getMaxExecutionTime() {
+        return maxExecutionTime;
+    }
+
+    /**
+     * 平均执行时间（毫秒），没有执行时间时返回 null
+     */
+    public Long getAverageExecutionTime() {
+        return timedCount > 0 ? totalExecutionTime / timedCount : null;
+    }
+
+    public LatencySummary getLatency() {
+        return latency;
+    }
+
+    public Map<String, Long> getIndexCounts() {
+        return indexCounts;
+    }
+
+    public Map<String, Long> getApiPathCounts() {
+        return apiPathCounts;
+    }
+
+    public Map<String, Long> getCallerCounts() {
+        return callerCounts;
+    }
+
+    /**
+     * 命中的索引，按次数从多到少，逗号分隔
+     */
+    public String getIndexSummary() {
+        return String.join(", ", indexCounts.keySet());
+    }
+
+    public static class Builder {
+        private long fingerprint;
+        private String queryShape;
+        private String sampleDsl;
+        private String method;
+        private long count;
+        private long failureCount;
+        private LocalDateTime firstSeen;
+        private LocalDateTime lastSeen;
+        private long timedCount;
+        private long totalExecutionTime;
+        private long maxExecutionTime;
+        private LatencySummary latency = LatencySummary.EMPTY;
+        private Map<String, Long> indexCounts = Collections.emptyMap();
+        private Map<String, Long> apiPathCounts = Collections.emptyMap();
+        private Map<String, Long> callerCounts = Collections.emptyMap();
+
+        public Builder fingerprint(long fingerprint) {
+            this.fingerprint = fingerprint;
+            return this;
+        }
+
+        public Builder queryShape(String queryShape) {
+            this.queryShape = queryShape;
+            return this;
+        }
+
+        public Builder sampleDsl(String sampleDsl) {
+            this.sampleDsl = sampleDsl;
+            return this;
+        }
+
+        public Builder method(String method) {
+            this.method = method;
+            return this;
+        }
+
+        public Builder count(long count) {
+            this.count = count;
+            return this;
+        }
+
+        public Builder failureCount(long failureCount) {
+            this.failureCount = failureCount;
+            return this;
+        }
+
+        public Builder firstSeen(LocalDateTime firstSeen) {
+            this.firstSeen = firstSeen;
+            return this;
+        }
+
+        public Builder lastSeen(LocalDateTime lastSeen) {
+            this.lastSeen = lastSeen;
+            return this;
+        }
+
+        public Builder timedCount(long timedCount) {
+            this.timedCount = timedCount;
+            return this;
+        }
+
+        public Builder totalExecutionTime(long totalExecutionTime) {
+            this.totalExecutionTime = totalExecutionTime;
+            return this;
+        }
+
+        public Builder maxExecutionTime(long maxExecutionTime) {
+            this.maxExecutionTime = maxExecutionTime;
+            return this;
+        }
+
+        public Builder latency(LatencySummary latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Builder indexCounts(Map<String, Long> indexCounts) {
+            this.indexCounts = indexCounts;
+            return this;
+        }
+
+        public Builder apiPathCounts(Map<String, Long> apiPathCounts) {
+            this.apiPathCounts = apiPathCounts;
+            return this;
+        }
+
+        public Builder callerCounts(Map<String, Long> callerCounts) {
+            this.callerCounts = callerCounts;
+            return this;
+        }
+
+        public EsDslQueryStats build() {
+            return new EsDslQueryStats(this);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.shuyixiao.esdsl.model;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -20,11 +22,22 @@ public class EsDslRecord {
     private final String method;  // GET, POST, PUT, DELETE
     private final String endpoint; // 完整的请求端点
     private final String response;
-    private final Long executionTime; // 执行时间（毫秒）
+    private final Long executionTime; // 执行时间（毫秒），有响应时为服务端耗时 took
     private final Integer httpStatus; // HTTP状态码
     private final String source;  // 来源（RestHighLevelClient, RestClient等）
     private final String apiPath;  // API接口路径（如：/kl/api/saas/element/detail/list）
     private final String callerClass; // 调用ES的类（如：VectorDataRetrieverElastic.java:450）
+    private final String requestId;   // 所属请求（同一次 API 请求内的 SQL / ES 记录相同）
+    private final String queryShape;  // 与取值无关的查询形状（见 EsDslTree）
+    private final long fingerprint;   // 查询形状的指纹，0 表示 DSL 无法解析
+    private final List<EsDslIssue> issues; // 性能隐患，按严重程度从高到低
+    // 响应摘要（见 EsResponseSniffer），没有捕获到响应时为 null
+    private final Boolean timedOut;
+    private final Integer shardsFailed;
+    private final Long hitsTotal;
+    private final String hitsTotalRelation; // eq / gte
+    private final Integer returnedHits;
+    private final Long responseSize;        // 响应 JSON 字符数
     
     private EsDslRecord(Builder builder) {
         this.id = builder.id;
@@ -40,6 +53,16 @@ public class EsDslRecord {
         this.source = builder.source;
         this.apiPath = builder.apiPath;
         this.callerClass = builder.callerClass;
+        this.requestId = builder.requestId;
+        this.queryShape = builder.queryShape;
+        this.fingerprint = builder.fingerprint;
+        this.issues = builder.issues.isEmpty() ? null : List.copyOf(builder.issues);
+        this.timedOut = builder.timedOut;
+        this.shardsFailed = builder.shardsFailed;
+        this.hitsTotal = builder.hitsTotal;
+        this.hitsTotalRelation = builder.hitsTotalRelation;
+        this.returnedHits = builder.returnedHits;
+        this.responseSize = builder.responseSize;
     }
     
     public static Builder builder() {
@@ -99,6 +122,66 @@ public class EsDslRecord {
         return callerClass;
     }
     
+    public String getRequestId() {
+        return requestId;
+    }
+    
+    public String getQueryShape() {
+        return queryShape;
+    }
+    
+    public long getFingerprint() {
+        return fingerprint;
+    }
+    
+    /**
+     * 性能隐患（旧记录和没有隐患的记录返回空列表）
+     */
+    public List<EsDslIssue> getIssues() {
+        return issues != null ? issues : Collections.emptyList();
+    }
+    
+    public Boolean getTimedOut() {
+        return timedOut;
+    }
+    
+    public Integer getShardsFailed() {
+        return shardsFailed;
+    }
+    
+    public Long getHitsTotal() {
+        return hitsTotal;
+    }
+    
+    public String getHitsTotalRelation() {
+        return hitsTotalRelation;
+    }
+    
+    public Integer getReturnedHits() {
+        return returnedHits;
+    }
+    
+    public Long getResponseSize() {
+        return responseSize;
+    }
+    
+    /**
+     * 命中总数的文字描述，例如 "16" 或 "≥10000"，没有响应时返回 null
+     */
+    public String getFormattedHitsTotal() {
+        if (hitsTotal == null) {
+            return null;
+        }
+        return "gte".equals(hitsTotalRelation) ? "≥" + hitsTotal : String.valueOf(hitsTotal);
+    }
+    
+    /**
+     * 最高的严重程度，没有隐患时返回 null
+     */
+    public EsDslIssue.Severity getSeverity() {
+        return issues != null && !issues.isEmpty() ? issues.get(0).getSeverity() : null;
+    }
+    
     public String getFormattedTimestamp() {
         return timestamp.format(FORMATTER);
     }
@@ -143,6 +226,16 @@ public class EsDslRecord {
         private String source;
         private String apiPath;
         private String callerClass;
+        private String requestId;
+        private String queryShape;
+        private long fingerprint;
+        private List<EsDslIssue> issues = Collections.emptyList();
+        private Boolean timedOut;
+        private Integer shardsFailed;
+        private Long hitsTotal;
+        private String hitsTotalRelation;
+        private Integer returnedHits;
+        private Long responseSize;
         
         public Builder id(String id) {
             this.id = id;
@@ -209,6 +302,56 @@ public class EsDslRecord {
             return this;
         }
         
+        public Builder requestId(String requestId) {
+            this.requestId = requestId;
+            return this;
+        }
+        
+        public Builder queryShape(String queryShape) {
+            this.queryShape = queryShape;
+            return this;
+        }
+        
+        public Builder fingerprint(long fingerprint) {
+            this.fingerprint = fingerprint;
+            return this;
+        }
+        
+        public Builder issues(List<EsDslIssue> issues) {
+            this.issues = issues != null ? issues : Collections.emptyList();
+            return this;
+        }
+        
+        public Builder timedOut(Boolean timedOut) {
+            this.timedOut = timedOut;
+            return this;
+        }
+        
+        public Builder shardsFailed(Integer shardsFailed) {
+            this.shardsFailed = shardsFailed;
+            return this;
+        }
+        
+        public Builder hitsTotal(Long hitsTotal) {
+            this.hitsTotal = hitsTotal;
+            return this;
+        }
+        
+        public Builder hitsTotalRelation(String hitsTotalRelation) {
+            this.hitsTotalRelation = hitsTotalRelation;
+            return this;
+        }
+        
+        public Builder returnedHits(Integer returnedHits) {
+            this.returnedHits = returnedHits;
+            return this;
+        }
+        
+        public Builder responseSize(Long responseSize) {
+            this.responseSize = responseSize;
+            return this;
+        }
+        
         public EsDslRecord build() {
             return new EsDslRecord(this);
         }
@@ -0,0 +1,311 @@
+package com.shuyixiao.esdsl.parser;
+
+import com.shuyixiao.esdsl.model.EsDslIssue;
+import com.shuyixiao.esdsl.model.EsDslIssue.Severity;
+import com.shuyixiao.esdsl.parser.EsDslTree.Node;
+import com.shuyixiao.esdsl.parser.EsDslTree.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ES 查询性能隐患分析器
+ * 在 {@link EsDslTree} 上做一次遍历，按规则标注代价高的写法：
+ * <ul>
+ *     <li>DEEP_PAGINATION：from + size 超过 index.max_result_window（10000）为严重，from 超过 1000 为警告</li>
+ *     <li>LEADING_WILDCARD：wildcard / query_string 以 * 或 ? 开头，需要扫描全部词项</li>
+ *     <li>REGEXP：regexp 查询；以 .* 等开头时为严重</li>
+ *     <li>SCRIPT：script / script_score / 脚本排序，每个命中文档都要执行脚本</li>
+ *     <li>TERMS_AGG_SIZE：terms 聚合未指定 size（默认只返回 10 个桶）或 size 过大</li>
+ *     <li>SOURCE：显式返回完整 _source，或大批量返回时未裁剪 _source</li>
+ *     <li>FILTER_CONTEXT：bool.must 中的 term / range 等不参与评分，应放入 filter 以利用缓存</li>
+ * </ul>
+ * 每条规则每个查询最多报告一次（保留最严重的一处）；只分析检索类端点（_search、_count、_by_query 等），
+ * 文档写入的请求体不是查询，不做分析
+ */
+public final class EsDslAnalyzer {
+
+    static final int MAX_RESULT_WINDOW = 10_000;
+    static final int DEEP_FROM = 1_000;
+    static final int LARGE_SIZE = 1_000;
+
+    private static final String[] QUERY_ENDPOINTS = {
+        "_search", "_count", "_by_query", "_msearch", "_explain", "_validate"
+    };
+
+    // 不参与评分、适合放入 filter 的子句
+    private static final Set<String> NON_SCORING_CLAUSES = Set.of("term", "terms", "range", "exists", "ids");
+
+    private final List<EsDslIssue> issues = new ArrayList<>();
+    // 规则 -> 在 issues 中的下标
+    private final Map<String, Integer> reported = new HashMap<>();
+
+    private EsDslAnalyzer() {
+    }
+
+    /**
+     * 分析查询，返回按严重程度从高到低排列的隐患
+     *
+     * @param endpoint 请求端点（索引之后的路径），未知时传 null
+     */
+    public static List<EsDslIssue> analyze(EsDslTree tree, String endpoint) {
+        if (tree == null || !isQueryEndpoint(endpoint)) {
+            return Collections.emptyList();
+        }
+        EsDslAnalyzer analyzer = new EsDslAnalyzer();
+        analyzer.checkRoot(tree.getRoot());
+        analyzer.visit(tree.getRoot());
+        if (analyzer.issues.isEmpty()) {
+            return Collections.emptyList();
+        }
+        analyzer.issues.sort(Comparator.comparing(EsDslIssue::getSeverity).reversed());
+        return analyzer.issues;
+    }
+
+    static boolean isQueryEndpoint(String endpoint) {
+        if (endpoint == null) {
+            return true;
+        }
+        for (String queryEndpoint : QUERY_ENDPOINTS) {
+            if (endpoint.contains(queryEndpoint)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== 顶层参数 ====================
+
+    private void checkRoot(Node root) {
+        long from = number(root.get("from"), 0);
+        long size = number(root.get("size"), 10);
+        if (from + size > MAX_RESULT_WINDOW) {
+            report("DEEP_PAGINATION", Severity.CRITICAL, "from + size = " + (from + size)
+                    + "，超过 index.max_result_window（" + MAX_RESULT_WINDOW + "），建议改用 search_after");
+        } else if (from >= DEEP_FROM) {
+            report("DEEP_PAGINATION", Severity.WARNING, "from = " + from
+                    + "，深分页需要每个分片排序 from + size 条，建议改用 search_after");
+        }
+
+        Node source = root.get("_source");
+        if (source != null && source.getType() == Type.BOOLEAN && "true".equals(source.getValue())) {
+            report("SOURCE", Severity.INFO, "_source: true 返回完整文档，大文档建议用 _source includes 只取需要的字段");
+        } else if (source == null && size >= LARGE_SIZE) {
+            report("SOURCE", Severity.INFO, "size = " + size + " 且未裁剪 _source，大文档建议只取需要的字段");
+        }
+    }
+
+    // ==================== 遍历 ====================
+
+    private void visit(Node node) {
+        if (node.getType() == Type.ARRAY) {
+            for (int i = 0; i < node.size(); i++) {
+                visit(node.getChild(i));
+            }
+            return;
+        }
+        if (node.getType() != Type.OBJECT) {
+            return;
+        }
+
+        for (int i = 0; i < node.size(); i++) {
+            String name = node.getName(i);
+            Node child = node.getChild(i);
+            switch (name) {
+                case "wildcard":
+                    checkWildcard(child);
+                    break;
+                case "regexp":
+                    checkRegexp(child);
+                    break;
+                case "query_string":
+                    checkQueryString(child);
+                    break;
+                case "script":
+                case "script_score":
+                case "script_fields":
+                case "_script":
+                    checkScript(name, child);
+                    break;
+                case "bool":
+                    checkBool(child);
+                    break;
+                case "aggs":
+                case "aggregations":
+                    checkAggregations(child);
+                    break;
+                default:
+                    break;
+            }
+            if (child.isContainer()) {
+                visit(child);
+            }
+        }
+    }
+
+    // ==================== 规则 ====================
+
+    private void checkWildcard(Node wildcard) {
+        forEachFieldValue(wildcard, (field, pattern) -> {
+            if (!pattern.isEmpty() && (pattern.charAt(0) == '*' || pattern.charAt(0) == '?')) {
+                report("LEADING_WILDCARD", Severity.CRITICAL, "wildcard 查询 " + field + " 以通配符开头（" + pattern
+                        + "），需要扫描全部词项，建议使用 ngram 或 wildcard 字段类型");
+            }
+        });
+    }
+
+    private void checkRegexp(Node regexp) {
+        forEachFieldValue(regexp, (field, pattern) -> {
+            if (pattern.startsWith(".")) {
+                report("REGEXP", Severity.CRITICAL, "regexp 查询 " + field + " 以 " + pattern.substring(0, Math.min(2, pattern.length()))
+                        + " 开头，需要扫描全部词项");
+            } else {
+                report("REGEXP", Severity.WARNING, "regexp 查询 " + field + " 代价较高，确认是否可用 term / prefix 替代");
+            }
+        });
+    }
+
+    private void checkQueryString(Node queryString) {
+        if (queryString.getType() != Type.OBJECT) {
+            return;
+        }
+        Node allowLeading = queryString.get("allow_leading_wildcard");
+        if (allowLeading != null && "false".equals(allowLeading.getValue())) {
+            return;
+        }
+        Node query = queryString.get("query");
+        String text = query != null ? query.getValue() : null;
+        if (text == null) {
+            return;
+        }
+        for (int i = 0; i < text.length() - 1; i++) {
+            char c = text.charAt(i);
+            boolean tokenStart = i == 0 || " \t:(".indexOf(text.charAt(i - 1)) >= 0;
+            if (tokenStart && (c == '*' || c == '?') && !Character.isWhitespace(text.charAt(i + 1))) {
+                report("LEADING_WILDCARD", Severity.WARNING,
+                        "query_string 中有以通配符开头的词（" + text + "），需要扫描全部词项");
+                return;
+            }
+        }
+    }
+
+    private void checkScript(String name, Node script) {
+        // 只认对象形式的脚本定义，排除名为 script 的普通字段（例如 term 查询的字段名）
+        if (script.getType() != Type.OBJECT) {
+            return;
+        }
+        boolean scriptDefinition = script.get("source") != null || script.get("inline") != null
+                || script.get("id") != null || script.get("script") != null;
+        if (!scriptDefinition && !"script_fields".equals(name)) {
+            return;
+        }
+        report("SCRIPT", Severity.WARNING, name + " 对每个命中文档执行脚本，高频接口中建议改为索引字段或 rank_feature");
+    }
+
+    private void checkBool(Node bool) {
+        if (bool.getType() != Type.OBJECT) {
+            return;
+        }
+        Node must = bool.get("must");
+        if (must == null) {
+            return;
+        }
+        List<String> clauses = new ArrayList<>();
+        if (must.getType() == Type.ARRAY) {
+            for (int i = 0; i < must.size(); i++) {
+                collectNonScoring(must.getChild(i), clauses);
+            }
+        } else {
+            collectNonScoring(must, clauses);
+        }
+        if (!clauses.isEmpty()) {
+            report("FILTER_CONTEXT", Severity.INFO, "bool.must 中的 " + String.join(" / ", clauses)
+                    + " 不需要评分，建议放入 filter 以跳过评分并利用查询缓存");
+        }
+    }
+
+    private static void collectNonScoring(Node clause, List<String> clauses) {
+        if (clause.getType() != Type.OBJECT) {
+            return;
+        }
+        for (int i = 0; i < clause.size(); i++) {
+            String type = clause.getName(i);
+            if (NON_SCORING_CLAUSES.contains(type) && !clauses.contains(type)) {
+                clauses.add(type);
+            }
+        }
+    }
+
+    private void checkAggregations(Node aggregations) {
+        if (aggregations.getType() != Type.OBJECT) {
+            return;
+        }
+        for (int i = 0; i < aggregations.size(); i++) {
+            Node aggregation = aggregations.getChild(i);
+            Node terms = aggregation.getType() == Type.OBJECT ? aggregation.get("terms") : null;
+            if (terms == null || terms.getType() != Type.OBJECT) {
+                continue;
+            }
+            String name = aggregations.getName(i);
+            Node size = terms.get("size");
+            if (size == null) {
+                report("TERMS_AGG_SIZE", Severity.INFO, "terms 聚合 " + name
+                        + " 未指定 size，默认只返回前 10 个桶，结果可能被截断");
+            } else if (number(size, 0) > MAX_RESULT_WINDOW) {
+                report("TERMS_AGG_SIZE", Severity.WARNING, "terms 聚合 " + name + " 的 size = " + size.getValue()
+                        + "，桶数量过大会占用大量内存，建议改用 composite 聚合分页");
+            }
+        }
+    }
+
+    // ==================== 辅助方法 ====================
+
+    private interface FieldValueConsumer {
+        void accept(String field, String value);
+    }
+
+    /**
+     * 遍历 {field: "v"} 或 {field: {value: "v"}}（wildcard 查询也可以写作 {field: {wildcard: "v"}}）形式的字段值
+     */
+    private static void forEachFieldValue(Node query, FieldValueConsumer consumer) {
+        if (query.getType() != Type.OBJECT) {
+            return;
+        }
+        for (int i = 0; i < query.size(); i++) {
+            Node value = query.getChild(i);
+            if (value.getType() == Type.OBJECT) {
+                Node inner = value.get("value");
+                value = inner != null ? inner : value.get("wildcard");
+            }
+            if (value != null && value.getType() == Type.STRING) {
+                consumer.accept(query.getName(i), value.getValue());
+            }
+        }
+    }
+
+    private static long number(Node node, long defaultValue) {
+        if (node == null || node.getValue() == null) {
+            return defaultValue;
+        }
+        try {
+            return (long) Double.parseDouble(node.getValue());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private void report(String rule, Severity severity, String message) {
+        Integer index = reported.get(rule);
+        if (index == null) {
+            reported.put(rule, issues.size());
+            issues.add(new EsDslIssue(rule, severity, message));
+        } else if (severity.compareTo(issues.get(index).getSeverity()) > 0) {
+            issues.set(index, new EsDslIssue(rule, severity, message));
+        }
+    }
+}
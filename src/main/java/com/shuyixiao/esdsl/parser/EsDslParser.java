@@ -1,69 +1,41 @@
 package com.shuyixiao.esdsl.parser;
 
+import com.intellij.openapi.diagnostic.Logger;
+import com.shuyixiao.console.KeywordMatcher;
 import com.shuyixiao.esdsl.model.EsDslRecord;
 import java.util.*;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * ES DSL 解析器 - 智能版
  * 采用多阶段解析策略，不依赖特定日志格式
  * 核心思路：先提取JSON，再关联上下文，最后语义验证
+ * 输入为 CharSequence，可以直接解析控制台环形缓冲区的视图，只复制命中的 JSON 块
  */
 public class EsDslParser {
 
+    private static final Logger LOG = Logger.getInstance(EsDslParser.class);
+
     // ==================== 第一阶段：JSON提取 ====================
 
     /**
-     * 智能提取所有可能的JSON块（支持嵌套）
-     * 使用栈匹配算法，而不是正则表达式
+     * 提取所有顶层 JSON 块（支持嵌套）
+     * 按行交给 {@link JsonObjectFramer}，整段文本只扫描一遍
      */
-    private static List<JsonBlock> extractJsonBlocks(String text) {
+    private static List<JsonBlock> extractJsonBlocks(CharSequence text) {
         List<JsonBlock> blocks = new ArrayList<>();
-        int len = text.length();
+        JsonObjectFramer framer = new JsonObjectFramer(
+                (json, offset) -> blocks.add(new JsonBlock(json.toString(), (int) offset)));
 
-        for (int i = 0; i < len; i++) {
-            if (text.charAt(i) == '{') {
-                // 找到JSON起始位置，使用栈匹配
-                int start = i;
-                int braceCount = 0;
-                boolean inString = false;
-                boolean escaped = false;
-
-                for (int j = i; j < len; j++) {
-                    char c = text.charAt(j);
-
-                    if (escaped) {
-                        escaped = false;
-                        continue;
-                    }
-
-                    if (c == '\\') {
-                        escaped = true;
-                        continue;
-                    }
-
-                    if (c == '"') {
-                        inString = !inString;
-                        continue;
-                    }
-
-                    if (!inString) {
-                        if (c == '{') {
-                            braceCount++;
-                        } else if (c == '}') {
-                            braceCount--;
-                            if (braceCount == 0) {
-                                // 找到完整的JSON块
-                                String json = text.substring(start, j + 1);
-                                blocks.add(new JsonBlock(json, start, j + 1));
-                                i = j; // 跳过已处理的部分
-                                break;
-                            }
-                        }
-                    }
-                }
+        int len = text.length();
+        int lineStart = 0;
+        while (lineStart < len) {
+            int lineEnd = lineStart;
+            while (lineEnd < len && text.charAt(lineEnd) != '\n') {
+                lineEnd++;
             }
+            framer.feedLine(text, lineStart, lineEnd, lineStart);
+            lineStart = lineEnd + 1;
         }
 
         return blocks;
@@ -75,134 +47,97 @@ public class EsDslParser {
     private static class JsonBlock {
         String content;
         int startPos;
-        int endPos;
 
-        JsonBlock(String content, int startPos, int endPos) {
+        JsonBlock(String content, int startPos) {
             this.content = content;
             this.startPos = startPos;
-            this.endPos = endPos;
         }
     }
 
     // ==================== 第二阶段：语义验证 ====================
 
+    // 语义验证用到的字段名（忽略大小写，一遍扫描）
+    private static final int DSL_RESPONSE = 1;          // 单独出现即为响应
+    private static final int DSL_HITS = 1 << 1;
+    private static final int DSL_TOTAL = 1 << 2;
+    private static final int DSL_MAX_SCORE = 1 << 3;
+    private static final int DSL_TOOK = 1 << 4;
+    private static final int DSL_TIMED_OUT = 1 << 5;
+    private static final int DSL_SHARDS = 1 << 6;
+    private static final int DSL_QUERY = 1 << 7;        // 单独出现即为查询
+    private static final int DSL_SIZE = 1 << 8;
+    private static final int DSL_FROM = 1 << 9;
+
+    private static final KeywordMatcher DSL_FIELDS = KeywordMatcher.builder()
+        .add(DSL_RESPONSE, "\"_index\"", "\"_id\"", "\"_score\"")
+        .add(DSL_HITS, "\"hits\"")
+        .add(DSL_TOTAL, "\"total\"")
+        .add(DSL_MAX_SCORE, "\"max_score\"")
+        .add(DSL_TOOK, "\"took\"")
+        .add(DSL_TIMED_OUT, "\"timed_out\"")
+        .add(DSL_SHARDS, "\"_shards\"")
+        .add(DSL_QUERY, "\"query\"", "\"aggs\"", "\"aggregations\"", "\"bool\"", "\"match\"",
+            "\"term\"", "\"range\"", "\"sort\"", "\"_source\"", "\"must\"", "\"should\"", "\"filter\"")
+        .add(DSL_SIZE, "\"size\"")
+        .add(DSL_FROM, "\"from\"")
+        .build();
+
     /**
      * 验证JSON是否是ES DSL（查询请求，而非响应）
      * 检查是否包含ES特征字段，同时排除响应数据
      */
-    private static boolean isEsDsl(String json) {
-        if (json == null || json.trim().isEmpty()) {
+    public static boolean isEsDsl(CharSequence json) {
+        if (json == null || json.length() == 0) {
             return false;
         }
 
-        String lower = json.toLowerCase();
+        int fields = DSL_FIELDS.match(json);
 
         // ❌ 排除ES响应数据（包含这些字段的是响应，不是DSL）
-        if (lower.contains("\"_index\"") ||
-            lower.contains("\"_id\"") ||
-            lower.contains("\"_score\"") ||
-            lower.contains("\"hits\"") && lower.contains("\"total\"") && lower.contains("\"max_score\"") ||
-            lower.contains("\"took\"") && lower.contains("\"timed_out\"") && lower.contains("\"_shards\"")) {
+        if ((fields & DSL_RESPONSE) != 0 ||
+            hasAll(fields, DSL_HITS | DSL_TOTAL | DSL_MAX_SCORE) ||
+            hasAll(fields, DSL_TOOK | DSL_TIMED_OUT | DSL_SHARDS)) {
             return false;
         }
 
         // ✅ ES DSL 特征关键词（查询请求）
-        return lower.contains("\"query\"") ||
-               lower.contains("\"aggs\"") ||
-               lower.contains("\"aggregations\"") ||
-               lower.contains("\"bool\"") ||
-               lower.contains("\"match\"") ||
-               lower.contains("\"term\"") ||
-               lower.contains("\"range\"") ||
-               lower.contains("\"sort\"") ||
-               lower.contains("\"_source\"") ||
-               lower.contains("\"size\"") && lower.contains("\"from\"") ||
-               lower.contains("\"must\"") ||
-               lower.contains("\"should\"") ||
-               lower.contains("\"filter\"");
-    }
-
-    // ==================== 第三阶段：上下文提取 ====================
-
-    /**
-     * 从文本中提取HTTP方法
-     */
-    private static String extractHttpMethod(String text, int jsonPos) {
-        // 在JSON前面查找HTTP方法（向前查找200个字符）
-        int searchStart = Math.max(0, jsonPos - 200);
-        String context = text.substring(searchStart, jsonPos);
-
-        Pattern methodPattern = Pattern.compile("\\b(GET|POST|PUT|DELETE|PATCH)\\b", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = methodPattern.matcher(context);
-
-        String lastMethod = null;
-        while (matcher.find()) {
-            lastMethod = matcher.group(1).toUpperCase();
-        }
-
-        return lastMethod != null ? lastMethod : "POST"; // 默认POST
+        return (fields & DSL_QUERY) != 0 || hasAll(fields, DSL_SIZE | DSL_FROM);
     }
 
-    /**
-     * 从文本中提取URL
-     */
-    private static String extractUrl(String text, int jsonPos) {
-        // 在JSON前面查找URL（向前查找300个字符）
-        int searchStart = Math.max(0, jsonPos - 300);
-        String context = text.substring(searchStart, jsonPos);
-
-        // 匹配 http://... 或 https://...
-        Pattern urlPattern = Pattern.compile("(https?://[^\\s'\"\\)\\]]+)", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = urlPattern.matcher(context);
-
-        String lastUrl = null;
-        while (matcher.find()) {
-            lastUrl = matcher.group(1);
-        }
-
-        return lastUrl;
+    private static boolean hasAll(int fields, int required) {
+        return (fields & required) == required;
     }
 
-    // ==================== 辅助正则（仅用于特定信息提取） ====================
-
-    // 匹配执行时间
-    private static final Pattern EXECUTION_TIME_PATTERN = Pattern.compile(
-        "(?i)(?:took|time|duration)[:=]?\\s*(\\d+)\\s*(?:ms|milliseconds?)?",
-        Pattern.CASE_INSENSITIVE
-    );
-
-    // 匹配 HTTP 状态码
-    private static final Pattern HTTP_STATUS_PATTERN = Pattern.compile(
-        "(?i)(?:status|HTTP/[\\d.]+)\\s+(\\d{3})",
-        Pattern.CASE_INSENSITIVE
-    );
-
-    // ✅ 匹配API接口路径（Controller层）
-    private static final Pattern API_PATH_PATTERN = Pattern.compile(
-        "(?:API|uri)\\s*[:：]\\s*(/[^\\s,，;；\\)）}]+)",
-        Pattern.CASE_INSENSITIVE
-    );
-
-    // ✅ 匹配调用ES的Java类
-    private static final Pattern CALLER_CLASS_PATTERN = Pattern.compile(
-        "\\(([A-Z][a-zA-Z0-9]+\\.java:\\d+)\\)",
-        Pattern.CASE_INSENSITIVE
-    );
+    // ==================== 第三阶段：上下文提取 ====================
+    // HTTP 方法、URL、状态码等的正则见 EsDslPatterns
+
+    // 快速检查和来源判断用到的关键词（忽略大小写，一遍扫描）
+    private static final int KW_ELASTICSEARCH = 1;
+    private static final int KW_SEARCH = 1 << 1;
+    private static final int KW_REQUEST_LOGGER = 1 << 2;
+    private static final int KW_CURL = 1 << 3;
+    private static final int KW_SPRING = 1 << 4;
+    private static final int KW_REST_CLIENT = 1 << 5;
+
+    private static final KeywordMatcher KEYWORDS = KeywordMatcher.builder()
+        .add(KW_ELASTICSEARCH, "elasticsearch")
+        .add(KW_SEARCH, "_search")
+        .add(KW_REQUEST_LOGGER, "requestlogger")
+        .add(KW_CURL, "curl")
+        .add(KW_SPRING, "spring")
+        .add(KW_REST_CLIENT, "restclient")
+        .build();
 
     /**
      * 判断文本是否包含 ES DSL 查询
      */
-    public static boolean containsEsDsl(String text) {
-        if (text == null || text.isEmpty()) {
+    public static boolean containsEsDsl(CharSequence text) {
+        if (text == null || text.length() == 0) {
             return false;
         }
 
         // 快速检查：是否包含 Elasticsearch 相关关键词
-        String lowerText = text.toLowerCase();
-        boolean hasEsKeyword = lowerText.contains("elasticsearch") ||
-                               lowerText.contains("_search") ||
-                               lowerText.contains("requestlogger") ||
-                               lowerText.contains("curl");
+        boolean hasEsKeyword = (KEYWORDS.match(text) & (KW_ELASTICSEARCH | KW_SEARCH | KW_REQUEST_LOGGER | KW_CURL)) != 0;
 
         if (!hasEsKeyword) {
             return false;
@@ -223,8 +158,8 @@ public class EsDslParser {
      * 解析 ES DSL 查询 - 智能版
      * 采用多阶段策略：JSON提取 -> 语义验证 -> 上下文关联
      */
-    public static EsDslRecord parseEsDsl(String text, String projectName) {
-        if (text == null || text.isEmpty()) {
+    public static EsDslRecord parseEsDsl(CharSequence text, String projectName) {
+        if (text == null || text.length() == 0) {
             return null;
         }
 
@@ -248,62 +183,111 @@ public class EsDslParser {
                 return null;
             }
 
-            // 第三阶段：构建记录
+            return parseEsDsl(text, projectName, esDslBlock.content, esDslBlock.startPos);
+
+        } catch (Exception e) {
+            LOG.debug("[ES DSL Parser] 解析失败: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * 用已经切分并验证过的 DSL 构建记录（见 {@link JsonObjectFramer}、{@link #isEsDsl}）
+     * 不再提取和验证 JSON 块，只在上下文中查找方法、URL 等信息
+     *
+     * @param text   DSL 所在的日志上下文
+     * @param dsl    DSL 的 JSON 文本
+     * @param dslPos DSL 在 text 中的起始位置
+     */
+    public static EsDslRecord parseEsDsl(CharSequence text, String projectName, String dsl, int dslPos) {
+        return parseEsDsl(text, projectName, dsl, dslPos, null);
+    }
+
+    /**
+     * 同上，并附加该请求的响应摘要：有 took 时执行时间取服务端耗时
+     *
+     * @param response 响应摘要（见 {@link EsResponseSniffer}），没有时传 null
+     */
+    public static EsDslRecord parseEsDsl(CharSequence text, String projectName, String dsl, int dslPos,
+                                         EsResponseSniffer.Response response) {
+        EsDslPatterns patterns = EsDslPatterns.get();
+        try {
+            // 第三阶段：构建记录（DSL 只解析一次，展示文本和查询形状都从语法树生成）
             EsDslRecord.Builder builder = EsDslRecord.builder()
-                .project(projectName)
-                .dslQuery(formatJson(esDslBlock.content));
+                .project(projectName);
+            EsDslTree tree = EsDslTree.parse(dsl);
+            if (tree != null) {
+                builder.dslQuery(tree.format())
+                    .queryShape(tree.getShape())
+                    .fingerprint(tree.getFingerprint());
+            } else {
+                builder.dslQuery(formatJson(dsl));
+            }
 
-            // 提取HTTP方法
-            String method = extractHttpMethod(text, esDslBlock.startPos);
-            builder.method(method);
+            // 提取HTTP方法（JSON前面的最后一个，默认POST）
+            String method = patterns.lastMethod(text, dslPos);
+            builder.method(method != null ? method : "POST");
 
             // 提取URL
-            String url = extractUrl(text, esDslBlock.startPos);
+            String url = patterns.lastUrl(text, dslPos);
+            String endpoint = null;
             if (url != null) {
                 String[] urlParts = extractUrlParts(url);
                 if (urlParts != null && urlParts.length >= 2) {
+                    endpoint = urlParts[1];
                     builder.index(urlParts[0]);
-                    builder.endpoint(urlParts[1]);
+                    builder.endpoint(endpoint);
                 }
             }
 
+            // 性能隐患（需要端点判断是否为检索请求）
+            if (tree != null) {
+                builder.issues(EsDslAnalyzer.analyze(tree, endpoint));
+            }
+
             // 判断来源
             String source = detectSource(text);
             builder.source(source);
 
-            // 提取其他信息
-            extractHttpStatus(text, builder);
-            extractExecutionTime(text, builder);
-            extractApiPath(text, builder);
-            extractCallerClass(text, builder);
-
-            // 如果没有状态码，默认为 200
-            EsDslRecord tempRecord = builder.build();
-            if (tempRecord.getHttpStatus() == null) {
-                builder.httpStatus(200);
+            // 提取其他信息（状态码取 DSL 之后的响应，没有时默认为 200）
+            Integer status = patterns.httpStatus(text, dslPos);
+            builder.httpStatus(status != null ? status : 200);
+            if (response != null) {
+                builder.timedOut(response.getTimedOut())
+                    .shardsFailed(response.getShardsFailed())
+                    .hitsTotal(response.getHitsTotal())
+                    .hitsTotalRelation(response.getHitsTotalRelation())
+                    .returnedHits(response.getReturnedHits())
+                    .responseSize(response.getSize());
             }
+            Long took = response != null ? response.getTook() : null;
+            builder.executionTime(took != null ? took : patterns.executionTime(text));
+            builder.apiPath(patterns.apiPath(text));
+            builder.callerClass(patterns.callerClass(text));
 
             return builder.build();
 
         } catch (Exception e) {
-            System.err.println("[ES DSL Parser] 解析失败: " + e.getMessage());
+            LOG.debug("[ES DSL Parser] 解析失败: " + e.getMessage(), e);
             return null;
+        } finally {
+            patterns.release();
         }
     }
 
     /**
      * 检测日志来源
      */
-    private static String detectSource(String text) {
-        String lower = text.toLowerCase();
+    private static String detectSource(CharSequence text) {
+        int keywords = KEYWORDS.match(text);
 
-        if (lower.contains("requestlogger")) {
+        if ((keywords & KW_REQUEST_LOGGER) != 0) {
             return "RequestLogger";
-        } else if (lower.contains("spring") && lower.contains("elasticsearch")) {
+        } else if ((keywords & KW_SPRING) != 0 && (keywords & KW_ELASTICSEARCH) != 0) {
             return "Spring Data Elasticsearch";
-        } else if (lower.contains("restclient")) {
+        } else if ((keywords & KW_REST_CLIENT) != 0) {
             return "RestClient";
-        } else if (lower.contains("curl")) {
+        } else if ((keywords & KW_CURL) != 0) {
             return "cURL";
         } else {
             return "Unknown";
@@ -312,84 +296,6 @@ public class EsDslParser {
 
     // ==================== 辅助方法：信息提取 ====================
 
-    /**
-     * 提取执行时间
-     */
-    private static void extractExecutionTime(String text, EsDslRecord.Builder builder) {
-        Matcher timeMatcher = EXECUTION_TIME_PATTERN.matcher(text);
-        if (timeMatcher.find()) {
-            try {
-                long executionTime = Long.parseLong(timeMatcher.group(1));
-                builder.executionTime(executionTime);
-            } catch (NumberFormatException e) {
-                // 忽略
-            }
-        }
-    }
-    
-    /**
-     * 提取 HTTP 状态码
-     */
-    private static void extractHttpStatus(String text, EsDslRecord.Builder builder) {
-        try {
-            // 尝试多种状态码格式
-            Pattern statusPattern1 = Pattern.compile("#\\s*HTTP/\\d\\.\\d\\s+(\\d{3})");
-            Pattern statusPattern2 = Pattern.compile("returned\\s+\\[HTTP/\\d\\.\\d\\s+(\\d{3})");
-            Pattern statusPattern3 = Pattern.compile("status[:\\s]+(\\d{3})", Pattern.CASE_INSENSITIVE);
-
-            Matcher matcher = statusPattern1.matcher(text);
-            if (!matcher.find()) {
-                matcher = statusPattern2.matcher(text);
-            }
-            if (!matcher.find()) {
-                matcher = statusPattern3.matcher(text);
-            }
-
-            if (matcher.find()) {
-                builder.httpStatus(Integer.parseInt(matcher.group(1)));
-            }
-        } catch (Exception e) {
-            // 忽略提取失败
-        }
-    }
-
-    /**
-     * 提取API路径
-     */
-    private static void extractApiPath(String text, EsDslRecord.Builder builder) {
-        Matcher matcher = API_PATH_PATTERN.matcher(text);
-        if (matcher.find()) {
-            builder.apiPath(matcher.group(1));
-        }
-    }
-
-    /**
-     * 提取调用类
-     */
-    private static void extractCallerClass(String text, EsDslRecord.Builder builder) {
-        Matcher matcher = CALLER_CLASS_PATTERN.matcher(text);
-        String lastMatch = null;
-        String lastRelevantMatch = null;
-
-        while (matcher.find()) {
-            String className = matcher.group(1);
-            lastMatch = className;
-
-            // 优先选择ES相关的类
-            String lowerClass = className.toLowerCase();
-            if (lowerClass.contains("elastic") ||
-                lowerClass.contains("vector") ||
-                lowerClass.contains("retriev")) {
-                lastRelevantMatch = className;
-            }
-        }
-
-        String result = lastRelevantMatch != null ? lastRelevantMatch : lastMatch;
-        if (result != null) {
-            builder.callerClass(result);
-        }
-    }
-    
     /**
      * 从完整 URL 中提取索引和端点
      * 例如: http://10.10.0.210:9222/dataset_chunk_sharding_24_1536/_search?typed_keys=true
@@ -426,7 +332,7 @@ public class EsDslParser {
     }
     
     /**
-     * 格式化 JSON
+     * 格式化 JSON（DSL 无法解析为语法树时使用）
      */
     private static String formatJson(String json) {
         if (json == null || json.isEmpty()) {
@@ -519,7 +425,7 @@ public class EsDslParser {
             return null;
         }
 
-        Matcher matcher = API_PATH_PATTERN.matcher(text);
+        Matcher matcher = EsDslPatterns.API_PATH_PATTERN.matcher(text);
         if (matcher.find()) {
             return matcher.group(1).trim();
         }
@@ -535,23 +441,11 @@ public class EsDslParser {
             return null;
         }
 
-        Matcher matcher = CALLER_CLASS_PATTERN.matcher(text);
-        String lastMatch = null;
-        String lastRelevantMatch = null;
-
-        while (matcher.find()) {
-            String className = matcher.group(1);
-            lastMatch = className;
-
-            // 优先选择ES相关的类
-            String lowerClass = className.toLowerCase();
-            if (lowerClass.contains("elastic") ||
-                lowerClass.contains("vector") ||
-                lowerClass.contains("retriev")) {
-                lastRelevantMatch = className;
-            }
+        EsDslPatterns patterns = EsDslPatterns.get();
+        try {
+            return patterns.callerClass(text);
+        } finally {
+            patterns.release();
         }
-
-        return lastRelevantMatch != null ? lastRelevantMatch : lastMatch;
     }
 }
@@ -0,0 +1,175 @@
+package com.shuyixiao.esdsl.parser;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * EsDslParser 上下文提取用到的正则
+ * 所有 Pattern 只编译一次；每个解析线程复用一组 Matcher，用 {@link Matcher#region} 限定查找范围，不截取子串
+ * 用完后调用 {@link #release()}，避免线程持有已解析的缓冲区
+ */
+final class EsDslPatterns {
+
+    // 在 JSON 前面查找 HTTP 方法 / URL 的范围
+    static final int METHOD_LOOKBACK = 200;
+    static final int URL_LOOKBACK = 300;
+
+    private static final Pattern METHOD_PATTERN = Pattern.compile(
+        "\\b(GET|POST|PUT|DELETE|PATCH)\\b", Pattern.CASE_INSENSITIVE);
+
+    // 匹配 http://... 或 https://...
+    private static final Pattern URL_PATTERN = Pattern.compile(
+        "(https?://[^\\s'\"\\)\\]]+)", Pattern.CASE_INSENSITIVE);
+
+    // HTTP 状态码的几种格式，按优先级排列
+    private static final Pattern CURL_STATUS_PATTERN = Pattern.compile("#\\s*HTTP/\\d\\.\\d\\s+(\\d{3})");
+    private static final Pattern RETURNED_STATUS_PATTERN = Pattern.compile("returned\\s+\\[HTTP/\\d\\.\\d\\s+(\\d{3})");
+    private static final Pattern STATUS_PATTERN = Pattern.compile("status[:\\s]+(\\d{3})", Pattern.CASE_INSENSITIVE);
+
+    // 匹配执行时间
+    private static final Pattern EXECUTION_TIME_PATTERN = Pattern.compile(
+        "(?i)(?:took|time|duration)[:=]?\\s*(\\d+)\\s*(?:ms|milliseconds?)?",
+        Pattern.CASE_INSENSITIVE
+    );
+
+    // 匹配API接口路径（Controller层）
+    static final Pattern API_PATH_PATTERN = Pattern.compile(
+        "(?:API|uri)\\s*[:：]\\s*(/[^\\s,，;；\\)）}]+)",
+        Pattern.CASE_INSENSITIVE
+    );
+
+    // 匹配调用ES的Java类
+    static final Pattern CALLER_CLASS_PATTERN = Pattern.compile(
+        "\\(([A-Z][a-zA-Z0-9]+\\.java:\\d+)\\)",
+        Pattern.CASE_INSENSITIVE
+    );
+
+    private static final ThreadLocal<EsDslPatterns> MATCHERS = ThreadLocal.withInitial(EsDslPatterns::new);
+
+    private final Matcher method = METHOD_PATTERN.matcher("");
+    private final Matcher url = URL_PATTERN.matcher("");
+    private final Matcher[] statuses = {
+        CURL_STATUS_PATTERN.matcher(""),
+        RETURNED_STATUS_PATTERN.matcher(""),
+        STATUS_PATTERN.matcher("")
+    };
+    private final Matcher executionTime = EXECUTION_TIME_PATTERN.matcher("");
+    private final Matcher apiPath = API_PATH_PATTERN.matcher("");
+    private final Matcher callerClass = CALLER_CLASS_PATTERN.matcher("");
+
+    private EsDslPatterns() {
+    }
+
+    /**
+     * 当前线程的 Matcher 组
+     */
+    static EsDslPatterns get() {
+        return MATCHERS.get();
+    }
+
+    /**
+     * JSON 前 {@link #METHOD_LOOKBACK} 个字符内最后一个 HTTP 方法（大写），没有时返回 null
+     */
+    String lastMethod(CharSequence text, int jsonPos) {
+        Matcher matcher = region(method, text, jsonPos - METHOD_LOOKBACK, jsonPos);
+        int start = -1;
+        int end = -1;
+        while (matcher.find()) {
+            start = matcher.start(1);
+            end = matcher.end(1);
+        }
+        return start >= 0 ? text.subSequence(start, end).toString().toUpperCase() : null;
+    }
+
+    /**
+     * JSON 前 {@link #URL_LOOKBACK} 个字符内最后一个 URL，没有时返回 null
+     */
+    String lastUrl(CharSequence text, int jsonPos) {
+        Matcher matcher = region(url, text, jsonPos - URL_LOOKBACK, jsonPos);
+        int start = -1;
+        int end = -1;
+        while (matcher.find()) {
+            start = matcher.start(1);
+            end = matcher.end(1);
+        }
+        return start >= 0 ? text.subSequence(start, end).toString() : null;
+    }
+
+    /**
+     * HTTP 状态码：优先取 from 之后（该请求的响应）的第一个，其次取整段文本中的第一个
+     */
+    Integer httpStatus(CharSequence text, int from) {
+        Integer status = firstStatus(text, from);
+        return status != null || from == 0 ? status : firstStatus(text, 0);
+    }
+
+    Long executionTime(CharSequence text) {
+        Matcher matcher = region(executionTime, text, 0, text.length());
+        if (!matcher.find()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(text, matcher.start(1), matcher.end(1), 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 第一个 API 路径，没有时返回 null
+     */
+    String apiPath(CharSequence text) {
+        Matcher matcher = region(apiPath, text, 0, text.length());
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    /**
+     * 最后一个调用类，ES 相关的类（elastic / vector / retriev）优先
+     */
+    String callerClass(CharSequence text) {
+        Matcher matcher = region(callerClass, text, 0, text.length());
+        String lastMatch = null;
+        String lastRelevantMatch = null;
+        while (matcher.find()) {
+            String className = matcher.group(1);
+            lastMatch = className;
+            if (isEsRelated(className)) {
+                lastRelevantMatch = className;
+            }
+        }
+        return lastRelevantMatch != null ? lastRelevantMatch : lastMatch;
+    }
+
+    /**
+     * 释放对已解析文本的引用
+     */
+    void release() {
+        method.reset("");
+        url.reset("");
+        for (Matcher status : statuses) {
+            status.reset("");
+        }
+        executionTime.reset("");
+        apiPath.reset("");
+        callerClass.reset("");
+    }
+
+    private Integer firstStatus(CharSequence text, int from) {
+        for (Matcher status : statuses) {
+            Matcher matcher = region(status, text, from, text.length());
+            if (matcher.find()) {
+                return Integer.parseInt(text, matcher.start(1), matcher.end(1), 10);
+            }
+        }
+        return null;
+    }
+
+    static boolean isEsRelated(String className) {
+        String lowerClass = className.toLowerCase();
+        return lowerClass.contains("elastic") || lowerClass.contains("vector") || lowerClass.contains("retriev");
+    }
+
+    private static Matcher region(Matcher matcher, CharSequence text, int from, int to) {
+        return matcher.reset(text).region(Math.max(0, from), Math.min(text.length(), to));
+    }
+}
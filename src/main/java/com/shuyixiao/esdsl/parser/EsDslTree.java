@@ -0,0 +1,333 @@
+package com.shuyixiao.esdsl.parser;
+
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * ES DSL 的轻量语法树
+ * 用 Gson 流式读取（宽松模式，容忍单引号、未加引号的字段名等）只解析一次，再从树派生：
+ * <ul>
+ *     <li>{@link #format()}：缩进两格的展示文本</li>
+ *     <li>{@link #getShape()}：与取值无关的查询形状，叶子值替换为 ?，只含叶子的数组折叠为 [?+]，
+ *     字段按名称排序，对象数组中的元素形状去重后排序</li>
+ *     <li>{@link #getFingerprint()}：形状的 64 位指纹（FNV-1a）</li>
+ * </ul>
+ * 例如 {@code {"size":10,"query":{"terms":{"id":[1,2,3]}}}} 的形状为
+ * {@code {"query":{"terms":{"id":[?+]}},"size":?}}
+ */
+public final class EsDslTree {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Node root;
+    private String shape;
+
+    private EsDslTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * 解析 JSON 对象，不是对象或格式错误时返回 null
+     */
+    public static EsDslTree parse(String json) {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try {
+            JsonReader reader = new JsonReader(new StringReader(json));
+            reader.setStrictness(Strictness.LENIENT);
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+            return new EsDslTree(read(reader));
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            return null;
+        }
+    }
+
+    public Node getRoot() {
+        return root;
+    }
+
+    public String getShape() {
+        if (shape == null) {
+            StringBuilder sb = new StringBuilder();
+            appendShape(root, sb);
+            shape = sb.toString();
+        }
+        return shape;
+    }
+
+    public long getFingerprint() {
+        return hash(getShape());
+    }
+
+    public static long hash(String shape) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < shape.length(); i++) {
+            hash = (hash ^ shape.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 展示用的格式化文本（缩进两格，字段顺序与原文一致）
+     */
+    public String format() {
+        StringBuilder sb = new StringBuilder();
+        appendFormatted(root, sb, 0);
+        return sb.toString();
+    }
+
+    // ==================== 解析 ====================
+
+    private static Node read(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT: {
+                List<String> names = new ArrayList<>();
+                List<Node> children = new ArrayList<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    names.add(reader.nextName());
+                    children.add(read(reader));
+                }
+                reader.endObject();
+                return new Node(Type.OBJECT, null, names, children);
+            }
+            case BEGIN_ARRAY: {
+                List<Node> children = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    children.add(read(reader));
+                }
+                reader.endArray();
+                return new Node(Type.ARRAY, null, Collections.emptyList(), children);
+            }
+            case STRING:
+                return Node.leaf(Type.STRING, reader.nextString());
+            case NUMBER:
+                // nextString 保留数字的原始写法
+                return Node.leaf(Type.NUMBER, reader.nextString());
+            case BOOLEAN:
+                return Node.leaf(Type.BOOLEAN, String.valueOf(reader.nextBoolean()));
+            case NULL:
+                reader.nextNull();
+                return Node.leaf(Type.NULL, "null");
+            default:
+                throw new IllegalStateException("Unexpected token: " + reader.peek());
+        }
+    }
+
+    // ==================== 形状 ====================
+
+    private static void appendShape(Node node, StringBuilder sb) {
+        switch (node.type) {
+            case OBJECT: {
+                List<Integer> order = new ArrayList<>(node.names.size());
+                for (int i = 0; i < node.names.size(); i++) {
+                    order.add(i);
+                }
+                order.sort((a, b) -> node.names.get(a).compareTo(node.names.get(b)));
+                sb.append('{');
+                for (int i = 0; i < order.size(); i++) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    int index = order.get(i);
+                    appendQuoted(node.names.get(index), sb);
+                    sb.append(':');
+                    appendShape(node.children.get(index), sb);
+                }
+                sb.append('}');
+                break;
+            }
+            case ARRAY: {
+                if (node.children.isEmpty()) {
+                    sb.append("[]");
+                    break;
+                }
+                // 元素都是叶子时（terms 列表、向量等）长度不影响形状
+                TreeSet<String> elementShapes = new TreeSet<>();
+                for (Node child : node.children) {
+                    if (child.isContainer()) {
+                        StringBuilder element = new StringBuilder();
+                        appendShape(child, element);
+                        elementShapes.add(element.toString());
+                    }
+                }
+                if (elementShapes.isEmpty()) {
+                    sb.append("[?+]");
+                    break;
+                }
+                if (hasLeaf(node)) {
+                    elementShapes.add("?");
+                }
+                sb.append('[').append(String.join(",", elementShapes)).append(']');
+                break;
+            }
+            default:
+                sb.append('?');
+                break;
+        }
+    }
+
+    private static boolean hasLeaf(Node array) {
+        for (Node child : array.children) {
+            if (!child.isContainer()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ==================== 格式化 ====================
+
+    private static void appendFormatted(Node node, StringBuilder sb, int indent) {
+        switch (node.type) {
+            case OBJECT:
+            case ARRAY: {
+                boolean object = node.type == Type.OBJECT;
+                if (node.children.isEmpty()) {
+                    sb.append(object ? "{}" : "[]");
+                    break;
+                }
+                sb.append(object ? '{' : '[');
+                for (int i = 0; i < node.children.size(); i++) {
+                    if (i > 0) {
+                        sb.append(',');
+                    }
+                    sb.append('\n');
+                    indent(sb, indent + 1);
+                    if (object) {
+                        appendQuoted(node.names.get(i), sb);
+                        sb.append(": ");
+                    }
+                    appendFormatted(node.children.get(i), sb, indent + 1);
+                }
+                sb.append('\n');
+                indent(sb, indent);
+                sb.append(object ? '}' : ']');
+                break;
+            }
+            case STRING:
+                appendQuoted(node.value, sb);
+                break;
+            default:
+                sb.append(node.value);
+                break;
+        }
+    }
+
+    private static void indent(StringBuilder sb, int indent) {
+        for (int i = 0; i < indent; i++) {
+            sb.append("  ");
+        }
+    }
+
+    private static void appendQuoted(String value, StringBuilder sb) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+        sb.append('"');
+    }
+
+    /**
+     * 节点类型
+     */
+    public enum Type {
+        OBJECT, ARRAY, STRING, NUMBER, BOOLEAN, NULL
+    }
+
+    /**
+     * 树节点：对象按原文顺序保存字段名和子节点，叶子只保存文本值
+     */
+    public static final class Node {
+        private final Type type;
+        private final String value;
+        private final List<String> names;
+        private final List<Node> children;
+
+        private Node(Type type, String value, List<String> names, List<Node> children) {
+            this.type = type;
+            this.value = value;
+            this.names = names;
+            this.children = children;
+        }
+
+        private static Node leaf(Type type, String value) {
+            return new Node(type, value, Collections.emptyList(), Collections.emptyList());
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        public boolean isContainer() {
+            return type == Type.OBJECT || type == Type.ARRAY;
+        }
+
+        /**
+         * 叶子节点的值（字符串已反转义），容器节点返回 null
+         */
+        public String getValue() {
+            return value;
+        }
+
+        public int size() {
+            return children.size();
+        }
+
+        public Node getChild(int index) {
+            return children.get(index);
+        }
+
+        /**
+         * 对象第 index 个字段的名称，数组返回 null
+         */
+        public String getName(int index) {
+            return type == Type.OBJECT ? names.get(index) : null;
+        }
+
+        /**
+         * 对象中第一个名为 name 的字段，没有时返回 null
+         */
+        public Node get(String name) {
+            int index = names.indexOf(name);
+            return index >= 0 ? children.get(index) : null;
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.shuyixiao.esdsl.parser;
+
+/**
+ * ES 响应的流式嗅探器
+ * 逐行喂入 RequestLogger 输出的响应（"# " 开头的行），跨行保持状态，只提取少数几个字段：
+ * <ul>
+ *     <li>took、timed_out</li>
+ *     <li>_shards.failed</li>
+ *     <li>hits.total（7.x 之后的 {"value", "relation"} 和 6.x 的数字两种写法）</li>
+ *     <li>hits.hits 的元素个数（返回条数）和响应总字符数</li>
+ * </ul>
+ * 不保存响应文本，hits 数组只计数不解析，内存占用与响应大小无关
+ * 非线程安全，由单一读取线程调用
+ */
+public final class EsResponseSniffer {
+
+    // 只记录前三层的字段名（took 在第一层，hits.total.value 在第三层）
+    private static final int MAX_TRACKED_DEPTH = 3;
+    // 字段名和标量值的最大长度，超出部分不保存
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * 完整响应的回调
+     */
+    public interface Listener {
+        /**
+         * @param response 提取出的字段
+         * @param offset   响应起始 "{" 所在行的位置（调用方传入的坐标系）
+         */
+        void onResponse(Response response, long offset);
+    }
+
+    private final Listener listener;
+
+    private int depth;
+    // 每层容器是否为数组（下标为层数）
+    private boolean[] arrays = new boolean[16];
+    // 第 1..MAX_TRACKED_DEPTH 层当前字段名
+    private final String[] keys = new String[MAX_TRACKED_DEPTH + 1];
+    private boolean expectingKey;
+    private boolean inString;
+    private boolean escaped;
+    private boolean inScalar;
+    private final StringBuilder token = new StringBuilder();
+    private long responseOffset = -1;
+
+    private Response.Builder current;
+
+    public EsResponseSniffer(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 喂入一行响应（不含换行符），行首的 "#" 会被跳过
+     *
+     * @param offset 该行的位置
+     * @return 该行是否有内容位于响应对象中（这样的行不必再保存）
+     */
+    public boolean feedLine(CharSequence line, int start, int end, long offset) {
+        if (start < end && line.charAt(start) == '#') {
+            start++;
+        }
+        boolean inResponse = depth > 0;
+        for (int i = start; i < end; i++) {
+            if (depth == 0) {
+                if (line.charAt(i) != '{') {
+                    continue;
+                }
+                inResponse = true;
+                current = Response.builder();
+                responseOffset = offset;
+            }
+            accept(line.charAt(i));
+        }
+        if (depth > 0) {
+            accept('\n');
+        }
+        return inResponse;
+    }
+
+    /**
+     * 是否处在未结束的响应中
+     */
+    public boolean isInResponse() {
+        return depth > 0;
+    }
+
+    /**
+     * 丢弃未结束的响应
+     */
+    public void reset() {
+        depth = 0;
+        expectingKey = false;
+        inString = false;
+        escaped = false;
+        inScalar = false;
+        token.setLength(0);
+        current = null;
+        responseOffset = -1;
+    }
+
+    private void accept(char c) {
+        current.size++;
+
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+                appendToken(c);
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+                if (expectingKey) {
+                    if (depth <= MAX_TRACKED_DEPTH) {
+                        keys[depth] = token.toString();
+                    }
+                } else {
+                    onScalar(true);
+                }
+            } else {
+                appendToken(c);
+            }
+            return;
+        }
+
+        if (inScalar) {
+            if (c == ',' || c == '}' || c == ']' || Character.isWhitespace(c)) {
+                inScalar = false;
+                onScalar(false);
+            } else {
+                appendToken(c);
+                return;
+            }
+        }
+
+        switch (c) {
+            case '"':
+                inString = true;
+                token.setLength(0);
+                break;
+            case '{':
+                push(false);
+                expectingKey = true;
+                break;
+            case '[':
+                push(true);
+                expectingKey = false;
+                break;
+            case ':':
+                expectingKey = false;
+                break;
+            case ',':
+                expectingKey = !arrays[depth];
+                break;
+            case '}':
+            case ']':
+                pop();
+                break;
+            default:
+                if (!Character.isWhitespace(c)) {
+                    inScalar = true;
+                    token.setLength(0);
+                    appendToken(c);
+                }
+                break;
+        }
+    }
+
+    private void push(boolean array) {
+        // hits.hits 数组中的每个元素是一条返回的文档
+        if (depth == 3 && arrays[3] && "hits".equals(keys[1]) && "hits".equals(keys[2])) {
+            current.returnedHits++;
+        }
+        depth++;
+        if (depth >= arrays.length) {
+            boolean[] grown = new boolean[arrays.length * 2];
+            System.arraycopy(arrays, 0, grown, 0, arrays.length);
+            arrays = grown;
+        }
+        arrays[depth] = array;
+        if (depth <= MAX_TRACKED_DEPTH) {
+            keys[depth] = null;
+        }
+    }
+
+    private void pop() {
+        depth--;
+        if (depth == 0) {
+            Response response = current.build();
+            long offset = responseOffset;
+            reset();
+            listener.onResponse(response, offset);
+        } else {
+            expectingKey = false;
+        }
+    }
+
+    private void appendToken(char c) {
+        if (token.length() < MAX_TOKEN_LENGTH) {
+            token.append(c);
+        }
+    }
+
+    /**
+     * 对象中的一个标量值结束，按所在路径记录
+     */
+    private void onScalar(boolean quoted) {
+        if (depth > MAX_TRACKED_DEPTH || arrays[depth]) {
+            return;
+        }
+        String key = keys[depth];
+        if (key == null) {
+            return;
+        }
+        if (depth == 1) {
+            if ("took".equals(key)) {
+                current.took = parseLong(quoted);
+            } else if ("timed_out".equals(key) && !quoted) {
+                current.timedOut = "true".contentEquals(token);
+            }
+        } else if (depth == 2) {
+            if ("_shards".equals(keys[1]) && "failed".equals(key)) {
+                Long failed = parseLong(quoted);
+                current.shardsFailed = failed != null ? failed.intValue() : null;
+            } else if ("hits".equals(keys[1]) && "total".equals(key)) {
+                current.hitsTotal = parseLong(quoted);
+                current.hitsTotalRelation = "eq";
+            }
+        } else if ("hits".equals(keys[1]) && "total".equals(keys[2])) {
+            if ("value".equals(key)) {
+                current.hitsTotal = parseLong(quoted);
+            } else if ("relation".equals(key)) {
+                current.hitsTotalRelation = token.toString();
+            }
+        }
+    }
+
+    private Long parseLong(boolean quoted) {
+        if (quoted || token.length() == 0) {
+            return null;
+        }
+        try {
+            return Long.parseLong(token, 0, token.length(), 10);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 从响应中提取的字段，没有出现的为 null
+     */
+    public static final class Response {
+        private final Long took;
+        private final Boolean timedOut;
+        private final Integer shardsFailed;
+        private final Long hitsTotal;
+        private final String hitsTotalRelation;
+        private final int returnedHits;
+        private final long size;
+
+        private Response(Builder builder) {
+            this.took = builder.took;
+            this.timedOut = builder.timedOut;
+            this.shardsFailed = builder.shardsFailed;
+            this.hitsTotal = builder.hitsTotal;
+            this.hitsTotalRelation = builder.hitsTotalRelation;
+            this.returnedHits = builder.returnedHits;
+            this.size = builder.size;
+        }
+
+        static Builder builder() {
+            return new Builder();
+        }
+
+        /**
+         * 服务端耗时（毫秒）
+         */
+        public Long getTook() {
+            return took;
+        }
+
+        public Boolean getTimedOut() {
+            return timedOut;
+        }
+
+        public Integer getShardsFailed() {
+            return shardsFailed;
+        }
+
+        public Long getHitsTotal() {
+            return hitsTotal;
+        }
+
+        /**
+         * eq 表示精确值，gte 表示下限（超过 track_total_hits）
+         */
+        public String getHitsTotalRelation() {
+            return hitsTotalRelation;
+        }
+
+        public int getReturnedHits() {
+            return returnedHits;
+        }
+
+        /**
+         * 响应 JSON 的字符数
+         */
+        public long getSize() {
+            return size;
+        }
+
+        static final class Builder {
+            private Long took;
+            private Boolean timedOut;
+            private Integer shardsFailed;
+            private Long hitsTotal;
+            private String hitsTotalRelation;
+            private int returnedHits;
+            private long size;
+
+            Response build() {
+                return new Response(this);
+            }
+        }
+    }
+}
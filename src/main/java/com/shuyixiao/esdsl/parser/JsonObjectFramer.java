@@ -0,0 +1,154 @@
+package com.shuyixiao.esdsl.parser;
+
+import com.shuyixiao.console.LogLineClassifier;
+
+/**
+ * 流式 JSON 对象切分器
+ * 逐行喂入日志，跨行保持括号深度和字符串状态，每个完整的顶层对象只回调一次
+ *
+ * <ul>
+ *     <li>每个字符只扫描一遍，耗时与新输入成正比，不再从每个 "{" 重新扫描保留的历史</li>
+ *     <li>只在对象内部识别字符串，对象外的引号（curl 的 '...'、日志文本）不影响状态</li>
+ *     <li>对象未闭合时遇到以时间戳开头的新日志行，视为残缺并丢弃，从新行重新开始</li>
+ *     <li>超过 {@link #MAX_OBJECT_LENGTH} 的对象（大型响应）只跟踪括号，不保存内容也不回调</li>
+ * </ul>
+ * 非线程安全，由单一读取线程调用
+ */
+public final class JsonObjectFramer {
+
+    // 单个对象的内容上限，与 ES 监听器的缓冲区上限一致
+    static final int MAX_OBJECT_LENGTH = 2_000_000;
+
+    /**
+     * 完整对象的回调
+     */
+    public interface Listener {
+        /**
+         * @param json   对象文本（回调返回后会被复用，需要保留时自行复制）
+         * @param offset 对象起始 "{" 的位置（调用方传入的坐标系）
+         */
+        void onObject(CharSequence json, long offset);
+    }
+
+    private final Listener listener;
+    private final StringBuilder content = new StringBuilder();
+
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private boolean oversized;
+    private long objectOffset = -1;
+
+    public JsonObjectFramer(Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 喂入一行（不含换行符），行尾按一个换行符计算位置
+     *
+     * @param offset line[start] 的位置
+     */
+    public void feedLine(CharSequence line, int start, int end, long offset) {
+        if (depth > 0 && LogLineClassifier.startsWithDate(line, start, end)) {
+            // 上一个对象没有闭合（日志中的 "{" 不一定是 JSON）
+            reset();
+        }
+        feed(line, start, end, offset);
+        if (depth > 0) {
+            append('\n');
+        }
+    }
+
+    /**
+     * 喂入一段文本
+     *
+     * @param offset text[start] 的位置
+     */
+    public void feed(CharSequence text, int start, int end, long offset) {
+        int segmentStart = depth > 0 ? start : -1;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (depth == 0) {
+                if (c == '{') {
+                    depth = 1;
+                    objectOffset = offset + (i - start);
+                    segmentStart = i;
+                }
+                continue;
+            }
+
+            if (escaped) {
+                escaped = false;
+            } else if (inString) {
+                if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                append(text, segmentStart, i + 1);
+                complete();
+                segmentStart = -1;
+            }
+        }
+        if (depth > 0 && segmentStart >= 0) {
+            append(text, segmentStart, end);
+        }
+    }
+
+    /**
+     * 是否处在未闭合的对象中
+     */
+    public boolean isInObject() {
+        return depth > 0;
+    }
+
+    /**
+     * 丢弃未闭合的对象
+     */
+    public void reset() {
+        depth = 0;
+        inString = false;
+        escaped = false;
+        oversized = false;
+        objectOffset = -1;
+        content.setLength(0);
+    }
+
+    private void complete() {
+        try {
+            if (!oversized) {
+                listener.onObject(content, objectOffset);
+            }
+        } finally {
+            reset();
+        }
+    }
+
+    private void append(CharSequence text, int from, int to) {
+        if (reserve(to - from)) {
+            content.append(text, from, to);
+        }
+    }
+
+    private void append(char c) {
+        if (reserve(1)) {
+            content.append(c);
+        }
+    }
+
+    /**
+     * 内容还能容纳 length 个字符时返回 true，超出上限后不再保存该对象
+     */
+    private boolean reserve(int length) {
+        if (!oversized && content.length() + length > MAX_OBJECT_LENGTH) {
+            oversized = true;
+            content.setLength(0);
+        }
+        return !oversized;
+    }
+}
@@ -9,6 +9,8 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.shuyixiao.console.ConsoleIngestService;
+import com.shuyixiao.console.ConsoleLogDemultiplexer;
 import com.shuyixiao.esdsl.listener.EsDslOutputListener;
 import org.jetbrains.annotations.NotNull;
 
@@ -18,6 +20,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * ES DSL 监控服务
  * 负责管理 ES DSL 输出监听器的生命周期
+ * 监听器作为 sink 挂在 {@link ConsoleIngestService} 的共享分发器上，每个进程只解析一次控制台输出
  */
 @Service
 public final class EsDslMonitoringService {
@@ -82,9 +85,10 @@ public final class EsDslMonitoringService {
                 return;
             }
             
-            // 创建新的监听器
-            EsDslOutputListener listener = new EsDslOutputListener(project);
-            processHandler.addProcessListener(listener);
+            // 创建新的监听器，挂到进程共享的分发器上
+            ConsoleLogDemultiplexer pipeline = ConsoleIngestService.getInstance(project).attach(processHandler);
+            EsDslOutputListener listener = new EsDslOutputListener(project, pipeline.getGovernor());
+            pipeline.addSink(listener);
             activeListeners.put(processHandler, listener);
             
             LOG.debug("Attached ES DSL listener to process: " + processHandler);
@@ -109,7 +113,7 @@ public final class EsDslMonitoringService {
         EsDslOutputListener listener = activeListeners.remove(processHandler);
         if (listener != null) {
             try {
-                processHandler.removeProcessListener(listener);
+                ConsoleIngestService.getInstance(project).detach(processHandler, listener);
                 LOG.debug("Removed ES DSL listener from process: " + processHandler);
             } catch (Exception e) {
                 LOG.warn("Failed to remove ES DSL listener", e);
@@ -123,7 +127,7 @@ public final class EsDslMonitoringService {
     public void clearAllListeners() {
         for (Map.Entry<ProcessHandler, EsDslOutputListener> entry : activeListeners.entrySet()) {
             try {
-                entry.getKey().removeProcessListener(entry.getValue());
+                ConsoleIngestService.getInstance(project).detach(entry.getKey(), entry.getValue());
             } catch (Exception e) {
                 LOG.warn("Failed to remove listener during cleanup", e);
             }
@@ -0,0 +1,214 @@
+package com.shuyixiao.esdsl.service;
+
+import com.shuyixiao.esdsl.model.EsDslQueryStats;
+import com.shuyixiao.esdsl.model.EsDslRecord;
+import com.shuyixiao.esdsl.parser.EsDslTree;
+import com.shuyixiao.sql.model.LatencySummary;
+import com.shuyixiao.util.LatencyHistogram;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ES 查询形状的增量聚合器
+ *
+ * <ul>
+ *     <li>按 {@link EsDslTree} 的形状指纹聚合，每条记录只更新一个条目，不保留逐条记录</li>
+ *     <li>每个指纹记录查询次数、失败次数、执行时间分位数，以及命中的索引、触发它的接口和调用方</li>
+ *     <li>指纹数量超过上限时淘汰最久未出现的形状；索引、接口和调用方超过上限后计入 "(其他)"</li>
+ * </ul>
+ * 所有方法都在同一把锁内执行
+ */
+final class EsDslQueryAggregator {
+
+    static final int DEFAULT_MAX_FINGERPRINTS = 10_000;
+    static final int MAX_KEYS_PER_ENTRY = 64;
+    static final String OTHER_KEY = "(其他)";
+
+    private final int maxFingerprints;
+    private final Map<Long, Entry> entries;
+
+    EsDslQueryAggregator() {
+        this(DEFAULT_MAX_FINGERPRINTS);
+    }
+
+    EsDslQueryAggregator(int maxFingerprints) {
+        this.maxFingerprints = maxFingerprints;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > EsDslQueryAggregator.this.maxFingerprints;
+            }
+        };
+    }
+
+    /**
+     * 计入一条查询记录
+     * 旧版本保存的记录没有形状，此时从 DSL 重新解析；无法解析的记录不参与聚合
+     */
+    synchronized void record(EsDslRecord record) {
+        String shape = record.getQueryShape();
+        long fingerprint = record.getFingerprint();
+        if (shape == null) {
+            EsDslTree tree = EsDslTree.parse(record.getDslQuery());
+            if (tree == null) {
+                return;
+            }
+            shape = tree.getShape();
+            fingerprint = tree.getFingerprint();
+        }
+
+        Entry entry = entries.get(fingerprint);
+        if (entry == null) {
+            entry = new Entry(fingerprint, shape);
+            entries.put(fingerprint, entry);
+        }
+        entry.add(record);
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 查询次数最多的形状
+     *
+     * @param apiPath 只统计该接口触发的查询；为空时统计全部
+     * @param limit   最多返回条数
+     */
+    synchronized List<EsDslQueryStats> getTopQueries(String apiPath, int limit) {
+        boolean allPaths = apiPath == null || apiPath.isEmpty();
+        List<Entry> matched = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (allPaths || entry.apiPathCounts.containsKey(apiPath)) {
+                matched.add(entry);
+            }
+        }
+        matched.sort(Comparator.comparingLong((Entry e) -> allPaths ? e.count : e.apiPathCounts.get(apiPath))
+                .reversed());
+
+        List<EsDslQueryStats> result = new ArrayList<>(Math.min(limit, matched.size()));
+        for (int i = 0; i < matched.size() && i < limit; i++) {
+            result.add(matched.get(i).snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * 出现过的全部接口路径（按查询次数从多到少）
+     */
+    synchronized List<String> getApiPaths() {
+        Map<String, Long> totals = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            entry.apiPathCounts.forEach((path, count) -> totals.merge(path, count, Long::sum));
+        }
+        List<String> paths = new ArrayList<>(totals.keySet());
+        paths.sort(Comparator.comparing((String path) -> totals.get(path)).reversed());
+        return paths;
+    }
+
+    private static final class Entry {
+        final long fingerprint;
+        final String queryShape;
+        String sampleDsl;
+        String method;
+        long count;
+        long failureCount;
+        LocalDateTime firstSeen;
+        LocalDateTime lastSeen;
+        long timedCount;
+        long totalExecutionTime;
+        long maxExecutionTime;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final Map<String, Long> indexCounts = new HashMap<>();
+        final Map<String, Long> apiPathCounts = new HashMap<>();
+        final Map<String, Long> callerCounts = new HashMap<>();
+
+        Entry(long fingerprint, String queryShape) {
+            this.fingerprint = fingerprint;
+            this.queryShape = queryShape;
+        }
+
+        void add(EsDslRecord record) {
+            count++;
+            sampleDsl = record.getDslQuery();
+            if (record.getMethod() != null) {
+                method = record.getMethod();
+            }
+            if (record.getHttpStatus() != null && !record.isSuccess()) {
+                failureCount++;
+            }
+
+            LocalDateTime timestamp = record.getTimestamp();
+            if (timestamp != null) {
+                if (firstSeen == null || timestamp.isBefore(firstSeen)) {
+                    firstSeen = timestamp;
+                }
+                if (lastSeen == null || timestamp.isAfter(lastSeen)) {
+                    lastSeen = timestamp;
+                }
+            }
+
+            Long executionTime = record.getExecutionTime();
+            if (executionTime != null && executionTime >= 0) {
+                timedCount++;
+                totalExecutionTime += executionTime;
+                maxExecutionTime = Math.max(maxExecutionTime, executionTime);
+                latency.record(executionTime);
+            }
+
+            increment(indexCounts, record.getIndex());
+            increment(apiPathCounts, record.getApiPath());
+            increment(callerCounts, record.getCallerClass());
+        }
+
+        private static void increment(Map<String, Long> counts, String key) {
+            if (key == null || key.isEmpty()) {
+                return;
+            }
+            if (!counts.containsKey(key) && counts.size() >= MAX_KEYS_PER_ENTRY) {
+                key = OTHER_KEY;
+            }
+            counts.merge(key, 1L, Long::sum);
+        }
+
+        EsDslQueryStats snapshot() {
+            return EsDslQueryStats.builder()
+                    .fingerprint(fingerprint)
+                    .queryShape(queryShape)
+                    .sampleDsl(sampleDsl)
+                    .method(method)
+                    .count(count)
+                    .failureCount(failureCount)
+                    .firstSeen(firstSeen)
+                    .lastSeen(lastSeen)
+                    .timedCount(timedCount)
+                    .totalExecutionTime(totalExecutionTime)
+                    .maxExecutionTime(maxExecutionTime)
+                    .latency(LatencySummary.of(latency))
+                    .indexCounts(sortedByCount(indexCounts))
+                    .apiPathCounts(sortedByCount(apiPathCounts))
+                    .callerCounts(sortedByCount(callerCounts))
+                    .build();
+        }
+
+        private static Map<String, Long> sortedByCount(Map<String, Long> counts) {
+            List<Map.Entry<String, Long>> sorted = new ArrayList<>(counts.entrySet());
+            sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> e : sorted) {
+                result.put(e.getKey(), e.getValue());
+            }
+            return result;
+        }
+    }
+}
@@ -6,23 +6,29 @@ import com.google.gson.JsonSyntaxException;
 import com.google.gson.Strictness;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.shuyixiao.diagnostics.PluginMetrics;
+import com.shuyixiao.esdsl.model.EsDslQueryStats;
 import com.shuyixiao.esdsl.model.EsDslRecord;
+import com.shuyixiao.storage.RecordJournal;
+import com.shuyixiao.storage.TokenIndex;
 import com.shuyixiao.util.LocalDateTimeAdapter;
 
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -30,26 +36,38 @@ import java.util.stream.Collectors;
  * 负责管理 ES DSL 查询记录的存储和检索
  */
 @Service
-public final class EsDslRecordService {
+public final class EsDslRecordService implements Disposable {
     
     private static final Logger LOG = Logger.getInstance(EsDslRecordService.class);
-    private static final String STORAGE_FILE = "es-dsl-records.json";
+    private static final String STORAGE_FILE = "es-dsl-records.jsonl";
+    private static final String LEGACY_STORAGE_FILE = "es-dsl-records.json"; // 旧版整体 JSON 数组文件
     private static final int MAX_RECORDS = 1000; // 最多保存1000条记录
+    // 参与全文搜索的字段
+    private static final List<Function<EsDslRecord, String>> SEARCH_FIELDS = List.of(
+            EsDslRecord::getDslQuery, EsDslRecord::getIndex, EsDslRecord::getEndpoint,
+            EsDslRecord::getApiPath, EsDslRecord::getCallerClass);
     
     @SuppressWarnings("unused")
     private final Project project;
     private final CopyOnWriteArrayList<EsDslRecord> records = new CopyOnWriteArrayList<>();
     private final Gson gson;
-    private final File storageFile;
+    private final File legacyStorageFile;
+    private final RecordJournal<EsDslRecord> journal;
+    // 按查询形状的聚合统计（不受 MAX_RECORDS 限制）
+    private final EsDslQueryAggregator aggregator = new EsDslQueryAggregator();
+    // 内存中记录的全文索引，随记录的添加、淘汰增量更新
+    private final TokenIndex<EsDslRecord> searchIndex = new TokenIndex<>(SEARCH_FIELDS);
     
     // ✅ 记录更新监听器列表（用于实时通知UI）
     private final List<Consumer<EsDslRecord>> recordListeners = new CopyOnWriteArrayList<>();
+    // 记录淘汰监听器（超过最大记录数、删除最旧的记录时通知UI）
+    private final List<Consumer<EsDslRecord>> evictionListeners = new CopyOnWriteArrayList<>();
     
     public EsDslRecordService(Project project) {
         this.project = project;
+        // 日志文件一条记录一行，不使用 PrettyPrinting
         this.gson = new GsonBuilder()
                 .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                .setPrettyPrinting()
                 .create();
         
         // 存储文件位置
@@ -59,13 +77,17 @@ public final class EsDslRecordService {
             if (!ideaDir.exists()) {
                 ideaDir.mkdirs();
             }
-            this.storageFile = new File(ideaDir, STORAGE_FILE);
+            this.legacyStorageFile = new File(ideaDir, LEGACY_STORAGE_FILE);
+            this.journal = new RecordJournal<>("ES DSL", new File(ideaDir, STORAGE_FILE), gson,
+                    EsDslRecord.class, EsDslRecord::getId, MAX_RECORDS, this::snapshotOldestFirst);
         } else {
-            this.storageFile = null;
+            this.legacyStorageFile = null;
+            this.journal = null;
         }
         
         // 加载历史记录
         loadRecords();
+        rebuildSearchIndex();
     }
     
     /**
@@ -78,24 +100,32 @@ public final class EsDslRecordService {
         
         try {
             // ✅ 去重逻辑：检查是否存在相似的记录（5秒内的相同查询）
+            LocalDateTime cutoff = LocalDateTime.now().minusSeconds(5);
             boolean isDuplicate = records.stream()
-                .filter(r -> r.getTimestamp().isAfter(LocalDateTime.now().minusSeconds(5)))
+                .filter(r -> r.getTimestamp().isAfter(cutoff))
                 .anyMatch(r -> isSimilarRecord(r, record));
             
             if (isDuplicate) {
                 LOG.debug("Skipped duplicate ES DSL record: " + record.getId());
+                PluginMetrics.ES_DEDUPE_HITS.increment();
                 return;
             }
             
             records.add(0, record); // 添加到列表开头（最新的在前面）
+            searchIndex.add(record);
+            aggregator.record(record);
             
             // 如果超过最大记录数，删除最旧的记录
             if (records.size() > MAX_RECORDS) {
-                records.remove(records.size() - 1);
+                EsDslRecord evicted = records.remove(records.size() - 1);
+                searchIndex.remove(evicted);
+                notifyEvicted(evicted);
             }
             
-            // 异步保存到文件
-            saveRecordsAsync();
+            // 追加到日志文件（后台写线程）
+            if (journal != null) {
+                journal.append(record);
+            }
             
             LOG.debug("Added ES DSL record: " + record.getId());
             
@@ -124,18 +154,42 @@ public final class EsDslRecordService {
             return false;
         }
         
+        // 形状不同的查询一定不同，不必比较 DSL 文本（0 表示旧记录或无法解析）
+        if (r1.getFingerprint() != 0 && r2.getFingerprint() != 0 && r1.getFingerprint() != r2.getFingerprint()) {
+            return false;
+        }
+        
         // 比较DSL查询（如果都有的话）
         if (r1.getDslQuery() != null && r2.getDslQuery() != null) {
-            // 移除空白字符后比较
-            String dsl1 = r1.getDslQuery().replaceAll("\\s+", "");
-            String dsl2 = r2.getDslQuery().replaceAll("\\s+", "");
-            return dsl1.equals(dsl2);
+            return equalsIgnoringWhitespace(r1.getDslQuery(), r2.getDslQuery());
         }
         
         // 如果DSL为空，只比较方法、索引和端点
         return true;
     }
     
+    /**
+     * 忽略空白字符比较两段文本（逐字符比较，不生成去除空白后的副本）
+     */
+    static boolean equalsIgnoringWhitespace(String s1, String s2) {
+        int i = 0;
+        int j = 0;
+        while (true) {
+            while (i < s1.length() && Character.isWhitespace(s1.charAt(i))) {
+                i++;
+            }
+            while (j < s2.length() && Character.isWhitespace(s2.charAt(j))) {
+                j++;
+            }
+            if (i == s1.length() || j == s2.length()) {
+                return i == s1.length() && j == s2.length();
+            }
+            if (s1.charAt(i++) != s2.charAt(j++)) {
+                return false;
+            }
+        }
+    }
+    
     /**
      * 安全的字符串比较
      */
@@ -181,6 +235,32 @@ public final class EsDslRecordService {
         }
     }
     
+    /**
+     * 添加记录淘汰监听器（在写入线程中回调，不能耗时）
+     */
+    public void addEvictionListener(Consumer<EsDslRecord> listener) {
+        if (listener != null && !evictionListeners.contains(listener)) {
+            evictionListeners.add(listener);
+        }
+    }
+    
+    /**
+     * 移除记录淘汰监听器
+     */
+    public void removeEvictionListener(Consumer<EsDslRecord> listener) {
+        evictionListeners.remove(listener);
+    }
+    
+    private void notifyEvicted(EsDslRecord record) {
+        for (Consumer<EsDslRecord> listener : evictionListeners) {
+            try {
+                listener.accept(record);
+            } catch (Exception e) {
+                LOG.warn("Error notifying eviction listener", e);
+            }
+        }
+    }
+    
     /**
      * 获取所有记录
      */
@@ -232,14 +312,47 @@ public final class EsDslRecordService {
             return getAllRecords();
         }
         
-        String lowerKeyword = keyword.toLowerCase();
-        return records.stream()
-                .filter(record -> 
-                    (record.getDslQuery() != null && record.getDslQuery().toLowerCase().contains(lowerKeyword)) ||
-                    (record.getIndex() != null && record.getIndex().toLowerCase().contains(lowerKeyword)) ||
-                    (record.getEndpoint() != null && record.getEndpoint().toLowerCase().contains(lowerKeyword))
-                )
-                .collect(Collectors.toList());
+        List<String> terms = TokenIndex.queryTerms(keyword);
+        if (terms.isEmpty()) {
+            // 只有符号时无法分词，逐条按包含判断
+            return records.stream()
+                    .filter(record -> matchesKeyword(record, keyword))
+                    .collect(Collectors.toList());
+        }
+        return searchIndex.search(terms);
+    }
+    
+    /**
+     * 记录是否匹配搜索关键字（与 {@link #searchRecords} 的规则相同）
+     * 关键字按词前缀匹配 DSL、索引、端点、API 路径、调用类，多个词需同时命中；只有符号时按包含判断（不创建小写副本）
+     */
+    public static boolean matchesKeyword(EsDslRecord record, String keyword) {
+        if (keyword == null || keyword.isEmpty()) {
+            return true;
+        }
+        List<String> terms = TokenIndex.queryTerms(keyword);
+        if (!terms.isEmpty()) {
+            return TokenIndex.matches(terms, record, SEARCH_FIELDS);
+        }
+        for (Function<EsDslRecord, String> field : SEARCH_FIELDS) {
+            if (containsIgnoreCase(field.apply(record), keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean containsIgnoreCase(String text, String keyword) {
+        if (text == null) {
+            return false;
+        }
+        int last = text.length() - keyword.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, keyword, 0, keyword.length())) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -247,7 +360,9 @@ public final class EsDslRecordService {
      */
     public void clearAllRecords() {
         records.clear();
-        saveRecordsAsync();
+        searchIndex.clear();
+        aggregator.clear();
+        compactJournal();
         LOG.info("Cleared all ES DSL records");
     }
     
@@ -257,10 +372,27 @@ public final class EsDslRecordService {
     public void clearOldRecords(int days) {
         LocalDateTime cutoffTime = LocalDateTime.now().minusDays(days);
         records.removeIf(record -> record.getTimestamp().isBefore(cutoffTime));
-        saveRecordsAsync();
+        rebuildSearchIndex();
+        compactJournal();
         LOG.info("Cleared ES DSL records older than " + days + " days");
     }
     
+    /**
+     * 查询次数最多的 ES 查询形状
+     *
+     * @param apiPath 只统计该接口触发的查询；为空时统计全部
+     */
+    public List<EsDslQueryStats> getTopQueries(String apiPath, int limit) {
+        return aggregator.getTopQueries(apiPath, limit);
+    }
+    
+    /**
+     * 聚合统计中出现过的接口路径（按查询次数从多到少）
+     */
+    public List<String> getAggregatedApiPaths() {
+        return aggregator.getApiPaths();
+    }
+    
     /**
      * 获取统计信息
      */
@@ -283,11 +415,28 @@ public final class EsDslRecordService {
      * 从文件加载记录
      */
     private void loadRecords() {
-        if (storageFile == null || !storageFile.exists()) {
+        if (journal == null) {
             return;
         }
 
-        try (FileReader fileReader = new FileReader(storageFile)) {
+        if (journal.getFile().exists()) {
+            // 日志按时间先后排列，内存中最新的在前
+            List<EsDslRecord> replayed = journal.replay();
+            for (EsDslRecord record : replayed) {
+                aggregator.record(record);
+            }
+            Collections.reverse(replayed);
+            records.addAll(replayed);
+        } else if (legacyStorageFile.exists()) {
+            migrateLegacyFile();
+        }
+    }
+
+    /**
+     * 把旧版 JSON 数组文件迁移到日志文件
+     */
+    private void migrateLegacyFile() {
+        try (FileReader fileReader = new FileReader(legacyStorageFile)) {
             // ✅ 使用 JsonReader 并设置 LENIENT 模式来容忍格式不严格的 JSON
             JsonReader jsonReader = new JsonReader(fileReader);
             jsonReader.setStrictness(Strictness.LENIENT);
@@ -297,14 +446,24 @@ public final class EsDslRecordService {
 
             if (loadedRecords != null) {
                 records.addAll(loadedRecords);
-                LOG.info("Loaded " + loadedRecords.size() + " ES DSL records from file");
+                loadedRecords.forEach(aggregator::record);
+                LOG.info("Loaded " + loadedRecords.size() + " ES DSL records from legacy file");
             }
         } catch (JsonSyntaxException e) {
             // ✅ JSON 格式错误，备份损坏的文件并重新开始
             LOG.error("ES DSL records file is corrupted, backing up and starting fresh", e);
             backupCorruptedFile();
+            return;
         } catch (IOException e) {
-            LOG.warn("Failed to load ES DSL records from file", e);
+            LOG.warn("Failed to load ES DSL records from legacy file", e);
+            return;
+        }
+
+        // 写出日志文件后保留旧文件作为备份
+        journal.compact();
+        File migratedFile = new File(legacyStorageFile.getParent(), LEGACY_STORAGE_FILE + ".migrated");
+        if (!legacyStorageFile.renameTo(migratedFile)) {
+            LOG.warn("Failed to rename legacy ES DSL records file after migration");
         }
     }
 
@@ -312,15 +471,15 @@ public final class EsDslRecordService {
      * 备份损坏的记录文件
      */
     private void backupCorruptedFile() {
-        if (storageFile == null || !storageFile.exists()) {
+        if (legacyStorageFile == null || !legacyStorageFile.exists()) {
             return;
         }
 
         try {
             String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            File backupFile = new File(storageFile.getParent(), "es-dsl-records.json.corrupted." + timestamp);
+            File backupFile = new File(legacyStorageFile.getParent(), LEGACY_STORAGE_FILE + ".corrupted." + timestamp);
 
-            if (storageFile.renameTo(backupFile)) {
+            if (legacyStorageFile.renameTo(backupFile)) {
                 LOG.info("Corrupted ES DSL records file backed up to: " + backupFile.getName());
             } else {
                 LOG.warn("Failed to backup corrupted ES DSL records file");
@@ -331,22 +490,37 @@ public final class EsDslRecordService {
     }
     
     /**
-     * 保存记录到文件（异步）
+     * 用当前记录重写日志文件（清除记录后调用）
      */
-    private void saveRecordsAsync() {
-        if (storageFile == null) {
-            return;
+    private void compactJournal() {
+        if (journal != null) {
+            journal.compact();
+        }
+    }
+    
+    /**
+     * 按时间先后排列的记录快照（日志压缩时写入）
+     */
+    /**
+     * 按内存中的记录重建全文索引（加载历史记录、批量删除后调用）
+     */
+    private void rebuildSearchIndex() {
+        searchIndex.clear();
+        searchIndex.addAll(snapshotOldestFirst());
+    }
+    
+    private List<EsDslRecord> snapshotOldestFirst() {
+        List<EsDslRecord> snapshot = new ArrayList<>(records);
+        Collections.reverse(snapshot);
+        return snapshot;
+    }
+    
+    @Override
+    public void dispose() {
+        // 等待积压的记录写完
+        if (journal != null) {
+            journal.close();
         }
-        
-        // 在后台线程中保存
-        new Thread(() -> {
-            try (FileWriter writer = new FileWriter(storageFile)) {
-                gson.toJson(records, writer);
-                LOG.debug("Saved " + records.size() + " ES DSL records to file");
-            } catch (IOException e) {
-                LOG.error("Failed to save ES DSL records to file", e);
-            }
-        }, "ES-DSL-Record-Saver").start();
     }
     
     /**
@@ -8,21 +8,26 @@ import com.intellij.ui.JBColor;
 import com.intellij.ui.components.*;
 import com.intellij.ui.table.JBTable;
 import com.intellij.util.ui.JBUI;
+import com.shuyixiao.console.ConsoleIngestService;
+import com.shuyixiao.esdsl.model.EsDslIssue;
 import com.shuyixiao.esdsl.model.EsDslRecord;
 import com.shuyixiao.esdsl.service.EsDslMonitoringService;
 import com.shuyixiao.esdsl.service.EsDslRecordService;
 import com.shuyixiao.ui.EnhancedNotificationUtil;
+import com.shuyixiao.ui.RecordTableModel;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
-import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 /**
  * ES DSL 工具窗口
@@ -43,6 +48,9 @@ public class EsDslToolWindow extends JPanel {
     private JSplitPane mainSplitter;
     private JTextArea detailArea;
     
+    // 整体刷新的序号：只应用最后一次刷新的结果
+    private int reloadGeneration;
+    
     public EsDslToolWindow(@NotNull Project project) {
         this.project = project;
         this.recordService = project.getService(EsDslRecordService.class);
@@ -52,22 +60,29 @@ public class EsDslToolWindow extends JPanel {
         setupEventHandlers();
         refreshData();
         
-        // ✅ 注册实时监听器（当有新记录时立即刷新UI）
-        Consumer<EsDslRecord> recordListener = record -> {
-            ApplicationManager.getApplication().invokeLater(() -> {
-                refreshData();
-            });
-        };
+        // ✅ 注册实时监听器：新增和淘汰的记录以增量方式进入表格，每帧最多刷新一次
+        Consumer<EsDslRecord> recordListener = tableModel::recordAdded;
+        Consumer<EsDslRecord> evictionListener = tableModel::recordEvicted;
         recordService.addRecordListener(recordListener);
+        recordService.addEvictionListener(evictionListener);
+        tableModel.setFlushListener(this::updateStatusLabel);
+        
+        // 进入或退出降载采样时更新状态栏
+        ConsoleIngestService ingestService = ConsoleIngestService.getInstance(project);
+        Runnable governorListener = () -> ApplicationManager.getApplication().invokeLater(this::updateStatusLabel);
+        ingestService.addGovernorListener(governorListener);
         
-        // 每10秒自动刷新一次（作为备用机制）
-        Timer refreshTimer = new Timer(10000, e -> refreshData());
-        refreshTimer.start();
+        // 定期删除超出时间范围的行（只检查最旧的一端，不重新加载记录）
+        Timer staleTimer = new Timer(30000, e -> tableModel.removeStale());
+        staleTimer.start();
         
         // 确保 Timer 和监听器在窗口关闭时被清理
         Disposer.register(project, () -> {
-            refreshTimer.stop();
+            staleTimer.stop();
+            tableModel.dispose();
             recordService.removeRecordListener(recordListener);
+            recordService.removeEvictionListener(evictionListener);
+            ingestService.removeGovernorListener(governorListener);
         });
     }
     
@@ -119,7 +134,9 @@ public class EsDslToolWindow extends JPanel {
                 "• DSL 查询内容<br>" +
                 "• 索引名称<br>" +
                 "• 端点路径<br>" +
-                "<i>提示：支持模糊搜索，不区分大小写</i></html>");
+                "• API 路径<br>" +
+                "• 调用类<br>" +
+                "<i>提示：按词前缀匹配，多个词需同时命中，不区分大小写</i></html>");
         toolbar.add(new JBLabel("搜索: "));
         toolbar.add(searchField);
         
@@ -142,6 +159,11 @@ public class EsDslToolWindow extends JPanel {
         refreshButton.addActionListener(e -> refreshData());
         toolbar.add(refreshButton);
         
+        // Top 查询按钮（按查询形状聚合）
+        JButton topQueriesButton = new JButton("Top查询");
+        topQueriesButton.addActionListener(e -> new EsDslTopQueriesDialog(project).show());
+        toolbar.add(topQueriesButton);
+        
         // 清空按钮
         JButton clearButton = new JButton("清空所有");
         clearButton.addActionListener(e -> clearAllRecords());
@@ -185,6 +207,7 @@ public class EsDslToolWindow extends JPanel {
         dslTable.getColumnModel().getColumn(4).setPreferredWidth(80);  // 执行时间
         dslTable.getColumnModel().getColumn(5).setPreferredWidth(100); // 时间戳
         dslTable.getColumnModel().getColumn(6).setPreferredWidth(60);  // 状态
+        dslTable.getColumnModel().getColumn(7).setPreferredWidth(60);  // 风险
         
         // 设置自定义渲染器
         dslTable.setDefaultRenderer(Object.class, new DslTableCellRenderer());
@@ -375,20 +398,39 @@ public class EsDslToolWindow extends JPanel {
      * 刷新数据
      */
     private void refreshData() {
+        // 在 EDT 上读取筛选条件，之后新增的记录按同样的条件筛选
+        String timeRange = (String) timeRangeFilter.getSelectedItem();
+        String method = (String) methodFilter.getSelectedItem();
+        String searchText = searchField.getText().trim();
+        Predicate<EsDslRecord> filter = buildFilter(method, searchText);
+        boolean allTime = "全部".equals(timeRange);
+        int hours = allTime ? 0 : getHoursFromTimeRange(timeRange);
+        int generation = ++reloadGeneration;
+        tableModel.beginReload();
+        
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
             try {
-                List<EsDslRecord> records = getFilteredRecords();
+                List<EsDslRecord> records = getFilteredRecords(allTime, hours, method, searchText);
                 
                 ApplicationManager.getApplication().invokeLater(() -> {
-                    // 保存当前选中的行
-                    int selectedRow = dslTable.getSelectedRow();
+                    if (generation != reloadGeneration) {
+                        return; // 已有更新的刷新
+                    }
                     
-                    tableModel.updateData(records);
+                    // 保存当前选中的记录
+                    EsDslRecord selected = tableModel.getRecordAt(dslTable.getSelectedRow());
+                    
+                    tableModel.setStaleFilter(allTime ? null
+                            : record -> record.getTimestamp().isBefore(LocalDateTime.now().minusHours(hours)));
+                    tableModel.setRecords(records, filter);
                     updateStatusLabel();
                     
                     // 恢复选中状态
-                    if (selectedRow >= 0 && selectedRow < dslTable.getRowCount()) {
-                        dslTable.setRowSelectionInterval(selectedRow, selectedRow);
+                    int row = selected != null
+                            ? tableModel.indexOf(record -> record.getId().equals(selected.getId()))
+                            : -1;
+                    if (row >= 0) {
+                        dslTable.setRowSelectionInterval(row, row);
                     }
                 });
                 
@@ -403,31 +445,33 @@ public class EsDslToolWindow extends JPanel {
     /**
      * 获取过滤后的记录
      */
-    private List<EsDslRecord> getFilteredRecords() {
-        // 时间范围
-        String timeRange = (String) timeRangeFilter.getSelectedItem();
+    private List<EsDslRecord> getFilteredRecords(boolean allTime, int hours, String method, String searchText) {
+        // 有搜索词时走全文索引，再按时间范围过滤
         List<EsDslRecord> records;
-        
-        if ("全部".equals(timeRange)) {
-            records = recordService.getAllRecords();
-        } else {
-            int hours = getHoursFromTimeRange(timeRange);
-            records = recordService.getRecentRecords(hours);
-        }
-        
-        // 方法过滤
-        String method = (String) methodFilter.getSelectedItem();
-        if (method != null && !"全部方法".equals(method)) {
-            records = recordService.getRecordsByMethod(method);
-        }
-        
-        // 搜索过滤
-        String searchText = searchField.getText().trim();
         if (!searchText.isEmpty()) {
-            records = recordService.searchRecords(searchText);
+            LocalDateTime cutoffTime = LocalDateTime.now().minusHours(hours);
+            records = recordService.searchRecords(searchText).stream()
+                    .filter(record -> allTime || record.getTimestamp().isAfter(cutoffTime))
+                    .collect(Collectors.toList());
+        } else {
+            records = allTime
+                    ? recordService.getAllRecords()
+                    : recordService.getRecentRecords(hours);
         }
         
-        return records;
+        // 方法过滤，条件与新增记录相同
+        return records.stream()
+                .filter(buildFilter(method, ""))
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 方法 + 搜索词的筛选条件（也用于实时新增的记录）
+     */
+    private static Predicate<EsDslRecord> buildFilter(String method, String searchText) {
+        boolean filterMethod = method != null && !"全部方法".equals(method);
+        return record -> (!filterMethod || method.equalsIgnoreCase(record.getMethod()))
+                && (searchText.isEmpty() || EsDslRecordService.matchesKeyword(record, searchText));
     }
     
     /**
@@ -467,6 +511,23 @@ public class EsDslToolWindow extends JPanel {
             if (record.getExecutionTime() != null) {
                 detail.append("执行时间: ").append(record.getExecutionTime()).append(" ms\n");
             }
+            // 响应摘要（took、命中数等，响应正文不保存）
+            if (record.getHitsTotal() != null) {
+                detail.append("命中总数: ").append(record.getFormattedHitsTotal());
+                if (record.getReturnedHits() != null) {
+                    detail.append("，返回 ").append(record.getReturnedHits()).append(" 条");
+                }
+                detail.append("\n");
+            }
+            if (record.getResponseSize() != null) {
+                detail.append("响应大小: ").append(record.getResponseSize() / 1024).append(" KB\n");
+            }
+            if (Boolean.TRUE.equals(record.getTimedOut())) {
+                detail.append("⚠️ 查询超时（timed_out），结果不完整\n");
+            }
+            if (record.getShardsFailed() != null && record.getShardsFailed() > 0) {
+                detail.append("⚠️ 分片失败: ").append(record.getShardsFailed()).append("\n");
+            }
             // ✅ 显示API路径和调用类
             if (record.getApiPath() != null) {
                 detail.append("API路径: ").append(record.getApiPath()).append("\n");
@@ -474,6 +535,12 @@ public class EsDslToolWindow extends JPanel {
             if (record.getCallerClass() != null) {
                 detail.append("调用类: ").append(record.getCallerClass()).append("\n");
             }
+            if (!record.getIssues().isEmpty()) {
+                detail.append("\n=== 性能隐患 ===\n");
+                for (EsDslIssue issue : record.getIssues()) {
+                    detail.append(issue).append("\n");
+                }
+            }
             detail.append("\n=== DSL 查询 ===\n");
             detail.append(record.getDslQuery());
             
@@ -506,8 +573,16 @@ public class EsDslToolWindow extends JPanel {
                 stats.getDistinctIndexes()
         );
         
+        // 控制台输出过多时只保存部分记录，提示当前采样率
+        ConsoleIngestService ingestService = ConsoleIngestService.getInstance(project);
+        boolean degraded = ingestService.isDegraded();
+        if (degraded) {
+            status += String.format(" | ⚠️ 日志过多，降载采样 1/%d（已跳过 %d 条）",
+                    ingestService.getSampleRate(), ingestService.getSkippedCount());
+        }
+        
         statusLabel.setText(status);
-        statusLabel.setForeground(monitoring ? JBColor.BLACK : JBColor.RED);
+        statusLabel.setForeground(!monitoring ? JBColor.RED : degraded ? JBColor.ORANGE : JBColor.BLACK);
     }
     
     /**
@@ -683,40 +758,14 @@ public class EsDslToolWindow extends JPanel {
     /**
      * DSL 表格模型
      */
-    private static class DslTableModel extends AbstractTableModel {
-        private final String[] columnNames = {"方法", "索引", "API路径", "DSL摘要", "执行时间", "时间戳", "状态"};
-        private List<EsDslRecord> records = List.of();
-        
-        public void updateData(List<EsDslRecord> newRecords) {
-            this.records = newRecords;
-            fireTableDataChanged();
-        }
+    private static class DslTableModel extends RecordTableModel<EsDslRecord> {
         
-        public EsDslRecord getRecordAt(int row) {
-            return row >= 0 && row < records.size() ? records.get(row) : null;
+        DslTableModel() {
+            super(new String[]{"方法", "索引", "API路径", "DSL摘要", "执行时间", "时间戳", "状态", "风险"});
         }
         
         @Override
-        public int getRowCount() {
-            return records.size();
-        }
-        
-        @Override
-        public int getColumnCount() {
-            return columnNames.length;
-        }
-        
-        @Override
-        public String getColumnName(int column) {
-            return columnNames[column];
-        }
-        
-        @Override
-        public Object getValueAt(int rowIndex, int columnIndex) {
-            if (rowIndex >= records.size()) return null;
-            
-            EsDslRecord record = records.get(rowIndex);
-            
+        protected Object getColumnValue(EsDslRecord record, int columnIndex) {
             switch (columnIndex) {
                 case 0: // 方法
                     return record.getMethod();
@@ -726,12 +775,14 @@ public class EsDslToolWindow extends JPanel {
                     return record.getApiPath() != null ? record.getApiPath() : "N/A";
                 case 3: // DSL摘要
                     return record.getShortQuery();
-                case 4: // 执行时间
-                    return record.getExecutionTime() != null ? record.getExecutionTime() + " ms" : "N/A";
+                case 4: // 执行时间（毫秒，由渲染器格式化）
+                    return record.getExecutionTime();
                 case 5: // 时间戳
                     return record.getFormattedTimestamp();
                 case 6: // 状态
                     return record.getHttpStatus();
+                case 7: // 风险
+                    return record.getSeverity();
                 default:
                     return null;
             }
@@ -745,7 +796,9 @@ public class EsDslToolWindow extends JPanel {
         @Override
         public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
                                                        boolean hasFocus, int row, int column) {
-            Component component = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            // 执行时间只在绘制时拼接单位
+            Object display = column == 4 ? (value != null ? value + " ms" : "N/A") : value;
+            Component component = super.getTableCellRendererComponent(table, display, isSelected, hasFocus, row, column);
             
             // 方法列着色
             if (column == 0 && value != null) {
@@ -774,9 +827,44 @@ public class EsDslToolWindow extends JPanel {
                 }
             }
             
+            // 风险列着色
+            if (column == 7) {
+                setText(value instanceof EsDslIssue.Severity ? ((EsDslIssue.Severity) value).getLabel() : "");
+                if (!isSelected && value instanceof EsDslIssue.Severity) {
+                    component.setForeground(getSeverityColor((EsDslIssue.Severity) value));
+                }
+                EsDslRecord record = ((DslTableModel) table.getModel()).getRecordAt(row);
+                setToolTipText(record != null && !record.getIssues().isEmpty() ? buildIssuesTooltip(record) : null);
+            } else {
+                setToolTipText(null);
+            }
+            
             return component;
         }
         
+        private static String buildIssuesTooltip(EsDslRecord record) {
+            StringBuilder tooltip = new StringBuilder("<html>");
+            for (EsDslIssue issue : record.getIssues()) {
+                tooltip.append(escapeHtml(issue.toString())).append("<br>");
+            }
+            return tooltip.append("</html>").toString();
+        }
+        
+        private static String escapeHtml(String text) {
+            return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        }
+        
+        private Color getSeverityColor(EsDslIssue.Severity severity) {
+            switch (severity) {
+                case CRITICAL:
+                    return new Color(220, 20, 60);   // 红色
+                case WARNING:
+                    return new Color(252, 161, 48);  // 橙色
+                default:
+                    return new Color(97, 175, 254);  // 蓝色
+            }
+        }
+        
         private Color getMethodColor(String method) {
             switch (method.toUpperCase()) {
                 case "GET":
@@ -10,6 +10,7 @@ import com.intellij.openapi.extensions.PluginId;
 import com.intellij.openapi.fileEditor.FileDocumentManager;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.shuyixiao.diagnostics.PluginMetrics;
 import com.shuyixiao.gitstat.ai.model.AiCodeRecord;
 import com.shuyixiao.gitstat.ai.storage.AiCodeRecordStorage;
 import org.jetbrains.annotations.NotNull;
@@ -87,10 +88,13 @@ public class RealtimeAiCodeDetector implements DocumentListener {
         
         // 性能优化 3: 异步处理，不阻塞编辑器
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
+            long startNanos = System.nanoTime();
             try {
                 processCodeChange(document, event, file);
             } catch (Exception e) {
                 LOG.warn("Failed to process code change: " + e.getMessage());
+            } finally {
+                PluginMetrics.AI_CODE_DETECT.recordSince(startNanos);
             }
         });
     }
@@ -4,6 +4,7 @@ import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.vfs.VirtualFile;
+import com.shuyixiao.diagnostics.PluginMetrics;
 import com.shuyixiao.gitstat.model.GitAuthorDailyStat;
 import com.shuyixiao.gitstat.model.GitAuthorStat;
 import com.shuyixiao.gitstat.model.GitDailyStat;
@@ -50,6 +51,7 @@ public final class GitStatService {
      * 刷新统计数据
      */
     public void refreshStatistics() {
+        long refreshStart = System.nanoTime();
         try {
             System.out.println("GitStatService.refreshStatistics: 开始刷新统计数据");
 
@@ -79,17 +81,25 @@ public final class GitStatService {
             for (GitRepository repository : repositories) {
                 VirtualFile root = repository.getRoot();
                 System.out.println("  处理仓库: " + root.getPath());
+                long phaseStart = System.nanoTime();
                 processRepository(root);
+                PluginMetrics.GIT_REFRESH_LOG.recordSince(phaseStart);
+
+                phaseStart = System.nanoTime();
                 calculateProjectStats(root);
+                PluginMetrics.GIT_REFRESH_PROJECT.recordSince(phaseStart);
 
                 // 分析 AI 统计
                 if (aiStatService != null) {
+                    phaseStart = System.nanoTime();
                     aiStatService.analyzeAiStatistics(root);
+                    PluginMetrics.GIT_REFRESH_AI.recordSince(phaseStart);
                 }
             }
 
             System.out.println("  刷新完成，作者统计数量: " + authorStatsCache.size());
             lastRefreshDate = LocalDate.now();
+            PluginMetrics.GIT_REFRESH.recordSince(refreshStart);
 
         } catch (Exception e) {
             System.out.println("  刷新统计数据异常: " + e.getMessage());
@@ -0,0 +1,156 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.console.LogContext;
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.sql.parser.SqlParser;
+import com.shuyixiao.sql.parser.SqlStatementAssembler;
+
+/**
+ * 方言解析器共用的扫描和构建工具
+ */
+final class DialectSupport {
+
+    // 单条语句的 SQL 上限，超出部分丢弃（参数上限见 SqlParser.MAX_PARAMETERS_LENGTH）
+    static final int MAX_STATEMENT_LENGTH = 1024000;
+
+    private DialectSupport() {
+    }
+
+    /**
+     * 忽略大小写查找，needle 需为小写
+     */
+    static int indexOf(CharSequence line, int start, int end, String needle) {
+        return SqlStatementAssembler.indexOf(line, start, end, needle, true);
+    }
+
+    static boolean contains(CharSequence line, int start, int end, String needle) {
+        return indexOf(line, start, end, needle) >= 0;
+    }
+
+    /**
+     * [from, end) 去掉首尾空白后的文本
+     */
+    static String trimmed(CharSequence line, int from, int end) {
+        int s = from;
+        int e = end;
+        while (s < e && Character.isWhitespace(line.charAt(s))) {
+            s++;
+        }
+        while (e > s && Character.isWhitespace(line.charAt(e - 1))) {
+            e--;
+        }
+        return line.subSequence(s, e).toString();
+    }
+
+    /**
+     * 从 from 开始的第一个 "[" 到该行最后一个 "]" 之间的内容；没有 "[" 时返回 null
+     */
+    static String bracketed(CharSequence line, int from, int end) {
+        int open = -1;
+        for (int i = from; i < end; i++) {
+            if (line.charAt(i) == '[') {
+                open = i;
+                break;
+            }
+        }
+        if (open < 0) {
+            return null;
+        }
+        int close = end - 1;
+        while (close > open && line.charAt(close) != ']') {
+            close--;
+        }
+        return close > open ? line.subSequence(open + 1, close).toString() : line.subSequence(open + 1, end).toString();
+    }
+
+    /**
+     * 解析从 from 开始的整数，没有数字时返回 null
+     */
+    static Integer parseInt(CharSequence line, int from, int end) {
+        int i = from;
+        while (i < end && !Character.isDigit(line.charAt(i))) {
+            if (!Character.isWhitespace(line.charAt(i)) && line.charAt(i) != ':') {
+                return null;
+            }
+            i++;
+        }
+        long value = 0;
+        int digits = 0;
+        while (i < end && digits < 10 && Character.isDigit(line.charAt(i))) {
+            value = value * 10 + (line.charAt(i) - '0');
+            digits++;
+            i++;
+        }
+        return digits == 0 || value > Integer.MAX_VALUE ? null : (int) value;
+    }
+
+    /**
+     * 按 MyBatis 的 "值(类型), 值(类型)" 格式追加一个参数，便于 SqlParameterBinder 还原可执行 SQL
+     */
+    static void appendParameter(StringBuilder parameters, String value, String type) {
+        if (parameters.length() >= SqlParser.MAX_PARAMETERS_LENGTH) {
+            return;
+        }
+        if (parameters.length() > 0) {
+            parameters.append(", ");
+        }
+        if (value == null || "null".equals(value)) {
+            parameters.append("null(null)");
+            return;
+        }
+        parameters.append(value).append('(').append(type != null && !type.isEmpty() ? type : "Object").append(')');
+    }
+
+    /**
+     * java.lang.Long -> Long
+     */
+    static String simpleTypeName(String className) {
+        if (className == null) {
+            return null;
+        }
+        int dot = className.lastIndexOf('.');
+        return dot >= 0 ? className.substring(dot + 1) : className;
+    }
+
+    /**
+     * 构建记录；无法识别操作类型（例如 commit、DDL）时返回 null
+     *
+     * @param context 语句开始时所在线程的上下文
+     */
+    static SqlRecord buildRecord(String source, String projectName, LogContext context, String sql,
+                                 String parameters, Integer resultCount, Long executionTime) {
+        if (sql == null) {
+            return null;
+        }
+        String statement = sql.trim();
+        while (statement.endsWith(";")) {
+            statement = statement.substring(0, statement.length() - 1).trim();
+        }
+        String operation = SqlParser.extractOperation(statement);
+        if (statement.isEmpty() || operation == null) {
+            return null;
+        }
+
+        SqlRecord.Builder builder = SqlRecord.builder()
+                .project(projectName)
+                .sqlStatement(statement)
+                .source(source)
+                .operation(operation)
+                .resultCount(resultCount)
+                .executionTime(executionTime)
+                .apiPath(context.getApiPath())
+                .callerClass(context.getCallerClass())
+                .requestId(context.getRequestId());
+
+        String tableName = SqlParser.extractTableName(statement, operation);
+        if (tableName != null) {
+            builder.tableName(tableName);
+        }
+        if (parameters != null && !parameters.isEmpty()) {
+            builder.parameters(parameters);
+            // 达到上限后 appendParameter 不再追加，后面的参数可能已丢失
+            builder.parametersTruncated(parameters.length() >= SqlParser.MAX_PARAMETERS_LENGTH);
+        }
+        return builder.build();
+    }
+}
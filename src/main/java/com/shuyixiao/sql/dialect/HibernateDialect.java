@@ -0,0 +1,175 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.console.LogContext;
+import com.shuyixiao.console.LogLineClassifier;
+import com.shuyixiao.sql.model.SqlRecord;
+
+/**
+ * Hibernate：org.hibernate.SQL（或 show_sql 的 "Hibernate: "）输出语句，
+ * BasicBinder / org.hibernate.orm.jdbc.bind 的 TRACE 行输出参数：
+ * <pre>
+ * binding parameter [1] as [BIGINT] - [42]      (Hibernate 5)
+ * binding parameter (1:BIGINT) &lt;- [42]         (Hibernate 6.2+)
+ * </pre>
+ * Hibernate 不输出结果行，语句在下一条语句、下一条无关的日志行或输出结束时完成
+ */
+public final class HibernateDialect implements SqlLogDialect {
+
+    private static final String SQL_LOGGER = "org.hibernate.sql";
+    private static final String SHOW_SQL = "hibernate:";
+    private static final String BINDING = "binding parameter";
+
+    @Override
+    public String getName() {
+        return "Hibernate";
+    }
+
+    @Override
+    public String[] getTriggers() {
+        return new String[]{SQL_LOGGER, SHOW_SQL, BINDING};
+    }
+
+    @Override
+    public SqlLogParser createParser(String projectName, ApiContextTracker context) {
+        return new Parser(getName(), projectName, context);
+    }
+
+    private static final class Parser implements SqlLogParser {
+        private final String source;
+        private final String projectName;
+        private final ApiContextTracker context;
+
+        private boolean assembling;
+        // 语句开始时所在线程的上下文，语句可能在其他线程的日志行上结束
+        private LogContext statementContext = LogContext.EMPTY;
+        private final StringBuilder sql = new StringBuilder();
+        private final StringBuilder parameters = new StringBuilder();
+
+        Parser(String source, String projectName, ApiContextTracker context) {
+            this.source = source;
+            this.projectName = projectName;
+            this.context = context;
+        }
+
+        @Override
+        public SqlRecord acceptLine(CharSequence line, int start, int end) {
+            int sqlAt = statementStart(line, start, end);
+            if (sqlAt >= 0) {
+                SqlRecord previous = flush();
+                statementContext = context.current();
+                assembling = true;
+                appendSql(line, sqlAt, end);
+                return previous;
+            }
+            if (!assembling) {
+                return null;
+            }
+
+            int bindingAt = DialectSupport.indexOf(line, start, end, BINDING);
+            if (bindingAt >= 0) {
+                parseBinding(line, bindingAt + BINDING.length(), end);
+                return null;
+            }
+            if (!LogLineClassifier.startsWithDate(line, start, end)) {
+                // format_sql 的多行语句
+                if (parameters.length() == 0) {
+                    appendSql(line, start, end);
+                }
+                return null;
+            }
+            if (DialectSupport.contains(line, start, end, "extracted value")
+                    || DialectSupport.contains(line, start, end, "basicextractor")) {
+                return null;
+            }
+            // 无关的新日志行：语句结束
+            return flush();
+        }
+
+        @Override
+        public boolean isAssembling() {
+            return assembling;
+        }
+
+        @Override
+        public SqlRecord flush() {
+            if (!assembling) {
+                return null;
+            }
+            SqlRecord record = DialectSupport.buildRecord(source, projectName, statementContext, sql.toString(),
+                    parameters.toString(), null, null);
+            reset();
+            return record;
+        }
+
+        @Override
+        public void reset() {
+            assembling = false;
+            sql.setLength(0);
+            parameters.setLength(0);
+        }
+
+        /**
+         * 语句文本的起始位置，不是语句行时返回 -1
+         */
+        private static int statementStart(CharSequence line, int start, int end) {
+            int at = DialectSupport.indexOf(line, start, end, SQL_LOGGER);
+            if (at >= 0) {
+                int i = at + SQL_LOGGER.length();
+                // 跳过对齐空格和 " : " / " - " 分隔符
+                while (i < end && (Character.isWhitespace(line.charAt(i)) || line.charAt(i) == ':'
+                        || line.charAt(i) == '-')) {
+                    i++;
+                }
+                return i;
+            }
+            at = DialectSupport.indexOf(line, start, end, SHOW_SQL);
+            return at >= 0 ? at + SHOW_SQL.length() : -1;
+        }
+
+        private void appendSql(CharSequence line, int from, int end) {
+            String text = DialectSupport.trimmed(line, from, end);
+            if (text.isEmpty() || sql.length() >= DialectSupport.MAX_STATEMENT_LENGTH) {
+                return;
+            }
+            if (sql.length() > 0) {
+                sql.append(' ');
+            }
+            sql.append(text);
+        }
+
+        /**
+         * "[1] as [BIGINT] - [42]" 或 "(1:BIGINT) <- [42]"
+         */
+        private void parseBinding(CharSequence line, int from, int end) {
+            String rest = line.subSequence(from, end).toString().trim();
+            String type = null;
+            int valueFrom;
+            if (rest.startsWith("(")) {
+                int colon = rest.indexOf(':');
+                int close = rest.indexOf(')');
+                if (colon > 0 && close > colon) {
+                    type = rest.substring(colon + 1, close);
+                }
+                valueFrom = rest.indexOf("<-");
+            } else {
+                int as = rest.indexOf(" as [");
+                if (as >= 0) {
+                    int close = rest.indexOf(']', as);
+                    if (close > as) {
+                        type = rest.substring(as + 5, close);
+                    }
+                }
+                valueFrom = rest.indexOf(" - [");
+            }
+            if (valueFrom < 0) {
+                return;
+            }
+            String value = DialectSupport.bracketed(rest, valueFrom, rest.length());
+            if (value == null) {
+                value = rest.substring(valueFrom + 2).trim();
+            }
+            DialectSupport.appendParameter(parameters, value, type);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.console.LogContext;
+import com.shuyixiao.console.LogLineClassifier;
+import com.shuyixiao.sql.model.SqlRecord;
+
+/**
+ * Spring JdbcTemplate（org.springframework.jdbc.core 的 DEBUG/TRACE 日志）
+ * <pre>
+ * Executing prepared SQL statement [select * from t where id = ?]
+ * Setting SQL statement parameter value: column index 1, parameter value [42], value class [java.lang.Long], SQL type unknown
+ * SQL update affected 1 rows
+ * </pre>
+ * 查询没有结果行，语句在下一条语句、下一条无关的日志行或输出结束时完成
+ */
+public final class JdbcTemplateDialect implements SqlLogDialect {
+
+    private static final String EXECUTING = "executing ";
+    private static final String SQL_MARKER = "sql ";
+    private static final String PARAMETER = "setting sql statement parameter value";
+    private static final String PARAMETER_VALUE = "parameter value [";
+    private static final String VALUE_CLASS = "value class [";
+    private static final String AFFECTED = "sql update affected";
+
+    @Override
+    public String getName() {
+        return "JdbcTemplate";
+    }
+
+    @Override
+    public String[] getTriggers() {
+        return new String[]{"executing prepared sql", "executing sql", PARAMETER, AFFECTED};
+    }
+
+    @Override
+    public SqlLogParser createParser(String projectName, ApiContextTracker context) {
+        return new Parser(getName(), projectName, context);
+    }
+
+    private static final class Parser implements SqlLogParser {
+        private final String source;
+        private final String projectName;
+        private final ApiContextTracker context;
+
+        private boolean assembling;
+        // 语句开始时所在线程的上下文，语句可能在其他线程的日志行上结束
+        private LogContext statementContext = LogContext.EMPTY;
+        // 语句的 "[" 已出现但 "]" 还没出现（多行 SQL）
+        private boolean inStatement;
+        private final StringBuilder sql = new StringBuilder();
+        private final StringBuilder parameters = new StringBuilder();
+
+        Parser(String source, String projectName, ApiContextTracker context) {
+            this.source = source;
+            this.projectName = projectName;
+            this.context = context;
+        }
+
+        @Override
+        public SqlRecord acceptLine(CharSequence line, int start, int end) {
+            int statementAt = statementStart(line, start, end);
+            if (statementAt >= 0) {
+                SqlRecord previous = flush();
+                statementContext = context.current();
+                assembling = true;
+                appendStatement(line, statementAt, end);
+                return previous;
+            }
+            if (!assembling) {
+                return null;
+            }
+
+            if (inStatement && !LogLineClassifier.startsWithDate(line, start, end)) {
+                sql.append(' ');
+                appendStatement(line, start, end);
+                return null;
+            }
+            inStatement = false;
+
+            if (DialectSupport.contains(line, start, end, PARAMETER)) {
+                parseParameter(line, start, end);
+                return null;
+            }
+            int affectedAt = DialectSupport.indexOf(line, start, end, AFFECTED);
+            if (affectedAt >= 0) {
+                Integer rows = DialectSupport.parseInt(line, affectedAt + AFFECTED.length(), end);
+                return finish(rows);
+            }
+            if (LogLineClassifier.startsWithDate(line, start, end)) {
+                return flush();
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isAssembling() {
+            return assembling;
+        }
+
+        @Override
+        public SqlRecord flush() {
+            return assembling ? finish(null) : null;
+        }
+
+        @Override
+        public void reset() {
+            assembling = false;
+            inStatement = false;
+            sql.setLength(0);
+            parameters.setLength(0);
+        }
+
+        private SqlRecord finish(Integer resultCount) {
+            SqlRecord record = DialectSupport.buildRecord(source, projectName, statementContext, sql.toString(),
+                    parameters.toString(), resultCount, null);
+            reset();
+            return record;
+        }
+
+        /**
+         * "Executing [prepared] SQL query|update|statement|batch update [" 之后的位置，不是语句行时返回 -1
+         */
+        private static int statementStart(CharSequence line, int start, int end) {
+            int at = DialectSupport.indexOf(line, start, end, EXECUTING);
+            if (at < 0) {
+                return -1;
+            }
+            int sqlAt = DialectSupport.indexOf(line, at, Math.min(end, at + 40), SQL_MARKER);
+            if (sqlAt < 0) {
+                return -1;
+            }
+            for (int i = sqlAt; i < end; i++) {
+                if (line.charAt(i) == '[') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        private void appendStatement(CharSequence line, int from, int end) {
+            int close = end - 1;
+            while (close >= from && line.charAt(close) != ']') {
+                close--;
+            }
+            inStatement = close < from;
+            if (sql.length() < DialectSupport.MAX_STATEMENT_LENGTH) {
+                sql.append(DialectSupport.trimmed(line, from, inStatement ? end : close));
+            }
+        }
+
+        private void parseParameter(CharSequence line, int start, int end) {
+            int valueAt = DialectSupport.indexOf(line, start, end, PARAMETER_VALUE);
+            if (valueAt < 0) {
+                return;
+            }
+            int classAt = DialectSupport.indexOf(line, valueAt, end, VALUE_CLASS);
+            // 值本身可能包含 "]"，以 ", value class [" 为界
+            int valueEnd = classAt >= 0 ? classAt : end;
+            String value = DialectSupport.bracketed(line, valueAt, valueEnd);
+            String type = classAt >= 0 ? DialectSupport.simpleTypeName(
+                    DialectSupport.bracketed(line, classAt, endOfBracket(line, classAt, end))) : null;
+            DialectSupport.appendParameter(parameters, value, type);
+        }
+
+        private static int endOfBracket(CharSequence line, int from, int end) {
+            for (int i = from; i < end; i++) {
+                if (line.charAt(i) == ']') {
+                    return i + 1;
+                }
+            }
+            return end;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.console.LogContext;
+import com.shuyixiao.sql.model.SqlRecord;
+
+/**
+ * jOOQ LoggerListener（org.jooq.tools.LoggerListener 的 DEBUG 日志）
+ * <pre>
+ * Executing query          : select "t"."id" from "t" where "t"."id" = ?
+ * -&gt; with bind values      : select "t"."id" from "t" where "t"."id" = 42
+ * Fetched row(s)           : 1
+ * Query executed           : Total: 1.234ms
+ * </pre>
+ * 优先使用已内联参数的 "with bind values" 语句，"Fetched row(s)" / "Affected row(s)" 结束语句
+ */
+public final class JooqDialect implements SqlLogDialect {
+
+    private static final String EXECUTING = "executing query";
+    private static final String BIND_VALUES = "with bind values";
+    private static final String FETCHED = "fetched row";
+    private static final String AFFECTED = "affected row";
+    private static final String EXECUTED = "query executed";
+    private static final String TOTAL = "total:";
+
+    @Override
+    public String getName() {
+        return "jOOQ";
+    }
+
+    @Override
+    public String[] getTriggers() {
+        return new String[]{EXECUTING, BIND_VALUES, FETCHED, AFFECTED, EXECUTED};
+    }
+
+    @Override
+    public SqlLogParser createParser(String projectName, ApiContextTracker context) {
+        return new Parser(getName(), projectName, context);
+    }
+
+    private static final class Parser implements SqlLogParser {
+        private final String source;
+        private final String projectName;
+        private final ApiContextTracker context;
+
+        private boolean assembling;
+        // 语句开始时所在线程的上下文，语句可能在其他线程的日志行上结束
+        private LogContext statementContext = LogContext.EMPTY;
+        private String sql;
+        private String inlinedSql;
+        private Long executionTime;
+
+        Parser(String source, String projectName, ApiContextTracker context) {
+            this.source = source;
+            this.projectName = projectName;
+            this.context = context;
+        }
+
+        @Override
+        public SqlRecord acceptLine(CharSequence line, int start, int end) {
+            int at = DialectSupport.indexOf(line, start, end, EXECUTING);
+            if (at >= 0) {
+                SqlRecord previous = flush();
+                statementContext = context.current();
+                assembling = true;
+                sql = valueAfterColon(line, at + EXECUTING.length(), end);
+                return previous;
+            }
+            if (!assembling) {
+                return null;
+            }
+
+            at = DialectSupport.indexOf(line, start, end, BIND_VALUES);
+            if (at >= 0) {
+                inlinedSql = valueAfterColon(line, at + BIND_VALUES.length(), end);
+                return null;
+            }
+            at = DialectSupport.indexOf(line, start, end, EXECUTED);
+            if (at >= 0) {
+                int totalAt = DialectSupport.indexOf(line, at, end, TOTAL);
+                if (totalAt >= 0) {
+                    executionTime = parseDurationMillis(line, totalAt + TOTAL.length(), end);
+                }
+                return null;
+            }
+            at = DialectSupport.indexOf(line, start, end, FETCHED);
+            if (at < 0) {
+                at = DialectSupport.indexOf(line, start, end, AFFECTED);
+            }
+            if (at >= 0) {
+                int colon = indexOfColon(line, at, end);
+                Integer rows = colon >= 0 ? DialectSupport.parseInt(line, colon + 1, end) : null;
+                return finish(rows);
+            }
+            // "Fetched result" 的表格等其他行忽略
+            return null;
+        }
+
+        @Override
+        public boolean isAssembling() {
+            return assembling;
+        }
+
+        @Override
+        public SqlRecord flush() {
+            return assembling ? finish(null) : null;
+        }
+
+        @Override
+        public void reset() {
+            assembling = false;
+            sql = null;
+            inlinedSql = null;
+            executionTime = null;
+        }
+
+        private SqlRecord finish(Integer resultCount) {
+            String statement = inlinedSql != null ? inlinedSql : sql;
+            SqlRecord record = DialectSupport.buildRecord(source, projectName, statementContext, statement, null,
+                    resultCount, executionTime);
+            reset();
+            return record;
+        }
+
+        private static int indexOfColon(CharSequence line, int from, int end) {
+            for (int i = from; i < end; i++) {
+                if (line.charAt(i) == ':') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 关键词后对齐的 " : " 之后的文本
+         */
+        private static String valueAfterColon(CharSequence line, int from, int end) {
+            int colon = indexOfColon(line, from, end);
+            return DialectSupport.trimmed(line, colon >= 0 ? colon + 1 : from, end);
+        }
+
+        /**
+         * "1.234ms" / "523.5µs" / "2.1s"，换算为毫秒（不足 1ms 记为 0），无法识别时返回 null
+         */
+        private static Long parseDurationMillis(CharSequence line, int from, int end) {
+            int i = from;
+            while (i < end && Character.isWhitespace(line.charAt(i))) {
+                i++;
+            }
+            int numberStart = i;
+            while (i < end && (Character.isDigit(line.charAt(i)) || line.charAt(i) == '.')) {
+                i++;
+            }
+            if (i == numberStart) {
+                return null;
+            }
+            double value;
+            try {
+                value = Double.parseDouble(line.subSequence(numberStart, i).toString());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            String unit = DialectSupport.trimmed(line, i, Math.min(end, i + 3));
+            if (unit.startsWith("ms")) {
+                return (long) value;
+            }
+            if (unit.startsWith("µs") || unit.startsWith("us") || unit.startsWith("ns")) {
+                return 0L;
+            }
+            if (unit.startsWith("min")) {
+                return (long) (value * 60_000);
+            }
+            if (unit.startsWith("s")) {
+                return (long) (value * 1000);
+            }
+            return null;
+        }
+    }
+}
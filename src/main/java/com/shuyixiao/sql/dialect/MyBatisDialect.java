@@ -0,0 +1,25 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.sql.parser.SqlStatementAssembler;
+
+/**
+ * MyBatis BaseJdbcLogger：==> Preparing / ==> Parameters / <== Total|Updates
+ */
+public final class MyBatisDialect implements SqlLogDialect {
+
+    @Override
+    public String getName() {
+        return "MyBatis";
+    }
+
+    @Override
+    public String[] getTriggers() {
+        return new String[]{"preparing:", "parameters:", "<=="};
+    }
+
+    @Override
+    public SqlLogParser createParser(String projectName, ApiContextTracker context) {
+        return new SqlStatementAssembler(projectName, context);
+    }
+}
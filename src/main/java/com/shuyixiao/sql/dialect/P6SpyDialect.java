@@ -0,0 +1,165 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.console.LogContext;
+import com.shuyixiao.console.LogLineClassifier;
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.sql.parser.SqlParser;
+import com.shuyixiao.sql.parser.SqlStatementAssembler;
+
+/**
+ * p6spy：以 "|" 分隔的一行，category 为 statement / batch
+ * <pre>
+ * 1700000000000|3|statement|connection 5|url jdbc:mysql://...|select * from t where id=?|select * from t where id=42
+ * #1700000000000 | took 3ms | statement | connection 5| url jdbc:mysql://...
+ * select * from t where id=?
+ * select * from t where id=42;
+ * </pre>
+ * 第二种为多行格式（spring-boot-data-source-decorator 默认）：SQL 在随后的非时间戳行中，
+ * 取最后一条能识别操作类型的语句（参数已内联）
+ */
+public final class P6SpyDialect implements SqlLogDialect {
+
+    @Override
+    public String getName() {
+        return "p6spy";
+    }
+
+    @Override
+    public String[] getTriggers() {
+        return new String[]{"|statement|", "| statement |", "|batch|", "| batch |"};
+    }
+
+    @Override
+    public SqlLogParser createParser(String projectName, ApiContextTracker context) {
+        return new Parser(getName(), projectName, context);
+    }
+
+    private static final class Parser implements SqlLogParser {
+        private final String source;
+        private final String projectName;
+        private final ApiContextTracker context;
+
+        // 多行格式：已读到头部，等待 SQL 行
+        private boolean assembling;
+        // 语句开始时所在线程的上下文，语句可能在其他线程的日志行上结束
+        private LogContext statementContext = LogContext.EMPTY;
+        private Long executionTime;
+        private String lastSql;
+
+        Parser(String source, String projectName, ApiContextTracker context) {
+            this.source = source;
+            this.projectName = projectName;
+            this.context = context;
+        }
+
+        @Override
+        public SqlRecord acceptLine(CharSequence line, int start, int end) {
+            String[] fields = splitCategoryLine(line, start, end);
+            if (fields != null) {
+                SqlRecord previous = flush();
+                statementContext = context.current();
+                int category = categoryIndex(fields);
+                Long took = elapsed(line, start, end, fields, category);
+                String sql = lastStatement(fields, category + 1);
+                if (sql != null) {
+                    SqlRecord record = DialectSupport.buildRecord(source, projectName, statementContext, sql, null, null, took);
+                    return record != null ? record : previous;
+                }
+                assembling = true;
+                executionTime = took;
+                return previous;
+            }
+            if (!assembling) {
+                return null;
+            }
+            if (LogLineClassifier.startsWithDate(line, start, end)) {
+                return flush();
+            }
+            String text = DialectSupport.trimmed(line, start, end);
+            if (SqlParser.extractOperation(text) != null) {
+                lastSql = text;
+            }
+            return null;
+        }
+
+        @Override
+        public boolean isAssembling() {
+            return assembling;
+        }
+
+        @Override
+        public SqlRecord flush() {
+            if (!assembling) {
+                return null;
+            }
+            SqlRecord record = DialectSupport.buildRecord(source, projectName, statementContext, lastSql, null, null,
+                    executionTime);
+            reset();
+            return record;
+        }
+
+        @Override
+        public void reset() {
+            assembling = false;
+            executionTime = null;
+            lastSql = null;
+        }
+
+        /**
+         * 按 "|" 切分 category 为 statement / batch 的行，其他行返回 null
+         */
+        private static String[] splitCategoryLine(CharSequence line, int start, int end) {
+            boolean hasPipe = false;
+            for (int i = start; i < end; i++) {
+                if (line.charAt(i) == '|') {
+                    hasPipe = true;
+                    break;
+                }
+            }
+            if (!hasPipe) {
+                return null;
+            }
+            String[] fields = line.subSequence(start, end).toString().split("\\|", -1);
+            return categoryIndex(fields) > 0 ? fields : null;
+        }
+
+        private static int categoryIndex(String[] fields) {
+            for (int i = 1; i < fields.length; i++) {
+                String field = fields[i].trim();
+                if ("statement".equalsIgnoreCase(field) || "batch".equalsIgnoreCase(field)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * "took 3ms" 或 category 前一个字段的纯数字耗时
+         */
+        private static Long elapsed(CharSequence line, int start, int end, String[] fields, int category) {
+            long took = SqlStatementAssembler.parseTookMillis(line, start, end);
+            if (took >= 0) {
+                return took;
+            }
+            String field = fields[category - 1].trim();
+            if (!field.isEmpty() && field.length() < 12 && field.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(field);
+            }
+            return null;
+        }
+
+        /**
+         * category 之后最后一个能识别操作类型的字段（参数已内联的 SQL）
+         */
+        private static String lastStatement(String[] fields, int from) {
+            for (int i = fields.length - 1; i >= from; i--) {
+                String field = fields[i].trim();
+                if (!field.isEmpty() && SqlParser.extractOperation(field) != null) {
+                    return field;
+                }
+            }
+            return null;
+        }
+    }
+}
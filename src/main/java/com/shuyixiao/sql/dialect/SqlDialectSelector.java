@@ -0,0 +1,158 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.console.KeywordMatcher;
+import com.shuyixiao.sql.model.SqlRecord;
+
+import java.util.List;
+
+/**
+ * 方言自动检测
+ *
+ * 检测阶段：一次 {@link KeywordMatcher} 扫描得到命中的方言位掩码，只把行交给命中触发词
+ * 或正在装配的方言解析器；第一个产出记录的方言即被锁定。
+ * 若 {@link #DETECTION_LINES} 条触发行内没有方言产出记录，锁定命中次数最多的方言。
+ * 锁定后不再匹配和分发，所有行直接交给该方言的解析器。
+ *
+ * 每个进程一个实例，只在控制台读取线程上调用，不加锁
+ */
+public final class SqlDialectSelector implements SqlLogParser {
+
+    static final int DETECTION_LINES = 200;
+
+    private final SqlLogDialect[] dialects;
+    private final SqlLogParser[] parsers;
+    private final KeywordMatcher matcher;
+    private final int[] hits;
+    private int triggerLines;
+    // 已锁定的方言下标，-1 表示仍在检测
+    private int locked = -1;
+
+    /**
+     * @param dialects 候选方言（最多 32 个），只有一个时直接锁定
+     */
+    public SqlDialectSelector(List<SqlLogDialect> dialects, String projectName, ApiContextTracker context) {
+        if (dialects.isEmpty() || dialects.size() > Integer.SIZE) {
+            throw new IllegalArgumentException("Dialect count must be between 1 and 32: " + dialects.size());
+        }
+        this.dialects = dialects.toArray(new SqlLogDialect[0]);
+        this.parsers = new SqlLogParser[this.dialects.length];
+        this.hits = new int[this.dialects.length];
+
+        KeywordMatcher.Builder builder = KeywordMatcher.builder();
+        for (int i = 0; i < this.dialects.length; i++) {
+            parsers[i] = this.dialects[i].createParser(projectName, context);
+            builder.add(1 << i, this.dialects[i].getTriggers());
+        }
+        this.matcher = builder.build();
+        if (this.dialects.length == 1) {
+            locked = 0;
+        }
+    }
+
+    /**
+     * 按设置创建：指定方言名称时只使用该方言，"自动检测"或未知名称时在全部内置方言中检测
+     */
+    public static SqlDialectSelector create(String dialectName, String projectName, ApiContextTracker context) {
+        SqlLogDialect dialect = SqlLogDialects.find(dialectName);
+        return new SqlDialectSelector(dialect != null ? List.of(dialect) : SqlLogDialects.builtIn(),
+                projectName, context);
+    }
+
+    /**
+     * 已锁定的方言名称，检测中返回 null
+     */
+    public String getDialectName() {
+        return locked >= 0 ? dialects[locked].getName() : null;
+    }
+
+    @Override
+    public SqlRecord acceptLine(CharSequence line, int start, int end) {
+        if (locked >= 0) {
+            return parsers[locked].acceptLine(line, start, end);
+        }
+
+        int mask = matcher.match(line, start, end);
+        SqlRecord result = null;
+        int emitted = -1;
+        for (int i = 0; i < parsers.length; i++) {
+            int bit = 1 << i;
+            if ((mask & bit) == 0 && !parsers[i].isAssembling()) {
+                continue;
+            }
+            if ((mask & bit) != 0) {
+                hits[i]++;
+            }
+            SqlRecord record = parsers[i].acceptLine(line, start, end);
+            if (record != null && result == null) {
+                result = record;
+                emitted = i;
+            }
+        }
+
+        if (emitted >= 0) {
+            lock(emitted);
+        } else if (mask != 0 && ++triggerLines >= DETECTION_LINES) {
+            lock(mostHits());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isAssembling() {
+        if (locked >= 0) {
+            return parsers[locked].isAssembling();
+        }
+        for (SqlLogParser parser : parsers) {
+            if (parser.isAssembling()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public SqlRecord flush() {
+        if (locked >= 0) {
+            return parsers[locked].flush();
+        }
+        SqlRecord result = null;
+        for (int i = 0; i < parsers.length; i++) {
+            SqlRecord record = parsers[i].flush();
+            if (record != null && result == null) {
+                result = record;
+                lock(i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 丢弃未完成的语句，已锁定的方言保持不变
+     */
+    @Override
+    public void reset() {
+        for (SqlLogParser parser : parsers) {
+            parser.reset();
+        }
+    }
+
+    private void lock(int index) {
+        locked = index;
+        for (int i = 0; i < parsers.length; i++) {
+            if (i != index) {
+                parsers[i].reset();
+            }
+        }
+    }
+
+    private int mostHits() {
+        int best = 0;
+        for (int i = 1; i < hits.length; i++) {
+            if (hits[i] > hits[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,27 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.console.ApiContextTracker;
+
+/**
+ * SQL 日志方言（MyBatis、Hibernate、p6spy、JdbcTemplate、jOOQ 等）
+ *
+ * 每种方言声明一组廉价的触发关键词，只有命中关键词的行（以及装配期间的延续行）才交给它的解析器；
+ * 由 {@link SqlDialectSelector} 在运行开始的若干行内自动选定方言
+ */
+public interface SqlLogDialect {
+
+    /**
+     * 方言名称，同时作为 SqlRecord 的 source
+     */
+    String getName();
+
+    /**
+     * 触发关键词（小写，匹配时忽略 ASCII 大小写）
+     */
+    String[] getTriggers();
+
+    /**
+     * 为一个进程创建解析器
+     */
+    SqlLogParser createParser(String projectName, ApiContextTracker context);
+}
@@ -0,0 +1,38 @@
+package com.shuyixiao.sql.dialect;
+
+import java.util.List;
+
+/**
+ * 内置的 SQL 日志方言
+ */
+public final class SqlLogDialects {
+
+    public static final String AUTO = "自动检测";
+
+    private static final List<SqlLogDialect> BUILT_IN = List.of(
+            new MyBatisDialect(),
+            new HibernateDialect(),
+            new P6SpyDialect(),
+            new JdbcTemplateDialect(),
+            new JooqDialect()
+    );
+
+    private SqlLogDialects() {
+    }
+
+    public static List<SqlLogDialect> builtIn() {
+        return BUILT_IN;
+    }
+
+    /**
+     * 按名称查找方言，找不到（或为 "自动检测"）时返回 null
+     */
+    public static SqlLogDialect find(String name) {
+        for (SqlLogDialect dialect : BUILT_IN) {
+            if (dialect.getName().equalsIgnoreCase(name)) {
+                return dialect;
+            }
+        }
+        return null;
+    }
+}
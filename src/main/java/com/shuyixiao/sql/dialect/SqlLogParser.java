@@ -0,0 +1,39 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.sql.model.SqlRecord;
+
+/**
+ * 单个进程内的 SQL 日志解析器（有状态，逐行驱动）
+ *
+ * 非线程安全：同一实例只能由一个线程喂入日志行
+ */
+public interface SqlLogParser {
+
+    /**
+     * 喂入一行日志（不含换行符）
+     *
+     * @param line  日志文本
+     * @param start 行起始位置（包含）
+     * @param end   行结束位置（不包含）
+     * @return 当该行结束了一条完整 SQL 时返回记录，否则返回 null
+     */
+    SqlRecord acceptLine(CharSequence line, int start, int end);
+
+    /**
+     * 是否正在装配一条跨行的语句（装配期间需要收到所有行）
+     */
+    boolean isAssembling();
+
+    /**
+     * 输出结束时结束当前语句：已有足够信息时返回记录，否则返回 null；之后状态被清空
+     */
+    default SqlRecord flush() {
+        reset();
+        return null;
+    }
+
+    /**
+     * 丢弃未完成的语句
+     */
+    void reset();
+}
@@ -0,0 +1,63 @@
+package com.shuyixiao.sql.model;
+
+import com.shuyixiao.util.LatencyHistogram;
+
+/**
+ * 执行时间分位数快照（毫秒）
+ */
+public class LatencySummary {
+
+    public static final LatencySummary EMPTY = new LatencySummary(0, 0, 0, 0, 0);
+
+    private final long count;
+    private final long p50;
+    private final long p95;
+    private final long p99;
+    private final long max;
+
+    public LatencySummary(long count, long p50, long p95, long p99, long max) {
+        this.count = count;
+        this.p50 = p50;
+        this.p95 = p95;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    public static LatencySummary of(LatencyHistogram histogram) {
+        if (histogram == null || histogram.getTotalCount() == 0) {
+            return EMPTY;
+        }
+        return new LatencySummary(histogram.getTotalCount(),
+                histogram.getPercentile(50), histogram.getPercentile(95), histogram.getPercentile(99),
+                histogram.getMax());
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP95() {
+        return p95;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    @Override
+    public String toString() {
+        return isEmpty() ? "-" : "p50 " + p50 + "ms / p95 " + p95 + "ms / p99 " + p99 + "ms";
+    }
+}
@@ -0,0 +1,280 @@
+package com.shuyixiao.sql.model;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SQL 语句形状的聚合统计快照
+ * 同一指纹（参数无关的规范化 SQL）的所有执行合并为一条
+ */
+public class SqlQueryStats {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * 结果数量直方图的分桶：0、1、2-10、11-100、101-1000、1000以上
+     */
+    public static final String[] RESULT_BUCKET_LABELS = {"0", "1", "2-10", "11-100", "101-1000", ">1000"};
+
+    private final long fingerprint;
+    private final String normalizedSql;     // 规范化后的 SQL
+    private final String sampleSql;         // 最近一次执行的原始 SQL
+    private final String sampleParameters;  // 最近一次执行的参数
+    private final String tableName;
+    private final String operation;
+    private final long count;               // 执行次数
+    private final LocalDateTime firstSeen;
+    private final LocalDateTime lastSeen;
+    private final long timedCount;          // 带执行时间的次数
+    private final long totalExecutionTime;  // 执行时间合计（毫秒）
+    private final long maxExecutionTime;    // 最大执行时间（毫秒）
+    private final LatencySummary latency;   // 执行时间分位数
+    private final long[] resultHistogram;   // 结果数量分布，见 RESULT_BUCKET_LABELS
+    private final Map<String, Long> apiPathCounts;  // 触发该语句的接口及次数
+    private final Map<String, Long> callerCounts;   // 调用方及次数
+
+    private SqlQueryStats(Builder builder) {
+        this.fingerprint = builder.fingerprint;
+        this.normalizedSql = builder.normalizedSql;
+        this.sampleSql = builder.sampleSql;
+        this.sampleParameters = builder.sampleParameters;
+        this.tableName = builder.tableName;
+        this.operation = builder.operation;
+        this.count = builder.count;
+        this.firstSeen = builder.firstSeen;
+        this.lastSeen = builder.lastSeen;
+        this.timedCount = builder.timedCount;
+        this.totalExecutionTime = builder.totalExecutionTime;
+        this.maxExecutionTime = builder.maxExecutionTime;
+        this.latency = builder.latency;
+        this.resultHistogram = builder.resultHistogram.clone();
+        this.apiPathCounts = Collections.unmodifiableMap(new LinkedHashMap<>(builder.apiPathCounts));
+        this.callerCounts = Collections.unmodifiableMap(new LinkedHashMap<>(builder.callerCounts));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 结果数量所在的分桶下标
+     */
+    public static int resultBucket(int resultCount) {
+        if (resultCount <= 0) return 0;
+        if (resultCount == 1) return 1;
+        if (resultCount <= 10) return 2;
+        if (resultCount <= 100) return 3;
+        if (resultCount <= 1000) return 4;
+        return 5;
+    }
+
+    // Getters
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public String getFingerprintHex() {
+        return Long.toHexString(fingerprint);
+    }
+
+    public String getNormalizedSql() {
+        return normalizedSql;
+    }
+
+    public String getSampleSql() {
+        return sampleSql;
+    }
+
+    public String getSampleParameters() {
+        return sampleParameters;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 指定接口触发的次数；apiPath 为空时返回总次数
+     */
+    public long getCount(String apiPath) {
+        if (apiPath == null || apiPath.isEmpty()) {
+            return count;
+        }
+        Long pathCount = apiPathCounts.get(apiPath);
+        return pathCount != null ? pathCount : 0;
+    }
+
+    public LocalDateTime getFirstSeen() {
+        return firstSeen;
+    }
+
+    public LocalDateTime getLastSeen() {
+        return lastSeen;
+    }
+
+    public String getFormattedLastSeen() {
+        return lastSeen != null ? lastSeen.format(FORMATTER) : "";
+    }
+
+    public long getTotalExecutionTime() {
+        return totalExecutionTime;
+    }
+
+    public long getMaxExecutionTime() {
+        return maxExecutionTime;
+    }
+
+    /**
+     * 平均执行时间（毫秒），没有执行时间时返回 null
+     */
+    public Long getAverageExecutionTime() {
+        return timedCount > 0 ? totalExecutionTime / timedCount : null;
+    }
+
+    public LatencySummary getLatency() {
+        return latency;
+    }
+
+    public long[] getResultHistogram() {
+        return resultHistogram.clone();
+    }
+
+    public Map<String, Long> getApiPathCounts() {
+        return apiPathCounts;
+    }
+
+    public Map<String, Long> getCallerCounts() {
+        return callerCounts;
+    }
+
+    /**
+     * 结果数量分布的文字描述，例如 "1:120 2-10:8"
+     */
+    public String getResultHistogramSummary() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < resultHistogram.length; i++) {
+            if (resultHistogram[i] == 0) {
+                continue;
+            }
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(RESULT_BUCKET_LABELS[i]).append(':').append(resultHistogram[i]);
+        }
+        return sb.toString();
+    }
+
+    public static class Builder {
+        private long fingerprint;
+        private String normalizedSql;
+        private String sampleSql;
+        private String sampleParameters;
+        private String tableName;
+        private String operation;
+        private long count;
+        private LocalDateTime firstSeen;
+        private LocalDateTime lastSeen;
+        private long timedCount;
+        private long totalExecutionTime;
+        private long maxExecutionTime;
+        private LatencySummary latency = LatencySummary.EMPTY;
+        private long[] resultHistogram = new long[RESULT_BUCKET_LABELS.length];
+        private Map<String, Long> apiPathCounts = Collections.emptyMap();
+        private Map<String, Long> callerCounts = Collections.emptyMap();
+
+        public Builder fingerprint(long fingerprint) {
+            this.fingerprint = fingerprint;
+            return this;
+        }
+
+        public Builder normalizedSql(String normalizedSql) {
+            this.normalizedSql = normalizedSql;
+            return this;
+        }
+
+        public Builder sampleSql(String sampleSql) {
+            this.sampleSql = sampleSql;
+            return this;
+        }
+
+        public Builder sampleParameters(String sampleParameters) {
+            this.sampleParameters = sampleParameters;
+            return this;
+        }
+
+        public Builder tableName(String tableName) {
+            this.tableName = tableName;
+            return this;
+        }
+
+        public Builder operation(String operation) {
+            this.operation = operation;
+            return this;
+        }
+
+        public Builder count(long count) {
+            this.count = count;
+            return this;
+        }
+
+        public Builder firstSeen(LocalDateTime firstSeen) {
+            this.firstSeen = firstSeen;
+            return this;
+        }
+
+        public Builder lastSeen(LocalDateTime lastSeen) {
+            this.lastSeen = lastSeen;
+            return this;
+        }
+
+        public Builder timedCount(long timedCount) {
+            this.timedCount = timedCount;
+            return this;
+        }
+
+        public Builder totalExecutionTime(long totalExecutionTime) {
+            this.totalExecutionTime = totalExecutionTime;
+            return this;
+        }
+
+        public Builder maxExecutionTime(long maxExecutionTime) {
+            this.maxExecutionTime = maxExecutionTime;
+            return this;
+        }
+
+        public Builder latency(LatencySummary latency) {
+            this.latency = latency;
+            return this;
+        }
+
+        public Builder resultHistogram(long[] resultHistogram) {
+            this.resultHistogram = resultHistogram;
+            return this;
+        }
+
+        public Builder apiPathCounts(Map<String, Long> apiPathCounts) {
+            this.apiPathCounts = apiPathCounts;
+            return this;
+        }
+
+        public Builder callerCounts(Map<String, Long> callerCounts) {
+            this.callerCounts = callerCounts;
+            return this;
+        }
+
+        public SqlQueryStats build() {
+            return new SqlQueryStats(this);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package com.shuyixiao.sql.model;
 
-import com.shuyixiao.sql.parser.SqlParser;
+import com.shuyixiao.sql.parser.SqlParameterBinder;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.UUID;
@@ -18,6 +18,7 @@ public class SqlRecord {
     private final LocalDateTime timestamp;
     private final String sqlStatement;      // SQL语句
     private final String parameters;        // 参数
+    private final boolean parametersTruncated; // 参数超出长度上限被截断（只保留了前面部分）
     private final String tableName;         // 表名
     private final String operation;         // 操作类型 (SELECT, INSERT, UPDATE, DELETE)
     private final Integer resultCount;      // 结果数量
@@ -25,13 +26,19 @@ public class SqlRecord {
     private final String source;            // 来源（MyBatis, JPA等）
     private final String apiPath;           // API接口路径
     private final String callerClass;       // 调用SQL的类
+    private final String requestId;         // 所属请求（同一次 API 请求内的 SQL / ES 记录相同）
+    // 可执行SQL缓存（不持久化），大 JSON 参数的语句只绑定一次
+    private transient volatile String executableSql;
+    // 归档记录的摘要行：只有表格列所需的字段，完整记录需从归档中读取（不持久化）
+    private final transient boolean summaryOnly;
     
     private SqlRecord(Builder builder) {
-        this.id = builder.id;
+        this.id = builder.id != null ? builder.id : UUID.randomUUID().toString();
         this.project = builder.project;
         this.timestamp = builder.timestamp;
         this.sqlStatement = builder.sqlStatement;
         this.parameters = builder.parameters;
+        this.parametersTruncated = builder.parametersTruncated;
         this.tableName = builder.tableName;
         this.operation = builder.operation;
         this.resultCount = builder.resultCount;
@@ -39,6 +46,8 @@ public class SqlRecord {
         this.source = builder.source;
         this.apiPath = builder.apiPath;
         this.callerClass = builder.callerClass;
+        this.requestId = builder.requestId;
+        this.summaryOnly = builder.summaryOnly;
     }
     
     public static Builder builder() {
@@ -66,6 +75,10 @@ public class SqlRecord {
         return parameters;
     }
     
+    public boolean isParametersTruncated() {
+        return parametersTruncated;
+    }
+    
     public String getTableName() {
         return tableName;
     }
@@ -94,6 +107,29 @@ public class SqlRecord {
         return callerClass;
     }
     
+    public String getRequestId() {
+        return requestId;
+    }
+    
+    public boolean isSummaryOnly() {
+        return summaryOnly;
+    }
+    
+    /**
+     * 转为摘要行（与归档索引中的字段相同），记录转入归档后表格中用它代替完整记录
+     */
+    public SqlRecord toSummaryOnly() {
+        return builder()
+                .id(id)
+                .timestamp(timestamp)
+                .operation(operation)
+                .tableName(tableName)
+                .executionTime(executionTime)
+                .apiPath(apiPath)
+                .summaryOnly(true)
+                .build();
+    }
+    
     public String getFormattedTimestamp() {
         return timestamp.format(FORMATTER);
     }
@@ -141,6 +177,9 @@ public class SqlRecord {
         if (parameters != null && !parameters.isEmpty()) {
             sb.append("\n\n-- 参数\n");
             sb.append(parameters);
+            if (parametersTruncated) {
+                sb.append("\n-- 参数过长，已截断");
+            }
         }
         
         return sb.toString();
@@ -148,9 +187,18 @@ public class SqlRecord {
     
     /**
      * 获取可执行的SQL（参数已替换）
-     * 使用SqlParser的replaceParameters方法处理复杂的参数（包括大JSON）
+     * 使用 SqlParameterBinder 按参数类型生成字面量，结果缓存在记录上
      */
     public String getExecutableSql() {
+        String cached = executableSql;
+        if (cached == null) {
+            cached = buildExecutableSql();
+            executableSql = cached;
+        }
+        return cached;
+    }
+    
+    private String buildExecutableSql() {
         if (sqlStatement == null) {
             return "";
         }
@@ -160,9 +208,13 @@ public class SqlRecord {
             return sqlStatement;
         }
         
+        // 截断的参数与占位符对不上，绑定出的 SQL 不可执行
+        if (parametersTruncated) {
+            return sqlStatement + "\n-- 参数过长已截断，无法生成可执行SQL";
+        }
+        
         try {
-            // 使用SqlParser的replaceParameters方法
-            return SqlParser.replaceParameters(sqlStatement, parameters);
+            return SqlParameterBinder.bind(sqlStatement, parameters);
         } catch (Exception e) {
             // 解析失败，返回原始SQL + 错误信息
             return sqlStatement + "\n-- 参数解析失败\n-- 参数: " + parameters + "\n-- 错误: " + e.getMessage();
@@ -170,11 +222,12 @@ public class SqlRecord {
     }
     
     public static class Builder {
-        private String id = UUID.randomUUID().toString();
+        private String id; // 未指定时在 build 时生成
         private String project;
         private LocalDateTime timestamp = LocalDateTime.now();
         private String sqlStatement;
         private String parameters;
+        private boolean parametersTruncated;
         private String tableName;
         private String operation;
         private Integer resultCount;
@@ -182,6 +235,8 @@ public class SqlRecord {
         private String source;
         private String apiPath;
         private String callerClass;
+        private String requestId;
+        private boolean summaryOnly;
         
         public Builder id(String id) {
             this.id = id;
@@ -208,6 +263,11 @@ public class SqlRecord {
             return this;
         }
         
+        public Builder parametersTruncated(boolean parametersTruncated) {
+            this.parametersTruncated = parametersTruncated;
+            return this;
+        }
+        
         public Builder tableName(String tableName) {
             this.tableName = tableName;
             return this;
@@ -243,6 +303,16 @@ public class SqlRecord {
             return this;
         }
         
+        public Builder requestId(String requestId) {
+            this.requestId = requestId;
+            return this;
+        }
+        
+        public Builder summaryOnly(boolean summaryOnly) {
+            this.summaryOnly = summaryOnly;
+            return this;
+        }
+        
         public SqlRecord build() {
             return new SqlRecord(this);
         }
@@ -0,0 +1,293 @@
+package com.shuyixiao.sql.parser;
+
+/**
+ * SQL 指纹生成器
+ *
+ * 把 SQL 规范化为与参数无关的"形状"，同一形状的语句得到相同的指纹：
+ * <ul>
+ *     <li>字符串、数字字面量替换为 ?</li>
+ *     <li>IN 列表、VALUES 多行元组等只含占位符的括号折叠为 (?+)</li>
+ *     <li>去除注释，记号间空白统一，关键字和标识符统一为小写（引号内的标识符保持原样）</li>
+ * </ul>
+ * 例如 {@code SELECT * FROM t WHERE id IN (1, 2, 3) AND name = 'a'} 规范化为
+ * {@code select * from t where id in(?+) and name = ?}
+ */
+public final class SqlFingerprinter {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private SqlFingerprinter() {
+    }
+
+    /**
+     * 规范化后的 64 位指纹（FNV-1a）
+     */
+    public static long fingerprint(String sql) {
+        return hash(normalize(sql));
+    }
+
+    public static long hash(String normalizedSql) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < normalizedSql.length(); i++) {
+            hash = (hash ^ normalizedSql.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * 规范化 SQL 文本（单次扫描）
+     */
+    public static String normalize(String sql) {
+        if (sql == null || sql.isEmpty()) {
+            return "";
+        }
+
+        int length = sql.length();
+        StringBuilder out = new StringBuilder(length);
+        // 仅用于区分 "t2" 这类标识符与 "t 2" 中的数字字面量
+        boolean afterSpace = false;
+        int i = 0;
+        while (i < length) {
+            char c = sql.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                afterSpace = true;
+                i++;
+                continue;
+            }
+
+            // 注释
+            if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                i = skipLineComment(sql, i + 2);
+                afterSpace = true;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                i = skipBlockComment(sql, i + 2);
+                afterSpace = true;
+                continue;
+            }
+            afterSpace = afterSpace || out.length() == 0;
+
+            // 占位符
+            if (c == '?') {
+                appendPlaceholder(out);
+                afterSpace = false;
+                i++;
+                continue;
+            }
+
+            // 字符串字面量
+            if (c == '\'') {
+                i = skipStringLiteral(sql, i + 1);
+                appendPlaceholder(out);
+                afterSpace = false;
+                continue;
+            }
+
+            // 引号标识符保持原样
+            if (c == '"' || c == '`') {
+                int end = sql.indexOf(c, i + 1);
+                end = end < 0 ? length : end + 1;
+                appendSeparator(out, c);
+                out.append(sql, i, end);
+                afterSpace = false;
+                i = end;
+                continue;
+            }
+
+            // 数字字面量（不属于标识符的一部分）
+            boolean numberStart = isDigit(c) || (c == '.' && i + 1 < length && isDigit(sql.charAt(i + 1)));
+            if (numberStart && (afterSpace || !isWordChar(out.charAt(out.length() - 1)))) {
+                i = skipNumber(sql, i);
+                dropUnarySign(out);
+                appendPlaceholder(out);
+                afterSpace = false;
+                continue;
+            }
+
+            // 标识符和关键字
+            if (isWordChar(c)) {
+                appendSeparator(out, c);
+                while (i < length && isWordChar(sql.charAt(i))) {
+                    out.append(toLowerAscii(sql.charAt(i)));
+                    i++;
+                }
+                afterSpace = false;
+                continue;
+            }
+
+            // 符号
+            appendSeparator(out, c);
+            out.append(c);
+            if (c == ')') {
+                // 只含占位符的括号折叠为 (?+)
+                collapsePlaceholderGroup(out);
+            }
+            afterSpace = false;
+            i++;
+        }
+
+        collapseRepeatedGroups(out);
+        return out.toString();
+    }
+
+    // ==================== 扫描 ====================
+
+    private static int skipLineComment(String sql, int from) {
+        int end = sql.indexOf('\n', from);
+        return end < 0 ? sql.length() : end + 1;
+    }
+
+    private static int skipBlockComment(String sql, int from) {
+        int end = sql.indexOf("*/", from);
+        return end < 0 ? sql.length() : end + 2;
+    }
+
+    private static int skipStringLiteral(String sql, int from) {
+        int i = from;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (c == '\\' && i + 1 < sql.length()) {
+                i += 2;
+                continue;
+            }
+            if (c == '\'') {
+                // '' 为转义的单引号
+                if (i + 1 < sql.length() && sql.charAt(i + 1) == '\'') {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return sql.length();
+    }
+
+    private static int skipNumber(String sql, int from) {
+        int i = from;
+        while (i < sql.length()) {
+            char c = sql.charAt(i);
+            if (isDigit(c) || c == '.' || c == 'x' || c == 'X'
+                    || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F')) {
+                i++;
+            } else if ((c == '+' || c == '-') && (sql.charAt(i - 1) == 'e' || sql.charAt(i - 1) == 'E')) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    // ==================== 输出 ====================
+
+    private static void appendPlaceholder(StringBuilder out) {
+        appendSeparator(out, '?');
+        out.append('?');
+    }
+
+    /**
+     * 记号之间统一用一个空格分隔；括号、逗号、点号两侧以及连续的运算符之间不加空格
+     */
+    private static void appendSeparator(StringBuilder out, char next) {
+        if (out.length() == 0) {
+            return;
+        }
+        char last = out.charAt(out.length() - 1);
+        if (last == '(' || last == '.' || last == ',') {
+            return;
+        }
+        if (next == '(' || next == ')' || next == ',' || next == '.' || next == ';') {
+            return;
+        }
+        if (isOperator(last) && isOperator(next)) {
+            return;
+        }
+        out.append(' ');
+    }
+
+    /**
+     * "= -1" 中的负号属于字面量，与 "a - 1" 中的减号区分
+     */
+    private static void dropUnarySign(StringBuilder out) {
+        int length = out.length();
+        if (length == 0) {
+            return;
+        }
+        char last = out.charAt(length - 1);
+        if (last != '-' && last != '+') {
+            return;
+        }
+        int before = length - 2;
+        while (before >= 0 && out.charAt(before) == ' ') {
+            before--;
+        }
+        if (before < 0 || isOperator(out.charAt(before)) || out.charAt(before) == '(' || out.charAt(before) == ',') {
+            out.setLength(before + 1);
+        }
+    }
+
+    /**
+     * 把刚输出的 "(?,?,...)" 折叠为 "(?+)"
+     */
+    private static void collapsePlaceholderGroup(StringBuilder out) {
+        int close = out.length() - 1;
+        int i = close - 1;
+        boolean sawPlaceholder = false;
+        while (i >= 0) {
+            char c = out.charAt(i);
+            if (c == '?' || c == '+') {
+                sawPlaceholder = true;
+            } else if (c != ',' && c != '(' && c != ')') {
+                return;
+            }
+            if (c == '(') {
+                break;
+            }
+            if (c == ')') {
+                // 嵌套的括号组不折叠
+                return;
+            }
+            i--;
+        }
+        if (i < 0 || !sawPlaceholder) {
+            return;
+        }
+        out.setLength(i);
+        out.append("(?+)");
+    }
+
+    /**
+     * VALUES (?+),(?+),... 多行元组折叠为一个
+     */
+    private static void collapseRepeatedGroups(StringBuilder out) {
+        String group = "(?+),(?+)";
+        int index;
+        while ((index = out.indexOf(group)) >= 0) {
+            out.delete(index + 4, index + group.length());
+        }
+    }
+
+    // ==================== 字符类别 ====================
+
+    private static boolean isOperator(char c) {
+        return c == '=' || c == '<' || c == '>' || c == '!' || c == '|' || c == '&' || c == '+'
+                || c == '-' || c == '*' || c == '/' || c == '%' || c == '^' || c == '~' || c == ':';
+    }
+
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || isDigit(c)
+                || c == '_' || c == '$' || c == '#' || c == '@' || c > 127;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static char toLowerAscii(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+    }
+}
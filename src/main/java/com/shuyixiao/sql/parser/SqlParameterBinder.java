@@ -0,0 +1,283 @@
+package com.shuyixiao.sql.parser;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * SQL 参数绑定器
+ * 把 MyBatis 格式的参数列表（"值(类型), 值(类型), null"）替换进 SQL 的 ? 占位符，生成可执行 SQL
+ *
+ * 参数列表只扫描一遍：以 "(类型)" 后紧跟 ", " 或结尾作为参数边界，
+ * 因此值里的逗号、括号、引号和换行（多行 JSON 等）都不会打乱参数顺序。
+ * 按类型决定字面量格式：数值、布尔不加引号，null 输出 null，其余加单引号并转义
+ */
+public final class SqlParameterBinder {
+
+    private static final String SEPARATOR = ", ";
+    private static final String NULL = "null";
+    // 类型名的最大长度，超出时认为不是类型括号
+    private static final int MAX_TYPE_LENGTH = 64;
+
+    private static final Set<String> NUMERIC_TYPES = Set.of(
+            "Integer", "Long", "Short", "Byte", "Double", "Float", "BigDecimal", "BigInteger",
+            "AtomicInteger", "AtomicLong", "int", "long", "short", "byte", "double", "float",
+            // Hibernate / JDBC 类型名
+            "INTEGER", "INT", "BIGINT", "SMALLINT", "TINYINT", "NUMERIC", "DECIMAL", "DOUBLE", "FLOAT", "REAL"
+    );
+
+    private static final Set<String> BOOLEAN_TYPES = Set.of("Boolean", "boolean", "BOOLEAN", "BIT");
+
+    // 值未知类型时按值本身判断
+    private static final Set<String> UNTYPED = Set.of("Object", "OTHER", "JAVA_OBJECT");
+
+    private SqlParameterBinder() {
+    }
+
+    /**
+     * 一个参数：值和类型（null 参数两者都为 null）
+     */
+    public static final class Parameter {
+        private final String value;
+        private final String type;
+
+        Parameter(String value, String type) {
+            this.value = value;
+            this.type = type;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public boolean isNull() {
+            return value == null;
+        }
+
+        @Override
+        public String toString() {
+            return isNull() ? NULL : value + "(" + type + ")";
+        }
+    }
+
+    /**
+     * 生成可执行 SQL；没有参数时返回原 SQL，参数少于占位符时多余的 ? 保留
+     */
+    public static String bind(String sql, String parameters) {
+        if (sql == null || parameters == null || parameters.trim().isEmpty()) {
+            return sql;
+        }
+        List<Parameter> parsed = parseParameters(parameters);
+        return parsed.isEmpty() ? sql : bind(sql, parsed);
+    }
+
+    /**
+     * 替换 SQL 中的 ? 占位符；字符串、引号标识符和注释中的 ? 不替换
+     */
+    public static String bind(String sql, List<Parameter> parameters) {
+        StringBuilder result = new StringBuilder(sql.length() + 16 * parameters.size());
+        int index = 0;
+        int copyFrom = 0;
+        int length = sql.length();
+        int i = 0;
+        while (i < length && index < parameters.size()) {
+            char c = sql.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(sql, i, c);
+            } else if (c == '-' && i + 1 < length && sql.charAt(i + 1) == '-') {
+                int newline = sql.indexOf('\n', i);
+                i = newline < 0 ? length : newline + 1;
+            } else if (c == '/' && i + 1 < length && sql.charAt(i + 1) == '*') {
+                int close = sql.indexOf("*/", i + 2);
+                i = close < 0 ? length : close + 2;
+            } else if (c == '?') {
+                result.append(sql, copyFrom, i);
+                appendLiteral(result, parameters.get(index++));
+                copyFrom = ++i;
+            } else {
+                i++;
+            }
+        }
+        result.append(sql, copyFrom, length);
+        return result.toString();
+    }
+
+    /**
+     * 解析 MyBatis 参数列表
+     *
+     * @param parameters "值(类型), 值(类型), null" 格式的参数字符串，值可跨行
+     */
+    public static List<Parameter> parseParameters(String parameters) {
+        if (parameters == null) {
+            return Collections.emptyList();
+        }
+        String text = parameters.trim();
+        List<Parameter> result = new ArrayList<>();
+        int pos = 0;
+        int length = text.length();
+        while (pos < length) {
+            if (text.startsWith(NULL, pos) && isBoundary(text, pos + NULL.length())) {
+                result.add(new Parameter(null, null));
+                pos = nextToken(text, pos + NULL.length());
+                continue;
+            }
+
+            int typeEnd = findTypeEnd(text, pos);
+            if (typeEnd < 0) {
+                // 不符合格式的剩余部分作为一个无类型参数
+                result.add(new Parameter(text.substring(pos), null));
+                break;
+            }
+            int typeStart = text.lastIndexOf('(', typeEnd);
+            String type = text.substring(typeStart + 1, typeEnd);
+            result.add(NULL.equals(type)
+                    ? new Parameter(null, null)
+                    : new Parameter(text.substring(pos, typeStart), type));
+            pos = nextToken(text, typeEnd + 1);
+        }
+        return result;
+    }
+
+    /**
+     * 从 from 开始第一个 "(类型)" 的右括号位置，要求其后是 ", " 或结尾；找不到时返回 -1
+     */
+    private static int findTypeEnd(String text, int from) {
+        int close = text.indexOf(')', from);
+        while (close >= 0) {
+            if (isBoundary(text, close + 1) && isTypeName(text, from, close)) {
+                return close;
+            }
+            close = text.indexOf(')', close + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * close 之前的 "(" 到 close 之间是否是类型名：类名（首字母大写）、基本类型、数组或 "null"
+     */
+    private static boolean isTypeName(String text, int from, int close) {
+        int open = close - 1;
+        int limit = Math.max(from, close - MAX_TYPE_LENGTH - 1);
+        while (open >= limit && text.charAt(open) != '(') {
+            char c = text.charAt(open);
+            if (!Character.isLetterOrDigit(c) && c != '_' && c != '$' && c != '[' && c != ']') {
+                return false;
+            }
+            open--;
+        }
+        if (open < limit || open == close - 1) {
+            return false;
+        }
+        char first = text.charAt(open + 1);
+        if (Character.isUpperCase(first)) {
+            return true;
+        }
+        String type = text.substring(open + 1, close);
+        return NULL.equals(type) || NUMERIC_TYPES.contains(type) || BOOLEAN_TYPES.contains(type)
+                || "char".equals(type) || type.endsWith("[]");
+    }
+
+    private static boolean isBoundary(String text, int at) {
+        return at == text.length() || text.startsWith(SEPARATOR, at);
+    }
+
+    private static int nextToken(String text, int at) {
+        return at == text.length() ? at : at + SEPARATOR.length();
+    }
+
+    private static void appendLiteral(StringBuilder out, Parameter parameter) {
+        if (parameter.isNull()) {
+            out.append(NULL);
+            return;
+        }
+        String value = parameter.getValue();
+        String type = parameter.getType();
+        boolean raw;
+        if (type == null || UNTYPED.contains(type)) {
+            raw = isNumber(value) || isBoolean(value);
+        } else if (NUMERIC_TYPES.contains(type)) {
+            raw = isNumber(value);
+        } else {
+            raw = BOOLEAN_TYPES.contains(type) && isBoolean(value);
+        }
+        if (raw) {
+            out.append(value);
+            return;
+        }
+        out.append('\'');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\'') {
+                out.append('\'');
+            }
+            out.append(c);
+        }
+        out.append('\'');
+    }
+
+    /**
+     * 整数或小数（可带符号和指数）
+     */
+    static boolean isNumber(String value) {
+        int length = value.length();
+        int i = 0;
+        if (i < length && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+        int digits = 0;
+        boolean dot = false;
+        for (; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits++;
+            } else if (c == '.' && !dot) {
+                dot = true;
+            } else if ((c == 'e' || c == 'E') && digits > 0 && i + 1 < length) {
+                int exp = i + 1;
+                if (value.charAt(exp) == '-' || value.charAt(exp) == '+') {
+                    exp++;
+                }
+                if (exp == length) {
+                    return false;
+                }
+                for (int j = exp; j < length; j++) {
+                    if (value.charAt(j) < '0' || value.charAt(j) > '9') {
+                        return false;
+                    }
+                }
+                return true;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0;
+    }
+
+    private static boolean isBoolean(String value) {
+        return "true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value);
+    }
+
+    /**
+     * 跳过从 start 开始的引号内容（两个连续引号表示转义），返回结束引号之后的位置
+     */
+    private static int skipQuoted(String sql, int start, char quote) {
+        int i = start + 1;
+        int length = sql.length();
+        while (i < length) {
+            if (sql.charAt(i) == quote) {
+                if (i + 1 < length && sql.charAt(i + 1) == quote) {
+                    i += 2;
+                    continue;
+                }
+                return i + 1;
+            }
+            i++;
+        }
+        return length;
+    }
+}
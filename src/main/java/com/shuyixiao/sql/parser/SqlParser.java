@@ -1,5 +1,6 @@
 package com.shuyixiao.sql.parser;
 
+import com.shuyixiao.console.LogLineClassifier;
 import com.shuyixiao.sql.model.SqlRecord;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -18,14 +19,14 @@ public class SqlParser {
         Pattern.CASE_INSENSITIVE
     );
     
-    // 匹配 MyBatis 的 Parameters 日志
+    // MyBatis 的 Parameters 日志
     // 格式: ==> Parameters: value1(Type1), value2(Type2)
-    // 支持多行参数（包含大JSON）
-    // 匹配从 "==> Parameters:" 开始，到下一个日志行（以时间戳开头）或 "<==" 或文件末尾
-    private static final Pattern PARAMETERS_PATTERN = Pattern.compile(
-        "==>\\s+Parameters:\\s*([\\s\\S]*?)(?=\\n\\d{4}-\\d{2}-\\d{2}.*?<==|$)",
-        Pattern.CASE_INSENSITIVE
-    );
+    // 支持多行参数（包含大JSON），由 extractParameters 按行扫描，不使用正则
+    private static final String PARAMETERS_MARKER = "parameters:";
+    
+    // 参数块的长度上限（SqlParser、SqlStatementAssembler 和各方言共用）：超出时截断并在记录上标记，避免异常日志撑爆内存
+    // 多行参数可以超过控制台的单行上限，因此取 2MB
+    public static final int MAX_PARAMETERS_LENGTH = 2 * 1024 * 1024;
     
     // 匹配 MyBatis 的 Total 日志
     // 格式: <==      Total: 123
@@ -75,11 +76,12 @@ public class SqlParser {
             return false;
         }
         
-        String lowerText = text.toLowerCase();
-        return lowerText.contains("preparing:") || 
-               lowerText.contains("parameters:") || 
-               lowerText.contains("total:") ||
-               lowerText.contains("basejdbclogger");
+        // 忽略大小写查找，不创建整段文本的小写副本
+        int end = text.length();
+        return SqlStatementAssembler.indexOf(text, 0, end, "preparing:", true) >= 0 ||
+               SqlStatementAssembler.indexOf(text, 0, end, PARAMETERS_MARKER, true) >= 0 ||
+               SqlStatementAssembler.indexOf(text, 0, end, "total:", true) >= 0 ||
+               SqlStatementAssembler.indexOf(text, 0, end, "basejdbclogger", true) >= 0;
     }
     
     /**
@@ -119,11 +121,12 @@ public class SqlParser {
             }
             
             // 2. 提取参数
-            Matcher parametersMatcher = PARAMETERS_PATTERN.matcher(text);
-            if (parametersMatcher.find()) {
-                parameters = parametersMatcher.group(1).trim();
+            int[] range = findParameters(text);
+            if (range != null) {
+                parameters = text.substring(range[0], range[1]).trim();
                 if (!parameters.isEmpty()) {
                     builder.parameters(parameters);
+                    builder.parametersTruncated(isTruncated(text, range));
                 }
             }
             
@@ -158,10 +161,81 @@ public class SqlParser {
         }
     }
     
+    /**
+     * 提取 "==> Parameters:" 之后的参数块（可跨多行）
+     * 参数块在下一个以时间戳开头的行、包含 "<==" 的行或文本末尾结束；
+     * 每行只扫描一次，超出 MAX_PARAMETERS_LENGTH 时截断
+     *
+     * @return 去掉首尾空白的参数块，没有 Parameters 行时返回 null
+     */
+    static String extractParameters(String text) {
+        int[] range = findParameters(text);
+        return range != null ? text.substring(range[0], range[1]).trim() : null;
+    }
+    
+    /**
+     * 参数块是否因超出 MAX_PARAMETERS_LENGTH 被截断（扫描停在上限处，而不是参数块的自然结尾）
+     */
+    private static boolean isTruncated(String text, int[] range) {
+        return range[1] - range[0] >= MAX_PARAMETERS_LENGTH && range[1] < text.length();
+    }
+    
+    /**
+     * @return 参数块在 text 中的范围 {起点, 终点}，没有 Parameters 行时返回 null
+     */
+    private static int[] findParameters(String text) {
+        int length = text.length();
+        int valueStart = -1;
+        int from = 0;
+        while (valueStart < 0) {
+            int marker = SqlStatementAssembler.indexOf(text, from, length, PARAMETERS_MARKER, true);
+            if (marker < 0) {
+                return null;
+            }
+            if (isParametersMarker(text, marker)) {
+                valueStart = marker + PARAMETERS_MARKER.length();
+            }
+            from = marker + PARAMETERS_MARKER.length();
+        }
+        
+        int limit = (int) Math.min(length, (long) valueStart + MAX_PARAMETERS_LENGTH);
+        // 第一行（Parameters 所在行）的剩余部分总是属于参数块
+        int valueEnd = lineEnd(text, valueStart, limit);
+        while (valueEnd < limit) {
+            int lineStart = valueEnd + 1;
+            int lineEnd = lineEnd(text, lineStart, limit);
+            if (LogLineClassifier.startsWithDate(text, lineStart, lineEnd)
+                    || SqlStatementAssembler.indexOf(text, lineStart, lineEnd, "<==", false) >= 0) {
+                break;
+            }
+            valueEnd = lineEnd;
+        }
+        return new int[]{valueStart, valueEnd};
+    }
+    
+    /**
+     * marker 前是否是 "==>" 加至少一个空白
+     */
+    private static boolean isParametersMarker(String text, int marker) {
+        int i = marker - 1;
+        if (i < 0 || !Character.isWhitespace(text.charAt(i))) {
+            return false;
+        }
+        while (i >= 0 && Character.isWhitespace(text.charAt(i))) {
+            i--;
+        }
+        return i >= 2 && text.startsWith("==>", i - 2);
+    }
+    
+    private static int lineEnd(String text, int from, int limit) {
+        int newline = text.indexOf('\n', from);
+        return newline < 0 || newline > limit ? limit : newline;
+    }
+    
     /**
      * 提取SQL操作类型
      */
-    private static String extractOperation(String sql) {
+    public static String extractOperation(String sql) {
         if (sql == null) return null;
         
         Matcher matcher = OPERATION_PATTERN.matcher(sql);
@@ -174,7 +248,7 @@ public class SqlParser {
     /**
      * 提取表名
      */
-    private static String extractTableName(String sql, String operation) {
+    public static String extractTableName(String sql, String operation) {
         if (sql == null) return null;
         
         Matcher matcher = null;
@@ -241,152 +315,15 @@ public class SqlParser {
      * @param sqlStatement 原始SQL语句（带?占位符）
      * @param parametersStr 参数字符串，格式: value1(Type1), value2(Type2), ...
      * @return 可执行的SQL语句
+     * @see SqlParameterBinder
      */
     public static String replaceParameters(String sqlStatement, String parametersStr) {
-        if (sqlStatement == null || parametersStr == null || parametersStr.trim().isEmpty()) {
-            return sqlStatement;
-        }
-        
         try {
-            // 解析参数字符串
-            // 格式: value1(Type1), value2(Type2), ...
-            // 例如: 2025-10-21T10:36:34(LocalDateTime), DEFAULT(String), {...}(String), ...
-            // 需要处理包含逗号和括号的复杂值（如JSON）
-            
-            java.util.List<String> paramValues = new java.util.ArrayList<>();
-            StringBuilder currentValue = new StringBuilder();
-            StringBuilder currentType = new StringBuilder();
-            int bracketDepth = 0;
-            int curlyBraceDepth = 0;
-            boolean inQuotes = false;
-            boolean inType = false;  // 是否在类型括号内
-            
-            // 逐字符解析，正确处理嵌套的括号、大括号和逗号
-            for (int i = 0; i < parametersStr.length(); i++) {
-                char c = parametersStr.charAt(i);
-                
-                if (c == '"' || c == '\'') {
-                    // 处理引号
-                    inQuotes = !inQuotes;
-                    if (!inType) {
-                        currentValue.append(c);
-                    }
-                } else if (!inQuotes) {
-                    if (c == '{') {
-                        curlyBraceDepth++;
-                        if (!inType) {
-                            currentValue.append(c);
-                        }
-                    } else if (c == '}') {
-                        curlyBraceDepth--;
-                        if (!inType) {
-                            currentValue.append(c);
-                        }
-                    } else if (c == '(' && curlyBraceDepth == 0) {
-                        // 类型括号开始
-                        bracketDepth++;
-                        inType = true;
-                    } else if (c == ')' && curlyBraceDepth == 0 && inType) {
-                        // 类型括号结束
-                        bracketDepth--;
-                        if (bracketDepth == 0) {
-                            inType = false;
-                            // 提取参数值（忽略类型）
-                            String paramValue = currentValue.toString().trim();
-                            if (!paramValue.isEmpty()) {
-                                paramValues.add(paramValue);
-                            }
-                            currentValue.setLength(0);
-                            currentType.setLength(0);
-                        }
-                    } else if (c == ',' && bracketDepth == 0 && curlyBraceDepth == 0) {
-                        // 参数之间的分隔符，跳过空白
-                        // 下一个参数即将开始
-                        continue;
-                    } else if (inType) {
-                        // 在类型括号内，记录类型（但我们不使用它）
-                        currentType.append(c);
-                    } else {
-                        // 记录参数值
-                        currentValue.append(c);
-                    }
-                } else {
-                    // 在引号内
-                    if (!inType) {
-                        currentValue.append(c);
-                    }
-                }
-            }
-            
-            // 如果解析失败或没有参数，返回原始SQL
-            if (paramValues.isEmpty()) {
-                return sqlStatement;
-            }
-            
-            // 替换SQL中的占位符
-            StringBuilder result = new StringBuilder();
-            int paramIndex = 0;
-            boolean inSqlQuotes = false;
-            
-            for (int i = 0; i < sqlStatement.length(); i++) {
-                char c = sqlStatement.charAt(i);
-                
-                // 跟踪SQL中的引号，避免替换字符串内的?
-                if (c == '\'') {
-                    inSqlQuotes = !inSqlQuotes;
-                    result.append(c);
-                } else if (c == '?' && !inSqlQuotes && paramIndex < paramValues.size()) {
-                    // 找到占位符，替换为参数值
-                    String paramValue = paramValues.get(paramIndex++);
-                    
-                    // 根据参数值的类型决定是否添加引号
-                    if (needsQuotes(paramValue)) {
-                        result.append('\'');
-                        // 转义单引号
-                        result.append(paramValue.replace("'", "''"));
-                        result.append('\'');
-                    } else {
-                        result.append(paramValue);
-                    }
-                } else {
-                    result.append(c);
-                }
-            }
-            
-            return result.toString();
-            
+            return SqlParameterBinder.bind(sqlStatement, parametersStr);
         } catch (Exception e) {
             // 解析失败，返回原始SQL
             return sqlStatement;
         }
     }
-    
-    /**
-     * 判断参数值是否需要添加引号
-     * 数字和布尔值不需要，字符串需要
-     */
-    private static boolean needsQuotes(String value) {
-        if (value == null || value.isEmpty()) {
-            return true;
-        }
-        
-        // 检查是否是数字（整数或小数）
-        if (value.matches("-?\\d+(\\.\\d+)?")) {
-            return false;
-        }
-        
-        // 检查是否是布尔值
-        if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
-            return false;
-        }
-        
-        // 检查是否是null
-        if ("null".equalsIgnoreCase(value)) {
-            return false;
-        }
-        
-        // 其他情况都需要引号
-        return true;
-    }
 }
 
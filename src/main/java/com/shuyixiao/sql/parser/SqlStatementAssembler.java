@@ -0,0 +1,373 @@
+package com.shuyixiao.sql.parser;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.console.LogContext;
+import com.shuyixiao.console.LogLineClassifier;
+import com.shuyixiao.sql.dialect.SqlLogParser;
+import com.shuyixiao.sql.model.SqlRecord;
+
+/**
+ * MyBatis SQL 语句装配器（逐行状态机）
+ * 按 Preparing → Parameters → Total/Updates 的顺序逐行装配一条 SQL，
+ * 每行只做 O(行长) 的扫描，不相关的行不产生任何对象分配
+ *
+ * 执行时间优先取装配期间出现的 "took Xms" 行（p6spy、datasource-proxy 或自定义拦截器），
+ * 否则取 Preparing 行与 Total/Updates 行的日志时间戳之差
+ *
+ * 非线程安全：同一实例只能由一个线程喂入日志行
+ */
+public class SqlStatementAssembler implements SqlLogParser {
+
+    /**
+     * 装配状态
+     */
+    private enum State {
+        IDLE,            // 等待 Preparing
+        PREPARED,        // 已有 SQL，等待 Parameters 或结果行
+        IN_PARAMETERS,   // 正在收集（可能跨多行的）参数
+        AWAIT_RESULT     // 参数已结束，等待 Total/Updates
+    }
+
+    private static final String REQUEST_MARKER = "==>";
+    private static final String RESPONSE_MARKER = "<==";
+    private static final String PREPARING = "Preparing:";
+    private static final String PARAMETERS = "Parameters:";
+    private static final String TOTAL = "Total:";
+    private static final String UPDATES = "Updates:";
+    private static final String TOOK = "took";
+
+    private final String projectName;
+    // 所属进程的 API 上下文（由控制台分发器维护）
+    private final ApiContextTracker context;
+
+    private State state = State.IDLE;
+    private final StringBuilder sql = new StringBuilder();
+    private final StringBuilder parameters = new StringBuilder();
+    // 参数超出上限，后面的行已丢弃
+    private boolean parametersTruncated;
+    // 当前语句的原始日志行，仅在快速路径提取失败时交给 SqlParser 兜底
+    private final StringBuilder rawBlock = new StringBuilder();
+    // Preparing 行的日志时间戳，以及 "took Xms" 行报告的耗时（-1 表示没有）
+    private long preparedAtMillis = -1;
+    private long reportedMillis = -1;
+    // Preparing 行所在线程的上下文，结果行之前可能穿插其他线程的日志
+    private LogContext statementContext = LogContext.EMPTY;
+
+    public SqlStatementAssembler(String projectName, ApiContextTracker context) {
+        this.projectName = projectName;
+        this.context = context;
+    }
+
+    /**
+     * 喂入一行日志（不含换行符）
+     *
+     * @param line  日志文本
+     * @param start 行起始位置（包含）
+     * @param end   行结束位置（不包含）
+     * @return 当该行结束了一条完整 SQL 时返回记录，否则返回 null
+     */
+    @Override
+    public SqlRecord acceptLine(CharSequence line, int start, int end) {
+        int requestAt = indexOf(line, start, end, REQUEST_MARKER, false);
+        if (requestAt >= 0) {
+            int labelAt = skipSpaces(line, requestAt + REQUEST_MARKER.length(), end);
+            if (regionMatches(line, labelAt, end, PREPARING)) {
+                startStatement(line, labelAt + PREPARING.length(), start, end);
+                return null;
+            }
+            if (regionMatches(line, labelAt, end, PARAMETERS)) {
+                startParameters(line, labelAt + PARAMETERS.length(), start, end);
+                return null;
+            }
+        }
+
+        int responseAt = indexOf(line, start, end, RESPONSE_MARKER, false);
+        if (responseAt >= 0 && state != State.IDLE) {
+            int labelAt = skipSpaces(line, responseAt + RESPONSE_MARKER.length(), end);
+            if (regionMatches(line, labelAt, end, TOTAL)) {
+                return finishStatement(line, labelAt + TOTAL.length(), start, end);
+            }
+            if (regionMatches(line, labelAt, end, UPDATES)) {
+                return finishStatement(line, labelAt + UPDATES.length(), start, end);
+            }
+        }
+
+        boolean newLogLine = LogLineClassifier.startsWithDate(line, start, end);
+        if (newLogLine && state != State.IDLE) {
+            long took = parseTookMillis(line, start, end);
+            if (took >= 0) {
+                reportedMillis = took;
+                if (state == State.IN_PARAMETERS) {
+                    state = State.AWAIT_RESULT;
+                }
+                return null;
+            }
+        }
+        if (!newLogLine) {
+            // 非时间戳开头的行：属于上一条 SQL 或参数的延续
+            if (state == State.PREPARED && sql.length() > 0 && !isBlank(line, start, end)) {
+                sql.append(' ');
+                appendTrimmed(sql, line, start, end);
+                appendRaw(line, start, end);
+                return null;
+            }
+            if (state == State.IN_PARAMETERS) {
+                if (parameters.length() < SqlParser.MAX_PARAMETERS_LENGTH) {
+                    parameters.append('\n').append(line, start, end);
+                } else {
+                    parametersTruncated = true;
+                }
+                appendRaw(line, start, end);
+                return null;
+            }
+        } else if (state == State.IN_PARAMETERS) {
+            // 新的日志行到来，参数块结束
+            state = State.AWAIT_RESULT;
+        }
+        return null;
+    }
+
+    /**
+     * 丢弃未完成的语句（进程结束时调用）
+     */
+    @Override
+    public void reset() {
+        resetStatement();
+    }
+
+    /**
+     * 是否正在装配一条语句
+     */
+    @Override
+    public boolean isAssembling() {
+        return state != State.IDLE;
+    }
+
+    // ==================== 状态迁移 ====================
+
+    private void startStatement(CharSequence line, int valueStart, int start, int end) {
+        // 上一条语句没有等到结果行，直接丢弃
+        resetStatement();
+        state = State.PREPARED;
+        statementContext = context.current();
+        preparedAtMillis = LogLineClassifier.parseTimestampMillis(line, start, end);
+        appendTrimmed(sql, line, valueStart, end);
+        appendRaw(line, start, end);
+    }
+
+    private void startParameters(CharSequence line, int valueStart, int start, int end) {
+        if (state != State.PREPARED) {
+            // 没有对应的 Preparing，忽略孤立的参数行
+            return;
+        }
+        state = State.IN_PARAMETERS;
+        appendTrimmed(parameters, line, valueStart, end);
+        appendRaw(line, start, end);
+    }
+
+    private SqlRecord finishStatement(CharSequence line, int valueStart, int start, int end) {
+        try {
+            appendRaw(line, start, end);
+            Integer resultCount = parseCount(line, valueStart, end);
+            return buildRecord(resultCount, executionTime(line, start, end));
+        } finally {
+            resetStatement();
+        }
+    }
+
+    /**
+     * 本条语句的执行时间（毫秒），无法得出时返回 null
+     */
+    private Long executionTime(CharSequence resultLine, int start, int end) {
+        if (reportedMillis >= 0) {
+            return reportedMillis;
+        }
+        if (preparedAtMillis < 0) {
+            return null;
+        }
+        long finishedAt = LogLineClassifier.parseTimestampMillis(resultLine, start, end);
+        return finishedAt >= preparedAtMillis ? finishedAt - preparedAtMillis : null;
+    }
+
+    private SqlRecord buildRecord(Integer resultCount, Long executionTime) {
+        String sqlStatement = sql.toString().trim();
+        String operation = SqlParser.extractOperation(sqlStatement);
+
+        if (sqlStatement.isEmpty() || operation == null) {
+            // 非常规格式：回退到基于正则的完整解析
+            SqlRecord fallback = SqlParser.parseSql(rawBlock.toString(), projectName);
+            return fallback != null ? copyWithContext(fallback, executionTime) : null;
+        }
+
+        SqlRecord.Builder builder = SqlRecord.builder()
+                .project(projectName)
+                .sqlStatement(sqlStatement)
+                .source("MyBatis")
+                .operation(operation)
+                .resultCount(resultCount)
+                .executionTime(executionTime)
+                .apiPath(statementContext.getApiPath())
+                .callerClass(statementContext.getCallerClass())
+                .requestId(statementContext.getRequestId());
+
+        String tableName = SqlParser.extractTableName(sqlStatement, operation);
+        if (tableName != null) {
+            builder.tableName(tableName);
+        }
+
+        String params = parameters.toString().trim();
+        if (!params.isEmpty()) {
+            builder.parameters(params);
+            builder.parametersTruncated(parametersTruncated);
+        }
+
+        return builder.build();
+    }
+
+    private SqlRecord copyWithContext(SqlRecord record, Long executionTime) {
+        return SqlRecord.builder()
+                .id(record.getId())
+                .project(record.getProject())
+                .timestamp(record.getTimestamp())
+                .sqlStatement(record.getSqlStatement())
+                .parameters(record.getParameters())
+                // 原始日志行超出上限时兜底解析的参数也不完整
+                .parametersTruncated(record.isParametersTruncated() || rawBlock.length() >= SqlParser.MAX_PARAMETERS_LENGTH)
+                .tableName(record.getTableName())
+                .operation(record.getOperation())
+                .resultCount(record.getResultCount())
+                .executionTime(record.getExecutionTime() != null ? record.getExecutionTime() : executionTime)
+                .source(record.getSource())
+                .apiPath(record.getApiPath() != null ? record.getApiPath() : statementContext.getApiPath())
+                .callerClass(record.getCallerClass() != null ? record.getCallerClass() : statementContext.getCallerClass())
+                .requestId(statementContext.getRequestId())
+                .build();
+    }
+
+    private void resetStatement() {
+        state = State.IDLE;
+        sql.setLength(0);
+        parameters.setLength(0);
+        parametersTruncated = false;
+        rawBlock.setLength(0);
+        preparedAtMillis = -1;
+        reportedMillis = -1;
+        statementContext = LogContext.EMPTY;
+    }
+
+    private void appendRaw(CharSequence line, int start, int end) {
+        if (rawBlock.length() < SqlParser.MAX_PARAMETERS_LENGTH) {
+            rawBlock.append(line, start, end).append('\n');
+        }
+    }
+
+    // ==================== 无分配的字符扫描工具 ====================
+
+    private static Integer parseCount(CharSequence line, int from, int end) {
+        int i = skipSpaces(line, from, end);
+        long value = 0;
+        int digits = 0;
+        while (i < end && digits < 10) {
+            char c = line.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            value = value * 10 + (c - '0');
+            digits++;
+            i++;
+        }
+        return digits == 0 || value > Integer.MAX_VALUE ? null : (int) value;
+    }
+
+    /**
+     * 解析 "took 12ms" / "took: 12 ms"，没有时返回 -1
+     */
+    public static long parseTookMillis(CharSequence line, int start, int end) {
+        int at = indexOf(line, start, end, TOOK, true);
+        while (at >= 0) {
+            int i = at + TOOK.length();
+            if (i < end && line.charAt(i) == ':') {
+                i++;
+            }
+            i = skipSpaces(line, i, end);
+            long value = 0;
+            int digits = 0;
+            while (i < end && digits < 12 && line.charAt(i) >= '0' && line.charAt(i) <= '9') {
+                value = value * 10 + (line.charAt(i) - '0');
+                digits++;
+                i++;
+            }
+            i = skipSpaces(line, i, end);
+            if (digits > 0 && regionMatches(line, i, end, "ms")) {
+                return value;
+            }
+            at = indexOf(line, at + TOOK.length(), end, TOOK, true);
+        }
+        return -1;
+    }
+
+    private static void appendTrimmed(StringBuilder target, CharSequence line, int from, int end) {
+        int s = skipSpaces(line, from, end);
+        int e = end;
+        while (e > s && Character.isWhitespace(line.charAt(e - 1))) {
+            e--;
+        }
+        target.append(line, s, e);
+    }
+
+    private static int skipSpaces(CharSequence line, int from, int end) {
+        int i = from;
+        while (i < end && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean isBlank(CharSequence line, int start, int end) {
+        return skipSpaces(line, start, end) == end;
+    }
+
+    private static boolean regionMatches(CharSequence line, int at, int end, String needle) {
+        if (at < 0 || end - at < needle.length()) {
+            return false;
+        }
+        for (int i = 0; i < needle.length(); i++) {
+            if (Character.toLowerCase(line.charAt(at + i)) != Character.toLowerCase(needle.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 在 [start, end) 范围内查找 needle，needle 需为小写（忽略大小写时）
+     */
+    public static int indexOf(CharSequence line, int start, int end, String needle, boolean ignoreCase) {
+        int n = needle.length();
+        char first = needle.charAt(0);
+        for (int i = start, last = end - n; i <= last; i++) {
+            char c = line.charAt(i);
+            if (ignoreCase) {
+                c = Character.toLowerCase(c);
+            }
+            if (c != first) {
+                continue;
+            }
+            int k = 1;
+            while (k < n) {
+                char d = line.charAt(i + k);
+                if (ignoreCase) {
+                    d = Character.toLowerCase(d);
+                }
+                if (d != needle.charAt(k)) {
+                    break;
+                }
+                k++;
+            }
+            if (k == n) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
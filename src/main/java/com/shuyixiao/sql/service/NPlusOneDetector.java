@@ -0,0 +1,189 @@
+package com.shuyixiao.sql.service;
+
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.sql.parser.SqlFingerprinter;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * N+1 查询检测器（在线）
+ *
+ * <ul>
+ *     <li>按请求序号划分窗口，多个请求的语句交错输出时各自计数；最近的 MAX_WINDOWS 个请求保留窗口</li>
+ *     <li>同一请求的语句间隔超过 idleGapMillis 时该请求的窗口重新计数</li>
+ *     <li>窗口内按 {@link SqlFingerprinter} 指纹计数，同一指纹执行次数超过阈值时报告一次</li>
+ *     <li>同一接口的同一语句形状在 reportCooldownMillis 内只报告一次，避免每个请求都弹通知</li>
+ * </ul>
+ * 每个进程一个实例，只在控制台读取线程上调用，不加锁
+ */
+public final class NPlusOneDetector {
+
+    static final long DEFAULT_IDLE_GAP_MILLIS = 2_000;
+    static final long DEFAULT_REPORT_COOLDOWN_MILLIS = 60_000;
+
+    // 单个窗口最多跟踪的指纹数，以及 Preparing 文本到指纹的缓存大小
+    private static final int MAX_WINDOW_FINGERPRINTS = 1024;
+    private static final int FINGERPRINT_CACHE_SIZE = 256;
+    private static final int MAX_REPORTED_KEYS = 1024;
+    private static final int MAX_WINDOWS = 64;
+
+    private final int threshold;
+    private final long idleGapMillis;
+    private final long reportCooldownMillis;
+
+    // 请求序号 -> 窗口，按最近使用淘汰
+    private final Map<Long, Window> windows = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Window> eldest) {
+            return size() > MAX_WINDOWS;
+        }
+    };
+
+    private final Map<String, Long> fingerprintCache = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > FINGERPRINT_CACHE_SIZE;
+        }
+    };
+    private final Map<String, Long> lastReported = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > MAX_REPORTED_KEYS;
+        }
+    };
+
+    public NPlusOneDetector(int threshold) {
+        this(threshold, DEFAULT_IDLE_GAP_MILLIS, DEFAULT_REPORT_COOLDOWN_MILLIS);
+    }
+
+    NPlusOneDetector(int threshold, long idleGapMillis, long reportCooldownMillis) {
+        this.threshold = threshold;
+        this.idleGapMillis = idleGapMillis;
+        this.reportCooldownMillis = reportCooldownMillis;
+    }
+
+    /**
+     * 计入一条语句
+     *
+     * 序号为 0 表示所在线程还没有出现过 API 路径日志（定时任务、启动阶段等），
+     * 这些线程的语句无法归属到某次请求，不参与计数，避免互不相关的线程累加成误报
+     *
+     * @param requestSequence 当前请求窗口序号（见 ApiContextTracker#getRequestSequence）
+     * @return 本条语句使某个指纹在窗口内的执行次数超过阈值时返回检测结果，否则返回 null
+     */
+    public Finding onStatement(long requestSequence, SqlRecord record, long nowMillis) {
+        String sql = record.getSqlStatement();
+        if (requestSequence == 0 || sql == null || sql.isEmpty()) {
+            return null;
+        }
+
+        Window window = windows.get(requestSequence);
+        if (window == null || nowMillis - window.lastStatementMillis > idleGapMillis) {
+            window = new Window();
+            windows.put(requestSequence, window);
+        }
+        window.lastStatementMillis = nowMillis;
+
+        long fingerprint = fingerprint(sql);
+        WindowCount count = window.counts.get(fingerprint);
+        if (count == null) {
+            if (window.counts.size() >= MAX_WINDOW_FINGERPRINTS) {
+                return null;
+            }
+            count = new WindowCount();
+            window.counts.put(fingerprint, count);
+        }
+        count.count++;
+        if (record.getCallerClass() != null) {
+            count.callerClass = record.getCallerClass();
+        }
+        if (count.count != threshold + 1) {
+            return null;
+        }
+
+        String reportKey = record.getApiPath() + '\u0000' + fingerprint;
+        Long reportedAt = lastReported.get(reportKey);
+        if (reportedAt != null && nowMillis - reportedAt < reportCooldownMillis) {
+            return null;
+        }
+        lastReported.put(reportKey, nowMillis);
+
+        return new Finding(fingerprint, SqlFingerprinter.normalize(sql), record.getTableName(),
+                record.getApiPath(), count.callerClass, count.count);
+    }
+
+    /**
+     * 进程结束时清空状态
+     */
+    public void reset() {
+        windows.clear();
+        lastReported.clear();
+    }
+
+    private long fingerprint(String sql) {
+        Long cached = fingerprintCache.get(sql);
+        if (cached == null) {
+            cached = SqlFingerprinter.fingerprint(sql);
+            fingerprintCache.put(sql, cached);
+        }
+        return cached;
+    }
+
+    private static final class Window {
+        final Map<Long, WindowCount> counts = new HashMap<>();
+        long lastStatementMillis;
+    }
+
+    private static final class WindowCount {
+        int count;
+        String callerClass;
+    }
+
+    /**
+     * 检测结果
+     */
+    public static final class Finding {
+        private final long fingerprint;
+        private final String normalizedSql;
+        private final String tableName;
+        private final String apiPath;
+        private final String callerClass;   // 形如 UserService.java:42
+        private final int count;
+
+        Finding(long fingerprint, String normalizedSql, String tableName, String apiPath,
+                String callerClass, int count) {
+            this.fingerprint = fingerprint;
+            this.normalizedSql = normalizedSql;
+            this.tableName = tableName;
+            this.apiPath = apiPath;
+            this.callerClass = callerClass;
+            this.count = count;
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        public String getNormalizedSql() {
+            return normalizedSql;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getApiPath() {
+            return apiPath;
+        }
+
+        public String getCallerClass() {
+            return callerClass;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
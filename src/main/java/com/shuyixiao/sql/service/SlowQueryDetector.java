@@ -0,0 +1,64 @@
+package com.shuyixiao.sql.service;
+
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.sql.parser.SqlFingerprinter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 慢查询检测器
+ * 执行时间达到阈值的语句需要通知；同一语句形状在 reportCooldownMillis 内只通知一次
+ *
+ * 每个进程一个实例，只在控制台读取线程上调用，不加锁
+ */
+public final class SlowQueryDetector {
+
+    static final long DEFAULT_REPORT_COOLDOWN_MILLIS = 60_000;
+    private static final int MAX_REPORTED_KEYS = 1024;
+
+    private final long thresholdMillis;
+    private final long reportCooldownMillis;
+
+    private final Map<Long, Long> lastReported = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > MAX_REPORTED_KEYS;
+        }
+    };
+
+    public SlowQueryDetector(long thresholdMillis) {
+        this(thresholdMillis, DEFAULT_REPORT_COOLDOWN_MILLIS);
+    }
+
+    SlowQueryDetector(long thresholdMillis, long reportCooldownMillis) {
+        this.thresholdMillis = thresholdMillis;
+        this.reportCooldownMillis = reportCooldownMillis;
+    }
+
+    public long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    /**
+     * @return true 表示该记录是需要通知的慢查询
+     */
+    public boolean shouldReport(SqlRecord record, long nowMillis) {
+        Long executionTime = record.getExecutionTime();
+        if (executionTime == null || executionTime < thresholdMillis || record.getSqlStatement() == null) {
+            return false;
+        }
+
+        long fingerprint = SqlFingerprinter.fingerprint(record.getSqlStatement());
+        Long reportedAt = lastReported.get(fingerprint);
+        if (reportedAt != null && nowMillis - reportedAt < reportCooldownMillis) {
+            return false;
+        }
+        lastReported.put(fingerprint, nowMillis);
+        return true;
+    }
+
+    public void reset() {
+        lastReported.clear();
+    }
+}
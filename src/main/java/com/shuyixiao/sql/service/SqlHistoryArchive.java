@@ -0,0 +1,696 @@
+package com.shuyixiao.sql.service;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.intellij.openapi.diagnostic.Logger;
+import com.shuyixiao.sql.model.SqlRecord;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SQL 历史记录归档（温层）
+ *
+ * 从内存存储中被挤出的记录写入磁盘上的压缩分段，内存中只保留摘要（指纹、表名、操作、耗时、API 路径）：
+ * <ul>
+ *     <li>分段文件 segment-N.jsonl.gz：每批记录追加为一个新的 gzip 成员，读取时按多成员流解压</li>
+ *     <li>索引文件 segment-N.idx：每条记录一行摘要，启动时只读索引即可恢复摘要，无需解压分段</li>
+ *     <li>超过容量或保留天数的摘要被丢弃，分段中不再有存活摘要时删除分段文件</li>
+ *     <li>列表只用内存中的摘要生成摘要行（{@link SqlRecord#isSummaryOnly()}），完整记录按 id 读取，
+ *     只解压命中的分段，解压结果以软引用缓存</li>
+ * </ul>
+ * 所有文件操作都在同一个后台写线程中顺序执行
+ */
+final class SqlHistoryArchive {
+
+    private static final Logger LOG = Logger.getInstance(SqlHistoryArchive.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String DATA_SUFFIX = ".jsonl.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+    private static final int DEFAULT_SEGMENT_RECORDS = 2000; // 每个分段的记录数
+    private static final long WAIT_TIMEOUT_SECONDS = 10;
+    private static final int STRING_POOL_SIZE = 4096; // 共享字符串的最大个数
+
+    private final File directory;
+    private final Gson gson;
+    private final int capacity;
+    private final int retentionDays;
+    private final int segmentRecords;
+
+    // 存活摘要（最旧的在队首）以及每个分段的存活摘要数
+    private final ArrayDeque<Summary> summaries = new ArrayDeque<>();
+    private final Map<Integer, Integer> liveCounts = new HashMap<>();
+    // 表名、API 路径等重复字符串共享同一实例（按最近使用淘汰，避免随不同取值无限增长）
+    private final Map<String, String> stringPool = new LinkedHashMap<String, String>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > STRING_POOL_SIZE;
+        }
+    };
+
+    // 已归档但尚未写盘的记录
+    private final Map<String, SqlRecord> pending = new LinkedHashMap<>();
+    private final Map<String, Summary> pendingSummaries = new LinkedHashMap<>();
+
+    private int currentSegment;
+    private int currentSegmentCount;
+
+    private final Map<Integer, SoftReference<Map<String, SqlRecord>>> segmentCache = new HashMap<>();
+
+    private final ThreadPoolExecutor writer;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    SqlHistoryArchive(File directory, Gson gson, int capacity, int retentionDays) {
+        this(directory, gson, capacity, retentionDays, DEFAULT_SEGMENT_RECORDS);
+    }
+
+    SqlHistoryArchive(File directory, Gson gson, int capacity, int retentionDays, int segmentRecords) {
+        this.directory = directory;
+        this.gson = gson;
+        this.capacity = capacity;
+        this.retentionDays = retentionDays;
+        this.segmentRecords = segmentRecords;
+        this.writer = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "SQL-History-Archive-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.allowCoreThreadTimeOut(true);
+    }
+
+    // ==================== 加载 ====================
+
+    /**
+     * 从索引文件恢复摘要，跳过已在内存存储中的记录
+     */
+    synchronized void load(Collection<String> hotIds) {
+        File[] indexFiles = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(INDEX_SUFFIX));
+        if (indexFiles == null) {
+            return;
+        }
+
+        TreeMap<Integer, File> ordered = new TreeMap<>();
+        for (File file : indexFiles) {
+            Integer segment = parseSegment(file.getName(), INDEX_SUFFIX);
+            if (segment != null) {
+                ordered.put(segment, file);
+            }
+        }
+
+        Set<String> skip = new HashSet<>(hotIds);
+        for (Map.Entry<Integer, File> entry : ordered.entrySet()) {
+            int segment = entry.getKey();
+            try (BufferedReader reader = Files.newBufferedReader(entry.getValue().toPath(), StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    Summary summary = Summary.parse(line, segment, stringPool);
+                    if (summary != null && !skip.contains(summary.id)) {
+                        addSummary(summary);
+                    }
+                }
+            } catch (IOException e) {
+                LOG.warn("Failed to read SQL history index " + entry.getValue().getName(), e);
+            }
+            currentSegment = segment + 1;
+        }
+
+        expire(cutoffMillis(LocalDateTime.now().minusDays(retentionDays)));
+        trimToCapacity();
+        deleteOrphanSegments();
+        LOG.info("Loaded " + summaries.size() + " archived SQL record summaries");
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 归档一条从内存存储中挤出的记录（在存储锁内调用，只做内存操作）
+     */
+    synchronized void archive(SqlRecord record) {
+        if (capacity <= 0) {
+            return;
+        }
+        if (currentSegmentCount >= segmentRecords) {
+            currentSegment++;
+            currentSegmentCount = 0;
+        }
+        Summary summary = Summary.of(record, currentSegment, stringPool);
+        currentSegmentCount++;
+        addSummary(summary);
+        pending.put(record.getId(), record);
+        pendingSummaries.put(record.getId(), summary);
+        trimToCapacity();
+
+        if (drainScheduled.compareAndSet(false, true)) {
+            submit(this::drain);
+        }
+    }
+
+    private void addSummary(Summary summary) {
+        summaries.addLast(summary);
+        liveCounts.merge(summary.segment, 1, Integer::sum);
+    }
+
+    private void trimToCapacity() {
+        while (summaries.size() > capacity) {
+            dropSummary(summaries.pollFirst());
+        }
+    }
+
+    private void expire(long cutoff) {
+        Summary head;
+        while ((head = summaries.peekFirst()) != null && head.timestamp < cutoff) {
+            dropSummary(summaries.pollFirst());
+        }
+    }
+
+    private void dropSummary(Summary summary) {
+        pending.remove(summary.id);
+        pendingSummaries.remove(summary.id);
+        int remaining = liveCounts.merge(summary.segment, -1, Integer::sum);
+        if (remaining <= 0) {
+            liveCounts.remove(summary.segment);
+            if (summary.segment == currentSegment) {
+                // 当前分段已空，之后的记录写入新分段
+                currentSegment++;
+                currentSegmentCount = 0;
+            }
+            int segment = summary.segment;
+            segmentCache.remove(segment);
+            submit(() -> deleteSegment(segment));
+        }
+    }
+
+    /**
+     * 把积压的记录按分段追加写盘（写线程）
+     */
+    private void drain() {
+        drainScheduled.set(false);
+
+        Map<Integer, List<SqlRecord>> records = new TreeMap<>();
+        Map<Integer, List<Summary>> indexLines = new TreeMap<>();
+        synchronized (this) {
+            for (Map.Entry<String, SqlRecord> entry : pending.entrySet()) {
+                Summary summary = pendingSummaries.get(entry.getKey());
+                records.computeIfAbsent(summary.segment, k -> new ArrayList<>()).add(entry.getValue());
+                indexLines.computeIfAbsent(summary.segment, k -> new ArrayList<>()).add(summary);
+            }
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            LOG.warn("Failed to create SQL history directory " + directory);
+            return;
+        }
+
+        for (Map.Entry<Integer, List<SqlRecord>> entry : records.entrySet()) {
+            int segment = entry.getKey();
+            // 追加一个新的 gzip 成员
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(dataFile(segment), true)), StandardCharsets.UTF_8))) {
+                for (SqlRecord record : entry.getValue()) {
+                    gson.toJson(record, SqlRecord.class, out);
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                LOG.error("Failed to append SQL history segment " + segment, e);
+                continue;
+            }
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(indexFile(segment), true), StandardCharsets.UTF_8))) {
+                for (Summary summary : indexLines.get(segment)) {
+                    out.write(summary.format());
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                LOG.error("Failed to append SQL history index " + segment, e);
+            }
+        }
+
+        // 写盘期间被淘汰或删除的记录已经写进了索引，重写这些分段的索引，避免重启后重新出现
+        Set<Integer> stale = new HashSet<>();
+        synchronized (this) {
+            for (Map.Entry<Integer, List<Summary>> entry : indexLines.entrySet()) {
+                for (Summary summary : entry.getValue()) {
+                    if (pendingSummaries.get(summary.id) == summary) {
+                        pending.remove(summary.id);
+                        pendingSummaries.remove(summary.id);
+                    } else {
+                        stale.add(entry.getKey());
+                    }
+                }
+            }
+            for (Integer segment : records.keySet()) {
+                segmentCache.remove(segment);
+            }
+        }
+        for (Integer segment : stale) {
+            rewriteIndex(segment);
+        }
+    }
+
+    // ==================== 查询 ====================
+
+    synchronized int size() {
+        return summaries.size();
+    }
+
+    /**
+     * 时间晚于 since 的归档记录（最新的在前）
+     */
+    List<SqlRecord> getRecordsSince(LocalDateTime since) {
+        long cutoff = cutoffMillis(since);
+        return loadMatching(summary -> summary.timestamp > cutoff);
+    }
+
+    /**
+     * 时间晚于 since 的归档记录的摘要行（最新的在前），只读内存中的摘要，不解压分段
+     *
+     * @param since  null 表示不限时间
+     * @param filter 摘要行的筛选条件
+     * @param limit  最多返回的条数
+     */
+    synchronized List<SqlRecord> getSummaryRows(LocalDateTime since, Predicate<SqlRecord> filter, int limit) {
+        long cutoff = since != null ? cutoffMillis(since) : Long.MIN_VALUE;
+        List<SqlRecord> result = new ArrayList<>();
+        Iterator<Summary> iterator = summaries.descendingIterator();
+        while (iterator.hasNext() && result.size() < limit) {
+            Summary summary = iterator.next();
+            if (summary.timestamp > cutoff) {
+                SqlRecord row = summary.toRow();
+                if (filter.test(row)) {
+                    result.add(row);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在时间晚于 since 的归档记录中搜索，返回命中记录的摘要行（最新的在前）
+     * 按分段依次解压完整记录做匹配，同一时刻只强引用一个分段，命中 limit 条后停止
+     *
+     * @param since   null 表示不限时间
+     * @param matcher 完整记录的匹配条件
+     * @param limit   最多返回的条数
+     */
+    List<SqlRecord> search(LocalDateTime since, Predicate<SqlRecord> matcher, int limit) {
+        long cutoff = since != null ? cutoffMillis(since) : Long.MIN_VALUE;
+        List<Summary> candidates = new ArrayList<>();
+        Map<String, SqlRecord> unwritten;
+        synchronized (this) {
+            Iterator<Summary> iterator = summaries.descendingIterator();
+            while (iterator.hasNext()) {
+                Summary summary = iterator.next();
+                if (summary.timestamp > cutoff) {
+                    candidates.add(summary);
+                }
+            }
+            unwritten = new HashMap<>(pending);
+        }
+
+        List<SqlRecord> result = new ArrayList<>();
+        Map<String, SqlRecord> segmentRecords = null;
+        int loadedSegment = -1;
+        for (Summary summary : candidates) {
+            SqlRecord record = unwritten.get(summary.id);
+            if (record == null) {
+                if (segmentRecords == null || summary.segment != loadedSegment) {
+                    segmentRecords = readSegment(summary.segment);
+                    loadedSegment = summary.segment;
+                }
+                record = segmentRecords.get(summary.id);
+            }
+            if (record != null && matcher.test(record)) {
+                result.add(summary.toRow());
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 按 id 读取完整的归档记录（已不在归档中的 id 不出现在结果中）
+     */
+    Map<String, SqlRecord> loadRecords(Collection<String> ids) {
+        Set<String> wanted = new HashSet<>(ids);
+        Map<String, SqlRecord> result = new HashMap<>();
+        for (SqlRecord record : loadMatching(summary -> wanted.contains(summary.id))) {
+            result.put(record.getId(), record);
+        }
+        return result;
+    }
+
+    private List<SqlRecord> loadMatching(Predicate<Summary> filter) {
+        List<Summary> matched = new ArrayList<>();
+        Map<String, SqlRecord> unwritten;
+        synchronized (this) {
+            Iterator<Summary> iterator = summaries.descendingIterator();
+            while (iterator.hasNext()) {
+                Summary summary = iterator.next();
+                if (filter.test(summary)) {
+                    matched.add(summary);
+                }
+            }
+            unwritten = new HashMap<>(pending);
+        }
+        if (matched.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Integer, Map<String, SqlRecord>> segments = new HashMap<>();
+        List<SqlRecord> result = new ArrayList<>(matched.size());
+        for (Summary summary : matched) {
+            SqlRecord record = unwritten.get(summary.id);
+            if (record == null) {
+                record = segments.computeIfAbsent(summary.segment, this::readSegment).get(summary.id);
+            }
+            if (record != null) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    private Map<String, SqlRecord> readSegment(int segment) {
+        synchronized (this) {
+            SoftReference<Map<String, SqlRecord>> cached = segmentCache.get(segment);
+            Map<String, SqlRecord> records = cached != null ? cached.get() : null;
+            if (records != null) {
+                return records;
+            }
+        }
+
+        Map<String, SqlRecord> records = new HashMap<>();
+        File file = dataFile(segment);
+        if (file.exists()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    try {
+                        SqlRecord record = gson.fromJson(line, SqlRecord.class);
+                        if (record != null) {
+                            records.put(record.getId(), record);
+                        }
+                    } catch (JsonParseException e) {
+                        // 跳过损坏的行
+                    }
+                }
+            } catch (EOFException e) {
+                // 最后一个 gzip 成员未写完（进程中断），保留已读出的记录
+                LOG.debug("SQL history segment " + segment + " ends with a truncated member");
+            } catch (IOException e) {
+                LOG.warn("Failed to read SQL history segment " + segment, e);
+            }
+        }
+
+        synchronized (this) {
+            segmentCache.put(segment, new SoftReference<>(records));
+        }
+        return records;
+    }
+
+    // ==================== 清理 ====================
+
+    /**
+     * 删除时间早于 cutoff 的归档记录
+     */
+    synchronized int removeOlderThan(LocalDateTime cutoff) {
+        long cutoffMillis = cutoffMillis(cutoff);
+        Set<Integer> affected = new HashSet<>();
+        int removed = 0;
+        Iterator<Summary> iterator = summaries.iterator();
+        while (iterator.hasNext()) {
+            Summary summary = iterator.next();
+            if (summary.timestamp < cutoffMillis) {
+                iterator.remove();
+                dropSummary(summary);
+                affected.add(summary.segment);
+                removed++;
+            }
+        }
+
+        // 分段中还有存活记录时重写其索引，避免重启后被删除的记录重新出现
+        for (Integer segment : affected) {
+            if (liveCounts.containsKey(segment)) {
+                submit(() -> rewriteIndex(segment));
+            }
+        }
+        return removed;
+    }
+
+    synchronized void clear() {
+        summaries.clear();
+        liveCounts.clear();
+        pending.clear();
+        pendingSummaries.clear();
+        segmentCache.clear();
+        stringPool.clear();
+        currentSegment++;
+        currentSegmentCount = 0;
+        submit(this::deleteOrphanSegments);
+    }
+
+    /**
+     * 等待已提交的写操作完成
+     */
+    void flush() {
+        try {
+            writer.submit(() -> { }).get(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            LOG.warn("SQL history archive flush did not complete", e);
+        }
+    }
+
+    void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("SQL history archive writer did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            writer.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("SQL history archive already closed, task dropped");
+        }
+    }
+
+    private void rewriteIndex(int segment) {
+        // 在写线程上执行时才确定存活记录：之前提交的写盘已完成，不在积压中的摘要都已写入分段
+        List<Summary> live = new ArrayList<>();
+        synchronized (this) {
+            if (!liveCounts.containsKey(segment)) {
+                return;
+            }
+            for (Summary summary : summaries) {
+                if (summary.segment == segment && !pendingSummaries.containsKey(summary.id)) {
+                    live.add(summary);
+                }
+            }
+        }
+        File index = indexFile(segment);
+        File temp = new File(directory, index.getName() + ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            for (Summary summary : live) {
+                out.write(summary.format());
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            LOG.warn("Failed to rewrite SQL history index " + segment, e);
+            return;
+        }
+        if (!temp.renameTo(index)) {
+            index.delete();
+            if (!temp.renameTo(index)) {
+                LOG.warn("Failed to replace SQL history index " + segment);
+            }
+        }
+    }
+
+    private void deleteSegment(int segment) {
+        synchronized (this) {
+            if (liveCounts.containsKey(segment)) {
+                return;
+            }
+        }
+        dataFile(segment).delete();
+        indexFile(segment).delete();
+    }
+
+    /**
+     * 删除没有存活摘要的分段文件
+     */
+    private void deleteOrphanSegments() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(SEGMENT_PREFIX));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String name = file.getName();
+            Integer segment = name.endsWith(INDEX_SUFFIX)
+                    ? parseSegment(name, INDEX_SUFFIX)
+                    : parseSegment(name, DATA_SUFFIX);
+            boolean live;
+            synchronized (this) {
+                live = segment != null && liveCounts.containsKey(segment);
+            }
+            if (!live) {
+                file.delete();
+            }
+        }
+    }
+
+    private File dataFile(int segment) {
+        return new File(directory, SEGMENT_PREFIX + segment + DATA_SUFFIX);
+    }
+
+    private File indexFile(int segment) {
+        return new File(directory, SEGMENT_PREFIX + segment + INDEX_SUFFIX);
+    }
+
+    private static Integer parseSegment(String name, String suffix) {
+        if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(suffix)) {
+            return null;
+        }
+        try {
+            return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static long cutoffMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 归档记录的内存摘要
+     */
+    static final class Summary {
+        final String id;
+        final long timestamp;
+        final long fingerprint;
+        final String operation;
+        final String tableName;
+        final Long executionTime;
+        final String apiPath;
+        final int segment;
+
+        private Summary(String id, long timestamp, long fingerprint, String operation, String tableName,
+                        Long executionTime, String apiPath, int segment) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.fingerprint = fingerprint;
+            this.operation = operation;
+            this.tableName = tableName;
+            this.executionTime = executionTime;
+            this.apiPath = apiPath;
+            this.segment = segment;
+        }
+
+        static Summary of(SqlRecord record, int segment, Map<String, String> pool) {
+            LocalDateTime timestamp = record.getTimestamp() != null ? record.getTimestamp() : LocalDateTime.now();
+            return new Summary(record.getId(), cutoffMillis(timestamp), SqlRecordStore.sqlFingerprint(record),
+                    intern(pool, record.getOperation()), intern(pool, record.getTableName()),
+                    record.getExecutionTime(), intern(pool, record.getApiPath()), segment);
+        }
+
+        /**
+         * 索引行：id、时间戳、指纹、操作、表名、耗时、API 路径，以制表符分隔
+         */
+        String format() {
+            return id + '\t' + timestamp + '\t' + Long.toHexString(fingerprint) + '\t'
+                    + field(operation) + '\t' + field(tableName) + '\t'
+                    + (executionTime != null ? executionTime.toString() : "") + '\t' + field(apiPath);
+        }
+
+        static Summary parse(String line, int segment, Map<String, String> pool) {
+            String[] parts = line.split("\t", -1);
+            if (parts.length != 7) {
+                return null;
+            }
+            try {
+                return new Summary(parts[0], Long.parseLong(parts[1]), Long.parseUnsignedLong(parts[2], 16),
+                        intern(pool, emptyToNull(parts[3])), intern(pool, emptyToNull(parts[4])),
+                        parts[5].isEmpty() ? null : Long.valueOf(parts[5]),
+                        intern(pool, emptyToNull(parts[6])), segment);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        /**
+         * 表格中代替完整记录的摘要行
+         */
+        SqlRecord toRow() {
+            return SqlRecord.builder()
+                    .id(id)
+                    .timestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault()))
+                    .operation(operation)
+                    .tableName(tableName)
+                    .executionTime(executionTime)
+                    .apiPath(apiPath)
+                    .summaryOnly(true)
+                    .build();
+        }
+
+        private static String field(String value) {
+            return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+        }
+
+        private static String emptyToNull(String value) {
+            return value.isEmpty() ? null : value;
+        }
+
+        private static String intern(Map<String, String> pool, String value) {
+            return value == null ? null : pool.computeIfAbsent(value, v -> v);
+        }
+    }
+}
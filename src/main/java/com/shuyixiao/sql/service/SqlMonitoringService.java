@@ -9,7 +9,10 @@ import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.shuyixiao.console.ConsoleIngestService;
+import com.shuyixiao.console.ConsoleLogDemultiplexer;
 import com.shuyixiao.sql.listener.SqlOutputListener;
+import com.shuyixiao.sql.settings.SqlMonitorSettings;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Map;
@@ -18,6 +21,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * SQL 监控服务
  * 负责管理 SQL 输出监听器的生命周期
+ * 监听器作为 sink 挂在 {@link ConsoleIngestService} 的共享分发器上，每个进程只解析一次控制台输出
  */
 @Service
 public final class SqlMonitoringService {
@@ -82,9 +86,12 @@ public final class SqlMonitoringService {
                 return;
             }
             
-            // 创建新的监听器
-            SqlOutputListener listener = new SqlOutputListener(project);
-            processHandler.addProcessListener(listener);
+            // 创建新的监听器，挂到进程共享的分发器上
+            ConsoleLogDemultiplexer pipeline = ConsoleIngestService.getInstance(project).attach(processHandler);
+            // 配置了 MDC 追踪 ID 时按追踪 ID 关联请求，否则按线程名
+            pipeline.getContextTracker().setTraceIdPattern(SqlMonitorSettings.getInstance(project).getTraceIdPattern());
+            SqlOutputListener listener = new SqlOutputListener(project, pipeline.getContextTracker(), pipeline.getGovernor());
+            pipeline.addSink(listener);
             activeListeners.put(processHandler, listener);
             
             LOG.debug("Attached SQL listener to process: " + processHandler);
@@ -109,7 +116,7 @@ public final class SqlMonitoringService {
         SqlOutputListener listener = activeListeners.remove(processHandler);
         if (listener != null) {
             try {
-                processHandler.removeProcessListener(listener);
+                ConsoleIngestService.getInstance(project).detach(processHandler, listener);
                 LOG.debug("Removed SQL listener from process: " + processHandler);
             } catch (Exception e) {
                 LOG.warn("Failed to remove SQL listener", e);
@@ -123,7 +130,7 @@ public final class SqlMonitoringService {
     public void clearAllListeners() {
         for (Map.Entry<ProcessHandler, SqlOutputListener> entry : activeListeners.entrySet()) {
             try {
-                entry.getKey().removeProcessListener(entry.getValue());
+                ConsoleIngestService.getInstance(project).detach(entry.getKey(), entry.getValue());
             } catch (Exception e) {
                 LOG.warn("Failed to remove listener during cleanup", e);
             }
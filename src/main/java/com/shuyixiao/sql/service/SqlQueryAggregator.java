@@ -0,0 +1,262 @@
+package com.shuyixiao.sql.service;
+
+import com.shuyixiao.sql.model.LatencySummary;
+import com.shuyixiao.sql.model.SqlQueryStats;
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.sql.parser.SqlFingerprinter;
+import com.shuyixiao.util.LatencyHistogram;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * SQL 语句形状的增量聚合器
+ *
+ * <ul>
+ *     <li>按 {@link SqlFingerprinter} 指纹聚合，每条记录只更新一个条目，不保留逐条记录</li>
+ *     <li>每个指纹记录执行次数、结果数量直方图、执行时间分位数，以及触发它的接口和调用方</li>
+ *     <li>另按表名维护执行时间直方图（表名统一小写）</li>
+ *     <li>指纹数量超过上限时淘汰最久未出现的形状；接口和调用方超过上限后计入 "(其他)"</li>
+ * </ul>
+ * 所有方法都在同一把锁内执行
+ */
+final class SqlQueryAggregator {
+
+    static final int DEFAULT_MAX_FINGERPRINTS = 10_000;
+    static final int MAX_KEYS_PER_ENTRY = 64;
+    static final String OTHER_KEY = "(其他)";
+
+    // 同一条 Preparing 文本反复出现，缓存其指纹避免重复规范化
+    private static final int NORMALIZE_CACHE_SIZE = 1024;
+
+    private final int maxFingerprints;
+    private final Map<Long, Entry> entries;
+    private final Map<String, Normalized> normalizeCache;
+    private final Map<String, LatencyHistogram> tableLatencies = new HashMap<>();
+
+    SqlQueryAggregator() {
+        this(DEFAULT_MAX_FINGERPRINTS);
+    }
+
+    SqlQueryAggregator(int maxFingerprints) {
+        this.maxFingerprints = maxFingerprints;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > SqlQueryAggregator.this.maxFingerprints;
+            }
+        };
+        this.normalizeCache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Normalized> eldest) {
+                return size() > NORMALIZE_CACHE_SIZE;
+            }
+        };
+    }
+
+    /**
+     * 计入一条执行记录
+     */
+    synchronized void record(SqlRecord record) {
+        String sql = record.getSqlStatement();
+        if (sql == null || sql.isEmpty()) {
+            return;
+        }
+
+        Normalized normalized = normalizeCache.get(sql);
+        if (normalized == null) {
+            String text = SqlFingerprinter.normalize(sql);
+            normalized = new Normalized(text, SqlFingerprinter.hash(text));
+            normalizeCache.put(sql, normalized);
+        }
+
+        Entry entry = entries.get(normalized.fingerprint);
+        if (entry == null) {
+            entry = new Entry(normalized.fingerprint, normalized.text);
+            entries.put(normalized.fingerprint, entry);
+        }
+        entry.add(record);
+
+        Long executionTime = record.getExecutionTime();
+        if (executionTime != null && record.getTableName() != null) {
+            tableLatencies.computeIfAbsent(record.getTableName().toLowerCase(Locale.ROOT), k -> new LatencyHistogram())
+                    .record(executionTime);
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        normalizeCache.clear();
+        tableLatencies.clear();
+    }
+
+    /**
+     * 指定表的执行时间分位数
+     */
+    synchronized LatencySummary getTableLatency(String tableName) {
+        if (tableName == null) {
+            return LatencySummary.EMPTY;
+        }
+        return LatencySummary.of(tableLatencies.get(tableName.toLowerCase(Locale.ROOT)));
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 执行次数最多的语句形状
+     *
+     * @param apiPath 只统计该接口触发的执行；为空时统计全部
+     * @param limit   最多返回条数
+     */
+    synchronized List<SqlQueryStats> getTopQueries(String apiPath, int limit) {
+        boolean allPaths = apiPath == null || apiPath.isEmpty();
+        List<Entry> matched = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            if (allPaths || entry.apiPathCounts.containsKey(apiPath)) {
+                matched.add(entry);
+            }
+        }
+        matched.sort(Comparator.comparingLong((Entry e) -> allPaths ? e.count : e.apiPathCounts.get(apiPath))
+                .reversed());
+
+        List<SqlQueryStats> result = new ArrayList<>(Math.min(limit, matched.size()));
+        for (int i = 0; i < matched.size() && i < limit; i++) {
+            result.add(matched.get(i).snapshot());
+        }
+        return result;
+    }
+
+    /**
+     * 出现过的全部接口路径（按执行次数从多到少）
+     */
+    synchronized List<String> getApiPaths() {
+        Map<String, Long> totals = new HashMap<>();
+        for (Entry entry : entries.values()) {
+            entry.apiPathCounts.forEach((path, count) -> totals.merge(path, count, Long::sum));
+        }
+        List<String> paths = new ArrayList<>(totals.keySet());
+        paths.sort(Comparator.comparing((String path) -> totals.get(path)).reversed());
+        return paths;
+    }
+
+    private static final class Normalized {
+        final String text;
+        final long fingerprint;
+
+        Normalized(String text, long fingerprint) {
+            this.text = text;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static final class Entry {
+        final long fingerprint;
+        final String normalizedSql;
+        String sampleSql;
+        String sampleParameters;
+        String tableName;
+        String operation;
+        long count;
+        LocalDateTime firstSeen;
+        LocalDateTime lastSeen;
+        long timedCount;
+        long totalExecutionTime;
+        long maxExecutionTime;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final long[] resultHistogram = new long[SqlQueryStats.RESULT_BUCKET_LABELS.length];
+        final Map<String, Long> apiPathCounts = new HashMap<>();
+        final Map<String, Long> callerCounts = new HashMap<>();
+
+        Entry(long fingerprint, String normalizedSql) {
+            this.fingerprint = fingerprint;
+            this.normalizedSql = normalizedSql;
+        }
+
+        void add(SqlRecord record) {
+            count++;
+            sampleSql = record.getSqlStatement();
+            sampleParameters = record.getParameters();
+            if (record.getTableName() != null) {
+                tableName = record.getTableName();
+            }
+            if (record.getOperation() != null) {
+                operation = record.getOperation();
+            }
+
+            LocalDateTime timestamp = record.getTimestamp();
+            if (timestamp != null) {
+                if (firstSeen == null || timestamp.isBefore(firstSeen)) {
+                    firstSeen = timestamp;
+                }
+                if (lastSeen == null || timestamp.isAfter(lastSeen)) {
+                    lastSeen = timestamp;
+                }
+            }
+
+            Long executionTime = record.getExecutionTime();
+            if (executionTime != null && executionTime >= 0) {
+                timedCount++;
+                totalExecutionTime += executionTime;
+                maxExecutionTime = Math.max(maxExecutionTime, executionTime);
+                latency.record(executionTime);
+            }
+
+            Integer resultCount = record.getResultCount();
+            if (resultCount != null) {
+                resultHistogram[SqlQueryStats.resultBucket(resultCount)]++;
+            }
+
+            increment(apiPathCounts, record.getApiPath());
+            increment(callerCounts, record.getCallerClass());
+        }
+
+        private static void increment(Map<String, Long> counts, String key) {
+            if (key == null || key.isEmpty()) {
+                return;
+            }
+            if (!counts.containsKey(key) && counts.size() >= MAX_KEYS_PER_ENTRY) {
+                key = OTHER_KEY;
+            }
+            counts.merge(key, 1L, Long::sum);
+        }
+
+        SqlQueryStats snapshot() {
+            return SqlQueryStats.builder()
+                    .fingerprint(fingerprint)
+                    .normalizedSql(normalizedSql)
+                    .sampleSql(sampleSql)
+                    .sampleParameters(sampleParameters)
+                    .tableName(tableName)
+                    .operation(operation)
+                    .count(count)
+                    .firstSeen(firstSeen)
+                    .lastSeen(lastSeen)
+                    .timedCount(timedCount)
+                    .totalExecutionTime(totalExecutionTime)
+                    .maxExecutionTime(maxExecutionTime)
+                    .latency(LatencySummary.of(latency))
+                    .resultHistogram(resultHistogram)
+                    .apiPathCounts(sortedByCount(apiPathCounts))
+                    .callerCounts(sortedByCount(callerCounts))
+                    .build();
+        }
+
+        private static Map<String, Long> sortedByCount(Map<String, Long> counts) {
+            List<Map.Entry<String, Long>> sorted = new ArrayList<>(counts.entrySet());
+            sorted.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (Map.Entry<String, Long> e : sorted) {
+                result.put(e.getKey(), e.getValue());
+            }
+            return result;
+        }
+    }
+}
@@ -6,53 +6,81 @@ import com.google.gson.JsonSyntaxException;
 import com.google.gson.Strictness;
 import com.google.gson.reflect.TypeToken;
 import com.google.gson.stream.JsonReader;
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.components.Service;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.project.Project;
+import com.shuyixiao.diagnostics.PluginMetrics;
+import com.shuyixiao.sql.model.LatencySummary;
+import com.shuyixiao.sql.model.SqlQueryStats;
 import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.sql.settings.SqlMonitorSettings;
+import com.shuyixiao.storage.RecordJournal;
+import com.shuyixiao.storage.TokenIndex;
 import com.shuyixiao.util.LocalDateTimeAdapter;
 
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
-import java.util.stream.Collectors;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * SQL 记录服务
  * 负责管理 SQL 查询记录的存储和检索
  */
 @Service
-public final class SqlRecordService {
+public final class SqlRecordService implements Disposable {
     
     private static final Logger LOG = Logger.getInstance(SqlRecordService.class);
-    private static final String STORAGE_FILE = "sql-records.json";
-    private static final int MAX_RECORDS = 1000; // 最多保存1000条记录
+    private static final String STORAGE_FILE = "sql-records.jsonl";
+    private static final String LEGACY_STORAGE_FILE = "sql-records.json"; // 旧版整体 JSON 数组文件
+    private static final String HISTORY_DIR = "sql-history"; // 温层归档目录
+    private static final long DEDUPE_WINDOW_SECONDS = 3; // 去重窗口（秒）
     
     @SuppressWarnings("unused")
     private final Project project;
-    private final CopyOnWriteArrayList<SqlRecord> records = new CopyOnWriteArrayList<>();
+    // 热层：内存中的完整记录（容量见 SqlMonitorSettings）
+    private final SqlRecordStore records;
+    // 温层：磁盘上的压缩归档，内存中只有摘要
+    private final SqlHistoryArchive archive;
+    // 按语句形状（指纹）聚合的执行统计
+    private final SqlQueryAggregator aggregator = new SqlQueryAggregator();
     private final Gson gson;
-    private final File storageFile;
+    private final File legacyStorageFile;
+    private final RecordJournal<SqlRecord> journal;
+    // 热层 + 温层最多保留的记录数
+    private final int retainedCapacity;
     
     // 记录更新监听器列表（用于实时通知UI）
     private final List<Consumer<SqlRecord>> recordListeners = new CopyOnWriteArrayList<>();
+    // 记录淘汰监听器（热层写满、覆盖最旧的记录时通知UI）
+    private final List<Consumer<SqlRecord>> evictionListeners = new CopyOnWriteArrayList<>();
     
     public SqlRecordService(Project project) {
         this.project = project;
+        // 日志文件一条记录一行，不使用 PrettyPrinting
         this.gson = new GsonBuilder()
                 .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
-                .setPrettyPrinting()
                 .create();
         
+        SqlMonitorSettings settings = SqlMonitorSettings.getInstance(project);
+        int hotCapacity = settings.getHotCapacity();
+        
         // 存储文件位置
         String projectPath = project.getBasePath();
         if (projectPath != null) {
@@ -60,11 +88,24 @@ public final class SqlRecordService {
             if (!ideaDir.exists()) {
                 ideaDir.mkdirs();
             }
-            this.storageFile = new File(ideaDir, STORAGE_FILE);
+            this.legacyStorageFile = new File(ideaDir, LEGACY_STORAGE_FILE);
+            this.archive = settings.getWarmCapacity() > 0
+                    ? new SqlHistoryArchive(new File(ideaDir, HISTORY_DIR), gson,
+                            settings.getWarmCapacity(), settings.getRetentionDays())
+                    : null;
+            this.journal = new RecordJournal<>("SQL", new File(ideaDir, STORAGE_FILE), gson,
+                    SqlRecord.class, SqlRecord::getId, hotCapacity, this::snapshotOldestFirst);
         } else {
-            this.storageFile = null;
+            this.legacyStorageFile = null;
+            this.archive = null;
+            this.journal = null;
         }
         
+        this.retainedCapacity = hotCapacity + (archive != null ? settings.getWarmCapacity() : 0);
+        
+        // 热层写满后，被覆盖的记录转入温层
+        this.records = new SqlRecordStore(hotCapacity, DEDUPE_WINDOW_SECONDS, this::onEvicted);
+        
         // 加载历史记录
         loadRecords();
     }
@@ -78,26 +119,21 @@ public final class SqlRecordService {
         }
         
         try {
-            // ✅ 去重逻辑：检查是否存在相似的记录（3秒内的相同SQL）
-            boolean isDuplicate = records.stream()
-                .filter(r -> r.getTimestamp().isAfter(LocalDateTime.now().minusSeconds(3)))
-                .anyMatch(r -> isSimilarRecord(r, record));
+            // 聚合统计按执行次数计数，去重窗口内的重复执行同样计入
+            aggregator.record(record);
             
-            if (isDuplicate) {
+            // ✅ 去重逻辑：3秒内的相同SQL按指纹索引查找，满了自动覆盖最旧的记录
+            if (!records.add(record)) {
                 LOG.debug("Skipped duplicate SQL record: " + record.getId());
+                PluginMetrics.SQL_DEDUPE_HITS.increment();
                 return;
             }
             
-            records.add(0, record); // 添加到列表开头（最新的在前面）
-            
-            // 如果超过最大记录数，删除最旧的记录
-            if (records.size() > MAX_RECORDS) {
-                records.remove(records.size() - 1);
+            // 追加到日志文件（后台写线程）
+            if (journal != null) {
+                journal.append(record);
             }
             
-            // 异步保存到文件
-            saveRecordsAsync();
-            
             LOG.debug("Added SQL record: " + record.getId());
             
             // 通知所有监听器（实时更新UI）
@@ -108,50 +144,6 @@ public final class SqlRecordService {
         }
     }
     
-    /**
-     * 判断两条记录是否相似（用于去重）
-     */
-    private boolean isSimilarRecord(SqlRecord r1, SqlRecord r2) {
-        // 比较操作类型和表名
-        if (!safeEquals(r1.getOperation(), r2.getOperation())) {
-            return false;
-        }
-        
-        if (!safeEquals(r1.getTableName(), r2.getTableName())) {
-            return false;
-        }
-        
-        // 比较SQL语句（移除空白字符后比较）
-        if (r1.getSqlStatement() != null && r2.getSqlStatement() != null) {
-            String sql1 = r1.getSqlStatement().replaceAll("\\s+", " ").trim();
-            String sql2 = r2.getSqlStatement().replaceAll("\\s+", " ").trim();
-            if (!sql1.equals(sql2)) {
-                return false;
-            }
-        }
-        
-        // 比较参数（如果都有的话）
-        if (r1.getParameters() != null && r2.getParameters() != null) {
-            return r1.getParameters().equals(r2.getParameters());
-        }
-        
-        // 如果参数为空，只比较SQL语句
-        return true;
-    }
-    
-    /**
-     * 安全的字符串比较
-     */
-    private boolean safeEquals(String s1, String s2) {
-        if (s1 == null && s2 == null) {
-            return true;
-        }
-        if (s1 == null || s2 == null) {
-            return false;
-        }
-        return s1.equals(s2);
-    }
-    
     /**
      * 添加记录监听器
      */
@@ -184,20 +176,67 @@ public final class SqlRecordService {
     }
     
     /**
-     * 获取所有记录
+     * 添加记录淘汰监听器（在写入线程中回调，不能耗时）
+     */
+    public void addEvictionListener(Consumer<SqlRecord> listener) {
+        if (listener != null && !evictionListeners.contains(listener)) {
+            evictionListeners.add(listener);
+        }
+    }
+    
+    /**
+     * 移除记录淘汰监听器
+     */
+    public void removeEvictionListener(Consumer<SqlRecord> listener) {
+        evictionListeners.remove(listener);
+    }
+    
+    /**
+     * 热层覆盖最旧的记录：转入温层并通知监听器
+     */
+    private void onEvicted(SqlRecord record) {
+        if (archive != null) {
+            archive.archive(record);
+        }
+        for (Consumer<SqlRecord> listener : evictionListeners) {
+            try {
+                listener.accept(record);
+            } catch (Exception e) {
+                LOG.warn("Error notifying SQL eviction listener", e);
+            }
+        }
+    }
+    
+    /**
+     * 获取所有记录（仅内存中的热层）
      */
     public List<SqlRecord> getAllRecords() {
-        return new ArrayList<>(records);
+        return records.snapshot();
     }
     
     /**
-     * 获取最近的记录
+     * 获取记录（热层 + 温层）：热层的完整记录在前，之后是温层的摘要行
+     * 摘要行只有表格列所需的字段（{@link SqlRecord#isSummaryOnly()}），由内存中的摘要生成，不解压归档；
+     * 完整记录用 {@link #loadArchivedRecords} 按需读取
+     *
+     * @param since        null 表示不限时间
+     * @param filter       筛选条件（只能使用摘要行也有的字段，例如操作类型）
+     * @param archiveLimit 最多返回的温层记录数（分页）
+     */
+    public List<SqlRecord> getRecords(LocalDateTime since, Predicate<SqlRecord> filter, int archiveLimit) {
+        List<SqlRecord> result = records.filter(record -> isAfter(record, since) && filter.test(record));
+        if (archive != null) {
+            // 温层中的记录都比热层旧，接在后面
+            appendArchived(result, archive.getSummaryRows(since, filter, archiveLimit));
+        }
+        return result;
+    }
+    
+    /**
+     * 获取最近 N 小时的记录（热层 + 温层的全部记录），温层部分为摘要行，形式同 {@link #getRecords}
      */
     public List<SqlRecord> getRecentRecords(int hours) {
-        LocalDateTime cutoffTime = LocalDateTime.now().minusHours(hours);
-        return records.stream()
-                .filter(record -> record.getTimestamp().isAfter(cutoffTime))
-                .collect(Collectors.toList());
+        return getRecords(LocalDateTime.now().minusHours(hours), record -> true, Integer.MAX_VALUE);
     }
     
     /**
@@ -208,9 +247,7 @@ public final class SqlRecordService {
             return getAllRecords();
         }
         
-        return records.stream()
-                .filter(record -> tableName.equalsIgnoreCase(record.getTableName()))
-                .collect(Collectors.toList());
+        return records.getByTable(tableName);
     }
     
     /**
@@ -221,9 +258,7 @@ public final class SqlRecordService {
             return getAllRecords();
         }
 
-        return records.stream()
-                .filter(record -> operation.equalsIgnoreCase(record.getOperation()))
-                .collect(Collectors.toList());
+        return records.getByOperations(Collections.singletonList(operation));
     }
 
     /**
@@ -234,14 +269,18 @@ public final class SqlRecordService {
             return getAllRecords();
         }
 
-        // 将操作类型转换为大写以便比较
-        Set<String> operationSet = operations.stream()
-                .map(String::toUpperCase)
-                .collect(Collectors.toSet());
-
-        return records.stream()
-                .filter(record -> operationSet.contains(record.getOperation().toUpperCase()))
-                .collect(Collectors.toList());
+        return records.getByOperations(new LinkedHashSet<>(operations));
+    }
+    
+    /**
+     * 按 API 路径筛选
+     */
+    public List<SqlRecord> getRecordsByApiPath(String apiPath) {
+        if (apiPath == null || apiPath.isEmpty()) {
+            return getAllRecords();
+        }
+        
+        return records.getByApiPath(apiPath);
     }
     
     /**
@@ -252,14 +291,97 @@ public final class SqlRecordService {
             return getAllRecords();
         }
         
-        String lowerKeyword = keyword.toLowerCase();
-        return records.stream()
-                .filter(record -> 
-                    (record.getSqlStatement() != null && record.getSqlStatement().toLowerCase().contains(lowerKeyword)) ||
-                    (record.getTableName() != null && record.getTableName().toLowerCase().contains(lowerKeyword)) ||
-                    (record.getApiPath() != null && record.getApiPath().toLowerCase().contains(lowerKeyword))
-                )
-                .collect(Collectors.toList());
+        List<String> terms = TokenIndex.queryTerms(keyword);
+        if (terms.isEmpty()) {
+            // 只有符号（例如 "="）时无法分词，逐条按包含判断
+            return records.filter(record -> matchesKeyword(record, keyword));
+        }
+        return records.search(terms);
+    }
+    
+    /**
+     * 搜索记录（热层 + 温层），结果形式与 {@link #getRecords} 相同
+     * 热层走全文索引；温层按分段解压逐条判断，命中 archiveLimit 条后停止
+     */
+    public List<SqlRecord> searchRecords(String keyword, LocalDateTime since, Predicate<SqlRecord> filter,
+                                         int archiveLimit) {
+        List<SqlRecord> result = new ArrayList<>();
+        for (SqlRecord record : searchRecords(keyword)) {
+            if (isAfter(record, since) && filter.test(record)) {
+                result.add(record);
+            }
+        }
+        if (archive != null) {
+            appendArchived(result, archive.search(since,
+                    record -> filter.test(record) && matchesKeyword(record, keyword), archiveLimit));
+        }
+        return result;
+    }
+    
+    /**
+     * 按 id 读取温层中的完整记录（表格中的摘要行需要显示 SQL、参数时调用，会读取磁盘）
+     * 已从归档中删除的 id 不出现在结果中
+     */
+    public Map<String, SqlRecord> loadArchivedRecords(Collection<String> ids) {
+        return archive != null ? archive.loadRecords(ids) : new HashMap<>();
+    }
+    
+    private static boolean isAfter(SqlRecord record, LocalDateTime since) {
+        return since == null || record.getTimestamp().isAfter(since);
+    }
+    
+    /**
+     * 追加温层的摘要行，跳过热层中已有的记录（查询期间刚被挤出的记录两边都可能有）
+     */
+    private static void appendArchived(List<SqlRecord> hot, List<SqlRecord> archived) {
+        if (archived.isEmpty()) {
+            return;
+        }
+        Set<String> hotIds = new HashSet<>();
+        for (SqlRecord record : hot) {
+            hotIds.add(record.getId());
+        }
+        for (SqlRecord record : archived) {
+            if (!hotIds.contains(record.getId())) {
+                hot.add(record);
+            }
+        }
+    }
+    
+    /**
+     * 记录是否匹配搜索关键字（与 {@link #searchRecords} 的规则相同）
+     * 关键字按词前缀匹配 SQL、表名、API 路径、调用类，多个词需同时命中；只有符号时按包含判断
+     */
+    public static boolean matchesKeyword(SqlRecord record, String keyword) {
+        if (keyword == null || keyword.isEmpty()) {
+            return true;
+        }
+        List<String> terms = TokenIndex.queryTerms(keyword);
+        if (!terms.isEmpty()) {
+            return TokenIndex.matches(terms, record, SqlRecordStore.SEARCH_FIELDS);
+        }
+        for (Function<SqlRecord, String> field : SqlRecordStore.SEARCH_FIELDS) {
+            if (containsIgnoreCase(field.apply(record), keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 忽略大小写的包含判断（不创建小写副本）
+     */
+    private static boolean containsIgnoreCase(String text, String keyword) {
+        if (text == null) {
+            return false;
+        }
+        int last = text.length() - keyword.length();
+        for (int i = 0; i <= last; i++) {
+            if (text.regionMatches(true, i, keyword, 0, keyword.length())) {
+                return true;
+            }
+        }
+        return false;
     }
     
     /**
@@ -267,7 +389,11 @@ public final class SqlRecordService {
      */
     public void clearAllRecords() {
         records.clear();
-        saveRecordsAsync();
+        aggregator.clear();
+        if (archive != null) {
+            archive.clear();
+        }
+        compactJournal();
         LOG.info("Cleared all SQL records");
     }
     
@@ -277,39 +403,118 @@ public final class SqlRecordService {
     public void clearOldRecords(int days) {
         LocalDateTime cutoffTime = LocalDateTime.now().minusDays(days);
         records.removeIf(record -> record.getTimestamp().isBefore(cutoffTime));
-        saveRecordsAsync();
+        if (archive != null) {
+            archive.removeOlderThan(cutoffTime);
+        }
+        // 聚合统计按剩余的热层记录重建（从旧到新）
+        List<SqlRecord> remaining = records.snapshot();
+        aggregator.clear();
+        for (int i = remaining.size() - 1; i >= 0; i--) {
+            aggregator.record(remaining.get(i));
+        }
+        compactJournal();
         LOG.info("Cleared SQL records older than " + days + " days");
     }
     
+    /**
+     * 温层归档的记录数
+     */
+    public int getArchivedCount() {
+        return archive != null ? archive.size() : 0;
+    }
+    
+    /**
+     * 被挤出热层的记录是否转入温层归档
+     */
+    public boolean isArchiveEnabled() {
+        return archive != null;
+    }
+    
+    /**
+     * 热层 + 温层最多保留的记录数（超出的最旧记录已被删除）
+     */
+    public int getRetainedCapacity() {
+        return retainedCapacity;
+    }
+    
+    /**
+     * 执行次数最多的 SQL 语句形状
+     *
+     * @param apiPath 只统计该接口触发的执行；为空时统计全部
+     */
+    public List<SqlQueryStats> getTopQueries(String apiPath, int limit) {
+        return aggregator.getTopQueries(apiPath, limit);
+    }
+    
+    /**
+     * 指定表的执行时间分位数（p50/p95/p99）
+     */
+    public LatencySummary getTableLatency(String tableName) {
+        return aggregator.getTableLatency(tableName);
+    }
+    
+    /**
+     * 聚合统计中出现过的接口路径（按执行次数从多到少）
+     */
+    public List<String> getAggregatedApiPaths() {
+        return aggregator.getApiPaths();
+    }
+    
     /**
      * 获取统计信息
      */
     public Statistics getStatistics() {
+        // 直接读取索引大小，不遍历记录
         int totalCount = records.size();
-        int selectCount = (int) records.stream().filter(r -> "SELECT".equals(r.getOperation())).count();
-        int insertCount = (int) records.stream().filter(r -> "INSERT".equals(r.getOperation())).count();
-        int updateCount = (int) records.stream().filter(r -> "UPDATE".equals(r.getOperation())).count();
-        int deleteCount = (int) records.stream().filter(r -> "DELETE".equals(r.getOperation())).count();
-        
-        // 统计各个表的查询次数
-        long distinctTables = records.stream()
-                .map(SqlRecord::getTableName)
-                .filter(table -> table != null && !table.isEmpty())
-                .distinct()
-                .count();
+        int selectCount = records.countByOperation("SELECT");
+        int insertCount = records.countByOperation("INSERT");
+        int updateCount = records.countByOperation("UPDATE");
+        int deleteCount = records.countByOperation("DELETE");
+        int distinctTables = records.distinctTableCount();
         
-        return new Statistics(totalCount, selectCount, insertCount, updateCount, deleteCount, (int) distinctTables);
+        return new Statistics(totalCount, selectCount, insertCount, updateCount, deleteCount, distinctTables);
     }
     
     /**
      * 从文件加载记录
      */
     private void loadRecords() {
-        if (storageFile == null || !storageFile.exists()) {
+        if (journal == null) {
             return;
         }
 
-        try (FileReader fileReader = new FileReader(storageFile)) {
+        boolean migrating = !journal.getFile().exists() && legacyStorageFile.exists();
+        List<SqlRecord> loaded = migrating ? readLegacyFile() : journal.replay();
+
+        // 先恢复温层：热层中已有的记录不再从温层恢复（挤出后日志还未压缩时两边都有），
+        // 超出热层容量的旧记录随后被挤入温层，保持时间顺序
+        if (archive != null) {
+            Set<String> hotIds = new HashSet<>();
+            for (SqlRecord record : loaded) {
+                hotIds.add(record.getId());
+            }
+            archive.load(hotIds);
+        }
+        records.addAllOldestFirst(loaded);
+        for (SqlRecord record : loaded) {
+            aggregator.record(record);
+        }
+
+        if (migrating && !loaded.isEmpty()) {
+            // 写出日志文件后保留旧文件作为备份
+            journal.compact();
+            File migratedFile = new File(legacyStorageFile.getParent(), LEGACY_STORAGE_FILE + ".migrated");
+            if (!legacyStorageFile.renameTo(migratedFile)) {
+                LOG.warn("Failed to rename legacy SQL records file after migration");
+            }
+        }
+    }
+
+    /**
+     * 读取旧版 JSON 数组文件（按时间先后排列）
+     */
+    private List<SqlRecord> readLegacyFile() {
+        try (FileReader fileReader = new FileReader(legacyStorageFile)) {
             // ✅ 使用 JsonReader 并设置 LENIENT 模式来容忍格式不严格的 JSON
             JsonReader jsonReader = new JsonReader(fileReader);
             jsonReader.setStrictness(Strictness.LENIENT);
@@ -318,31 +523,35 @@ public final class SqlRecordService {
             List<SqlRecord> loadedRecords = gson.fromJson(jsonReader, listType);
 
             if (loadedRecords != null) {
-                records.addAll(loadedRecords);
-                LOG.info("Loaded " + loadedRecords.size() + " SQL records from file");
+                // 旧文件中最新的记录在前
+                List<SqlRecord> oldestFirst = new ArrayList<>(loadedRecords);
+                Collections.reverse(oldestFirst);
+                LOG.info("Loaded " + loadedRecords.size() + " SQL records from legacy file");
+                return oldestFirst;
             }
         } catch (JsonSyntaxException e) {
             // ✅ JSON 格式错误，备份损坏的文件并重新开始
             LOG.error("SQL records file is corrupted, backing up and starting fresh", e);
             backupCorruptedFile();
         } catch (IOException e) {
-            LOG.warn("Failed to load SQL records from file", e);
+            LOG.warn("Failed to load SQL records from legacy file", e);
         }
+        return new ArrayList<>();
     }
 
     /**
      * 备份损坏的记录文件
      */
     private void backupCorruptedFile() {
-        if (storageFile == null || !storageFile.exists()) {
+        if (legacyStorageFile == null || !legacyStorageFile.exists()) {
             return;
         }
 
         try {
             String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-            File backupFile = new File(storageFile.getParent(), "sql-records.json.corrupted." + timestamp);
+            File backupFile = new File(legacyStorageFile.getParent(), LEGACY_STORAGE_FILE + ".corrupted." + timestamp);
 
-            if (storageFile.renameTo(backupFile)) {
+            if (legacyStorageFile.renameTo(backupFile)) {
                 LOG.info("Corrupted SQL records file backed up to: " + backupFile.getName());
             } else {
                 LOG.warn("Failed to backup corrupted SQL records file");
@@ -353,22 +562,32 @@ public final class SqlRecordService {
     }
     
     /**
-     * 保存记录到文件（异步）
+     * 用当前记录重写日志文件（清除记录后调用）
      */
-    private void saveRecordsAsync() {
-        if (storageFile == null) {
-            return;
+    private void compactJournal() {
+        if (journal != null) {
+            journal.compact();
+        }
+    }
+    
+    /**
+     * 按时间先后排列的记录快照（日志压缩时写入）
+     */
+    private List<SqlRecord> snapshotOldestFirst() {
+        List<SqlRecord> snapshot = records.snapshot();
+        Collections.reverse(snapshot);
+        return snapshot;
+    }
+    
+    @Override
+    public void dispose() {
+        // 等待积压的记录写完
+        if (journal != null) {
+            journal.close();
+        }
+        if (archive != null) {
+            archive.close();
         }
-        
-        // 在后台线程中保存
-        new Thread(() -> {
-            try (FileWriter writer = new FileWriter(storageFile)) {
-                gson.toJson(records, writer);
-                LOG.debug("Saved " + records.size() + " SQL records to file");
-            } catch (IOException e) {
-                LOG.error("Failed to save SQL records to file", e);
-            }
-        }, "SQL-Record-Saver").start();
     }
     
     /**
@@ -0,0 +1,492 @@
+package com.shuyixiao.sql.service;
+
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.storage.TokenIndex;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * SQL 记录的内存存储
+ *
+ * <ul>
+ *     <li>固定容量的环形数组，写满后覆盖最旧的记录，插入为 O(1)，不再整体复制数组</li>
+ *     <li>按表名、操作类型、API 路径维护二级索引（记录序号队列），筛选时不扫描全部记录</li>
+ *     <li>SQL、表名、API 路径、调用类建全文索引（{@link TokenIndex}），搜索时不扫描全部记录</li>
+ *     <li>去重窗口内的记录按指纹（操作类型 + 表名 + 规范化 SQL + 参数）建哈希索引，
+ *     指纹命中后再用 {@link #isSimilarRecord} 精确比较，排除哈希碰撞</li>
+ *     <li>被覆盖的记录交给 evictionListener（例如写入 {@link SqlHistoryArchive}）</li>
+ * </ul>
+ * 所有方法都在同一把锁内执行；返回的列表均为新列表，最新的记录在前
+ */
+final class SqlRecordStore {
+
+    // 参与全文搜索的字段
+    static final List<Function<SqlRecord, String>> SEARCH_FIELDS = List.of(
+            SqlRecord::getSqlStatement, SqlRecord::getTableName, SqlRecord::getApiPath, SqlRecord::getCallerClass);
+
+    private final int capacity;
+    private final long dedupeWindowSeconds;
+    private final SqlRecord[] ring;
+    // 被覆盖的最旧记录交给归档（可为 null）
+    private final Consumer<SqlRecord> evictionListener;
+
+    // 下一条记录的序号；有效序号范围为 [max(0, nextSeq - capacity), nextSeq)
+    private long nextSeq;
+
+    // 二级索引：key -> 记录序号（按插入顺序，最旧的在队首）
+    private final Map<String, ArrayDeque<Long>> byTable = new HashMap<>();
+    private final Map<String, ArrayDeque<Long>> byOperation = new HashMap<>();
+    private final Map<String, ArrayDeque<Long>> byApiPath = new HashMap<>();
+    private final TokenIndex<SqlRecord> textIndex = new TokenIndex<>(SEARCH_FIELDS);
+
+    // 去重窗口：按插入顺序排列的近期记录，以及两种指纹到近期记录的索引
+    private final ArrayDeque<RecentEntry> recent = new ArrayDeque<>();
+    private final Map<Long, List<SqlRecord>> recentByFingerprint = new HashMap<>();
+    private final Map<Long, List<SqlRecord>> recentBySql = new HashMap<>();
+
+    SqlRecordStore(int capacity, long dedupeWindowSeconds) {
+        this(capacity, dedupeWindowSeconds, null);
+    }
+
+    SqlRecordStore(int capacity, long dedupeWindowSeconds, Consumer<SqlRecord> evictionListener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.dedupeWindowSeconds = dedupeWindowSeconds;
+        this.ring = new SqlRecord[capacity];
+        this.evictionListener = evictionListener;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 添加记录（带去重）
+     *
+     * @return false 表示去重窗口内已有相似记录，未添加
+     */
+    synchronized boolean add(SqlRecord record) {
+        expireRecent(LocalDateTime.now().minusSeconds(dedupeWindowSeconds));
+
+        long sqlFingerprint = sqlFingerprint(record);
+        long fingerprint = withParameters(sqlFingerprint, record.getParameters());
+        if (isRecentDuplicate(record, sqlFingerprint, fingerprint)) {
+            return false;
+        }
+
+        append(record);
+
+        recent.addLast(new RecentEntry(record, sqlFingerprint, fingerprint));
+        recentByFingerprint.computeIfAbsent(fingerprint, k -> new ArrayList<>(1)).add(record);
+        recentBySql.computeIfAbsent(sqlFingerprint, k -> new ArrayList<>(1)).add(record);
+        return true;
+    }
+
+    /**
+     * 按时间先后加载历史记录（不去重）
+     */
+    synchronized void addAllOldestFirst(List<SqlRecord> records) {
+        for (SqlRecord record : records) {
+            if (record != null) {
+                append(record);
+            }
+        }
+    }
+
+    synchronized void clear() {
+        Arrays.fill(ring, null);
+        nextSeq = 0;
+        byTable.clear();
+        byOperation.clear();
+        byApiPath.clear();
+        textIndex.clear();
+        recent.clear();
+        recentByFingerprint.clear();
+        recentBySql.clear();
+    }
+
+    /**
+     * 删除满足条件的记录（较少调用，直接重建存储和索引）
+     *
+     * @return 删除的记录数
+     */
+    synchronized int removeIf(Predicate<SqlRecord> filter) {
+        List<SqlRecord> survivors = new ArrayList<>();
+        int removed = 0;
+        for (long seq = firstSeq(); seq < nextSeq; seq++) {
+            SqlRecord record = ring[slot(seq)];
+            if (filter.test(record)) {
+                removed++;
+            } else {
+                survivors.add(record);
+            }
+        }
+        if (removed > 0) {
+            clear();
+            addAllOldestFirst(survivors);
+        }
+        return removed;
+    }
+
+    private void append(SqlRecord record) {
+        long seq = nextSeq;
+        int slot = slot(seq);
+        SqlRecord evicted = ring[slot];
+        if (evicted != null) {
+            // 被覆盖的一定是最旧的记录，位于各索引队列的队首
+            long evictedSeq = seq - capacity;
+            unindex(byTable, tableKey(evicted), evictedSeq);
+            unindex(byOperation, operationKey(evicted.getOperation()), evictedSeq);
+            unindex(byApiPath, apiPathKey(evicted), evictedSeq);
+            textIndex.remove(evicted);
+            if (evictionListener != null) {
+                evictionListener.accept(evicted);
+            }
+        }
+
+        ring[slot] = record;
+        nextSeq = seq + 1;
+
+        index(byTable, tableKey(record), seq);
+        index(byOperation, operationKey(record.getOperation()), seq);
+        index(byApiPath, apiPathKey(record), seq);
+        textIndex.add(record);
+    }
+
+    // ==================== 查询 ====================
+
+    synchronized int size() {
+        return (int) (nextSeq - firstSeq());
+    }
+
+    synchronized List<SqlRecord> snapshot() {
+        List<SqlRecord> result = new ArrayList<>(size());
+        for (long seq = nextSeq - 1; seq >= firstSeq(); seq--) {
+            result.add(ring[slot(seq)]);
+        }
+        return result;
+    }
+
+    /**
+     * 从最新到最旧筛选记录
+     */
+    synchronized List<SqlRecord> filter(Predicate<SqlRecord> predicate) {
+        List<SqlRecord> result = new ArrayList<>();
+        for (long seq = nextSeq - 1; seq >= firstSeq(); seq--) {
+            SqlRecord record = ring[slot(seq)];
+            if (predicate.test(record)) {
+                result.add(record);
+            }
+        }
+        return result;
+    }
+
+    synchronized List<SqlRecord> getByTable(String tableName) {
+        return collect(byTable.get(tableName.toLowerCase(Locale.ROOT)));
+    }
+
+    synchronized List<SqlRecord> getByApiPath(String apiPath) {
+        return collect(byApiPath.get(apiPath.toLowerCase(Locale.ROOT)));
+    }
+
+    synchronized List<SqlRecord> getByOperations(Collection<String> operations) {
+        List<ArrayDeque<Long>> queues = new ArrayList<>(operations.size());
+        for (String operation : operations) {
+            ArrayDeque<Long> queue = byOperation.get(operationKey(operation));
+            if (queue != null && !queues.contains(queue)) {
+                queues.add(queue);
+            }
+        }
+        if (queues.size() == 1) {
+            return collect(queues.get(0));
+        }
+        return collect(mergeQueues(queues));
+    }
+
+    /**
+     * 全文搜索：同时包含所有查询词（按词前缀）的记录
+     *
+     * @param terms {@link TokenIndex#queryTerms} 切分出的查询词，不能为空
+     */
+    synchronized List<SqlRecord> search(List<String> terms) {
+        return textIndex.search(terms);
+    }
+
+    synchronized int countByOperation(String operation) {
+        ArrayDeque<Long> queue = byOperation.get(operationKey(operation));
+        return queue != null ? queue.size() : 0;
+    }
+
+    synchronized int distinctTableCount() {
+        return byTable.size();
+    }
+
+    private List<SqlRecord> collect(Collection<Long> seqs) {
+        if (seqs == null || seqs.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<SqlRecord> result = new ArrayList<>(seqs.size());
+        Iterator<Long> iterator = seqs instanceof ArrayDeque
+                ? ((ArrayDeque<Long>) seqs).descendingIterator()
+                : seqs.iterator();
+        while (iterator.hasNext()) {
+            result.add(ring[slot(iterator.next())]);
+        }
+        return result;
+    }
+
+    /**
+     * 合并多个互不相交的索引队列，按序号从旧到新排列（collect 时倒序输出）
+     */
+    private static ArrayDeque<Long> mergeQueues(List<ArrayDeque<Long>> queues) {
+        List<Long> merged = new ArrayList<>();
+        for (ArrayDeque<Long> queue : queues) {
+            merged.addAll(queue);
+        }
+        merged.sort(null);
+        return new ArrayDeque<>(merged);
+    }
+
+    private long firstSeq() {
+        return Math.max(0, nextSeq - capacity);
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % capacity);
+    }
+
+    private static void index(Map<String, ArrayDeque<Long>> index, String key, long seq) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(seq);
+        }
+    }
+
+    private static void unindex(Map<String, ArrayDeque<Long>> index, String key, long seq) {
+        if (key == null) {
+            return;
+        }
+        ArrayDeque<Long> queue = index.get(key);
+        if (queue == null) {
+            return;
+        }
+        Long head = queue.peekFirst();
+        if (head != null && head == seq) {
+            queue.pollFirst();
+        } else {
+            queue.remove(seq);
+        }
+        if (queue.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static String tableKey(SqlRecord record) {
+        String tableName = record.getTableName();
+        return tableName == null || tableName.isEmpty() ? null : tableName.toLowerCase(Locale.ROOT);
+    }
+
+    private static String operationKey(String operation) {
+        return operation == null ? null : operation.toUpperCase(Locale.ROOT);
+    }
+
+    private static String apiPathKey(SqlRecord record) {
+        String apiPath = record.getApiPath();
+        return apiPath == null || apiPath.isEmpty() ? null : apiPath.toLowerCase(Locale.ROOT);
+    }
+
+    // ==================== 去重 ====================
+
+    private void expireRecent(LocalDateTime cutoff) {
+        RecentEntry entry;
+        // 去重只针对仍在存储中的记录，窗口大小也不超过容量
+        while ((entry = recent.peekFirst()) != null
+                && (!entry.record.getTimestamp().isAfter(cutoff) || recent.size() >= capacity)) {
+            recent.pollFirst();
+            removeRecent(recentByFingerprint, entry.fingerprint, entry.record);
+            removeRecent(recentBySql, entry.sqlFingerprint, entry.record);
+        }
+    }
+
+    private static void removeRecent(Map<Long, List<SqlRecord>> index, long key, SqlRecord record) {
+        List<SqlRecord> bucket = index.get(key);
+        if (bucket != null) {
+            bucket.remove(record);
+            if (bucket.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private boolean isRecentDuplicate(SqlRecord record, long sqlFingerprint, long fingerprint) {
+        if (record.getParameters() == null) {
+            // 没有参数时只比较 SQL，任何参数的近期记录都算重复
+            return anySimilar(recentBySql.get(sqlFingerprint), record);
+        }
+        // 有参数时，参数相同或近期记录没有参数都算重复
+        return anySimilar(recentByFingerprint.get(fingerprint), record)
+                || anySimilar(recentByFingerprint.get(withParameters(sqlFingerprint, null)), record);
+    }
+
+    private static boolean anySimilar(List<SqlRecord> candidates, SqlRecord record) {
+        if (candidates == null) {
+            return false;
+        }
+        for (SqlRecord candidate : candidates) {
+            if (isSimilarRecord(candidate, record)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 判断两条记录是否相似（用于去重）
+     */
+    static boolean isSimilarRecord(SqlRecord r1, SqlRecord r2) {
+        // 比较操作类型和表名
+        if (!safeEquals(r1.getOperation(), r2.getOperation())) {
+            return false;
+        }
+
+        if (!safeEquals(r1.getTableName(), r2.getTableName())) {
+            return false;
+        }
+
+        // 比较SQL语句（连续空白视为一个空格）
+        if (r1.getSqlStatement() != null && r2.getSqlStatement() != null
+                && !normalizedEquals(r1.getSqlStatement(), r2.getSqlStatement())) {
+            return false;
+        }
+
+        // 比较参数（如果都有的话）
+        if (r1.getParameters() != null && r2.getParameters() != null) {
+            return r1.getParameters().equals(r2.getParameters());
+        }
+
+        // 如果参数为空，只比较SQL语句
+        return true;
+    }
+
+    private static boolean safeEquals(String s1, String s2) {
+        return s1 == null ? s2 == null : s1.equals(s2);
+    }
+
+    // ==================== 指纹 ====================
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    /**
+     * 操作类型 + 表名 + 规范化 SQL 的 64 位指纹（FNV-1a）
+     */
+    static long sqlFingerprint(SqlRecord record) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, record.getOperation());
+        hash = mix(hash, record.getTableName());
+        String sql = record.getSqlStatement();
+        if (sql != null) {
+            int start = 0;
+            int end = sql.length();
+            while (start < end && Character.isWhitespace(sql.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(sql.charAt(end - 1))) {
+                end--;
+            }
+            boolean pendingSpace = false;
+            for (int i = start; i < end; i++) {
+                char c = sql.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    pendingSpace = true;
+                    continue;
+                }
+                if (pendingSpace) {
+                    hash = (hash ^ ' ') * FNV_PRIME;
+                    pendingSpace = false;
+                }
+                hash = (hash ^ c) * FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    static long withParameters(long sqlFingerprint, String parameters) {
+        return mix(sqlFingerprint, parameters);
+    }
+
+    private static long mix(long hash, String value) {
+        if (value == null) {
+            // 与空字符串区分
+            return (hash ^ 0xff) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        // 字段分隔符
+        return (hash ^ 0x1f) * FNV_PRIME;
+    }
+
+    /**
+     * 两条 SQL 在合并连续空白并去除首尾空白后是否相同，不创建中间字符串
+     */
+    static boolean normalizedEquals(String a, String b) {
+        int i = skipWhitespace(a, 0);
+        int j = skipWhitespace(b, 0);
+        while (true) {
+            boolean endA = i >= a.length();
+            boolean endB = j >= b.length();
+            if (endA || endB) {
+                // 剩余部分只能是尾部空白
+                return skipWhitespace(a, i) == a.length() && skipWhitespace(b, j) == b.length();
+            }
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            boolean spaceA = Character.isWhitespace(ca);
+            boolean spaceB = Character.isWhitespace(cb);
+            if (spaceA || spaceB) {
+                if (!(spaceA && spaceB)) {
+                    return false;
+                }
+                i = skipWhitespace(a, i);
+                j = skipWhitespace(b, j);
+                continue;
+            }
+            if (ca != cb) {
+                return false;
+            }
+            i++;
+            j++;
+        }
+    }
+
+    private static int skipWhitespace(String s, int from) {
+        while (from < s.length() && Character.isWhitespace(s.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static final class RecentEntry {
+        final SqlRecord record;
+        final long sqlFingerprint;
+        final long fingerprint;
+
+        RecentEntry(SqlRecord record, long sqlFingerprint, long fingerprint) {
+            this.record = record;
+            this.sqlFingerprint = sqlFingerprint;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
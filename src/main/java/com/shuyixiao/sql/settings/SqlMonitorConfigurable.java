@@ -0,0 +1,181 @@
+package com.shuyixiao.sql.settings;
+
+import com.intellij.openapi.options.Configurable;
+import com.intellij.openapi.options.ConfigurationException;
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBTextField;
+import com.intellij.util.ui.FormBuilder;
+import com.intellij.util.ui.JBUI;
+import com.shuyixiao.sql.dialect.SqlLogDialect;
+import com.shuyixiao.sql.dialect.SqlLogDialects;
+import org.jetbrains.annotations.Nls;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * SQL 监控设置面板（Preferences/Settings）
+ */
+public class SqlMonitorConfigurable implements Configurable {
+
+    private final Project project;
+    private JPanel mainPanel;
+
+    // 日志格式
+    private JComboBox<String> dialectComboBox;
+    private JBTextField traceIdPatternField;
+
+    // 历史记录
+    private JSpinner hotCapacitySpinner;
+    private JSpinner warmCapacitySpinner;
+    private JSpinner retentionDaysSpinner;
+
+    // N+1 检测
+    private JCheckBox nPlusOneEnabledCheckBox;
+    private JSpinner nPlusOneThresholdSpinner;
+
+    // 慢查询
+    private JCheckBox slowQueryEnabledCheckBox;
+    private JSpinner slowQueryThresholdSpinner;
+
+    public SqlMonitorConfigurable(Project project) {
+        this.project = project;
+    }
+
+    @Nls(capitalization = Nls.Capitalization.Title)
+    @Override
+    public String getDisplayName() {
+        return "SQL 监控";
+    }
+
+    @Nullable
+    @Override
+    public JComponent createComponent() {
+        dialectComboBox = new JComboBox<>();
+        dialectComboBox.addItem(SqlLogDialects.AUTO);
+        for (SqlLogDialect dialect : SqlLogDialects.builtIn()) {
+            dialectComboBox.addItem(dialect.getName());
+        }
+        dialectComboBox.setToolTipText("自动检测时在运行开始的日志中识别方言，识别后只使用该方言解析");
+
+        traceIdPatternField = new JBTextField();
+        traceIdPatternField.getEmptyText().setText("例如 traceId=([0-9a-f]+)");
+        traceIdPatternField.setToolTipText("匹配日志中的 MDC 追踪 ID，group 1 为 ID；为空时按日志的线程名区分并发请求");
+
+        hotCapacitySpinner = new JSpinner(new SpinnerNumberModel(1000,
+                SqlMonitorSettings.MIN_HOT_CAPACITY, SqlMonitorSettings.MAX_HOT_CAPACITY, 100));
+        hotCapacitySpinner.setToolTipText("内存中保留完整内容的最新记录数");
+
+        warmCapacitySpinner = new JSpinner(new SpinnerNumberModel(100_000,
+                0, SqlMonitorSettings.MAX_WARM_CAPACITY, 10_000));
+        warmCapacitySpinner.setToolTipText("超出内存容量的记录压缩归档到 .idea/sql-history，0 表示不归档");
+
+        retentionDaysSpinner = new JSpinner(new SpinnerNumberModel(7, 1, 365, 1));
+        retentionDaysSpinner.setToolTipText("归档记录的保留天数");
+
+        nPlusOneEnabledCheckBox = new JCheckBox("检测 N+1 查询并通知");
+        nPlusOneThresholdSpinner = new JSpinner(new SpinnerNumberModel(10,
+                SqlMonitorSettings.MIN_N_PLUS_ONE_THRESHOLD, 10_000, 1));
+        nPlusOneThresholdSpinner.setToolTipText("同一请求内同一语句形状（忽略参数）执行超过该次数时告警");
+
+        slowQueryEnabledCheckBox = new JCheckBox("慢查询通知");
+        slowQueryThresholdSpinner = new JSpinner(new SpinnerNumberModel(1000, 1, 600_000, 100));
+        slowQueryThresholdSpinner.setToolTipText("执行时间取自日志时间戳或 \"took Xms\" 行");
+
+        JPanel formPanel = FormBuilder.createFormBuilder()
+                .addComponent(new JBLabel("<html><b>日志格式</b></html>"))
+                .addVerticalGap(5)
+                .addLabeledComponent("SQL 日志方言：", dialectComboBox)
+                .addComponent(new JBLabel("<html><font color='gray'>支持 MyBatis、Hibernate、p6spy、JdbcTemplate、jOOQ，下次运行时生效</font></html>"))
+                .addLabeledComponent("追踪 ID 正则：", traceIdPatternField)
+                .addVerticalGap(10)
+                .addComponent(new JBLabel("<html><b>历史记录</b></html>"))
+                .addVerticalGap(5)
+                .addLabeledComponent("内存记录数：", hotCapacitySpinner)
+                .addLabeledComponent("归档记录数：", warmCapacitySpinner)
+                .addLabeledComponent("归档保留天数：", retentionDaysSpinner)
+                .addComponent(new JBLabel("<html><font color='gray'>容量修改在重新打开项目后生效</font></html>"))
+                .addVerticalGap(10)
+                .addComponent(new JBLabel("<html><b>N+1 检测</b></html>"))
+                .addVerticalGap(5)
+                .addComponent(nPlusOneEnabledCheckBox)
+                .addLabeledComponent("单次请求重复次数阈值：", nPlusOneThresholdSpinner)
+                .addVerticalGap(10)
+                .addComponent(new JBLabel("<html><b>慢查询</b></html>"))
+                .addVerticalGap(5)
+                .addComponent(slowQueryEnabledCheckBox)
+                .addLabeledComponent("慢查询阈值（毫秒）：", slowQueryThresholdSpinner)
+                .addComponentFillVertically(new JPanel(), 0)
+                .getPanel();
+
+        mainPanel = new JPanel(new BorderLayout());
+        mainPanel.setBorder(JBUI.Borders.empty(10));
+        mainPanel.add(formPanel, BorderLayout.NORTH);
+
+        reset();
+        return mainPanel;
+    }
+
+    @Override
+    public boolean isModified() {
+        SqlMonitorSettings settings = SqlMonitorSettings.getInstance(project);
+
+        return !settings.getSqlLogDialect().equals(dialectComboBox.getSelectedItem()) ||
+               !traceIdPatternField.getText().trim().equals(settings.traceIdPattern.trim()) ||
+               (Integer) hotCapacitySpinner.getValue() != settings.getHotCapacity() ||
+               (Integer) warmCapacitySpinner.getValue() != settings.getWarmCapacity() ||
+               (Integer) retentionDaysSpinner.getValue() != settings.getRetentionDays() ||
+               nPlusOneEnabledCheckBox.isSelected() != settings.nPlusOneDetectionEnabled ||
+               (Integer) nPlusOneThresholdSpinner.getValue() != settings.getNPlusOneThreshold() ||
+               slowQueryEnabledCheckBox.isSelected() != settings.slowQueryNotificationEnabled ||
+               (Integer) slowQueryThresholdSpinner.getValue() != settings.getSlowQueryThresholdMs();
+    }
+
+    @Override
+    public void apply() throws ConfigurationException {
+        String traceIdPattern = traceIdPatternField.getText().trim();
+        if (!traceIdPattern.isEmpty()) {
+            try {
+                Pattern.compile(traceIdPattern);
+            } catch (PatternSyntaxException e) {
+                throw new ConfigurationException("追踪 ID 正则无效: " + e.getDescription());
+            }
+        }
+
+        SqlMonitorSettings settings = SqlMonitorSettings.getInstance(project);
+
+        settings.sqlLogDialect = (String) dialectComboBox.getSelectedItem();
+        settings.traceIdPattern = traceIdPattern;
+        settings.hotCapacity = (Integer) hotCapacitySpinner.getValue();
+        settings.warmCapacity = (Integer) warmCapacitySpinner.getValue();
+        settings.retentionDays = (Integer) retentionDaysSpinner.getValue();
+        settings.nPlusOneDetectionEnabled = nPlusOneEnabledCheckBox.isSelected();
+        settings.nPlusOneThreshold = (Integer) nPlusOneThresholdSpinner.getValue();
+        settings.slowQueryNotificationEnabled = slowQueryEnabledCheckBox.isSelected();
+        settings.slowQueryThresholdMs = (Integer) slowQueryThresholdSpinner.getValue();
+    }
+
+    @Override
+    public void reset() {
+        SqlMonitorSettings settings = SqlMonitorSettings.getInstance(project);
+
+        dialectComboBox.setSelectedItem(settings.getSqlLogDialect());
+        traceIdPatternField.setText(settings.traceIdPattern);
+        hotCapacitySpinner.setValue(settings.getHotCapacity());
+        warmCapacitySpinner.setValue(settings.getWarmCapacity());
+        retentionDaysSpinner.setValue(settings.getRetentionDays());
+        nPlusOneEnabledCheckBox.setSelected(settings.nPlusOneDetectionEnabled);
+        nPlusOneThresholdSpinner.setValue(settings.getNPlusOneThreshold());
+        slowQueryEnabledCheckBox.setSelected(settings.slowQueryNotificationEnabled);
+        slowQueryThresholdSpinner.setValue(settings.getSlowQueryThresholdMs());
+    }
+
+    @Override
+    public void disposeUIResources() {
+        mainPanel = null;
+    }
+}
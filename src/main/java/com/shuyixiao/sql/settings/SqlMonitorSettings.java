@@ -0,0 +1,102 @@
+package com.shuyixiao.sql.settings;
+
+import com.intellij.openapi.components.PersistentStateComponent;
+import com.intellij.openapi.components.State;
+import com.intellij.openapi.components.Storage;
+import com.intellij.openapi.project.Project;
+import com.intellij.util.xmlb.XmlSerializerUtil;
+import com.shuyixiao.sql.dialect.SqlLogDialects;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * SQL 监控配置持久化（项目级）
+ */
+@State(
+    name = "com.shuyixiao.sql.settings.SqlMonitorSettings",
+    storages = @Storage("SqlMonitorSettings.xml")
+)
+public class SqlMonitorSettings implements PersistentStateComponent<SqlMonitorSettings> {
+
+    public static final int MIN_HOT_CAPACITY = 100;
+    public static final int MAX_HOT_CAPACITY = 20_000;
+    public static final int MAX_WARM_CAPACITY = 1_000_000;
+    public static final int MIN_N_PLUS_ONE_THRESHOLD = 2;
+
+    // ==================== 日志格式 ====================
+    public String sqlLogDialect = SqlLogDialects.AUTO;   // SQL 日志方言，"自动检测"时按日志内容选定
+    public String traceIdPattern = "";    // MDC 追踪 ID 正则（group 1 为 ID），为空时按线程名关联请求
+
+    // ==================== 历史记录 ====================
+    public int hotCapacity = 1000;        // 内存中保留的完整记录数（热层）
+    public int warmCapacity = 100_000;    // 磁盘归档的记录数（温层，内存中只保留摘要），0 表示不归档
+    public int retentionDays = 7;         // 归档记录保留天数
+
+    // ==================== N+1 检测 ====================
+    public boolean nPlusOneDetectionEnabled = true;
+    public int nPlusOneThreshold = 10;    // 同一请求内同一语句形状执行超过该次数时告警
+
+    // ==================== 慢查询 ====================
+    public boolean slowQueryNotificationEnabled = true;
+    public int slowQueryThresholdMs = 1000;   // 执行时间达到该值（毫秒）时通知
+
+    /**
+     * 获取项目级别的设置实例
+     */
+    public static SqlMonitorSettings getInstance(@NotNull Project project) {
+        return project.getService(SqlMonitorSettings.class);
+    }
+
+    @Nullable
+    @Override
+    public SqlMonitorSettings getState() {
+        return this;
+    }
+
+    @Override
+    public void loadState(@NotNull SqlMonitorSettings state) {
+        XmlSerializerUtil.copyBean(state, this);
+    }
+
+    public String getSqlLogDialect() {
+        return SqlLogDialects.find(sqlLogDialect) != null ? sqlLogDialect : SqlLogDialects.AUTO;
+    }
+
+    /**
+     * 编译后的追踪 ID 正则，未配置或无法编译时返回 null
+     */
+    @Nullable
+    public Pattern getTraceIdPattern() {
+        if (traceIdPattern == null || traceIdPattern.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return Pattern.compile(traceIdPattern.trim());
+        } catch (PatternSyntaxException e) {
+            return null;
+        }
+    }
+
+    public int getHotCapacity() {
+        return Math.max(MIN_HOT_CAPACITY, Math.min(MAX_HOT_CAPACITY, hotCapacity));
+    }
+
+    public int getWarmCapacity() {
+        return Math.max(0, Math.min(MAX_WARM_CAPACITY, warmCapacity));
+    }
+
+    public int getRetentionDays() {
+        return Math.max(1, retentionDays);
+    }
+
+    public int getNPlusOneThreshold() {
+        return Math.max(MIN_N_PLUS_ONE_THRESHOLD, nPlusOneThreshold);
+    }
+
+    public int getSlowQueryThresholdMs() {
+        return Math.max(1, slowQueryThresholdMs);
+    }
+}
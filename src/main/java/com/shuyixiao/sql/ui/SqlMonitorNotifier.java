@@ -0,0 +1,126 @@
+package com.shuyixiao.sql.ui;
+
+import com.intellij.notification.Notification;
+import com.intellij.notification.NotificationAction;
+import com.intellij.notification.NotificationGroup;
+import com.intellij.notification.NotificationGroupManager;
+import com.intellij.notification.NotificationType;
+import com.intellij.openapi.actionSystem.AnActionEvent;
+import com.intellij.openapi.fileEditor.OpenFileDescriptor;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.FilenameIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.sql.service.NPlusOneDetector;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+
+/**
+ * SQL 监控通知（N+1 查询、慢查询）
+ * 提供跳转到调用处（CALLER_CLASS_PATTERN 捕获的 "UserService.java:42"）的操作
+ */
+public final class SqlMonitorNotifier {
+
+    private static final NotificationGroup GROUP = NotificationGroupManager.getInstance()
+            .getNotificationGroup("PandaCoder Notification Group");
+
+    private SqlMonitorNotifier() {
+    }
+
+    public static void notifyNPlusOne(@NotNull Project project, @NotNull NPlusOneDetector.Finding finding) {
+        StringBuilder message = new StringBuilder();
+        message.append("接口 ").append(finding.getApiPath() != null ? finding.getApiPath() : "(未知)")
+                .append(" 的单次请求中同一语句已执行 ").append(finding.getCount()).append(" 次");
+        if (finding.getTableName() != null) {
+            message.append("，表: ").append(finding.getTableName());
+        }
+        message.append("<br/><code>").append(escape(abbreviate(finding.getNormalizedSql(), 200))).append("</code>");
+        if (finding.getCallerClass() != null) {
+            message.append("<br/>调用处: ").append(finding.getCallerClass());
+        }
+
+        Notification notification = GROUP.createNotification(
+                "⚠️ 疑似 N+1 查询",
+                message.toString(),
+                NotificationType.WARNING);
+
+        addActions(project, notification, finding.getCallerClass());
+        notification.notify(project);
+    }
+
+    public static void notifySlowQuery(@NotNull Project project, @NotNull SqlRecord record, long thresholdMillis) {
+        StringBuilder message = new StringBuilder();
+        message.append("执行时间 ").append(record.getExecutionTime()).append("ms（阈值 ")
+                .append(thresholdMillis).append("ms）");
+        if (record.getTableName() != null) {
+            message.append("，表: ").append(record.getTableName());
+        }
+        if (record.getApiPath() != null) {
+            message.append("<br/>接口: ").append(record.getApiPath());
+        }
+        message.append("<br/><code>").append(escape(abbreviate(record.getSqlStatement(), 200))).append("</code>");
+        if (record.getCallerClass() != null) {
+            message.append("<br/>调用处: ").append(record.getCallerClass());
+        }
+
+        Notification notification = GROUP.createNotification(
+                "🐢 慢查询",
+                message.toString(),
+                NotificationType.WARNING);
+
+        addActions(project, notification, record.getCallerClass());
+        notification.notify(project);
+    }
+
+    private static void addActions(Project project, Notification notification, String callerClass) {
+        if (callerClass != null) {
+            notification.addAction(new NotificationAction("📍 跳转到调用处") {
+                @Override
+                public void actionPerformed(@NotNull AnActionEvent e, @NotNull Notification notification) {
+                    navigateToCaller(project, callerClass);
+                }
+            });
+        }
+        notification.addAction(new NotificationAction("📊 Top查询") {
+            @Override
+            public void actionPerformed(@NotNull AnActionEvent e, @NotNull Notification notification) {
+                new SqlTopQueriesDialog(project).show();
+            }
+        });
+    }
+
+    /**
+     * 打开 "UserService.java:42" 指向的文件和行
+     */
+    static boolean navigateToCaller(Project project, String callerClass) {
+        int colon = callerClass.lastIndexOf(':');
+        if (colon <= 0) {
+            return false;
+        }
+        String fileName = callerClass.substring(0, colon);
+        int line;
+        try {
+            line = Integer.parseInt(callerClass.substring(colon + 1));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        Collection<VirtualFile> files = FilenameIndex.getVirtualFilesByName(fileName,
+                GlobalSearchScope.projectScope(project));
+        if (files.isEmpty()) {
+            return false;
+        }
+        new OpenFileDescriptor(project, files.iterator().next(), Math.max(0, line - 1), 0).navigate(true);
+        return true;
+    }
+
+    private static String abbreviate(String text, int maxLength) {
+        return text.length() <= maxLength ? text : text.substring(0, maxLength) + "...";
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -8,22 +8,30 @@ import com.intellij.ui.JBColor;
 import com.intellij.ui.components.*;
 import com.intellij.ui.table.JBTable;
 import com.intellij.util.ui.JBUI;
+import com.shuyixiao.console.ConsoleIngestService;
 import com.shuyixiao.sql.model.SqlRecord;
 import com.shuyixiao.sql.service.SqlMonitoringService;
 import com.shuyixiao.sql.service.SqlRecordService;
 import com.shuyixiao.ui.EnhancedNotificationUtil;
+import com.shuyixiao.ui.RecordTableModel;
 import org.jetbrains.annotations.NotNull;
 
 import javax.swing.*;
-import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
 import java.awt.datatransfer.StringSelection;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * SQL Monitor 工具窗口
@@ -45,6 +53,17 @@ public class SqlToolWindow extends JPanel {
     private JSplitPane mainSplitter;
     private JTextArea detailArea;
     
+    // 整体刷新的序号：只应用最后一次刷新的结果
+    private int reloadGeneration;
+    
+    // 温层（归档）记录分页显示：每页的条数、当前显示的上限、是否还有更早的记录
+    private static final int ARCHIVE_PAGE_SIZE = 2000;
+    private int archiveLimit = ARCHIVE_PAGE_SIZE;
+    private boolean archiveHasMore;
+    private JButton moreArchiveButton;
+    // 摘要行对应的完整记录（按需读取）
+    private final ArchivedRecordCache archivedRecords = new ArchivedRecordCache();
+    
     public SqlToolWindow(@NotNull Project project) {
         this.project = project;
         this.recordService = project.getService(SqlRecordService.class);
@@ -54,22 +73,32 @@ public class SqlToolWindow extends JPanel {
         setupEventHandlers();
         refreshData();
         
-        // 注册实时监听器（当有新记录时立即刷新UI）
-        Consumer<SqlRecord> recordListener = record -> {
-            ApplicationManager.getApplication().invokeLater(() -> {
-                refreshData();
-            });
-        };
+        // 注册实时监听器：新增和淘汰的记录以增量方式进入表格，每帧最多刷新一次
+        Consumer<SqlRecord> recordListener = tableModel::recordAdded;
+        Consumer<SqlRecord> evictionListener = tableModel::recordEvicted;
         recordService.addRecordListener(recordListener);
+        recordService.addEvictionListener(evictionListener);
+        tableModel.setFlushListener(this::updateStatusLabel);
+        // 被挤出热层的记录转入归档，表格中换成摘要行；不归档时直接删除
+        tableModel.setEvictedReplacement(recordService.isArchiveEnabled() ? SqlRecord::toSummaryOnly : null);
+        tableModel.setRowLimit(recordService.getRetainedCapacity());
+        
+        // 进入或退出降载采样时更新状态栏
+        ConsoleIngestService ingestService = ConsoleIngestService.getInstance(project);
+        Runnable governorListener = () -> ApplicationManager.getApplication().invokeLater(this::updateStatusLabel);
+        ingestService.addGovernorListener(governorListener);
         
-        // 每10秒自动刷新一次（作为备用机制）
-        Timer refreshTimer = new Timer(10000, e -> refreshData());
-        refreshTimer.start();
+        // 定期删除超出时间范围的行（只检查最旧的一端，不重新加载记录）
+        Timer staleTimer = new Timer(30000, e -> tableModel.removeStale());
+        staleTimer.start();
         
         // 确保 Timer 和监听器在窗口关闭时被清理
         Disposer.register(project, () -> {
-            refreshTimer.stop();
+            staleTimer.stop();
+            tableModel.dispose();
             recordService.removeRecordListener(recordListener);
+            recordService.removeEvictionListener(evictionListener);
+            ingestService.removeGovernorListener(governorListener);
         });
     }
     
@@ -121,7 +150,8 @@ public class SqlToolWindow extends JPanel {
                 "• SQL 语句内容<br>" +
                 "• 表名<br>" +
                 "• API 路径<br>" +
-                "<i>提示：支持模糊搜索，不区分大小写</i></html>");
+                "• 调用类<br>" +
+                "<i>提示：按词前缀匹配，多个词需同时命中，不区分大小写</i></html>");
         toolbar.add(new JBLabel("搜索: "));
         toolbar.add(searchField);
         
@@ -155,6 +185,11 @@ public class SqlToolWindow extends JPanel {
         refreshButton.addActionListener(e -> refreshData());
         toolbar.add(refreshButton);
         
+        // Top 查询按钮（按语句形状聚合）
+        JButton topQueriesButton = new JButton("Top查询");
+        topQueriesButton.addActionListener(e -> new SqlTopQueriesDialog(project).show());
+        toolbar.add(topQueriesButton);
+        
         // 清空按钮
         JButton clearButton = new JButton("清空所有");
         clearButton.addActionListener(e -> clearAllRecords());
@@ -196,10 +231,16 @@ public class SqlToolWindow extends JPanel {
         sqlTable.getColumnModel().getColumn(2).setPreferredWidth(200); // API路径
         sqlTable.getColumnModel().getColumn(3).setPreferredWidth(300); // SQL摘要
         sqlTable.getColumnModel().getColumn(4).setPreferredWidth(80);  // 结果数
-        sqlTable.getColumnModel().getColumn(5).setPreferredWidth(120); // 时间戳
+        sqlTable.getColumnModel().getColumn(5).setPreferredWidth(80);  // 耗时
+        sqlTable.getColumnModel().getColumn(6).setPreferredWidth(120); // 时间戳
+        
+        // 点击表头排序（结果数、耗时按数值排序）
+        sqlTable.setAutoCreateRowSorter(true);
         
         // 设置自定义渲染器
-        sqlTable.setDefaultRenderer(Object.class, new SqlTableCellRenderer());
+        SqlTableCellRenderer renderer = new SqlTableCellRenderer();
+        sqlTable.setDefaultRenderer(Object.class, renderer);
+        sqlTable.setDefaultRenderer(Number.class, renderer);
         
         JBScrollPane scrollPane = new JBScrollPane(sqlTable);
         panel.add(scrollPane, BorderLayout.CENTER);
@@ -253,6 +294,11 @@ public class SqlToolWindow extends JPanel {
         statusLabel = new JBLabel();
         statusBar.add(statusLabel);
         
+        moreArchiveButton = new JButton("加载更多归档");
+        moreArchiveButton.setVisible(false);
+        moreArchiveButton.addActionListener(e -> loadMoreArchived());
+        statusBar.add(moreArchiveButton);
+        
         updateStatusLabel();
         
         return statusBar;
@@ -347,7 +393,7 @@ public class SqlToolWindow extends JPanel {
             sqlTable.setRowSelectionInterval(row, row);
             
             JPopupMenu popupMenu = new JPopupMenu();
-            SqlRecord record = tableModel.getRecordAt(row);
+            SqlRecord record = resolveForAction(tableModel.getRecordAt(sqlTable.convertRowIndexToModel(row)));
             
             if (record != null) {
                 // 复制操作类型
@@ -435,23 +481,68 @@ public class SqlToolWindow extends JPanel {
     }
     
     /**
-     * 刷新数据
+     * 刷新数据（归档记录从第一页开始显示）
      */
     private void refreshData() {
+        archiveLimit = ARCHIVE_PAGE_SIZE;
+        reloadData();
+    }
+    
+    /**
+     * 多显示一页更早的归档记录
+     */
+    private void loadMoreArchived() {
+        archiveLimit += ARCHIVE_PAGE_SIZE;
+        reloadData();
+    }
+    
+    /**
+     * 按当前筛选条件重新加载表格
+     */
+    private void reloadData() {
+        // 在 EDT 上读取筛选条件，之后新增的记录按同样的条件筛选
+        String timeRange = (String) timeRangeFilter.getSelectedItem();
+        List<String> selectedOperations = operationFilter.getSelectedItems();
+        String searchText = searchField.getText().trim();
+        Predicate<SqlRecord> filter = buildFilter(selectedOperations, searchText);
+        boolean allTime = "全部".equals(timeRange);
+        int hours = allTime ? 0 : getHoursFromTimeRange(timeRange);
+        int limit = archiveLimit;
+        int generation = ++reloadGeneration;
+        tableModel.beginReload();
+        
         ApplicationManager.getApplication().executeOnPooledThread(() -> {
             try {
-                List<SqlRecord> records = getFilteredRecords();
+                LocalDateTime since = allTime ? null : LocalDateTime.now().minusHours(hours);
+                List<SqlRecord> records = getFilteredRecords(since, selectedOperations, searchText, limit);
+                boolean hasMore = records.stream().filter(SqlRecord::isSummaryOnly).count() >= limit;
                 
                 ApplicationManager.getApplication().invokeLater(() -> {
-                    // 保存当前选中的行
+                    if (generation != reloadGeneration) {
+                        return; // 已有更新的刷新
+                    }
+                    
+                    // 保存当前选中的记录（表格可能已排序，按记录 ID 恢复）
                     int selectedRow = sqlTable.getSelectedRow();
+                    SqlRecord selected = selectedRow >= 0
+                            ? tableModel.getRecordAt(sqlTable.convertRowIndexToModel(selectedRow))
+                            : null;
                     
-                    tableModel.updateData(records);
+                    tableModel.setStaleFilter(allTime ? null
+                            : record -> record.getTimestamp().isBefore(LocalDateTime.now().minusHours(hours)));
+                    tableModel.setRecords(records, filter);
+                    archiveHasMore = hasMore;
                     updateStatusLabel();
                     
                     // 恢复选中状态
-                    if (selectedRow >= 0 && selectedRow < sqlTable.getRowCount()) {
-                        sqlTable.setRowSelectionInterval(selectedRow, selectedRow);
+                    int modelRow = selected != null
+                            ? tableModel.indexOf(record -> record.getId().equals(selected.getId()))
+                            : -1;
+                    if (modelRow >= 0) {
+                        int viewRow = sqlTable.convertRowIndexToView(modelRow);
+                        if (viewRow >= 0) {
+                            sqlTable.setRowSelectionInterval(viewRow, viewRow);
+                        }
                     }
                 });
                 
@@ -464,46 +555,32 @@ public class SqlToolWindow extends JPanel {
     }
     
     /**
-     * 获取过滤后的记录
+     * 获取过滤后的记录：热层的完整记录，加上最多 archiveLimit 条温层摘要行
+     *
+     * @param since null 表示不限时间
      */
-    private List<SqlRecord> getFilteredRecords() {
-        // 1. 先按时间范围获取记录
-        String timeRange = (String) timeRangeFilter.getSelectedItem();
-        List<SqlRecord> records;
-
-        if ("全部".equals(timeRange)) {
-            records = recordService.getAllRecords();
-        } else {
-            int hours = getHoursFromTimeRange(timeRange);
-            records = recordService.getRecentRecords(hours);
-        }
-
-        // 2. 操作类型过滤（多选）
-        List<String> selectedOperations = operationFilter.getSelectedItems();
-        if (!selectedOperations.isEmpty() && selectedOperations.size() < 4) {
-            // 只有当选择了部分操作类型时才过滤（不是全选）
-            final List<SqlRecord> timeFilteredRecords = records;
-            records = timeFilteredRecords.stream()
-                    .filter(record -> selectedOperations.stream()
-                            .anyMatch(op -> op.equalsIgnoreCase(record.getOperation())))
-                    .collect(java.util.stream.Collectors.toList());
-        }
-
-        // 3. 搜索过滤
-        String searchText = searchField.getText().trim();
-        if (!searchText.isEmpty()) {
-            final String searchLower = searchText.toLowerCase();
-            final List<SqlRecord> operationFilteredRecords = records;
-            records = operationFilteredRecords.stream()
-                    .filter(record ->
-                        record.getSqlStatement().toLowerCase().contains(searchLower) ||
-                        record.getTableName().toLowerCase().contains(searchLower) ||
-                        (record.getApiPath() != null && record.getApiPath().toLowerCase().contains(searchLower))
-                    )
-                    .collect(java.util.stream.Collectors.toList());
-        }
-
-        return records;
+    private List<SqlRecord> getFilteredRecords(LocalDateTime since, List<String> selectedOperations,
+                                               String searchText, int archiveLimit) {
+        // 操作类型（多选）过滤，条件与新增记录相同；有搜索词时走全文索引
+        Predicate<SqlRecord> operationFilter = buildFilter(selectedOperations, "");
+        return searchText.isEmpty()
+                ? recordService.getRecords(since, operationFilter, archiveLimit)
+                : recordService.searchRecords(searchText, since, operationFilter, archiveLimit);
+    }
+    
+    private static boolean isOperationFilter(List<String> selectedOperations) {
+        return !selectedOperations.isEmpty() && selectedOperations.size() < 4;
+    }
+    
+    /**
+     * 操作类型 + 搜索词的筛选条件（也用于实时新增的记录）
+     */
+    private static Predicate<SqlRecord> buildFilter(List<String> selectedOperations, String searchText) {
+        boolean filterOperations = isOperationFilter(selectedOperations);
+        List<String> operations = new ArrayList<>(selectedOperations);
+        return record -> (!filterOperations
+                        || operations.stream().anyMatch(op -> op.equalsIgnoreCase(record.getOperation())))
+                && (searchText.isEmpty() || SqlRecordService.matchesKeyword(record, searchText));
     }
     
     /**
@@ -529,7 +606,18 @@ public class SqlToolWindow extends JPanel {
             return;
         }
         
-        SqlRecord record = tableModel.getRecordAt(selectedRow);
+        SqlRecord row = tableModel.getRecordAt(sqlTable.convertRowIndexToModel(selectedRow));
+        SqlRecord record = archivedRecords.resolve(row);
+        if (record == null && row != null) {
+            // 归档记录的摘要行：完整记录读取完成后再次更新
+            detailArea.setText("=== SQL 查询详情 ===\n\n" +
+                    "时间: " + row.getFormattedTimestamp() + "\n" +
+                    "操作: " + row.getOperation() + "\n" +
+                    "表名: " + (row.getTableName() != null ? row.getTableName() : "N/A") + "\n\n" +
+                    (archivedRecords.isMissing(row) ? "该记录已从归档中删除" : "正在从归档读取完整记录..."));
+            detailArea.setCaretPosition(0);
+            return;
+        }
         if (record != null) {
             StringBuilder detail = new StringBuilder();
             detail.append("=== SQL 查询详情 ===\n\n");
@@ -574,7 +662,7 @@ public class SqlToolWindow extends JPanel {
         SqlRecordService.Statistics stats = recordService.getStatistics();
         
         String status = String.format(
-                "监听状态: %s | 活动监听器: %d | 总查询: %d | SELECT: %d | INSERT: %d | UPDATE: %d | DELETE: %d | 表数: %d",
+                "监听状态: %s | 活动监听器: %d | 总查询: %d | SELECT: %d | INSERT: %d | UPDATE: %d | DELETE: %d | 表数: %d | 归档: %d",
                 monitoring ? "启用" : "禁用",
                 activeListeners,
                 stats.getTotalCount(),
@@ -582,11 +670,21 @@ public class SqlToolWindow extends JPanel {
                 stats.getInsertCount(),
                 stats.getUpdateCount(),
                 stats.getDeleteCount(),
-                stats.getDistinctTables()
+                stats.getDistinctTables(),
+                recordService.getArchivedCount()
         );
         
+        // 控制台输出过多时只保存部分记录，提示当前采样率
+        ConsoleIngestService ingestService = ConsoleIngestService.getInstance(project);
+        boolean degraded = ingestService.isDegraded();
+        if (degraded) {
+            status += String.format(" | ⚠️ 日志过多，降载采样 1/%d（已跳过 %d 条）",
+                    ingestService.getSampleRate(), ingestService.getSkippedCount());
+        }
+        
         statusLabel.setText(status);
-        statusLabel.setForeground(monitoring ? JBColor.BLACK : JBColor.RED);
+        moreArchiveButton.setVisible(archiveHasMore);
+        statusLabel.setForeground(!monitoring ? JBColor.RED : degraded ? JBColor.ORANGE : JBColor.BLACK);
     }
     
     /**
@@ -595,6 +693,7 @@ public class SqlToolWindow extends JPanel {
     private void clearAllRecords() {
         // 直接清空，不需要确认弹窗
         recordService.clearAllRecords();
+        archivedRecords.clear();
         refreshData();
     }
     
@@ -608,7 +707,7 @@ public class SqlToolWindow extends JPanel {
             return;
         }
 
-        SqlRecord record = tableModel.getRecordAt(selectedRow);
+        SqlRecord record = resolveForAction(tableModel.getRecordAt(sqlTable.convertRowIndexToModel(selectedRow)));
         if (record != null) {
             String exported = buildExportText(record);
             copyToClipboard(exported);
@@ -650,7 +749,7 @@ public class SqlToolWindow extends JPanel {
             return;
         }
 
-        SqlRecord record = tableModel.getRecordAt(selectedRow);
+        SqlRecord record = resolveForAction(tableModel.getRecordAt(sqlTable.convertRowIndexToModel(selectedRow)));
         if (record != null) {
             // 复制可执行的SQL（参数已替换）
             String executableSql = record.getExecutableSql();
@@ -689,7 +788,7 @@ public class SqlToolWindow extends JPanel {
             return;
         }
         
-        SqlRecord record = tableModel.getRecordAt(selectedRow);
+        SqlRecord record = resolveForAction(tableModel.getRecordAt(sqlTable.convertRowIndexToModel(selectedRow)));
         if (record != null) {
             String details = buildExportText(record);
             
@@ -717,42 +816,111 @@ public class SqlToolWindow extends JPanel {
     }
     
     /**
-     * SQL 表格模型
+     * 操作所需的完整记录；归档记录尚未读取完成时提示并返回 null
      */
-    private static class SqlTableModel extends AbstractTableModel {
-        private final String[] columnNames = {"操作", "表名", "API路径", "SQL摘要", "结果数", "时间戳"};
-        private List<SqlRecord> records = List.of();
+    private SqlRecord resolveForAction(SqlRecord row) {
+        SqlRecord record = archivedRecords.resolve(row);
+        if (record == null && row != null) {
+            Messages.showInfoMessage(project,
+                    archivedRecords.isMissing(row) ? "该记录已从归档中删除" : "正在从归档读取该记录，请稍后重试", "提示");
+        }
+        return record;
+    }
+    
+    /**
+     * 归档记录的完整内容缓存（EDT）
+     * 表格中的摘要行在绘制 SQL 列或被选中时才从归档读取，同一批请求合并为一次后台读取，最多缓存 CACHE_SIZE 条
+     */
+    private class ArchivedRecordCache {
+        
+        private static final int CACHE_SIZE = 500;
         
-        public void updateData(List<SqlRecord> newRecords) {
-            this.records = newRecords;
-            fireTableDataChanged();
+        // id -> 完整记录（按访问顺序淘汰）；值为 null 表示记录已从归档中删除
+        private final Map<String, SqlRecord> loaded = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SqlRecord> eldest) {
+                return size() > CACHE_SIZE;
+            }
+        };
+        private final Set<String> requested = new HashSet<>();
+        private boolean loading;
+        
+        /**
+         * 完整记录：非摘要行直接返回；摘要行尚未读取时返回 null 并在后台读取
+         */
+        SqlRecord resolve(SqlRecord row) {
+            if (row == null || !row.isSummaryOnly()) {
+                return row;
+            }
+            SqlRecord record = loaded.get(row.getId());
+            if (record == null && !loaded.containsKey(row.getId()) && requested.add(row.getId()) && !loading) {
+                loading = true;
+                ApplicationManager.getApplication().invokeLater(this::loadRequested);
+            }
+            return record;
         }
         
-        public SqlRecord getRecordAt(int row) {
-            return row >= 0 && row < records.size() ? records.get(row) : null;
+        boolean isMissing(SqlRecord row) {
+            return row.isSummaryOnly() && loaded.containsKey(row.getId()) && loaded.get(row.getId()) == null;
         }
         
-        @Override
-        public int getRowCount() {
-            return records.size();
+        void clear() {
+            loaded.clear();
         }
         
-        @Override
-        public int getColumnCount() {
-            return columnNames.length;
+        private void loadRequested() {
+            List<String> ids = new ArrayList<>(requested);
+            ApplicationManager.getApplication().executeOnPooledThread(() -> {
+                Map<String, SqlRecord> records = recordService.loadArchivedRecords(ids);
+                ApplicationManager.getApplication().invokeLater(() -> onLoaded(ids, records));
+            });
+        }
+        
+        private void onLoaded(Collection<String> ids, Map<String, SqlRecord> records) {
+            for (String id : ids) {
+                loaded.put(id, records.get(id));
+                requested.remove(id);
+            }
+            if (requested.isEmpty()) {
+                loading = false;
+            } else {
+                loadRequested();
+            }
+            
+            sqlTable.repaint();
+            int selectedRow = sqlTable.getSelectedRow();
+            SqlRecord selected = selectedRow >= 0
+                    ? tableModel.getRecordAt(sqlTable.convertRowIndexToModel(selectedRow))
+                    : null;
+            if (selected != null && selected.isSummaryOnly() && ids.contains(selected.getId())) {
+                updateDetailPanel();
+            }
+        }
+    }
+    
+    /**
+     * SQL 表格模型
+     */
+    private class SqlTableModel extends RecordTableModel<SqlRecord> {
+        
+        SqlTableModel() {
+            super(new String[]{"操作", "表名", "API路径", "SQL摘要", "结果数", "耗时", "时间戳"});
         }
         
         @Override
-        public String getColumnName(int column) {
-            return columnNames[column];
+        public Class<?> getColumnClass(int columnIndex) {
+            switch (columnIndex) {
+                case 4: // 结果数
+                    return Integer.class;
+                case 5: // 耗时
+                    return Long.class;
+                default:
+                    return String.class;
+            }
         }
         
         @Override
-        public Object getValueAt(int rowIndex, int columnIndex) {
-            if (rowIndex >= records.size()) return null;
-            
-            SqlRecord record = records.get(rowIndex);
-            
+        protected Object getColumnValue(SqlRecord record, int columnIndex) {
             switch (columnIndex) {
                 case 0: // 操作
                     return record.getOperation();
@@ -761,14 +929,20 @@ public class SqlToolWindow extends JPanel {
                 case 2: // API路径
                     return record.getApiPath() != null ? record.getApiPath() : "N/A";
                 case 3: // SQL摘要（可执行）
-                    String executableSql = record.getExecutableSql();
+                    SqlRecord full = archivedRecords.resolve(record);
+                    if (full == null) {
+                        return archivedRecords.isMissing(record) ? "（已从归档中删除）" : "（归档记录读取中...）";
+                    }
+                    String executableSql = full.getExecutableSql();
                     if (executableSql.length() > 100) {
                         return executableSql.substring(0, 100) + "...";
                     }
                     return executableSql;
-                case 4: // 结果数
-                    return record.getResultCount() != null ? record.getResultCount().toString() : "N/A";
-                case 5: // 时间戳
+                case 4: // 结果数（null 由渲染器显示为 N/A）
+                    return record.getResultCount();
+                case 5: // 耗时（毫秒）
+                    return record.getExecutionTime();
+                case 6: // 时间戳
                     return record.getFormattedTimestamp();
                 default:
                     return null;
@@ -783,7 +957,14 @@ public class SqlToolWindow extends JPanel {
         @Override
         public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected,
                                                        boolean hasFocus, int row, int column) {
-            Component component = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
+            Object display = value;
+            int modelColumn = table.convertColumnIndexToModel(column);
+            if (modelColumn == 4 && value == null) {
+                display = "N/A";
+            } else if (modelColumn == 5) {
+                display = value != null ? value + " ms" : "-";
+            }
+            Component component = super.getTableCellRendererComponent(table, display, isSelected, hasFocus, row, column);
             
             // 操作列着色
             if (column == 0 && value != null) {
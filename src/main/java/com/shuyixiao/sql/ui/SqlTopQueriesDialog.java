@@ -0,0 +1,219 @@
+package com.shuyixiao.sql.ui;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.ui.DialogWrapper;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import com.shuyixiao.sql.model.LatencySummary;
+import com.shuyixiao.sql.model.SqlQueryStats;
+import com.shuyixiao.sql.service.SqlRecordService;
+import org.jetbrains.annotations.Nullable;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top 查询对话框
+ * 按语句形状（参数无关的指纹）展示执行次数最多的 SQL，可按接口筛选
+ */
+public class SqlTopQueriesDialog extends DialogWrapper {
+
+    private static final String ALL_PATHS = "全部接口";
+    private static final int TOP_LIMIT = 200;
+
+    private final SqlRecordService recordService;
+
+    private JComboBox<String> apiPathFilter;
+    private JBTable statsTable;
+    private StatsTableModel tableModel;
+    private JTextArea detailArea;
+
+    public SqlTopQueriesDialog(Project project) {
+        super(project, false);
+        this.recordService = project.getService(SqlRecordService.class);
+        setTitle("Top 查询");
+        init();
+    }
+
+    @Nullable
+    @Override
+    protected JComponent createCenterPanel() {
+        JPanel mainPanel = new JPanel(new BorderLayout(5, 5));
+        mainPanel.setPreferredSize(new Dimension(900, 600));
+
+        // 顶部：接口筛选
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        apiPathFilter = new JComboBox<>();
+        apiPathFilter.addItem(ALL_PATHS);
+        for (String path : recordService.getAggregatedApiPaths()) {
+            apiPathFilter.addItem(path);
+        }
+        apiPathFilter.addActionListener(e -> refreshData());
+        filterPanel.add(new JBLabel("接口: "));
+        filterPanel.add(apiPathFilter);
+
+        JButton refreshButton = new JButton("刷新");
+        refreshButton.addActionListener(e -> refreshData());
+        filterPanel.add(refreshButton);
+        mainPanel.add(filterPanel, BorderLayout.NORTH);
+
+        // 中间：统计表格
+        tableModel = new StatsTableModel();
+        statsTable = new JBTable(tableModel);
+        statsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        statsTable.setRowHeight(25);
+        statsTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                updateDetail();
+            }
+        });
+        statsTable.getColumnModel().getColumn(0).setPreferredWidth(70);  // 次数
+        statsTable.getColumnModel().getColumn(1).setPreferredWidth(70);  // 操作
+        statsTable.getColumnModel().getColumn(2).setPreferredWidth(120); // 表名
+        statsTable.getColumnModel().getColumn(3).setPreferredWidth(400); // 语句形状
+        statsTable.getColumnModel().getColumn(4).setPreferredWidth(80);  // 平均耗时
+        statsTable.getColumnModel().getColumn(5).setPreferredWidth(80);  // p95
+        statsTable.getColumnModel().getColumn(6).setPreferredWidth(140); // 最近执行
+
+        // 底部：详情
+        detailArea = new JTextArea();
+        detailArea.setEditable(false);
+        detailArea.setLineWrap(true);
+        detailArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JBScrollPane(statsTable), new JBScrollPane(detailArea));
+        splitPane.setDividerLocation(330);
+        splitPane.setBorder(JBUI.Borders.empty());
+        mainPanel.add(splitPane, BorderLayout.CENTER);
+
+        refreshData();
+        return mainPanel;
+    }
+
+    private String getSelectedApiPath() {
+        Object selected = apiPathFilter.getSelectedItem();
+        return selected == null || ALL_PATHS.equals(selected) ? null : selected.toString();
+    }
+
+    private void refreshData() {
+        String apiPath = getSelectedApiPath();
+        tableModel.setStats(recordService.getTopQueries(apiPath, TOP_LIMIT), apiPath);
+        detailArea.setText("");
+    }
+
+    private void updateDetail() {
+        int row = statsTable.getSelectedRow();
+        if (row < 0) {
+            detailArea.setText("");
+            return;
+        }
+        SqlQueryStats stats = tableModel.getStatsAt(row);
+
+        StringBuilder detail = new StringBuilder();
+        detail.append("指纹: ").append(stats.getFingerprintHex()).append("\n");
+        detail.append("执行次数: ").append(stats.getCount()).append("\n");
+        detail.append("首次执行: ").append(stats.getFirstSeen()).append("\n");
+        detail.append("最近执行: ").append(stats.getFormattedLastSeen()).append("\n");
+        if (stats.getAverageExecutionTime() != null) {
+            detail.append("耗时: 平均 ").append(stats.getAverageExecutionTime())
+                    .append("ms, 最大 ").append(stats.getMaxExecutionTime()).append("ms\n");
+            detail.append("耗时分位数: ").append(stats.getLatency()).append("\n");
+        }
+        if (stats.getTableName() != null) {
+            LatencySummary tableLatency = recordService.getTableLatency(stats.getTableName());
+            if (!tableLatency.isEmpty()) {
+                detail.append("表 ").append(stats.getTableName()).append(" 耗时分位数: ")
+                        .append(tableLatency).append("\n");
+            }
+        }
+        String histogram = stats.getResultHistogramSummary();
+        if (!histogram.isEmpty()) {
+            detail.append("结果数量分布: ").append(histogram).append("\n");
+        }
+        appendCounts(detail, "触发接口", stats.getApiPathCounts());
+        appendCounts(detail, "调用方", stats.getCallerCounts());
+
+        detail.append("\n-- 语句形状\n").append(stats.getNormalizedSql()).append("\n");
+        detail.append("\n-- 最近一次 SQL\n").append(stats.getSampleSql()).append("\n");
+        if (stats.getSampleParameters() != null && !stats.getSampleParameters().isEmpty()) {
+            detail.append("-- 参数: ").append(stats.getSampleParameters()).append("\n");
+        }
+
+        detailArea.setText(detail.toString());
+        detailArea.setCaretPosition(0);
+    }
+
+    private static void appendCounts(StringBuilder detail, String title, Map<String, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        detail.append(title).append(":\n");
+        counts.forEach((key, count) -> detail.append("  ").append(key).append(" × ").append(count).append("\n"));
+    }
+
+    /**
+     * 统计表格模型
+     */
+    private static class StatsTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"次数", "操作", "表名", "语句形状", "平均耗时", "p95", "最近执行"};
+        private List<SqlQueryStats> stats = new ArrayList<>();
+        private String apiPath;
+
+        public void setStats(List<SqlQueryStats> stats, String apiPath) {
+            this.stats = stats;
+            this.apiPath = apiPath;
+            fireTableDataChanged();
+        }
+
+        public SqlQueryStats getStatsAt(int row) {
+            return stats.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return stats.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            SqlQueryStats row = stats.get(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    // 按接口筛选时显示该接口触发的次数
+                    return row.getCount(apiPath);
+                case 1:
+                    return row.getOperation();
+                case 2:
+                    return row.getTableName() != null ? row.getTableName() : "-";
+                case 3:
+                    return row.getNormalizedSql();
+                case 4:
+                    Long average = row.getAverageExecutionTime();
+                    return average != null ? average + "ms" : "-";
+                case 5:
+                    return row.getLatency().isEmpty() ? "-" : row.getLatency().getP95() + "ms";
+                case 6:
+                    return row.getFormattedLastSeen();
+                default:
+                    return "";
+            }
+        }
+    }
+}
@@ -0,0 +1,270 @@
+package com.shuyixiao.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.intellij.openapi.diagnostic.Logger;
+import com.shuyixiao.diagnostics.PluginMetrics;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 追加写入的记录日志（JSON Lines）
+ *
+ * <ul>
+ *     <li>每条新记录序列化为一行紧凑 JSON 追加到文件末尾，磁盘写入量只与新记录数有关</li>
+ *     <li>所有写操作都在同一个后台写线程中顺序执行，积压的记录合并为一次写入，不会交错损坏文件</li>
+ *     <li>文件行数超过 2 倍保留上限时自动压缩：把当前内存快照写入临时文件后原子替换</li>
+ *     <li>启动回放时跳过无法解析的行（例如进程被杀时写了一半的最后一行），按 id 去重并只保留最新的记录</li>
+ * </ul>
+ *
+ * @param <T> 记录类型
+ */
+public final class RecordJournal<T> {
+
+    private static final Logger LOG = Logger.getInstance(RecordJournal.class);
+    private static final long CLOSE_TIMEOUT_SECONDS = 5;
+
+    private final String name;
+    private final File file;
+    private final Gson gson;
+    private final Class<T> type;
+    private final Function<T, String> idOf;
+    private final int maxRecords;
+    private final Supplier<List<T>> snapshot;
+
+    // 单个写线程，空闲 30 秒后退出
+    private final ThreadPoolExecutor writer;
+    private final ConcurrentLinkedQueue<T> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    // 文件中的行数（只在写线程中修改）
+    private int lineCount;
+
+    /**
+     * @param name       日志名称（用于线程名和日志输出）
+     * @param file       日志文件
+     * @param gson       不开启 PrettyPrinting 的 Gson，保证一条记录一行
+     * @param type       记录类型
+     * @param idOf       记录 id，回放时按 id 去重
+     * @param maxRecords 保留的记录数上限
+     * @param snapshot   压缩时写入的内存快照（按时间先后排列）
+     */
+    public RecordJournal(String name, File file, Gson gson, Class<T> type, Function<T, String> idOf,
+                         int maxRecords, Supplier<List<T>> snapshot) {
+        this.name = name;
+        this.file = file;
+        this.gson = gson;
+        this.type = type;
+        this.idOf = idOf;
+        this.maxRecords = maxRecords;
+        this.snapshot = snapshot;
+        this.writer = new ThreadPoolExecutor(1, 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, name + "-Journal-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.allowCoreThreadTimeOut(true);
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // ==================== 回放 ====================
+
+    /**
+     * 读取日志中的记录（按时间先后排列，最多 maxRecords 条）
+     * 应在第一次写入之前调用
+     */
+    public List<T> replay() {
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, T> records = new LinkedHashMap<>();
+        int lines = 0;
+        int skipped = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                lines++;
+                T record = parseLine(line);
+                if (record == null) {
+                    skipped++;
+                    continue;
+                }
+                String id = idOf.apply(record);
+                // 重复的 id 以最后一次出现为准，并移到末尾
+                records.remove(id);
+                records.put(id, record);
+            }
+        } catch (IOException e) {
+            LOG.warn("[" + name + "] Failed to replay journal " + file.getName(), e);
+        }
+
+        lineCount = lines;
+        if (skipped > 0) {
+            LOG.warn("[" + name + "] Skipped " + skipped + " unreadable line(s) in " + file.getName());
+        }
+
+        List<T> result = new ArrayList<>(records.values());
+        if (result.size() > maxRecords) {
+            result = new ArrayList<>(result.subList(result.size() - maxRecords, result.size()));
+        }
+        LOG.info("[" + name + "] Replayed " + result.size() + " records from " + file.getName());
+        return result;
+    }
+
+    private T parseLine(String line) {
+        try {
+            return gson.fromJson(line, type);
+        } catch (JsonParseException e) {
+            return null;
+        }
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 追加一条记录（异步）
+     */
+    public void append(T record) {
+        pending.offer(record);
+        if (drainScheduled.compareAndSet(false, true)) {
+            submit(this::drain);
+        }
+    }
+
+    /**
+     * 用当前快照重写日志（异步），用于清空或删除记录之后
+     */
+    public void compact() {
+        submit(this::rewrite);
+    }
+
+    /**
+     * 等待已提交的写操作完成
+     */
+    public void flush() {
+        try {
+            writer.submit(() -> { }).get(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LOG.warn("[" + name + "] Journal flush did not complete", e);
+        }
+    }
+
+    /**
+     * 写完积压的记录后关闭写线程
+     */
+    public void close() {
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                LOG.warn("[" + name + "] Journal writer did not finish in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            writer.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("[" + name + "] Journal already closed, write dropped");
+        }
+    }
+
+    private void drain() {
+        drainScheduled.set(false);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        int written = 0;
+        try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            T record;
+            while ((record = pending.poll()) != null) {
+                gson.toJson(record, type, out);
+                out.write('\n');
+                written++;
+            }
+        } catch (IOException e) {
+            LOG.error("[" + name + "] Failed to append to journal " + file.getName(), e);
+        }
+        lineCount += written;
+        PluginMetrics.JOURNAL_APPEND.recordSince(startNanos);
+        PluginMetrics.JOURNAL_RECORDS.add(written);
+        LOG.debug("[" + name + "] Appended " + written + " records to journal");
+
+        if (lineCount > maxRecords * 2) {
+            rewrite();
+        }
+    }
+
+    /**
+     * 把内存快照写入临时文件，再原子替换日志文件
+     */
+    private void rewrite() {
+        // 先丢弃积压的记录再取快照：快照已包含它们；之后才追加的记录最多在回放时按 id 去重
+        pending.clear();
+        long startNanos = System.nanoTime();
+        List<T> records = snapshot.get();
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        File temp = new File(parent, file.getName() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(temp.toPath(), StandardCharsets.UTF_8)) {
+            for (T record : records) {
+                gson.toJson(record, type, out);
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            LOG.error("[" + name + "] Failed to write compacted journal", e);
+            return;
+        }
+
+        try {
+            try {
+                Files.move(temp.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+            lineCount = records.size();
+            PluginMetrics.JOURNAL_COMPACT.recordSince(startNanos);
+            LOG.debug("[" + name + "] Compacted journal to " + records.size() + " records");
+        } catch (IOException e) {
+            LOG.error("[" + name + "] Failed to replace journal with compacted file", e);
+        }
+    }
+}
@@ -0,0 +1,416 @@
+package com.shuyixiao.storage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 记录的全文倒排索引（SQL Monitor、ES DSL Monitor 共用）
+ *
+ * <ul>
+ *     <li>文本按词切分并转为小写：字母、数字、下划线连续的一段为一个词；下划线或驼峰连接的标识符同时索引整体和各部分
+ *     （user_info → user_info、user、info；UserService → userservice、user、service）</li>
+ *     <li>中日韩文字没有词边界，连续的一段按相邻两字索引，另外索引最后一个字（华为手机 → 华为、为手、手机、机），
+ *     查询中的中文同样按相邻两字切分，因此可以查到词中间的任意部分</li>
+ *     <li>查询中的每个词按前缀匹配，多个词必须同时命中（AND）</li>
+ *     <li>记录号按插入顺序递增，每个词的记录号列表天然有序；淘汰最旧的记录只需移动列表起点</li>
+ *     <li>插入、删除只更新该记录自己的词，不重建索引</li>
+ * </ul>
+ * 记录按实例区分；所有方法都在同一把锁内执行
+ *
+ * @param <T> 记录类型
+ */
+public final class TokenIndex<T> {
+
+    // 超长的词（例如 base64、向量数据）不索引
+    static final int MAX_TOKEN_LENGTH = 64;
+
+    private final List<Function<T, String>> fields;
+    private final TreeMap<String, Postings> postings = new TreeMap<>();
+    private final Map<T, Doc> docs = new IdentityHashMap<>();
+    private final Map<Integer, T> records = new HashMap<>();
+    private int nextId;
+
+    /**
+     * @param fields 需要索引的文本字段（返回 null 表示没有该字段）
+     */
+    public TokenIndex(List<Function<T, String>> fields) {
+        this.fields = fields;
+    }
+
+    // ==================== 写入 ====================
+
+    /**
+     * 添加一条记录（已存在时忽略）
+     */
+    public synchronized void add(T record) {
+        if (record == null || docs.containsKey(record)) {
+            return;
+        }
+        int id = nextId++;
+        Map<String, Postings> recordPostings = new LinkedHashMap<>();
+        for (Function<T, String> field : fields) {
+            tokenize(field.apply(record), token -> recordPostings.computeIfAbsent(token,
+                    key -> postings.computeIfAbsent(key, Postings::new)));
+        }
+        Postings[] terms = recordPostings.values().toArray(new Postings[0]);
+        for (Postings list : terms) {
+            list.add(id);
+        }
+        docs.put(record, new Doc(id, terms));
+        records.put(id, record);
+    }
+
+    /**
+     * 按时间先后添加多条记录
+     */
+    public synchronized void addAll(Collection<T> oldestFirst) {
+        for (T record : oldestFirst) {
+            add(record);
+        }
+    }
+
+    /**
+     * 删除一条记录（不存在时忽略）
+     */
+    public synchronized void remove(T record) {
+        Doc doc = docs.remove(record);
+        if (doc == null) {
+            return;
+        }
+        records.remove(doc.id);
+        for (Postings list : doc.terms) {
+            list.remove(doc.id);
+            if (list.isEmpty()) {
+                postings.remove(list.token);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        docs.clear();
+        records.clear();
+    }
+
+    public synchronized int size() {
+        return docs.size();
+    }
+
+    // ==================== 查询 ====================
+
+    /**
+     * 查询同时包含所有词（按前缀）的记录，最新添加的在前
+     *
+     * @param terms {@link #queryTerms} 切分出的查询词，不能为空
+     */
+    public synchronized List<T> search(List<String> terms) {
+        int[] matched = null;
+        for (String term : terms) {
+            int[] ids = idsWithPrefix(term);
+            matched = matched == null ? ids : intersect(matched, ids);
+            if (matched.length == 0) {
+                return new ArrayList<>();
+            }
+        }
+        List<T> result = new ArrayList<>(matched == null ? 0 : matched.length);
+        if (matched != null) {
+            for (int i = matched.length - 1; i >= 0; i--) {
+                result.add(records.get(matched[i]));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 以 prefix 开头的所有词的记录号（升序、去重）
+     */
+    private int[] idsWithPrefix(String prefix) {
+        NavigableMap<String, Postings> range = postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        if (range.isEmpty()) {
+            return new int[0];
+        }
+        if (range.size() == 1) {
+            return range.firstEntry().getValue().toArray();
+        }
+        int total = 0;
+        for (Postings list : range.values()) {
+            total += list.size();
+        }
+        int[] ids = new int[total];
+        int n = 0;
+        for (Postings list : range.values()) {
+            n = list.copyTo(ids, n);
+        }
+        Arrays.sort(ids);
+        int unique = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (i == 0 || ids[i] != ids[i - 1]) {
+                ids[unique++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(ids, unique);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    // ==================== 分词 ====================
+
+    /**
+     * 把查询文本切分为查询词（小写，只取整词，不拆分标识符）
+     * 没有任何字母或数字时返回空列表
+     */
+    public static List<String> queryTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        int length = query.length();
+        int i = 0;
+        while (i < length) {
+            char c = query.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(query.charAt(i))) {
+                    i++;
+                }
+                // 单字按前缀查找，多字查找其中每两个相邻的字
+                if (i - start == 1) {
+                    addTerm(terms, query.substring(start, i));
+                }
+                for (int j = start; j + 1 < i; j++) {
+                    addTerm(terms, query.substring(j, j + 2));
+                }
+                continue;
+            }
+            if (!isWordChar(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            boolean hasLetterOrDigit = false;
+            while (i < length && isWordChar(query.charAt(i))) {
+                hasLetterOrDigit |= query.charAt(i) != '_';
+                i++;
+            }
+            if (hasLetterOrDigit) {
+                addTerm(terms, query.substring(start, i).toLowerCase(Locale.ROOT));
+            }
+        }
+        return terms;
+    }
+
+    private static void addTerm(List<String> terms, String term) {
+        if (!terms.contains(term)) {
+            terms.add(term);
+        }
+    }
+
+    /**
+     * 不建索引时判断单条记录是否同时包含所有查询词（与 {@link #search} 的匹配规则相同）
+     */
+    public static <T> boolean matches(List<String> terms, T record, List<Function<T, String>> fields) {
+        Set<String> tokens = new HashSet<>();
+        for (Function<T, String> field : fields) {
+            tokenize(field.apply(record), tokens::add);
+        }
+        for (String term : terms) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 切分文本，输出小写的词（同一个词可能输出多次）
+     */
+    static void tokenize(String text, Consumer<String> sink) {
+        if (text == null) {
+            return;
+        }
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                int start = i;
+                while (i < length && isCjk(text.charAt(i))) {
+                    i++;
+                }
+                emitCjk(text, start, i, sink);
+                continue;
+            }
+            if (!isWordChar(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && isWordChar(text.charAt(i))) {
+                i++;
+            }
+            if (i - start <= MAX_TOKEN_LENGTH) {
+                emitWord(text, start, i, sink);
+            }
+        }
+    }
+
+    /**
+     * 输出一段中日韩文字中每两个相邻的字，以及最后一个字（单字查询按前缀可以命中任意位置）
+     */
+    private static void emitCjk(String text, int start, int end, Consumer<String> sink) {
+        for (int i = start; i + 1 < end; i++) {
+            sink.accept(text.substring(i, i + 2));
+        }
+        sink.accept(text.substring(end - 1, end));
+    }
+
+    /**
+     * 输出整个词，以及按下划线、驼峰拆出的各部分
+     */
+    private static void emitWord(String text, int start, int end, Consumer<String> sink) {
+        List<String> parts = null;
+        int partStart = start;
+        for (int i = start; i <= end; i++) {
+            boolean boundary = i == end
+                    || text.charAt(i) == '_'
+                    || (i > partStart && Character.isUpperCase(text.charAt(i))
+                            && (Character.isLowerCase(text.charAt(i - 1)) || Character.isDigit(text.charAt(i - 1))));
+            if (!boundary) {
+                continue;
+            }
+            if (i > partStart) {
+                if (parts == null) {
+                    parts = new ArrayList<>(2);
+                }
+                parts.add(text.substring(partStart, i).toLowerCase(Locale.ROOT));
+            }
+            partStart = i < end && text.charAt(i) == '_' ? i + 1 : i;
+        }
+        if (parts == null) {
+            return; // 只有下划线
+        }
+        sink.accept(text.substring(start, end).toLowerCase(Locale.ROOT));
+        if (parts.size() > 1) {
+            parts.forEach(sink);
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return (Character.isLetterOrDigit(c) || c == '_') && !isCjk(c);
+    }
+
+    private static boolean isCjk(char c) {
+        if (c < '\u2E80') {
+            return false;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    // ==================== 内部结构 ====================
+
+    private static final class Doc {
+        final int id;
+        final Postings[] terms;
+
+        Doc(int id, Postings[] terms) {
+            this.id = id;
+            this.terms = terms;
+        }
+    }
+
+    /**
+     * 一个词对应的记录号（升序）；删除最旧的记录只移动起点
+     */
+    private static final class Postings {
+        final String token;
+        int[] ids = new int[2];
+        int start;
+        int end;
+
+        Postings(String token) {
+            this.token = token;
+        }
+
+        void add(int id) {
+            if (end == ids.length) {
+                int size = end - start;
+                int[] grown = size * 2 > ids.length ? new int[ids.length * 2] : ids;
+                System.arraycopy(ids, start, grown, 0, size);
+                ids = grown;
+                start = 0;
+                end = size;
+            }
+            ids[end++] = id;
+        }
+
+        void remove(int id) {
+            if (start < end && ids[start] == id) {
+                start++;
+                return;
+            }
+            int index = Arrays.binarySearch(ids, start, end, id);
+            if (index >= 0) {
+                System.arraycopy(ids, index + 1, ids, index, end - index - 1);
+                end--;
+            }
+        }
+
+        boolean isEmpty() {
+            return start == end;
+        }
+
+        int size() {
+            return end - start;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOfRange(ids, start, end);
+        }
+
+        int copyTo(int[] target, int offset) {
+            System.arraycopy(ids, start, target, offset, end - start);
+            return offset + end - start;
+        }
+    }
+}
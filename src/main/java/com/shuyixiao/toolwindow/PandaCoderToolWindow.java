@@ -6,6 +6,7 @@ import com.intellij.ui.components.JBPanel;
 import com.intellij.ui.components.JBScrollPane;
 import com.intellij.util.ui.JBUI;
 import com.shuyixiao.toolwindow.panels.DashboardPanel;
+import com.shuyixiao.toolwindow.panels.DiagnosticsPanel;
 import com.shuyixiao.toolwindow.panels.FunctionCardsPanel;
 import com.shuyixiao.toolwindow.panels.PromotionPanel;
 import org.jetbrains.annotations.NotNull;
@@ -69,12 +70,17 @@ public class PandaCoderToolWindow {
         functionCards.setAlignmentX(Component.LEFT_ALIGNMENT);
         contentPanel.add(functionCards);
         
-        // 3. 推广面板（底部，可折叠）
+        // 3. 诊断面板（可折叠）
+        DiagnosticsPanel diagnostics = new DiagnosticsPanel(project);
+        diagnostics.setAlignmentX(Component.LEFT_ALIGNMENT);
+        contentPanel.add(diagnostics);
+        
+        // 4. 推广面板（底部，可折叠）
         PromotionPanel promotion = new PromotionPanel(project);
         promotion.setAlignmentX(Component.LEFT_ALIGNMENT);
         contentPanel.add(promotion);
         
-        // 4. 弹性空间（将推广面板推到底部）
+        // 5. 弹性空间（将推广面板推到底部）
         contentPanel.add(Box.createVerticalGlue());
         
         panel.add(contentPanel, BorderLayout.NORTH);
@@ -0,0 +1,166 @@
+package com.shuyixiao.toolwindow.panels;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBPanel;
+import com.intellij.util.ui.JBUI;
+import com.intellij.util.ui.UIUtil;
+import com.shuyixiao.diagnostics.DumpDiagnosticsAction;
+import com.shuyixiao.diagnostics.Metric;
+import com.shuyixiao.diagnostics.PluginMetrics;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * 诊断面板 - 可折叠的插件自身运行指标
+ * 展示控制台接入、解析、持久化和 Git 统计各阶段的计数与耗时，
+ * 展开时每 2 秒刷新一次，折叠后停止刷新
+ */
+public class DiagnosticsPanel extends JBPanel<DiagnosticsPanel> {
+
+    private static final int REFRESH_INTERVAL_MS = 2000;
+
+    private final Project project;
+    private boolean expanded = false;
+    private final JBPanel<?> contentPanel;
+    private final JBLabel expandIcon;
+    private final JTextArea metricsArea;
+    private final Timer refreshTimer;
+
+    public DiagnosticsPanel(@NotNull Project project) {
+        super(new BorderLayout());
+        this.project = project;
+
+        setBorder(JBUI.Borders.compound(
+            JBUI.Borders.customLine(JBUI.CurrentTheme.CustomFrameDecorations.separatorForeground(), 1, 0, 0, 0),
+            JBUI.Borders.empty(12, 10)
+        ));
+        setOpaque(false);
+
+        // 头部（可点击展开/折叠）
+        JBPanel<?> headerPanel = new JBPanel<>(new BorderLayout(5, 0));
+        headerPanel.setOpaque(false);
+        headerPanel.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+
+        JBLabel titleLabel = new JBLabel("🩺 PandaCoder Diagnostics");
+        titleLabel.setFont(titleLabel.getFont().deriveFont(Font.BOLD, 12f));
+        headerPanel.add(titleLabel, BorderLayout.WEST);
+
+        expandIcon = new JBLabel("▼");
+        expandIcon.setForeground(UIUtil.getContextHelpForeground());
+        expandIcon.setFont(expandIcon.getFont().deriveFont(10f));
+        headerPanel.add(expandIcon, BorderLayout.EAST);
+
+        headerPanel.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                toggleExpanded();
+            }
+        });
+
+        add(headerPanel, BorderLayout.NORTH);
+
+        metricsArea = new JTextArea();
+        metricsArea.setEditable(false);
+        metricsArea.setOpaque(false);
+        metricsArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 11));
+
+        // 内容面板（默认折叠）
+        contentPanel = createContentPanel();
+        contentPanel.setVisible(false);
+        add(contentPanel, BorderLayout.CENTER);
+
+        refreshTimer = new Timer(REFRESH_INTERVAL_MS, e -> refreshMetrics());
+    }
+
+    /**
+     * 切换展开/折叠状态，只在展开时定时刷新
+     */
+    private void toggleExpanded() {
+        expanded = !expanded;
+        contentPanel.setVisible(expanded);
+        expandIcon.setText(expanded ? "▲" : "▼");
+        if (expanded) {
+            refreshMetrics();
+            refreshTimer.start();
+        } else {
+            refreshTimer.stop();
+        }
+        revalidate();
+        repaint();
+    }
+
+    private JBPanel<?> createContentPanel() {
+        JBPanel<?> panel = new JBPanel<>(new BorderLayout(0, 8));
+        panel.setBorder(JBUI.Borders.emptyTop(12));
+        panel.setOpaque(false);
+
+        panel.add(metricsArea, BorderLayout.CENTER);
+
+        JBPanel<?> buttonPanel = new JBPanel<>(new FlowLayout(FlowLayout.LEFT, 0, 0));
+        buttonPanel.setOpaque(false);
+
+        JButton refreshButton = new JButton("🔄 刷新");
+        refreshButton.putClientProperty("JButton.buttonType", "borderless");
+        refreshButton.addActionListener(e -> refreshMetrics());
+        buttonPanel.add(refreshButton);
+
+        JButton resetButton = new JButton("🧹 重置");
+        resetButton.putClientProperty("JButton.buttonType", "borderless");
+        resetButton.addActionListener(e -> {
+            PluginMetrics.reset();
+            refreshMetrics();
+        });
+        buttonPanel.add(resetButton);
+
+        JButton copyButton = new JButton("📋 复制 JSON");
+        copyButton.putClientProperty("JButton.buttonType", "borderless");
+        copyButton.addActionListener(e -> DumpDiagnosticsAction.copyToClipboard(project));
+        buttonPanel.add(copyButton);
+
+        panel.add(buttonPanel, BorderLayout.SOUTH);
+        return panel;
+    }
+
+    /**
+     * 按模块分组输出全部指标
+     */
+    private void refreshMetrics() {
+        StringBuilder text = new StringBuilder();
+        String group = null;
+        for (Metric metric : PluginMetrics.getMetrics()) {
+            if (!metric.getGroup().equals(group)) {
+                group = metric.getGroup();
+                if (text.length() > 0) {
+                    text.append('\n');
+                }
+                text.append("[").append(group).append("]\n");
+            }
+            text.append(String.format("  %-28s %s%n", metric.getName(), metric.format()));
+        }
+        Runtime runtime = Runtime.getRuntime();
+        long usedMb = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024);
+        text.append(String.format("%n[memory]%n  %-28s %d MB / %d MB%n",
+                "heap.used", usedMb, runtime.maxMemory() / (1024 * 1024)));
+        metricsArea.setText(text.toString());
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (expanded) {
+            refreshTimer.start();
+        }
+    }
+
+    @Override
+    public void removeNotify() {
+        // 工具窗口关闭时停止刷新
+        refreshTimer.stop();
+        super.removeNotify();
+    }
+}
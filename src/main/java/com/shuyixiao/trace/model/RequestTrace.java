@@ -0,0 +1,178 @@
+package com.shuyixiao.trace.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一次 API 请求的追踪快照
+ * 汇总该请求内的 SQL / ES 事件：查询次数、数据库耗时、ES 耗时和最慢的语句
+ */
+public class RequestTrace {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String requestId;
+    private final String apiPath;
+    private final LocalDateTime startTime;
+    private final LocalDateTime endTime;
+    private final int sqlCount;
+    private final int esCount;
+    private final long dbTime;              // SQL 执行时间合计（毫秒，只统计有耗时的语句）
+    private final long esTime;              // ES 执行时间合计（毫秒）
+    private final TraceEvent slowest;       // 耗时最长的事件，没有耗时数据时为 null
+    private final List<TraceEvent> events;  // 按时间排序的时间线
+    private final int droppedEvents;        // 超出单请求事件上限而未保留的事件数
+
+    private RequestTrace(Builder builder) {
+        this.requestId = builder.requestId;
+        this.apiPath = builder.apiPath;
+        this.startTime = builder.startTime;
+        this.endTime = builder.endTime;
+        this.sqlCount = builder.sqlCount;
+        this.esCount = builder.esCount;
+        this.dbTime = builder.dbTime;
+        this.esTime = builder.esTime;
+        this.slowest = builder.slowest;
+        this.events = builder.events;
+        this.droppedEvents = builder.droppedEvents;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public String getRequestId() {
+        return requestId;
+    }
+
+    public String getApiPath() {
+        return apiPath;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public LocalDateTime getEndTime() {
+        return endTime;
+    }
+
+    public String getFormattedStartTime() {
+        return startTime.format(FORMATTER);
+    }
+
+    /**
+     * 第一个到最后一个事件之间的时间（毫秒）
+     */
+    public long getSpanMillis() {
+        return Duration.between(startTime, endTime).toMillis();
+    }
+
+    public int getSqlCount() {
+        return sqlCount;
+    }
+
+    public int getEsCount() {
+        return esCount;
+    }
+
+    public int getQueryCount() {
+        return sqlCount + esCount;
+    }
+
+    public long getDbTime() {
+        return dbTime;
+    }
+
+    public long getEsTime() {
+        return esTime;
+    }
+
+    public TraceEvent getSlowest() {
+        return slowest;
+    }
+
+    public List<TraceEvent> getEvents() {
+        return events;
+    }
+
+    public int getDroppedEvents() {
+        return droppedEvents;
+    }
+
+    public static class Builder {
+        private String requestId;
+        private String apiPath;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private int sqlCount;
+        private int esCount;
+        private long dbTime;
+        private long esTime;
+        private TraceEvent slowest;
+        private List<TraceEvent> events = Collections.emptyList();
+        private int droppedEvents;
+
+        public Builder requestId(String requestId) {
+            this.requestId = requestId;
+            return this;
+        }
+
+        public Builder apiPath(String apiPath) {
+            this.apiPath = apiPath;
+            return this;
+        }
+
+        public Builder startTime(LocalDateTime startTime) {
+            this.startTime = startTime;
+            return this;
+        }
+
+        public Builder endTime(LocalDateTime endTime) {
+            this.endTime = endTime;
+            return this;
+        }
+
+        public Builder sqlCount(int sqlCount) {
+            this.sqlCount = sqlCount;
+            return this;
+        }
+
+        public Builder esCount(int esCount) {
+            this.esCount = esCount;
+            return this;
+        }
+
+        public Builder dbTime(long dbTime) {
+            this.dbTime = dbTime;
+            return this;
+        }
+
+        public Builder esTime(long esTime) {
+            this.esTime = esTime;
+            return this;
+        }
+
+        public Builder slowest(TraceEvent slowest) {
+            this.slowest = slowest;
+            return this;
+        }
+
+        public Builder events(List<TraceEvent> events) {
+            this.events = Collections.unmodifiableList(events);
+            return this;
+        }
+
+        public Builder droppedEvents(int droppedEvents) {
+            this.droppedEvents = droppedEvents;
+            return this;
+        }
+
+        public RequestTrace build() {
+            return new RequestTrace(this);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.shuyixiao.trace.model;
+
+import com.shuyixiao.esdsl.model.EsDslRecord;
+import com.shuyixiao.sql.model.SqlRecord;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 请求时间线上的一个事件：一条 SQL 或一次 ES 请求
+ */
+public final class TraceEvent {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+
+    public enum Type {
+        SQL, ES
+    }
+
+    private final Type type;
+    private final String recordId;
+    private final LocalDateTime timestamp;
+    private final String summary;           // SQL 摘要或 "POST index/_search"
+    private final String detail;            // 完整 SQL 或 DSL（与记录共享，不复制）
+    private final String parameters;        // SQL 参数
+    private final Long executionTime;       // 执行时间（毫秒）
+    private final String callerClass;
+
+    private TraceEvent(Type type, String recordId, LocalDateTime timestamp, String summary, String detail,
+                       String parameters, Long executionTime, String callerClass) {
+        this.type = type;
+        this.recordId = recordId;
+        this.timestamp = timestamp;
+        this.summary = summary;
+        this.detail = detail;
+        this.parameters = parameters;
+        this.executionTime = executionTime;
+        this.callerClass = callerClass;
+    }
+
+    public static TraceEvent of(SqlRecord record) {
+        return new TraceEvent(Type.SQL, record.getId(), record.getTimestamp(), record.getShortSql(),
+                record.getSqlStatement(), record.getParameters(), record.getExecutionTime(), record.getCallerClass());
+    }
+
+    public static TraceEvent of(EsDslRecord record) {
+        String target = record.getEndpoint() != null ? record.getEndpoint() : record.getIndex();
+        return new TraceEvent(Type.ES, record.getId(), record.getTimestamp(),
+                record.getMethod() + " " + (target != null ? target : "-"),
+                record.getDslQuery(), null, record.getExecutionTime(), record.getCallerClass());
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getRecordId() {
+        return recordId;
+    }
+
+    public LocalDateTime getTimestamp() {
+        return timestamp;
+    }
+
+    public String getFormattedTime() {
+        return timestamp.format(TIME_FORMATTER);
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public String getParameters() {
+        return parameters;
+    }
+
+    public Long getExecutionTime() {
+        return executionTime;
+    }
+
+    public String getCallerClass() {
+        return callerClass;
+    }
+}
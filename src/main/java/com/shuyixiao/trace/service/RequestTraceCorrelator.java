@@ -0,0 +1,168 @@
+package com.shuyixiao.trace.service;
+
+import com.shuyixiao.esdsl.model.EsDslRecord;
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.trace.model.RequestTrace;
+import com.shuyixiao.trace.model.TraceEvent;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 请求关联器
+ *
+ * <ul>
+ *     <li>按记录的 requestId（同一次 API 请求内的 SQL / ES 记录相同）归组，没有 requestId 的记录不参与</li>
+ *     <li>每个请求增量维护次数、耗时合计和最慢事件，时间线只保留前 {@link #MAX_EVENTS_PER_REQUEST} 个事件</li>
+ *     <li>请求数超过上限时淘汰最早开始的请求</li>
+ * </ul>
+ * 所有方法都在同一把锁内执行
+ */
+final class RequestTraceCorrelator {
+
+    static final int DEFAULT_MAX_REQUESTS = 500;
+    static final int MAX_EVENTS_PER_REQUEST = 1000;
+
+    private final Map<String, Entry> entries;
+
+    RequestTraceCorrelator() {
+        this(DEFAULT_MAX_REQUESTS);
+    }
+
+    RequestTraceCorrelator(int maxRequests) {
+        this.entries = new LinkedHashMap<>(64, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxRequests;
+            }
+        };
+    }
+
+    /**
+     * @return 记录所属请求的 ID，记录不属于任何请求时返回 null
+     */
+    synchronized String record(SqlRecord record) {
+        return add(record.getRequestId(), record.getApiPath(), TraceEvent.of(record));
+    }
+
+    synchronized String record(EsDslRecord record) {
+        return add(record.getRequestId(), record.getApiPath(), TraceEvent.of(record));
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * 最近的请求在前
+     */
+    synchronized List<RequestTrace> getTraces() {
+        List<RequestTrace> traces = new ArrayList<>(entries.size());
+        for (Entry entry : entries.values()) {
+            traces.add(entry.toTrace(false));
+        }
+        traces.sort(Comparator.comparing(RequestTrace::getStartTime).reversed());
+        return traces;
+    }
+
+    /**
+     * 带完整时间线的请求快照，不存在时返回 null
+     */
+    synchronized RequestTrace getTrace(String requestId) {
+        Entry entry = entries.get(requestId);
+        return entry != null ? entry.toTrace(true) : null;
+    }
+
+    private String add(String requestId, String apiPath, TraceEvent event) {
+        if (requestId == null) {
+            return null;
+        }
+        Entry entry = entries.get(requestId);
+        if (entry == null) {
+            entry = new Entry(requestId, event.getTimestamp());
+            entries.put(requestId, entry);
+        }
+        entry.add(apiPath, event);
+        return requestId;
+    }
+
+    private static final class Entry {
+        private final String requestId;
+        private String apiPath;
+        private LocalDateTime startTime;
+        private LocalDateTime endTime;
+        private int sqlCount;
+        private int esCount;
+        private long dbTime;
+        private long esTime;
+        private TraceEvent slowest;
+        private final List<TraceEvent> events = new ArrayList<>();
+        private int droppedEvents;
+
+        Entry(String requestId, LocalDateTime timestamp) {
+            this.requestId = requestId;
+            this.startTime = timestamp;
+            this.endTime = timestamp;
+        }
+
+        void add(String eventApiPath, TraceEvent event) {
+            if (apiPath == null) {
+                apiPath = eventApiPath;
+            }
+            if (event.getTimestamp().isBefore(startTime)) {
+                startTime = event.getTimestamp();
+            }
+            if (event.getTimestamp().isAfter(endTime)) {
+                endTime = event.getTimestamp();
+            }
+
+            long time = event.getExecutionTime() != null ? event.getExecutionTime() : 0;
+            if (event.getType() == TraceEvent.Type.SQL) {
+                sqlCount++;
+                dbTime += time;
+            } else {
+                esCount++;
+                esTime += time;
+            }
+            if (event.getExecutionTime() != null
+                    && (slowest == null || event.getExecutionTime() > slowest.getExecutionTime())) {
+                slowest = event;
+            }
+
+            if (events.size() < MAX_EVENTS_PER_REQUEST) {
+                events.add(event);
+            } else {
+                droppedEvents++;
+            }
+        }
+
+        RequestTrace toTrace(boolean withEvents) {
+            RequestTrace.Builder builder = RequestTrace.builder()
+                    .requestId(requestId)
+                    .apiPath(apiPath)
+                    .startTime(startTime)
+                    .endTime(endTime)
+                    .sqlCount(sqlCount)
+                    .esCount(esCount)
+                    .dbTime(dbTime)
+                    .esTime(esTime)
+                    .slowest(slowest)
+                    .droppedEvents(droppedEvents);
+            if (withEvents) {
+                List<TraceEvent> timeline = new ArrayList<>(events);
+                // ES 记录异步解析，到达顺序不一定是发生顺序
+                timeline.sort(Comparator.comparing(TraceEvent::getTimestamp));
+                builder.events(timeline);
+            }
+            return builder.build();
+        }
+    }
+}
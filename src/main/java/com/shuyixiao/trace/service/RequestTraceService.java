@@ -0,0 +1,94 @@
+package com.shuyixiao.trace.service;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.components.Service;
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.shuyixiao.esdsl.model.EsDslRecord;
+import com.shuyixiao.esdsl.service.EsDslRecordService;
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.sql.service.SqlRecordService;
+import com.shuyixiao.trace.model.RequestTrace;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * API 请求追踪服务
+ * 订阅 SQL Monitor 和 ES DSL Monitor 的新记录，按所属请求关联成时间线（只在内存中保留最近的请求）
+ */
+@Service
+public final class RequestTraceService implements Disposable {
+
+    private static final Logger LOG = Logger.getInstance(RequestTraceService.class);
+
+    private final SqlRecordService sqlRecordService;
+    private final EsDslRecordService esDslRecordService;
+    private final RequestTraceCorrelator correlator = new RequestTraceCorrelator();
+
+    private final Consumer<SqlRecord> sqlListener = record -> notifyListeners(correlator.record(record));
+    private final Consumer<EsDslRecord> esListener = record -> notifyListeners(correlator.record(record));
+
+    // 请求更新监听器（参数为请求 ID）
+    private final List<Consumer<String>> traceListeners = new CopyOnWriteArrayList<>();
+
+    public RequestTraceService(@NotNull Project project) {
+        this.sqlRecordService = project.getService(SqlRecordService.class);
+        this.esDslRecordService = project.getService(EsDslRecordService.class);
+        sqlRecordService.addRecordListener(sqlListener);
+        esDslRecordService.addRecordListener(esListener);
+        LOG.debug("Request trace service started for project: " + project.getName());
+    }
+
+    public static RequestTraceService getInstance(@NotNull Project project) {
+        return project.getService(RequestTraceService.class);
+    }
+
+    /**
+     * 最近的请求在前（不含时间线）
+     */
+    public List<RequestTrace> getTraces() {
+        return correlator.getTraces();
+    }
+
+    /**
+     * 带完整时间线的请求，不存在时返回 null
+     */
+    public RequestTrace getTrace(String requestId) {
+        return correlator.getTrace(requestId);
+    }
+
+    public void clear() {
+        correlator.clear();
+        notifyListeners(null);
+    }
+
+    public void addTraceListener(Consumer<String> listener) {
+        if (listener != null && !traceListeners.contains(listener)) {
+            traceListeners.add(listener);
+        }
+    }
+
+    public void removeTraceListener(Consumer<String> listener) {
+        traceListeners.remove(listener);
+    }
+
+    private void notifyListeners(String requestId) {
+        for (Consumer<String> listener : traceListeners) {
+            try {
+                listener.accept(requestId);
+            } catch (Exception e) {
+                LOG.warn("Error notifying request trace listener", e);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        sqlRecordService.removeRecordListener(sqlListener);
+        esDslRecordService.removeRecordListener(esListener);
+        traceListeners.clear();
+    }
+}
@@ -0,0 +1,26 @@
+package com.shuyixiao.trace.startup;
+
+import com.intellij.openapi.diagnostic.Logger;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.startup.StartupActivity;
+import com.shuyixiao.trace.service.RequestTraceService;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * API Trace 启动活动
+ * 在项目启动时创建请求追踪服务，使其在工具窗口打开之前就开始关联记录
+ */
+public class RequestTraceStartupActivity implements StartupActivity {
+
+    private static final Logger LOG = Logger.getInstance(RequestTraceStartupActivity.class);
+
+    @Override
+    public void runActivity(@NotNull Project project) {
+        try {
+            RequestTraceService.getInstance(project);
+            LOG.info("Request trace service initialized for project: " + project.getName());
+        } catch (Exception e) {
+            LOG.error("Error initializing request trace service", e);
+        }
+    }
+}
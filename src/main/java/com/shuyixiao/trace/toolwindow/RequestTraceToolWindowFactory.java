@@ -0,0 +1,28 @@
+package com.shuyixiao.trace.toolwindow;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.wm.ToolWindow;
+import com.intellij.openapi.wm.ToolWindowFactory;
+import com.intellij.ui.content.Content;
+import com.shuyixiao.trace.ui.RequestTraceToolWindow;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * API Trace 工具窗口工厂
+ */
+public class RequestTraceToolWindowFactory implements ToolWindowFactory {
+
+    @Override
+    public void createToolWindowContent(@NotNull Project project, @NotNull ToolWindow toolWindow) {
+        RequestTraceToolWindow traceToolWindow = new RequestTraceToolWindow(project);
+
+        Content content = toolWindow.getContentManager().getFactory()
+                .createContent(traceToolWindow, "", false);
+        toolWindow.getContentManager().addContent(content);
+    }
+
+    @Override
+    public boolean shouldBeAvailable(@NotNull Project project) {
+        return true;
+    }
+}
@@ -0,0 +1,327 @@
+package com.shuyixiao.trace.ui;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Disposer;
+import com.intellij.ui.components.JBLabel;
+import com.intellij.ui.components.JBScrollPane;
+import com.intellij.ui.table.JBTable;
+import com.intellij.util.ui.JBUI;
+import com.shuyixiao.trace.model.RequestTrace;
+import com.shuyixiao.trace.model.TraceEvent;
+import com.shuyixiao.trace.service.RequestTraceService;
+import org.jetbrains.annotations.NotNull;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * API Trace 工具窗口
+ * 上方按请求列出查询次数、数据库耗时、ES 耗时和最慢语句，下方展示选中请求的 SQL / ES 时间线
+ */
+public class RequestTraceToolWindow extends JPanel {
+
+    private final RequestTraceService traceService;
+
+    private JBTable requestTable;
+    private RequestTableModel requestModel;
+    private JBTable timelineTable;
+    private TimelineTableModel timelineModel;
+    private JTextArea detailArea;
+    private JLabel statusLabel;
+
+    // 连续到达的记录只安排一次刷新
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+
+    public RequestTraceToolWindow(@NotNull Project project) {
+        this.traceService = RequestTraceService.getInstance(project);
+
+        initializeUI();
+        refreshData();
+
+        Consumer<String> traceListener = requestId -> {
+            if (refreshPending.compareAndSet(false, true)) {
+                ApplicationManager.getApplication().invokeLater(() -> {
+                    refreshPending.set(false);
+                    refreshData();
+                });
+            }
+        };
+        traceService.addTraceListener(traceListener);
+        Disposer.register(project, () -> traceService.removeTraceListener(traceListener));
+    }
+
+    private void initializeUI() {
+        setLayout(new BorderLayout());
+        add(createToolbar(), BorderLayout.NORTH);
+
+        requestModel = new RequestTableModel();
+        requestTable = new JBTable(requestModel);
+        requestTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        requestTable.setRowHeight(25);
+        requestTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showTimeline();
+            }
+        });
+        requestTable.getColumnModel().getColumn(0).setPreferredWidth(140); // 开始时间
+        requestTable.getColumnModel().getColumn(1).setPreferredWidth(220); // API路径
+        requestTable.getColumnModel().getColumn(2).setPreferredWidth(50);  // SQL
+        requestTable.getColumnModel().getColumn(3).setPreferredWidth(50);  // ES
+        requestTable.getColumnModel().getColumn(4).setPreferredWidth(70);  // DB耗时
+        requestTable.getColumnModel().getColumn(5).setPreferredWidth(70);  // ES耗时
+        requestTable.getColumnModel().getColumn(6).setPreferredWidth(70);  // 跨度
+        requestTable.getColumnModel().getColumn(7).setPreferredWidth(360); // 最慢语句
+
+        timelineModel = new TimelineTableModel();
+        timelineTable = new JBTable(timelineModel);
+        timelineTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        timelineTable.setRowHeight(22);
+        timelineTable.getSelectionModel().addListSelectionListener(e -> {
+            if (!e.getValueIsAdjusting()) {
+                showEventDetail();
+            }
+        });
+        timelineTable.getColumnModel().getColumn(0).setPreferredWidth(90);  // 时间
+        timelineTable.getColumnModel().getColumn(1).setPreferredWidth(40);  // 类型
+        timelineTable.getColumnModel().getColumn(2).setPreferredWidth(60);  // 耗时
+        timelineTable.getColumnModel().getColumn(3).setPreferredWidth(420); // 摘要
+        timelineTable.getColumnModel().getColumn(4).setPreferredWidth(160); // 调用方
+
+        detailArea = new JTextArea();
+        detailArea.setEditable(false);
+        detailArea.setLineWrap(true);
+        detailArea.setFont(new Font("Monospaced", Font.PLAIN, 12));
+
+        JSplitPane timelineSplitter = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT,
+                new JBScrollPane(timelineTable), new JBScrollPane(detailArea));
+        timelineSplitter.setDividerLocation(700);
+        timelineSplitter.setBorder(JBUI.Borders.empty());
+
+        JSplitPane mainSplitter = new JSplitPane(JSplitPane.VERTICAL_SPLIT,
+                new JBScrollPane(requestTable), timelineSplitter);
+        mainSplitter.setDividerLocation(250);
+        mainSplitter.setBorder(JBUI.Borders.empty());
+        add(mainSplitter, BorderLayout.CENTER);
+
+        statusLabel = new JBLabel();
+        statusLabel.setBorder(JBUI.Borders.empty(3, 5));
+        add(statusLabel, BorderLayout.SOUTH);
+    }
+
+    private JPanel createToolbar() {
+        JPanel toolbar = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        toolbar.setBorder(JBUI.Borders.empty(5));
+
+        JButton refreshButton = new JButton("刷新");
+        refreshButton.addActionListener(e -> refreshData());
+        toolbar.add(refreshButton);
+
+        JButton clearButton = new JButton("清空");
+        clearButton.addActionListener(e -> traceService.clear());
+        toolbar.add(clearButton);
+
+        toolbar.add(new JBLabel("  按 API 日志（API: / uri:）划分请求，关联其间的 SQL 与 ES 查询"));
+        return toolbar;
+    }
+
+    private void refreshData() {
+        String selectedId = getSelectedRequestId();
+        requestModel.setTraces(traceService.getTraces());
+
+        int row = requestModel.indexOf(selectedId);
+        if (row >= 0) {
+            requestTable.getSelectionModel().setSelectionInterval(row, row);
+            // 选中的请求可能有新事件
+            showTimeline();
+        } else {
+            timelineModel.setEvents(new ArrayList<>());
+            detailArea.setText("");
+        }
+        statusLabel.setText("请求数: " + requestModel.getRowCount());
+    }
+
+    private String getSelectedRequestId() {
+        int row = requestTable.getSelectedRow();
+        return row >= 0 ? requestModel.getTraceAt(row).getRequestId() : null;
+    }
+
+    private void showTimeline() {
+        String requestId = getSelectedRequestId();
+        RequestTrace trace = requestId != null ? traceService.getTrace(requestId) : null;
+        timelineModel.setEvents(trace != null ? trace.getEvents() : new ArrayList<>());
+        if (trace == null) {
+            detailArea.setText("");
+            return;
+        }
+
+        StringBuilder summary = new StringBuilder();
+        summary.append("请求: ").append(trace.getApiPath() != null ? trace.getApiPath() : "-").append("\n");
+        summary.append("开始: ").append(trace.getFormattedStartTime())
+                .append("  跨度: ").append(trace.getSpanMillis()).append("ms\n");
+        summary.append("SQL: ").append(trace.getSqlCount()).append(" 次, 数据库耗时 ").append(trace.getDbTime()).append("ms\n");
+        summary.append("ES: ").append(trace.getEsCount()).append(" 次, ES 耗时 ").append(trace.getEsTime()).append("ms\n");
+        if (trace.getSlowest() != null) {
+            summary.append("最慢: ").append(trace.getSlowest().getExecutionTime()).append("ms ")
+                    .append(trace.getSlowest().getSummary()).append("\n");
+        }
+        if (trace.getDroppedEvents() > 0) {
+            summary.append("（另有 ").append(trace.getDroppedEvents()).append(" 个事件超出时间线上限未显示）\n");
+        }
+        detailArea.setText(summary.toString());
+        detailArea.setCaretPosition(0);
+    }
+
+    private void showEventDetail() {
+        int row = timelineTable.getSelectedRow();
+        if (row < 0) {
+            return;
+        }
+        TraceEvent event = timelineModel.getEventAt(row);
+        StringBuilder detail = new StringBuilder();
+        detail.append(event.getType()).append(" @ ").append(event.getFormattedTime());
+        if (event.getExecutionTime() != null) {
+            detail.append("  耗时 ").append(event.getExecutionTime()).append("ms");
+        }
+        detail.append("\n");
+        if (event.getCallerClass() != null) {
+            detail.append("调用方: ").append(event.getCallerClass()).append("\n");
+        }
+        detail.append("\n").append(event.getDetail() != null ? event.getDetail() : "").append("\n");
+        if (event.getParameters() != null && !event.getParameters().isEmpty()) {
+            detail.append("\n-- 参数: ").append(event.getParameters()).append("\n");
+        }
+        detailArea.setText(detail.toString());
+        detailArea.setCaretPosition(0);
+    }
+
+    private static String millis(long value) {
+        return value > 0 ? value + "ms" : "-";
+    }
+
+    /**
+     * 请求表格模型
+     */
+    private static class RequestTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"开始时间", "API路径", "SQL", "ES", "DB耗时", "ES耗时", "跨度", "最慢语句"};
+        private List<RequestTrace> traces = new ArrayList<>();
+
+        public void setTraces(List<RequestTrace> traces) {
+            this.traces = traces;
+            fireTableDataChanged();
+        }
+
+        public RequestTrace getTraceAt(int row) {
+            return traces.get(row);
+        }
+
+        public int indexOf(String requestId) {
+            if (requestId == null) {
+                return -1;
+            }
+            for (int i = 0; i < traces.size(); i++) {
+                if (requestId.equals(traces.get(i).getRequestId())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public int getRowCount() {
+            return traces.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            RequestTrace trace = traces.get(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    return trace.getFormattedStartTime();
+                case 1:
+                    return trace.getApiPath() != null ? trace.getApiPath() : "-";
+                case 2:
+                    return trace.getSqlCount();
+                case 3:
+                    return trace.getEsCount();
+                case 4:
+                    return millis(trace.getDbTime());
+                case 5:
+                    return millis(trace.getEsTime());
+                case 6:
+                    return trace.getSpanMillis() + "ms";
+                case 7:
+                    TraceEvent slowest = trace.getSlowest();
+                    return slowest != null ? slowest.getExecutionTime() + "ms " + slowest.getSummary() : "-";
+                default:
+                    return "";
+            }
+        }
+    }
+
+    /**
+     * 时间线表格模型
+     */
+    private static class TimelineTableModel extends AbstractTableModel {
+        private final String[] columnNames = {"时间", "类型", "耗时", "摘要", "调用方"};
+        private List<TraceEvent> events = new ArrayList<>();
+
+        public void setEvents(List<TraceEvent> events) {
+            this.events = events;
+            fireTableDataChanged();
+        }
+
+        public TraceEvent getEventAt(int row) {
+            return events.get(row);
+        }
+
+        @Override
+        public int getRowCount() {
+            return events.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return columnNames.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return columnNames[column];
+        }
+
+        @Override
+        public Object getValueAt(int rowIndex, int columnIndex) {
+            TraceEvent event = events.get(rowIndex);
+            switch (columnIndex) {
+                case 0:
+                    return event.getFormattedTime();
+                case 1:
+                    return event.getType().name();
+                case 2:
+                    return event.getExecutionTime() != null ? event.getExecutionTime() + "ms" : "-";
+                case 3:
+                    return event.getSummary();
+                case 4:
+                    return event.getCallerClass() != null ? event.getCallerClass() : "-";
+                default:
+                    return "";
+            }
+        }
+    }
+}
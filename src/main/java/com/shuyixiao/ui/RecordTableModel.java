@@ -0,0 +1,324 @@
+package com.shuyixiao.ui;
+
+import com.intellij.openapi.application.ApplicationManager;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * 增量更新的记录表格模型（SQL Monitor、ES DSL Monitor 共用）
+ *
+ * <ul>
+ *     <li>新增 / 淘汰的记录可在任意线程提交，先进入队列，每帧（约 16ms）最多在 EDT 上合并处理一次，
+ *     只发出 {@code fireTableRowsInserted / fireTableRowsDeleted}，表格不重建、选中行不丢失</li>
+ *     <li>新记录只用当前筛选条件检查它自己，不重新筛选全部记录</li>
+ *     <li>内部按时间先后存放（最旧的在前），新记录追加在末尾；表格第 0 行是最新的记录</li>
+ * </ul>
+ * 单元格文本由子类的 {@link #getColumnValue} 在绘制可见行时才生成
+ *
+ * @param <T> 记录类型
+ */
+public abstract class RecordTableModel<T> extends AbstractTableModel {
+
+    private static final int FLUSH_DELAY_MS = 16;
+
+    private final String[] columnNames;
+
+    // 最旧的记录在前
+    private final List<T> rows = new ArrayList<>();
+    // 与 rows 内容相同，用于判断记录是否已在表格中（记录按实例区分）
+    private final Set<T> present = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private final ConcurrentLinkedQueue<T> pendingAdded = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<T> pendingEvicted = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Timer flushTimer;
+
+    // 以下字段只在 EDT 上访问
+    private Predicate<T> filter = record -> true;
+    private Predicate<T> staleFilter;
+    private UnaryOperator<T> evictedReplacement;
+    private int rowLimit;
+    private Runnable flushListener;
+    // 整体重新加载期间到达的新记录，加载完成后补到表格中（快照可能不包含它们）
+    private List<T> heldDuringReload;
+
+    protected RecordTableModel(String[] columnNames) {
+        this.columnNames = columnNames;
+        this.flushTimer = new Timer(FLUSH_DELAY_MS, e -> flush());
+        this.flushTimer.setRepeats(false);
+    }
+
+    // ==================== 增量更新（任意线程） ====================
+
+    /**
+     * 记录服务新增了一条记录
+     */
+    public void recordAdded(T record) {
+        pendingAdded.add(record);
+        scheduleFlush();
+    }
+
+    /**
+     * 记录服务淘汰了一条记录（容量已满，覆盖了最旧的记录）
+     */
+    public void recordEvicted(T record) {
+        pendingEvicted.add(record);
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            ApplicationManager.getApplication().invokeLater(flushTimer::start);
+        }
+    }
+
+    /**
+     * 合并处理积压的增量（EDT）
+     */
+    private void flush() {
+        flushScheduled.set(false);
+
+        // 重新加载期间淘汰的记录可能还在快照里，留到加载完成后处理
+        T evicted;
+        Set<T> evictedRows = null;
+        while (heldDuringReload == null && (evicted = pendingEvicted.poll()) != null) {
+            if (present.contains(evicted)) {
+                if (evictedRows == null) {
+                    evictedRows = Collections.newSetFromMap(new IdentityHashMap<>());
+                }
+                evictedRows.add(evicted);
+            }
+        }
+        if (evictedRows != null) {
+            if (evictedReplacement != null) {
+                replaceEvicted(evictedRows);
+            } else {
+                removeOldest(evictedRows::contains, evictedRows.size());
+            }
+        }
+        if (staleFilter != null) {
+            removeOldest(staleFilter, Integer.MAX_VALUE);
+        }
+
+        T added;
+        if (heldDuringReload != null) {
+            while ((added = pendingAdded.poll()) != null) {
+                heldDuringReload.add(added);
+            }
+        } else {
+            int before = rows.size();
+            while ((added = pendingAdded.poll()) != null) {
+                if (filter.test(added) && present.add(added)) {
+                    rows.add(added);
+                }
+            }
+            int inserted = rows.size() - before;
+            if (inserted > 0) {
+                fireTableRowsInserted(0, inserted - 1);
+            }
+            if (rowLimit > 0 && rows.size() > rowLimit) {
+                removeOldest(record -> true, rows.size() - rowLimit);
+            }
+        }
+
+        if (flushListener != null) {
+            flushListener.run();
+        }
+    }
+
+    /**
+     * 删除最旧的连续若干条满足条件的记录
+     * 淘汰和过期的记录总是最旧的，通常只需要从头部截掉；不连续时退回到整体删除
+     */
+    private void removeOldest(Predicate<T> condition, int expected) {
+        int count = 0;
+        while (count < rows.size() && count < expected && condition.test(rows.get(count))) {
+            count++;
+        }
+        if (count > 0) {
+            int size = rows.size();
+            List<T> head = rows.subList(0, count);
+            head.forEach(present::remove);
+            head.clear();
+            fireTableRowsDeleted(size - count, size - 1);
+        }
+        if (count < expected && expected != Integer.MAX_VALUE) {
+            // 不在头部的淘汰记录（很少见）
+            if (rows.removeIf(record -> condition.test(record) && present.remove(record))) {
+                fireTableDataChanged();
+            }
+        }
+    }
+
+    /**
+     * 把淘汰的记录原地替换为 evictedReplacement 生成的行，行数不变
+     */
+    private void replaceEvicted(Set<T> evictedRows) {
+        int size = rows.size();
+        int first = -1;
+        int last = -1;
+        int remaining = evictedRows.size();
+        for (int i = 0; i < size && remaining > 0; i++) {
+            T record = rows.get(i);
+            if (evictedRows.contains(record)) {
+                T replacement = evictedReplacement.apply(record);
+                rows.set(i, replacement);
+                present.remove(record);
+                present.add(replacement);
+                if (first < 0) {
+                    first = i;
+                }
+                last = i;
+                remaining--;
+            }
+        }
+        if (first >= 0) {
+            fireTableRowsUpdated(size - 1 - last, size - 1 - first);
+        }
+    }
+
+    // ==================== 整体更新（EDT） ====================
+
+    /**
+     * 开始整体重新加载：之后到达的新记录暂存，等 {@link #setRecords} 时补上
+     */
+    public void beginReload() {
+        if (heldDuringReload == null) {
+            heldDuringReload = new ArrayList<>();
+        }
+    }
+
+    /**
+     * 整体替换表格内容（切换时间范围等筛选条件时使用）
+     *
+     * @param newestFirst 已按 filter 筛选好的记录，最新的在前
+     * @param filter      之后新增的记录按此条件筛选
+     */
+    public void setRecords(List<T> newestFirst, Predicate<T> filter) {
+        this.filter = filter;
+        rows.clear();
+        present.clear();
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            T record = newestFirst.get(i);
+            if (present.add(record)) {
+                rows.add(record);
+            }
+        }
+        if (heldDuringReload != null) {
+            for (T record : heldDuringReload) {
+                if (filter.test(record) && present.add(record)) {
+                    rows.add(record);
+                }
+            }
+            heldDuringReload = null;
+        }
+        fireTableDataChanged();
+        if (!pendingEvicted.isEmpty()) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * 删除过期的记录（例如超出 "最近1小时" 的记录），只检查最旧的一端
+     */
+    public void removeStale() {
+        if (staleFilter != null) {
+            removeOldest(staleFilter, Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * @param staleFilter 判断记录是否已过期，null 表示不过期
+     */
+    public void setStaleFilter(Predicate<T> staleFilter) {
+        this.staleFilter = staleFilter;
+    }
+
+    /**
+     * @param evictedReplacement 记录服务淘汰记录时用它生成的行代替原记录（例如转入归档后的摘要行），
+     *                           null 表示从表格中删除
+     */
+    public void setEvictedReplacement(UnaryOperator<T> evictedReplacement) {
+        this.evictedReplacement = evictedReplacement;
+    }
+
+    /**
+     * @param rowLimit 最多保留的行数，新增记录后超出时删除最旧的行；0 表示不限制
+     */
+    public void setRowLimit(int rowLimit) {
+        this.rowLimit = rowLimit;
+    }
+
+    /**
+     * 每次合并处理增量后回调（例如更新状态栏）
+     */
+    public void setFlushListener(Runnable flushListener) {
+        this.flushListener = flushListener;
+    }
+
+    /**
+     * 停止合并定时器（窗口关闭时调用）
+     */
+    public void dispose() {
+        flushTimer.stop();
+        heldDuringReload = null;
+        pendingAdded.clear();
+        pendingEvicted.clear();
+    }
+
+    // ==================== 表格模型 ====================
+
+    public T getRecordAt(int row) {
+        int size = rows.size();
+        return row >= 0 && row < size ? rows.get(size - 1 - row) : null;
+    }
+
+    /**
+     * 第一条满足条件的记录所在的行（从最新的记录开始查找），不存在时返回 -1
+     */
+    public int indexOf(Predicate<T> matcher) {
+        int size = rows.size();
+        for (int i = size - 1; i >= 0; i--) {
+            if (matcher.test(rows.get(i))) {
+                return size - 1 - i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        T record = getRecordAt(rowIndex);
+        return record != null ? getColumnValue(record, columnIndex) : null;
+    }
+
+    /**
+     * 单元格的值（只在绘制或排序时调用）
+     */
+    protected abstract Object getColumnValue(T record, int column);
+}
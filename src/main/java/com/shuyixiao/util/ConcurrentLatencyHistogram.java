@@ -0,0 +1,78 @@
+package com.shuyixiao.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 线程安全的延迟直方图
+ *
+ * 分桶方式与 {@link LatencyHistogram} 相同（相对误差不超过 12.5%），但桶数组在构造时一次分配完毕，
+ * 记录只做原子自增，不加锁也不分配对象，适合在热路径上由多个线程同时记录。
+ * 值的单位由调用方决定；读取分位数时不做快照，结果是近似值。
+ */
+public final class ConcurrentLatencyHistogram {
+
+    // 超过该值的记录计入最后一个桶
+    private static final long MAX_VALUE = (1L << 31) - 1;
+    private static final int BUCKETS = LatencyHistogram.bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * 记录一个值（负数忽略）
+     */
+    public void record(long value) {
+        if (value < 0) {
+            return;
+        }
+        long clamped = Math.min(value, MAX_VALUE);
+        counts.incrementAndGet(LatencyHistogram.bucketIndex(clamped));
+        totalCount.incrementAndGet();
+        long current;
+        while (clamped > (current = max.get()) && !max.compareAndSet(current, clamped)) {
+            // 其他线程更新了最大值，重试
+        }
+    }
+
+    public long getTotalCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * 分位数（0 &lt; percentile &lt;= 100），没有样本时返回 0
+     * 返回所在桶的上界（不超过最大值）
+     */
+    public long getPercentile(double percentile) {
+        long total = totalCount.get();
+        if (total == 0) {
+            return 0;
+        }
+        long maxValue = max.get();
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * 清空（与并发记录之间不保证原子性）
+     */
+    public void clear() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        max.set(0);
+    }
+}
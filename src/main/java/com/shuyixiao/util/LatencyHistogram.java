@@ -0,0 +1,93 @@
+package com.shuyixiao.util;
+
+import java.util.Arrays;
+
+/**
+ * 延迟直方图（毫秒）
+ *
+ * 对数-线性分桶：0~15ms 每毫秒一个桶，之后每个 2 的幂区间再等分为 8 个桶，
+ * 分位数的相对误差不超过 12.5%；桶数组按需增长，常见的秒级延迟只需约 100 个桶。
+ * 记录为 O(1)，不保存原始样本。非线程安全，由调用方加锁。
+ */
+public final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16;
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // 超过约 24 天的值计入最后一个桶
+    private static final long MAX_VALUE = (1L << 31) - 1;
+
+    private long[] counts = new long[LINEAR_BUCKETS];
+    private long totalCount;
+    private long max;
+
+    /**
+     * 记录一次延迟（负数忽略）
+     */
+    public void record(long millis) {
+        if (millis < 0) {
+            return;
+        }
+        long value = Math.min(millis, MAX_VALUE);
+        int index = bucketIndex(value);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length * 2));
+        }
+        counts[index]++;
+        totalCount++;
+        max = Math.max(max, value);
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * 分位数（0 &lt; percentile &lt;= 100），没有样本时返回 0
+     * 返回所在桶的上界（不超过实际最大值）
+     */
+    public long getPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(totalCount * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        rank = Math.max(1, rank);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    public void clear() {
+        counts = new long[LINEAR_BUCKETS];
+        totalCount = 0;
+        max = 0;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (msb - 4) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int msb = (index - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+        int sub = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (msb - SUB_BUCKET_BITS);
+        return (1L << msb) + (sub + 1) * width - 1;
+    }
+}
@@ -0,0 +1,88 @@
+package com.shuyixiao.console;
+
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * ApiContextTracker 单元测试
+ * 验证并发请求交错输出时按线程名 / 追踪 ID 分别关联 API 路径
+ */
+public class ApiContextTrackerTest {
+
+    @Test
+    public void testInterleavedThreadsKeepOwnContext() {
+        ApiContextTracker tracker = new ApiContextTracker();
+        context(tracker, "2025-10-23 17:34:57.001  INFO 1 --- [nio-8080-exec-1] c.e.UserController : API: /api/user/list");
+        context(tracker, "2025-10-23 17:34:57.002  INFO 1 --- [nio-8080-exec-2] c.e.OrderController : API: /api/order/list");
+
+        select(tracker, "2025-10-23 17:34:57.010 DEBUG 1 --- [nio-8080-exec-1] org.hibernate.SQL : select * from sys_user");
+        assertEquals("/api/user/list", tracker.getApiPath());
+        String userRequest = tracker.getRequestId();
+
+        select(tracker, "2025-10-23 17:34:57.011 DEBUG 1 --- [nio-8080-exec-2] org.hibernate.SQL : select * from t_order");
+        assertEquals("/api/order/list", tracker.getApiPath());
+        assertNotEquals(userRequest, tracker.getRequestId());
+
+        // 非日志头的延续行保持当前线程
+        select(tracker, "    from t_order where id = ?");
+        assertEquals("/api/order/list", tracker.getApiPath());
+
+        // 快照不受之后的切换影响
+        LogContext snapshot = tracker.current();
+        select(tracker, "2025-10-23 17:34:57.012 DEBUG 1 --- [nio-8080-exec-1] org.hibernate.SQL : select 1");
+        assertEquals("/api/order/list", snapshot.getApiPath());
+        assertEquals(userRequest, tracker.getRequestId());
+    }
+
+    @Test
+    public void testThreadFieldFormats() {
+        ApiContextTracker tracker = new ApiContextTracker();
+        // logback 默认格式
+        context(tracker, "17:34:57.001 [http-nio-8080-exec-3] INFO  c.e.UserController - API: /api/a");
+        // Spring Boot 3.2+ 的 "[应用名] [线程名]"，线程名左侧补空格
+        context(tracker, "2025-10-23T17:34:57.002+08:00  INFO 1 --- [demo] [           main] c.e.Job : API: /api/b");
+
+        select(tracker, "17:34:57.003 [http-nio-8080-exec-3] DEBUG c.e.UserMapper - ==>  Preparing: SELECT 1");
+        assertEquals("/api/a", tracker.getApiPath());
+        select(tracker, "2025-10-23T17:34:57.004+08:00 DEBUG 1 --- [demo] [main] org.hibernate.SQL : select 1");
+        assertEquals("/api/b", tracker.getApiPath());
+    }
+
+    @Test
+    public void testLinesWithoutThreadShareOneContext() {
+        ApiContextTracker tracker = new ApiContextTracker();
+        context(tracker, "2025-10-23 17:34:57,001 INFO (UserController.java:45)- API: /api/user/list [page=1]");
+
+        select(tracker, "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: SELECT * FROM t WHERE a IN [1]");
+        assertEquals("/api/user/list", tracker.getApiPath());
+        assertEquals("UserController.java:45", tracker.getCallerClass());
+        assertNotNull(tracker.getRequestId());
+    }
+
+    @Test
+    public void testTraceIdTakesPrecedence() {
+        ApiContextTracker tracker = new ApiContextTracker();
+        tracker.setTraceIdPattern(Pattern.compile("traceId=([0-9a-f]+)"));
+        context(tracker, "2025-10-23 17:34:57.001 INFO [worker-1] traceId=abc123 c.e.UserController : API: /api/user/list");
+
+        // 同一请求切换到其他线程执行
+        select(tracker, "2025-10-23 17:34:57.020 DEBUG [async-7] traceId=abc123 org.hibernate.SQL : select 1");
+        assertEquals("/api/user/list", tracker.getApiPath());
+        assertEquals("abc123", tracker.getRequestId());
+
+        select(tracker, "2025-10-23 17:34:57.021 DEBUG [async-7] org.hibernate.SQL : select 2");
+        assertNull(tracker.getApiPath());
+    }
+
+    private static void context(ApiContextTracker tracker, String text) {
+        tracker.select(text, 0, text.length());
+        tracker.onContextLine(text, 0, text.length());
+    }
+
+    private static void select(ApiContextTracker tracker, String text) {
+        tracker.select(text, 0, text.length());
+    }
+}
@@ -0,0 +1,122 @@
+package com.shuyixiao.console;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * ConsoleLogDemultiplexer 单元测试
+ * 验证一次分类后的行路由：SQL 行只到 SQL sink，ES 行只到 ES sink，上下文行更新 tracker
+ */
+public class ConsoleLogDemultiplexerTest {
+
+    @Test
+    public void testClassifyIgnoresCase() {
+        String sql = "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: SELECT 1";
+        String es = "2025-10-18 21:21:00,523 TRACE (RequestLogger.java:90)- curl -iX POST 'http://localhost:9200/idx/_search'";
+        String api = "2025-10-23 17:34:57,001 INFO (UserController.java:45)- API: /api/user/list";
+        String noise = "2025-10-23 17:34:50,000 INFO (TomcatWebServer.java:220)- Tomcat started";
+
+        assertTrue(LogLineClassifier.has(LogLineClassifier.classify(sql, 0, sql.length()), LogLineClassifier.SQL));
+        assertTrue(LogLineClassifier.has(LogLineClassifier.classify(es, 0, es.length()), LogLineClassifier.ES));
+        assertTrue(LogLineClassifier.has(LogLineClassifier.classify(api, 0, api.length()), LogLineClassifier.API_CONTEXT));
+        assertTrue(LogLineClassifier.has(LogLineClassifier.classify(noise, 0, noise.length()), LogLineClassifier.FRAMEWORK_NOISE));
+        assertEquals(0, LogLineClassifier.classify("# HTTP/1.1 200 OK", 0, 17));
+
+        // ES 行同时带有 RequestLogger / curl 的细分类别，ES sink 不再自己匹配关键词
+        int esCategories = LogLineClassifier.classify(es, 0, es.length());
+        assertTrue(LogLineClassifier.has(esCategories, LogLineClassifier.ES_REQUEST_LOGGER));
+        assertTrue(LogLineClassifier.has(esCategories, LogLineClassifier.ES_CURL));
+        assertFalse(LogLineClassifier.has(LogLineClassifier.classify(sql, 0, sql.length()),
+                LogLineClassifier.ES_REQUEST_LOGGER | LogLineClassifier.ES_CURL));
+    }
+
+    @Test
+    public void testRoutesLinesByCategory() {
+        ConsoleLogDemultiplexer demultiplexer = new ConsoleLogDemultiplexer();
+        RecordingSink sqlSink = new RecordingSink(LogLineClassifier.SQL);
+        RecordingSink esSink = new RecordingSink(LogLineClassifier.ES);
+        demultiplexer.addSink(sqlSink);
+        demultiplexer.addSink(esSink);
+
+        demultiplexer.feedText("2025-10-23 17:34:57,001 INFO (UserController.java:45)- API: /api/user/list\n" +
+                "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: SELECT * FROM elastic_log\n" +
+                "2025-10-18 21:21:00,523 TRACE (RequestLogger.java:90)- curl -iX POST 'http://localhost:9200/idx/_search'\n" +
+                "# HTTP/1.1 200 OK\n");
+
+        assertEquals(1, sqlSink.lines.size());
+        assertTrue(sqlSink.lines.get(0).contains("Preparing"));
+        assertEquals(1, esSink.lines.size());
+        assertTrue(esSink.lines.get(0).contains("RequestLogger"));
+        assertEquals("/api/user/list", demultiplexer.getContextTracker().getApiPath());
+        assertEquals("UserController.java:45", demultiplexer.getContextTracker().getCallerClass());
+    }
+
+    @Test
+    public void testCapturingSinkReceivesContinuationLines() {
+        ConsoleLogDemultiplexer demultiplexer = new ConsoleLogDemultiplexer();
+        RecordingSink sink = new RecordingSink(LogLineClassifier.ES);
+        sink.capturing = true;
+        demultiplexer.addSink(sink);
+
+        demultiplexer.feedText("# HTTP/1.1 200 OK\r\n#\n");
+
+        assertEquals(2, sink.lines.size());
+        assertEquals("# HTTP/1.1 200 OK", sink.lines.get(0));
+    }
+
+    @Test
+    public void testPartialChunksAreJoined() {
+        ConsoleLogDemultiplexer demultiplexer = new ConsoleLogDemultiplexer();
+        RecordingSink sink = new RecordingSink(LogLineClassifier.SQL);
+        demultiplexer.addSink(sink);
+
+        demultiplexer.feedText("2025-10-23 17:34:58,098 DEBUG (BaseJdbc");
+        assertTrue(sink.lines.isEmpty());
+        demultiplexer.feedText("Logger.java:135)- ==>  Preparing: SELECT 1\n");
+
+        assertEquals(1, sink.lines.size());
+        assertTrue(sink.lines.get(0).endsWith("SELECT 1"));
+    }
+
+    @Test
+    public void testEsUriNotUsedAsApiPath() {
+        ConsoleLogDemultiplexer demultiplexer = new ConsoleLogDemultiplexer();
+        demultiplexer.addSink(new RecordingSink(LogLineClassifier.SQL));
+
+        demultiplexer.feedText("2025-10-23 17:34:57,001 INFO (OrderController.java:30)- API: /api/order/detail\n" +
+                "2025-10-23 17:34:57,500 TRACE (RequestLogger.java:90)- curl -iX POST 'http://localhost:9200/order/_search' uri: /order/_search\n");
+
+        assertEquals("/api/order/detail", demultiplexer.getContextTracker().getApiPath());
+    }
+
+    private static class RecordingSink implements ConsoleLineSink {
+        private final int interestMask;
+        private final List<String> lines = new ArrayList<>();
+        private boolean capturing;
+
+        RecordingSink(int interestMask) {
+            this.interestMask = interestMask;
+        }
+
+        @Override
+        public int getInterestMask() {
+            return interestMask;
+        }
+
+        @Override
+        public boolean isCapturing() {
+            return capturing;
+        }
+
+        @Override
+        public void onLine(@NotNull CharSequence line, int start, int end, int categories,
+                           @NotNull ApiContextTracker context) {
+            lines.add(line.subSequence(start, end).toString());
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.shuyixiao.console;
+
+import org.junit.Test;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * ConsoleRingBuffer 单元测试
+ */
+public class ConsoleRingBufferTest {
+
+    @Test
+    public void testAppendAndView() {
+        ConsoleRingBuffer buffer = new ConsoleRingBuffer(16);
+        buffer.append("hello");
+        buffer.append(' ');
+        buffer.append("xxworldxx", 2, 7);
+
+        assertEquals(11, buffer.size());
+        assertEquals("hello world", buffer.view().toString());
+        assertEquals("world", buffer.view(6, 11).toString());
+        assertEquals('w', buffer.view(6, 11).charAt(0));
+        assertEquals("orl", buffer.view(6, 11).subSequence(1, 4).toString());
+    }
+
+    @Test
+    public void testWrapAroundKeepsNewestCharacters() {
+        ConsoleRingBuffer buffer = new ConsoleRingBuffer(8);
+        buffer.append("abcdef");
+        long before = buffer.tail();
+        buffer.append("ghijk");
+
+        assertEquals(8, buffer.size());
+        assertEquals(3, buffer.head());
+        assertEquals("defghijk", buffer.view().toString());
+        assertEquals("ghijk", buffer.view(before, buffer.tail()).toString());
+    }
+
+    @Test
+    public void testOversizedAppendKeepsTail() {
+        ConsoleRingBuffer buffer = new ConsoleRingBuffer(4);
+        buffer.append("0123456789");
+
+        assertEquals("6789", buffer.view().toString());
+    }
+
+    @Test
+    public void testRetainAndClearOnlyMoveHead() {
+        ConsoleRingBuffer buffer = new ConsoleRingBuffer(32);
+        buffer.append("context-line\nparsed-line\n");
+
+        buffer.retainLast(12);
+        assertEquals("parsed-line\n", buffer.view().toString());
+
+        buffer.discardBefore(buffer.head() - 5);
+        assertEquals(12, buffer.size());
+
+        long parsedTo = buffer.tail();
+        buffer.append("new");
+        buffer.discardBefore(parsedTo);
+        assertEquals("new", buffer.view().toString());
+
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    public void testRegexOnWrappedView() {
+        ConsoleRingBuffer buffer = new ConsoleRingBuffer(24);
+        buffer.append("0123456789012345");
+        buffer.append("API: /api/x\n");
+
+        Matcher matcher = Pattern.compile("API:\\s*(/\\S+)").matcher(buffer.view());
+        assertTrue(matcher.find());
+        assertEquals("/api/x", matcher.group(1));
+    }
+}
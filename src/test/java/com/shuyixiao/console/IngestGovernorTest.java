@@ -0,0 +1,84 @@
+package com.shuyixiao.console;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * IngestGovernor 单元测试
+ */
+public class IngestGovernorTest {
+
+    @Test
+    public void testSamplesWhenOverBudgetAndKeepsImportantRecords() {
+        IngestGovernor governor = new IngestGovernor();
+        int[] transitions = new int[1];
+        governor.setStateListener(() -> transitions[0]++);
+
+        // 第一秒接入 4 倍预算的字符
+        governor.onText((int) (IngestGovernor.MAX_CHARS_PER_SECOND * 4), 0);
+        assertTrue(governor.admit(false));
+        governor.onText(1, 1000);
+
+        assertTrue(governor.isDegraded(1000));
+        assertEquals(4, governor.getSampleRate());
+        assertEquals(1, transitions[0]);
+
+        int admitted = 0;
+        for (int i = 0; i < 40; i++) {
+            if (governor.admit(false)) {
+                admitted++;
+            }
+        }
+        assertEquals(10, admitted);
+        assertEquals(30, governor.getSkippedCount());
+        // 慢查询始终保留
+        assertTrue(governor.admit(true));
+    }
+
+    @Test
+    public void testRecoversAfterCalmWindows() {
+        IngestGovernor governor = new IngestGovernor();
+        governor.onText(0, 0);
+        for (int i = 0; i < IngestGovernor.MAX_RECORDS_PER_SECOND * 2; i++) {
+            governor.admit(false);
+        }
+        governor.onText(10, 1000);
+        assertTrue(governor.isDegraded(1000));
+
+        // 在预算内的窗口不足 RECOVERY_WINDOWS 个时保持降载
+        long now = 1000;
+        for (int i = 1; i < IngestGovernor.RECOVERY_WINDOWS; i++) {
+            now += 1000;
+            governor.onText(10, now);
+        }
+        assertTrue(governor.isDegraded(now));
+
+        now += 1000;
+        governor.onText(10, now);
+        assertFalse(governor.isDegraded(now));
+        assertEquals(1, governor.getSampleRate());
+        assertTrue(governor.admit(false));
+    }
+
+    @Test
+    public void testDegradedStateExpiresWhenOutputStops() {
+        IngestGovernor governor = new IngestGovernor();
+        governor.onText(0, 0);
+        governor.recordParseTime(IngestGovernor.MAX_PARSE_NANOS_PER_SECOND * 3);
+        governor.onText(10, 1000);
+
+        assertTrue(governor.isDegraded(1000));
+        assertEquals(3, governor.getSampleRate());
+        assertFalse(governor.isDegraded(1000 + IngestGovernor.RECOVERY_WINDOWS * IngestGovernor.WINDOW_MILLIS));
+    }
+
+    @Test
+    public void testShedRecordsAreCountedAsSkipped() {
+        IngestGovernor governor = new IngestGovernor();
+        assertTrue(governor.admit(false));
+        governor.shed();
+        governor.shed();
+        assertEquals(2, governor.getSkippedCount());
+    }
+}
@@ -0,0 +1,66 @@
+package com.shuyixiao.console;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * KeywordMatcher 单元测试
+ */
+public class KeywordMatcherTest {
+
+    private static final int A = 1;
+    private static final int B = 1 << 1;
+    private static final int C = 1 << 2;
+
+    @Test
+    public void testCaseInsensitiveMatch() {
+        KeywordMatcher matcher = KeywordMatcher.builder()
+                .add(A, "requestlogger")
+                .add(B, "TomcatWebServer")
+                .build();
+
+        assertEquals(A, matcher.match("2025-10-18 TRACE (RequestLogger.java:90)- curl"));
+        assertEquals(B, matcher.match("o.s.b.w.embedded.tomcat.TOMCATWEBSERVER started"));
+        assertEquals(A | B, matcher.match("requestLOGGER tomcatwebserver"));
+        assertEquals(0, matcher.match("nothing to see here"));
+    }
+
+    @Test
+    public void testOverlappingKeywordsUseFailureLinks() {
+        KeywordMatcher matcher = KeywordMatcher.builder()
+                .add(A, "he", "she")
+                .add(B, "hers")
+                .add(C, "elastic")
+                .build();
+
+        assertEquals(A | B, matcher.match("ushers"));
+        assertEquals(C, matcher.match("xelelastic"));
+        assertEquals(A, matcher.match("xshex"));
+        assertEquals(0, matcher.match("shx"));
+    }
+
+    @Test
+    public void testSameKeywordInSeveralCategories() {
+        KeywordMatcher matcher = KeywordMatcher.builder()
+                .add(A, "-d")
+                .add(B, "-d", "{")
+                .build();
+
+        assertEquals(A | B, matcher.match("curl -XPOST -d"));
+        assertEquals(B, matcher.match("{\"query\":1}"));
+    }
+
+    @Test
+    public void testNonAsciiKeywordsAndRegion() {
+        KeywordMatcher matcher = KeywordMatcher.builder()
+                .add(A, "api：")
+                .add(B, "uri:")
+                .build();
+
+        String line = "请求 API：/api/user/list uri:/x";
+        assertEquals(A | B, matcher.match(line));
+        assertEquals(A, matcher.match(line, 0, line.indexOf("uri")));
+        assertEquals(0, matcher.match("api:/x"));
+    }
+}
@@ -3,6 +3,8 @@ package com.shuyixiao.esdsl.listener;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import com.shuyixiao.console.LogLineClassifier;
+
 import java.lang.reflect.Method;
 
 /**
@@ -10,6 +12,18 @@ import java.lang.reflect.Method;
  */
 public class EsDslOutputListenerTest {
     
+    /**
+     * 按整行调用 shouldKeepText(line, start, end, categories)，类别与分发器相同
+     */
+    private static boolean shouldKeepText(EsDslOutputListener listener, String text) throws Exception {
+        int categories = LogLineClassifier.classify(text, 0, text.length());
+        
+        Method method = EsDslOutputListener.class.getDeclaredMethod("shouldKeepText",
+                CharSequence.class, int.class, int.class, int.class);
+        method.setAccessible(true);
+        return (Boolean) method.invoke(listener, text, 0, text.length(), categories);
+    }
+    
     @Test
     public void testExtractTraceTimestamp() throws Exception {
         EsDslOutputListener listener = new EsDslOutputListener(null);
@@ -65,8 +79,6 @@ public class EsDslOutputListenerTest {
     @Test
     public void testShouldKeepText() throws Exception {
         EsDslOutputListener listener = new EsDslOutputListener(null);
-        Method method = EsDslOutputListener.class.getDeclaredMethod("shouldKeepText", String.class);
-        method.setAccessible(true);
         
         System.out.println("测试4 - shouldKeepText 过滤逻辑:");
         
@@ -79,7 +91,7 @@ public class EsDslOutputListenerTest {
         };
         
         for (String text : shouldKeep) {
-            Boolean result = (Boolean) method.invoke(listener, text);
+            boolean result = shouldKeepText(listener, text);
             String preview = text.length() > 80 ? text.substring(0, 80) + "..." : text;
             System.out.println("  ✓ 应该保留: " + preview + " -> " + result);
             assertTrue("应该保留: " + preview, result);
@@ -94,7 +106,7 @@ public class EsDslOutputListenerTest {
         };
         
         for (String text : shouldFilter) {
-            Boolean result = (Boolean) method.invoke(listener, text);
+            boolean result = shouldKeepText(listener, text);
             String preview = text.length() > 80 ? text.substring(0, 80) + "..." : text;
             System.out.println("  ✗ 应该过滤: " + preview + " -> " + result);
             assertFalse("应该过滤: " + preview, result);
@@ -109,9 +121,6 @@ public class EsDslOutputListenerTest {
         EsDslOutputListener listener = new EsDslOutputListener(null);
         
         // 获取私有方法
-        Method shouldKeepText = EsDslOutputListener.class.getDeclaredMethod("shouldKeepText", String.class);
-        shouldKeepText.setAccessible(true);
-        
         Method extractTraceTimestamp = EsDslOutputListener.class.getDeclaredMethod("extractTraceTimestamp", String.class);
         extractTraceTimestamp.setAccessible(true);
         
@@ -130,7 +139,7 @@ public class EsDslOutputListenerTest {
         int filtered = 0;
         
         for (String line : logLines) {
-            Boolean keep = (Boolean) shouldKeepText.invoke(listener, line);
+            boolean keep = shouldKeepText(listener, line);
             String preview = line.length() > 60 ? line.substring(0, 60) + "..." : line;
             
             if (keep) {
@@ -0,0 +1,62 @@
+package com.shuyixiao.esdsl.parser;
+
+import com.shuyixiao.esdsl.model.EsDslIssue;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * EsDslAnalyzer 单元测试
+ */
+public class EsDslAnalyzerTest {
+
+    private static List<EsDslIssue> analyze(String dsl, String endpoint) {
+        return EsDslAnalyzer.analyze(EsDslTree.parse(dsl), endpoint);
+    }
+
+    private static EsDslIssue find(List<EsDslIssue> issues, String rule) {
+        for (EsDslIssue issue : issues) {
+            if (issue.getRule().equals(rule)) {
+                return issue;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testExpensivePatternsReportedBySeverity() {
+        List<EsDslIssue> issues = analyze("{\"from\":9995,\"size\":20,"
+                + "\"query\":{\"bool\":{\"must\":[{\"term\":{\"status\":1}},{\"wildcard\":{\"name\":{\"value\":\"*abc\"}}}],"
+                + "\"should\":[{\"script_score\":{\"script\":{\"source\":\"doc['x'].value\"}}}]}},"
+                + "\"aggs\":{\"by_tag\":{\"terms\":{\"field\":\"tag\"}}}}", "idx/_search");
+
+        assertEquals(EsDslIssue.Severity.CRITICAL, issues.get(0).getSeverity());
+        assertEquals(EsDslIssue.Severity.CRITICAL, find(issues, "DEEP_PAGINATION").getSeverity());
+        assertEquals(EsDslIssue.Severity.CRITICAL, find(issues, "LEADING_WILDCARD").getSeverity());
+        assertEquals(EsDslIssue.Severity.WARNING, find(issues, "SCRIPT").getSeverity());
+        assertEquals(EsDslIssue.Severity.INFO, find(issues, "TERMS_AGG_SIZE").getSeverity());
+        assertTrue(find(issues, "FILTER_CONTEXT").getMessage().contains("term"));
+        assertNull(find(issues, "SOURCE"));
+    }
+
+    @Test
+    public void testCleanQueryAndDocumentBodiesHaveNoIssues() {
+        assertTrue(analyze("{\"size\":10,\"query\":{\"bool\":{\"filter\":[{\"term\":{\"status\":1}}],"
+                + "\"must\":[{\"match\":{\"title\":\"x\"}}]}},\"_source\":[\"title\"]}", "idx/_search").isEmpty());
+        // 文档写入的请求体不是查询
+        assertTrue(analyze("{\"from\":50000,\"script\":{\"source\":\"x\"}}", "idx/_doc/1").isEmpty());
+        // 名为 script 的普通字段
+        assertTrue(analyze("{\"query\":{\"term\":{\"script\":\"abc\"}}}", null).isEmpty());
+    }
+
+    @Test
+    public void testRegexpKeepsMostSevereFinding() {
+        List<EsDslIssue> issues = analyze("{\"query\":{\"bool\":{\"should\":[{\"regexp\":{\"a\":\"ab.*\"}},"
+                + "{\"regexp\":{\"b\":\".*cd\"}}]}}}", "idx/_search");
+
+        assertEquals(1, issues.size());
+        assertEquals(EsDslIssue.Severity.CRITICAL, issues.get(0).getSeverity());
+    }
+}
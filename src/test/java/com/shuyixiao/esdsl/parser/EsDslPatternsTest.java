@@ -0,0 +1,45 @@
+package com.shuyixiao.esdsl.parser;
+
+import com.shuyixiao.esdsl.model.EsDslRecord;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * EsDslPatterns 单元测试
+ * 验证按 DSL 位置限定范围的上下文提取
+ */
+public class EsDslPatternsTest {
+
+    private static final String LOG =
+            "2025-10-18 21:27:52,063 TRACE (RequestLogger.java:90)- curl -iX GET 'http://10.10.0.210:9222/_cluster/health'\n" +
+            "# HTTP/1.1 503 Service Unavailable\n" +
+            "2025-10-18 21:28:02,306 TRACE (RequestLogger.java:90)- curl -iX PUT 'http://10.10.0.210:9222/idx/_doc/1' -d '{\"query\":{\"match_all\":{}}}'\n" +
+            "# HTTP/1.1 201 Created\n";
+
+    @Test
+    public void testContextIsTakenAroundDsl() {
+        int dslPos = LOG.indexOf("{\"query\"");
+        EsDslPatterns patterns = EsDslPatterns.get();
+        try {
+            assertEquals("PUT", patterns.lastMethod(LOG, dslPos));
+            assertEquals("http://10.10.0.210:9222/idx/_doc/1", patterns.lastUrl(LOG, dslPos));
+            // 取该请求之后的响应，而不是前一个请求的
+            assertEquals(Integer.valueOf(201), patterns.httpStatus(LOG, dslPos));
+            assertEquals(Integer.valueOf(503), patterns.httpStatus(LOG, 0));
+        } finally {
+            patterns.release();
+        }
+    }
+
+    @Test
+    public void testParseEsDslUsesPrecompiledContext() {
+        EsDslRecord record = EsDslParser.parseEsDsl(LOG, "TestProject");
+
+        assertNotNull(record);
+        assertEquals("PUT", record.getMethod());
+        assertEquals("idx", record.getIndex());
+        assertEquals(Integer.valueOf(201), record.getHttpStatus());
+        assertEquals("RequestLogger", record.getSource());
+    }
+}
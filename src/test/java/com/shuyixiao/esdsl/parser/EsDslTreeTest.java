@@ -0,0 +1,55 @@
+package com.shuyixiao.esdsl.parser;
+
+import com.shuyixiao.esdsl.model.EsDslRecord;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * EsDslTree 单元测试
+ * 验证查询形状与取值、字段顺序、列表长度无关，以及格式化输出
+ */
+public class EsDslTreeTest {
+
+    @Test
+    public void testShapeIgnoresValuesOrderAndListLength() {
+        EsDslTree first = EsDslTree.parse(
+                "{\"size\":10,\"query\":{\"bool\":{\"must\":[{\"term\":{\"tenant\":\"a\"}},"
+                        + "{\"terms\":{\"id\":[1,2,3]}}]}}}");
+        EsDslTree second = EsDslTree.parse(
+                "{\"query\":{\"bool\":{\"must\":[{\"terms\":{\"id\":[7]}},"
+                        + "{\"term\":{\"tenant\":\"b\"}}]}},\"size\":50}");
+        EsDslTree other = EsDslTree.parse("{\"size\":10,\"query\":{\"term\":{\"tenant\":\"a\"}}}");
+
+        assertNotNull(first);
+        assertEquals("{\"query\":{\"bool\":{\"must\":[{\"term\":{\"tenant\":?}},{\"terms\":{\"id\":[?+]}}]}},\"size\":?}",
+                first.getShape());
+        assertEquals(first.getShape(), second.getShape());
+        assertEquals(first.getFingerprint(), second.getFingerprint());
+        assertNotEquals(first.getFingerprint(), other.getFingerprint());
+    }
+
+    @Test
+    public void testLenientParseAndFormat() {
+        // 未加引号的字段名、单引号字符串
+        EsDslTree tree = EsDslTree.parse("{query: {'match': {\"title\": \"a \\\"b\\\"\"}},\n \"from\": 0}");
+
+        assertNotNull(tree);
+        assertEquals("a \"b\"", tree.getRoot().get("query").get("match").get("title").getValue());
+        assertEquals("{\n  \"query\": {\n    \"match\": {\n      \"title\": \"a \\\"b\\\"\"\n    }\n  },\n  \"from\": 0\n}",
+                tree.format());
+        assertNull(EsDslTree.parse("[1,2]"));
+        assertNull(EsDslTree.parse("{\"query\":"));
+    }
+
+    @Test
+    public void testParsedRecordCarriesShape() {
+        String log = "2025-10-18 21:28:02,306 TRACE (RequestLogger.java:90)- curl -iX POST "
+                + "'http://localhost:9200/idx/_search' -d '{\"query\":{\"match\":{\"title\":\"x\"}},\"size\":5}'\n";
+        EsDslRecord record = EsDslParser.parseEsDsl(log, "TestProject");
+
+        assertNotNull(record);
+        assertEquals("{\"query\":{\"match\":{\"title\":?}},\"size\":?}", record.getQueryShape());
+        assertEquals(EsDslTree.hash(record.getQueryShape()), record.getFingerprint());
+    }
+}
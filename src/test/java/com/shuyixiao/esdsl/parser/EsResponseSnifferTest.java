@@ -0,0 +1,70 @@
+package com.shuyixiao.esdsl.parser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * EsResponseSniffer 单元测试
+ * 验证只提取 took / timed_out / _shards.failed / hits.total，跨行保持状态
+ */
+public class EsResponseSnifferTest {
+
+    private final List<EsResponseSniffer.Response> responses = new ArrayList<>();
+    private final EsResponseSniffer sniffer = new EsResponseSniffer((response, offset) -> responses.add(response));
+
+    @Test
+    public void testSingleLineSearchResponse() {
+        feedLines("# HTTP/1.1 200 OK",
+                "# {\"took\":6,\"timed_out\":false,\"_shards\":{\"total\":2,\"successful\":1,\"failed\":1},"
+                        + "\"hits\":{\"total\":{\"value\":10000,\"relation\":\"gte\"},\"max_score\":null,"
+                        + "\"hits\":[{\"_id\":\"1\",\"_source\":{\"took\":99,\"hits\":{\"total\":1}}},{\"_id\":\"2\"}]}}");
+
+        assertEquals(1, responses.size());
+        EsResponseSniffer.Response response = responses.get(0);
+        assertEquals(Long.valueOf(6), response.getTook());
+        assertEquals(Boolean.FALSE, response.getTimedOut());
+        assertEquals(Integer.valueOf(1), response.getShardsFailed());
+        assertEquals(Long.valueOf(10000), response.getHitsTotal());
+        assertEquals("gte", response.getHitsTotalRelation());
+        assertEquals(2, response.getReturnedHits());
+        assertFalse(sniffer.isInResponse());
+    }
+
+    @Test
+    public void testMultiLineLegacyResponse() {
+        feedLines("# {",
+                "#   \"took\" : 12,",
+                "#   \"msg\" : \"a } \\\" {\",",
+                "#   \"hits\" : { \"total\" : 3, \"hits\" : [ ] }",
+                "# }");
+
+        assertEquals(1, responses.size());
+        assertEquals(Long.valueOf(12), responses.get(0).getTook());
+        assertEquals(Long.valueOf(3), responses.get(0).getHitsTotal());
+        assertEquals("eq", responses.get(0).getHitsTotalRelation());
+        assertNull(responses.get(0).getShardsFailed());
+    }
+
+    @Test
+    public void testTruncatedResponseDiscardedOnReset() {
+        feedLines("# {\"took\":1,\"hits\":{\"hits\":[{\"_id\":\"1\"");
+        assertTrue(sniffer.isInResponse());
+        sniffer.reset();
+        feedLines("# {\"took\":2}");
+
+        assertEquals(1, responses.size());
+        assertEquals(Long.valueOf(2), responses.get(0).getTook());
+    }
+
+    private void feedLines(String... lines) {
+        long offset = 0;
+        for (String line : lines) {
+            sniffer.feedLine(line, 0, line.length(), offset);
+            offset += line.length() + 1;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.shuyixiao.esdsl.parser;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * JsonObjectFramer 单元测试
+ * 验证跨行 / 跨 chunk 保持状态、每个对象只回调一次，以及残缺对象的恢复
+ */
+public class JsonObjectFramerTest {
+
+    private final List<String> objects = new ArrayList<>();
+    private final List<Long> offsets = new ArrayList<>();
+    private final JsonObjectFramer framer = new JsonObjectFramer((json, offset) -> {
+        objects.add(json.toString());
+        offsets.add(offset);
+    });
+
+    @Test
+    public void testObjectSplitAcrossChunks() {
+        String first = "curl -d '{\"query\":{\"match\":";
+        String second = "{\"title\":\"a } b\"}}}' -- {\"size\":1}";
+        framer.feed(first, 0, first.length(), 100);
+        assertTrue(framer.isInObject());
+        framer.feed(second, 0, second.length(), 100 + first.length());
+
+        assertEquals(2, objects.size());
+        assertEquals("{\"query\":{\"match\":{\"title\":\"a } b\"}}}", objects.get(0));
+        assertEquals(Long.valueOf(100 + first.indexOf('{')), offsets.get(0));
+        assertEquals("{\"size\":1}", objects.get(1));
+        assertFalse(framer.isInObject());
+    }
+
+    @Test
+    public void testMultiLineObjectKeepsNewlines() {
+        feedLines("# {",
+                "#   \"took\": 3, \"msg\": \"escaped \\\" quote {\"",
+                "# }");
+
+        assertEquals(1, objects.size());
+        assertEquals("{\n#   \"took\": 3, \"msg\": \"escaped \\\" quote {\"\n# }", objects.get(0));
+    }
+
+    @Test
+    public void testUnclosedObjectDroppedOnNewLogLine() {
+        feedLines("2025-10-18 21:28:02,306 INFO (X.java:1)- Map{a=1, b={c=2",
+                "2025-10-18 21:28:02,307 TRACE (RequestLogger.java:90)- curl -d '{\"from\":0,\"size\":12}'");
+
+        assertEquals(1, objects.size());
+        assertEquals("{\"from\":0,\"size\":12}", objects.get(0));
+        assertTrue(EsDslParser.isEsDsl(objects.get(0)));
+    }
+
+    private void feedLines(String... lines) {
+        long offset = 0;
+        for (String line : lines) {
+            framer.feedLine(line, 0, line.length(), offset);
+            offset += line.length() + 1;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.shuyixiao.esdsl.service;
+
+import com.shuyixiao.esdsl.model.EsDslQueryStats;
+import com.shuyixiao.esdsl.model.EsDslRecord;
+import com.shuyixiao.esdsl.parser.EsDslTree;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * EsDslQueryAggregator 单元测试
+ */
+public class EsDslQueryAggregatorTest {
+
+    private static EsDslRecord record(String dsl, String index, String apiPath, Long executionTime, int status) {
+        EsDslTree tree = EsDslTree.parse(dsl);
+        return EsDslRecord.builder()
+                .project("demo")
+                .method("POST")
+                .index(index)
+                .dslQuery(tree.format())
+                .queryShape(tree.getShape())
+                .fingerprint(tree.getFingerprint())
+                .apiPath(apiPath)
+                .executionTime(executionTime)
+                .httpStatus(status)
+                .build();
+    }
+
+    @Test
+    public void testSameShapeAggregatedIntoOneEntry() {
+        EsDslQueryAggregator aggregator = new EsDslQueryAggregator();
+        for (int i = 1; i <= 20; i++) {
+            aggregator.record(record("{\"query\":{\"term\":{\"user_id\":" + i + "}}}",
+                    i % 2 == 0 ? "user_a" : "user_b", "/api/user", (long) i, i == 20 ? 500 : 200));
+        }
+        aggregator.record(record("{\"query\":{\"match_all\":{}}}", "user_a", "/api/list", 3L, 200));
+
+        assertEquals(2, aggregator.size());
+        List<EsDslQueryStats> top = aggregator.getTopQueries(null, 10);
+        EsDslQueryStats stats = top.get(0);
+        assertEquals(20, stats.getCount());
+        assertEquals(1, stats.getFailureCount());
+        assertEquals("{\"query\":{\"term\":{\"user_id\":?}}}", stats.getQueryShape());
+        assertEquals(20, stats.getMaxExecutionTime());
+        assertTrue(stats.getLatency().getP95() >= stats.getLatency().getP50());
+        assertEquals(Long.valueOf(10), stats.getIndexCounts().get("user_a"));
+        assertEquals(Long.valueOf(20), stats.getApiPathCounts().get("/api/user"));
+
+        List<EsDslQueryStats> listOnly = aggregator.getTopQueries("/api/list", 10);
+        assertEquals(1, listOnly.size());
+        assertEquals(1, listOnly.get(0).getCount("/api/list"));
+    }
+
+    @Test
+    public void testLegacyRecordWithoutShapeIsParsed() {
+        EsDslQueryAggregator aggregator = new EsDslQueryAggregator();
+        aggregator.record(EsDslRecord.builder().dslQuery("{\n  \"size\": 1\n}").build());
+        aggregator.record(EsDslRecord.builder().dslQuery("not json").build());
+
+        assertEquals(1, aggregator.size());
+        assertEquals("{\"size\":?}", aggregator.getTopQueries(null, 1).get(0).getQueryShape());
+    }
+}
@@ -0,0 +1,147 @@
+package com.shuyixiao.sql.dialect;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.console.LogLineClassifier;
+import com.shuyixiao.sql.model.SqlRecord;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SqlDialectSelector 单元测试
+ * 按控制台分发器的规则喂入日志（只有 SQL 行和装配期间的延续行），验证各方言的解析与自动锁定
+ */
+public class SqlDialectSelectorTest {
+
+    @Test
+    public void testHibernateWithBindings() {
+        String log = "2025-10-23 17:34:58.098 DEBUG 1 --- [nio-8080-exec-1] org.hibernate.SQL : select u1_0.id,u1_0.name from sys_user u1_0 where u1_0.id=?\n" +
+                "2025-10-23 17:34:58.099 TRACE 1 --- [nio-8080-exec-1] org.hibernate.orm.jdbc.bind : binding parameter (1:BIGINT) <- [42]\n" +
+                "2025-10-23 17:34:58.120 INFO 1 --- [nio-8080-exec-1] c.e.UserService : loaded\n";
+
+        SqlDialectSelector selector = selector();
+        List<SqlRecord> records = feed(selector, log);
+
+        assertEquals(1, records.size());
+        SqlRecord record = records.get(0);
+        assertEquals("Hibernate", record.getSource());
+        assertEquals("SELECT", record.getOperation());
+        assertEquals("sys_user", record.getTableName());
+        assertEquals("42(BIGINT)", record.getParameters());
+        assertEquals("Hibernate", selector.getDialectName());
+    }
+
+    @Test
+    public void testHibernateLastStatementFlushedAtEnd() {
+        String log = "Hibernate: insert into orders (amount, id) values (?, ?)\n" +
+                "2025-10-23 17:34:58.099 TRACE 1 --- [main] o.h.type.descriptor.sql.BasicBinder : binding parameter [1] as [NUMERIC] - [9.90]\n";
+
+        SqlDialectSelector selector = selector();
+        assertTrue(feed(selector, log).isEmpty());
+
+        SqlRecord record = selector.flush();
+        assertNotNull(record);
+        assertEquals("INSERT", record.getOperation());
+        assertEquals("9.90(NUMERIC)", record.getParameters());
+        assertFalse(selector.isAssembling());
+    }
+
+    @Test
+    public void testP6SpySingleLineWithElapsed() {
+        String log = "2025-10-23 17:34:58.098 INFO p6spy : 1700000000000|12|statement|connection 5|url jdbc:mysql://db|"
+                + "select * from t_order where id=?|select * from t_order where id=7\n";
+
+        List<SqlRecord> records = feed(selector(), log);
+
+        assertEquals(1, records.size());
+        assertEquals("p6spy", records.get(0).getSource());
+        assertEquals("select * from t_order where id=7", records.get(0).getSqlStatement());
+        assertEquals(Long.valueOf(12), records.get(0).getExecutionTime());
+    }
+
+    @Test
+    public void testJdbcTemplateUpdate() {
+        String log = "2025-10-23 17:34:58.098 DEBUG o.s.jdbc.core.JdbcTemplate : Executing prepared SQL statement [update t_user set name = ? where id = ?]\n" +
+                "2025-10-23 17:34:58.099 TRACE o.s.jdbc.core.StatementCreatorUtils : Setting SQL statement parameter value: column index 1, parameter value [bob], value class [java.lang.String], SQL type unknown\n" +
+                "2025-10-23 17:34:58.099 TRACE o.s.jdbc.core.StatementCreatorUtils : Setting SQL statement parameter value: column index 2, parameter value [3], value class [java.lang.Long], SQL type unknown\n" +
+                "2025-10-23 17:34:58.105 DEBUG o.s.jdbc.core.JdbcTemplate : SQL update affected 1 rows\n";
+
+        List<SqlRecord> records = feed(selector(), log);
+
+        assertEquals(1, records.size());
+        SqlRecord record = records.get(0);
+        assertEquals("JdbcTemplate", record.getSource());
+        assertEquals("UPDATE", record.getOperation());
+        assertEquals("bob(String), 3(Long)", record.getParameters());
+        assertEquals(Integer.valueOf(1), record.getResultCount());
+    }
+
+    @Test
+    public void testJooqPrefersInlinedStatement() {
+        String log = "2025-10-23 17:34:58.098 DEBUG org.jooq.tools.LoggerListener : Executing query          : select \"t\".\"id\" from \"t\" where \"t\".\"id\" = ?\n" +
+                "2025-10-23 17:34:58.098 DEBUG org.jooq.tools.LoggerListener : -> with bind values      : select \"t\".\"id\" from \"t\" where \"t\".\"id\" = 5\n" +
+                "2025-10-23 17:34:58.101 DEBUG org.jooq.tools.StopWatchListener : Query executed           : Total: 3.512ms\n" +
+                "2025-10-23 17:34:58.102 DEBUG org.jooq.tools.LoggerListener : Fetched row(s)           : 1\n";
+
+        List<SqlRecord> records = feed(selector(), log);
+
+        assertEquals(1, records.size());
+        SqlRecord record = records.get(0);
+        assertEquals("jOOQ", record.getSource());
+        assertTrue(record.getSqlStatement().endsWith("= 5"));
+        assertEquals(Integer.valueOf(1), record.getResultCount());
+        assertEquals(Long.valueOf(3), record.getExecutionTime());
+    }
+
+    @Test
+    public void testLocksOnFirstEmittingDialect() {
+        String log = "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: SELECT id FROM sys_user WHERE id = ?\n" +
+                "2025-10-23 17:34:58,099 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: 1(Integer)\n" +
+                "2025-10-23 17:34:58,101 DEBUG (BaseJdbcLogger.java:135)- <==      Total: 1\n" +
+                // 锁定 MyBatis 后其他方言的行不再解析
+                "Hibernate: delete from sys_user\n";
+
+        SqlDialectSelector selector = selector();
+        List<SqlRecord> records = feed(selector, log);
+
+        assertEquals(1, records.size());
+        assertEquals("MyBatis", selector.getDialectName());
+        assertNull(selector.flush());
+    }
+
+    @Test
+    public void testForcedDialect() {
+        SqlDialectSelector selector = SqlDialectSelector.create("Hibernate", "TestProject", new ApiContextTracker());
+        assertEquals("Hibernate", selector.getDialectName());
+
+        SqlDialectSelector auto = SqlDialectSelector.create(SqlLogDialects.AUTO, "TestProject", new ApiContextTracker());
+        assertNull(auto.getDialectName());
+    }
+
+    private static SqlDialectSelector selector() {
+        return new SqlDialectSelector(SqlLogDialects.builtIn(), "TestProject", new ApiContextTracker());
+    }
+
+    private static List<SqlRecord> feed(SqlDialectSelector selector, String log) {
+        List<SqlRecord> records = new ArrayList<>();
+        int start = 0;
+        while (start < log.length()) {
+            int end = log.indexOf('\n', start);
+            if (end < 0) {
+                end = log.length();
+            }
+            int categories = LogLineClassifier.classify(log, start, end);
+            if (LogLineClassifier.has(categories, LogLineClassifier.SQL) || selector.isAssembling()) {
+                SqlRecord record = selector.acceptLine(log, start, end);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+            start = end + 1;
+        }
+        return records;
+    }
+}
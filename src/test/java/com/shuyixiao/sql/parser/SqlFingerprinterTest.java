@@ -0,0 +1,53 @@
+package com.shuyixiao.sql.parser;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * SqlFingerprinter 单元测试
+ */
+public class SqlFingerprinterTest {
+
+    @Test
+    public void testLiteralsAndInListCollapsed() {
+        assertEquals("select * from t where id in(?+) and name = ?",
+                SqlFingerprinter.normalize("SELECT * FROM t WHERE id IN (1, 2, 3) AND name = 'a'"));
+    }
+
+    @Test
+    public void testSameShapeSameFingerprint() {
+        long a = SqlFingerprinter.fingerprint("select id from sys_user where id in (?, ?) and status = 1");
+        long b = SqlFingerprinter.fingerprint("SELECT id\n  FROM sys_user\n WHERE id IN (?,?,?,?)\n   AND status = 2");
+        long c = SqlFingerprinter.fingerprint("SELECT id FROM sys_user WHERE name IN (?, ?) AND status = 1");
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+    }
+
+    @Test
+    public void testPlaceholderAndLiteralNormalizeAlike() {
+        assertEquals(SqlFingerprinter.normalize("select ? from dual"),
+                SqlFingerprinter.normalize("select 'x' from dual"));
+        assertEquals("update t set a = ?,b = ? where id = ?",
+                SqlFingerprinter.normalize("UPDATE t SET a = 'it''s', b = -1.5e3 WHERE id = 0x1F"));
+    }
+
+    @Test
+    public void testCommentsStripped() {
+        assertEquals("select a from t where b = ?",
+                SqlFingerprinter.normalize("/* hint */ SELECT a -- trailing\nFROM t WHERE b = 10"));
+    }
+
+    @Test
+    public void testMultiRowValuesCollapsed() {
+        assertEquals("insert into t(a,b) values(?+)",
+                SqlFingerprinter.normalize("INSERT INTO t (a, b) VALUES (?, ?), (?, ?), (?, ?)"));
+    }
+
+    @Test
+    public void testIdentifiersKeepDigitsAndQuotedCase() {
+        assertEquals("select col1 from \"UserTable\" where t2.x >= ?",
+                SqlFingerprinter.normalize("SELECT col1 FROM \"UserTable\" WHERE t2.x>=5"));
+        assertEquals("", SqlFingerprinter.normalize(null));
+    }
+}
@@ -0,0 +1,61 @@
+package com.shuyixiao.sql.parser;
+
+import com.shuyixiao.sql.model.SqlRecord;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SqlParameterBinder 单元测试
+ * 验证参数边界识别、按类型生成字面量和占位符替换
+ */
+public class SqlParameterBinderTest {
+
+    @Test
+    public void testTypeAwareLiterals() {
+        String sql = "SELECT * FROM t WHERE id = ? AND code = ? AND enabled = ? AND score = ? AND owner = ?";
+        String params = "42(Long), 007(String), true(Boolean), 1.5E3(BigDecimal), null";
+
+        assertEquals("SELECT * FROM t WHERE id = 42 AND code = '007' AND enabled = true AND score = 1.5E3 AND owner = null",
+                SqlParameterBinder.bind(sql, params));
+    }
+
+    @Test
+    public void testValuesWithSeparatorsQuotesAndNewlines() {
+        String json = "{\"title\":\"it's (a) test, ok\",\n  \"tags\":[\"a\", \"b\"]}";
+        String params = json + "(String), John Doe(String), (String), 9(Integer)";
+
+        List<SqlParameterBinder.Parameter> parsed = SqlParameterBinder.parseParameters(params);
+
+        assertEquals(4, parsed.size());
+        assertEquals(json, parsed.get(0).getValue());
+        assertEquals("John Doe", parsed.get(1).getValue());
+        assertEquals("", parsed.get(2).getValue());
+        assertEquals("Integer", parsed.get(3).getType());
+
+        String bound = SqlParameterBinder.bind("UPDATE t SET data=?, name=?, note=? WHERE id=?", params);
+        assertEquals("UPDATE t SET data='" + json.replace("'", "''") + "', name='John Doe', note='' WHERE id=9", bound);
+    }
+
+    @Test
+    public void testPlaceholdersInLiteralsAndCommentsKept() {
+        String sql = "SELECT '?' AS q, \"a?\" FROM t /* ? */ WHERE id = ? -- ?\n AND name = ?";
+
+        assertEquals("SELECT '?' AS q, \"a?\" FROM t /* ? */ WHERE id = 1 -- ?\n AND name = 'x'",
+                SqlParameterBinder.bind(sql, "1(Integer), x(String)"));
+    }
+
+    @Test
+    public void testExecutableSqlMemoized() {
+        SqlRecord record = SqlRecord.builder()
+                .sqlStatement("SELECT * FROM t WHERE id = ?")
+                .parameters("5(Integer)")
+                .build();
+
+        String first = record.getExecutableSql();
+        assertEquals("SELECT * FROM t WHERE id = 5", first);
+        assertSame(first, record.getExecutableSql());
+    }
+}
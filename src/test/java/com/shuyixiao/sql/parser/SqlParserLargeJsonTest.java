@@ -43,6 +43,53 @@ public class SqlParserLargeJsonTest {
         assertTrue("Should contain the JSON value", executableSql.contains("{\"key\": \"value\"}"));
     }
     
+    @Test
+    public void testParametersEndAtNextLogLine() {
+        String testLog = "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: SELECT * FROM t WHERE id=?\n" +
+                "2025-10-23 17:34:58,099 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: 7(Long)\n" +
+                "2025-10-23 17:34:58,100 INFO (OrderService.java:88)- unrelated line\n";
+
+        assertEquals("7(Long)", SqlParser.extractParameters(testLog));
+    }
+
+    @Test(timeout = 5000)
+    public void testLargeJsonParametersScannedLinearly() {
+        // 1 MB 多行 JSON 参数且后面没有结果行：原 PARAMETERS_PATTERN 的惰性量词加前瞻在这里退化为超线性
+        StringBuilder json = new StringBuilder("{\"items\":[\n");
+        while (json.length() < 1024 * 1024) {
+            json.append("  {\"id\":1,\"text\":\"2025-10-23 line <= not an end\"},\n");
+        }
+        json.append("]}");
+        String testLog = "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: UPDATE t SET data=? WHERE id=?\n" +
+                "2025-10-23 17:34:58,099 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: " + json + "(String), 1(Long)";
+
+        SqlRecord record = SqlParser.parseSql(testLog, "TestProject");
+
+        assertNotNull(record);
+        assertEquals(json + "(String), 1(Long)", record.getParameters());
+        assertFalse(record.isParametersTruncated());
+    }
+
+    @Test
+    public void testOversizedParametersAreMarkedTruncated() {
+        StringBuilder json = new StringBuilder("{\"items\":[\n");
+        while (json.length() <= SqlParser.MAX_PARAMETERS_LENGTH) {
+            json.append("  {\"id\":1},\n");
+        }
+        json.append("]}");
+        String testLog = "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: UPDATE t SET data=? WHERE id=?\n" +
+                "2025-10-23 17:34:58,099 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: " + json + "(String), 1(Long)";
+
+        SqlRecord record = SqlParser.parseSql(testLog, "TestProject");
+
+        assertNotNull(record);
+        assertTrue(record.isParametersTruncated());
+        assertTrue(record.getParameters().length() <= SqlParser.MAX_PARAMETERS_LENGTH);
+        // 不用残缺的参数拼出可执行 SQL
+        assertTrue(record.getExecutableSql().startsWith("UPDATE t SET data=? WHERE id=?"));
+        assertTrue(record.getExecutableSql().contains("已截断"));
+    }
+
     @Test
     public void testReplaceParametersWithSimpleValues() {
         String sql = "SELECT * FROM users WHERE id=? AND name=? AND age=?";
@@ -0,0 +1,151 @@
+package com.shuyixiao.sql.parser;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.console.LogLineClassifier;
+import com.shuyixiao.sql.model.SqlRecord;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SqlStatementAssembler 单元测试
+ * 验证逐行状态机对 MyBatis 日志的装配结果
+ */
+public class SqlStatementAssemblerTest {
+
+    @Test
+    public void testAssembleSelectWithContext() {
+        String log = "2025-10-23 17:34:57,001 INFO (UserController.java:45)- API: /api/user/list, 分页查询\n" +
+                "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: SELECT id, name FROM sys_user WHERE id = ?\n" +
+                "2025-10-23 17:34:58,099 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: 1(Integer)\n" +
+                "2025-10-23 17:34:58,101 DEBUG (BaseJdbcLogger.java:135)- <==      Total: 1\n";
+
+        List<SqlRecord> records = feed(log);
+
+        assertEquals(1, records.size());
+        SqlRecord record = records.get(0);
+        assertEquals("SELECT", record.getOperation());
+        assertEquals("sys_user", record.getTableName());
+        assertEquals("1(Integer)", record.getParameters());
+        assertEquals(Integer.valueOf(1), record.getResultCount());
+        assertEquals("/api/user/list", record.getApiPath());
+        assertEquals("UserController.java:45", record.getCallerClass());
+        assertEquals("MyBatis", record.getSource());
+    }
+
+    @Test
+    public void testExecutionTimeFromLogTimestamps() {
+        String log = "2025-10-23 23:59:59.950 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: SELECT * FROM sys_user\n" +
+                "2025-10-23 23:59:59.951 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: \n" +
+                "2025-10-24 00:00:00.070 DEBUG (BaseJdbcLogger.java:135)- <==      Total: 20\n";
+
+        List<SqlRecord> records = feed(log);
+
+        assertEquals(1, records.size());
+        assertEquals(Long.valueOf(120), records.get(0).getExecutionTime());
+    }
+
+    @Test
+    public void testReportedExecutionTimePreferred() {
+        String log = "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: DELETE FROM t WHERE id = ?\n" +
+                "2025-10-23 17:34:58,099 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: 1(Long)\n" +
+                "2025-10-23 17:34:58,140 INFO (SqlCostInterceptor.java:30)- statement took 37 ms\n" +
+                "2025-10-23 17:34:58,141 DEBUG (BaseJdbcLogger.java:135)- <==    Updates: 1\n" +
+                "<==    Total: 1\n";
+
+        List<SqlRecord> records = feed(log);
+
+        assertEquals(1, records.size());
+        assertEquals(Long.valueOf(37), records.get(0).getExecutionTime());
+        assertEquals("1(Long)", records.get(0).getParameters());
+    }
+
+    @Test
+    public void testMultilineParametersAndUpdates() {
+        String log = "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: UPDATE test SET data=?, name=? WHERE id=?\n" +
+                "2025-10-23 17:34:58,099 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: this is a long text\n" +
+                "with multiple lines\n" +
+                "{\"key\": \"value\"}(String), John Doe(String), 123(Integer)\n" +
+                "2025-10-23 17:34:58,101 DEBUG (BaseJdbcLogger.java:135)- <==    Updates: 1\n";
+
+        List<SqlRecord> records = feed(log);
+
+        assertEquals(1, records.size());
+        SqlRecord record = records.get(0);
+        assertEquals("UPDATE", record.getOperation());
+        assertEquals("test", record.getTableName());
+        assertTrue(record.getParameters().contains("with multiple lines"));
+        assertTrue(record.getParameters().endsWith("123(Integer)"));
+        assertFalse(record.getExecutableSql().contains("?"));
+    }
+
+    @Test
+    public void testUnrelatedLinesBetweenStatements() {
+        String log = "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: SELECT * FROM a WHERE x = ?\n" +
+                "2025-10-23 17:34:58,099 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: 7(Long)\n" +
+                "2025-10-23 17:34:58,100 INFO (HikariPool.java:100)- HikariPool-1 - Start completed.\n" +
+                "2025-10-23 17:34:58,101 DEBUG (BaseJdbcLogger.java:135)- <==      Total: 0\n" +
+                "2025-10-23 17:34:58,200 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: DELETE FROM b WHERE id = ?\n" +
+                "2025-10-23 17:34:58,201 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: 9(Long)\n" +
+                "2025-10-23 17:34:58,202 DEBUG (BaseJdbcLogger.java:135)- <==    Updates: 1\n";
+
+        List<SqlRecord> records = feed(log);
+
+        assertEquals(2, records.size());
+        assertEquals("7(Long)", records.get(0).getParameters());
+        assertEquals(Integer.valueOf(0), records.get(0).getResultCount());
+        assertEquals("DELETE", records.get(1).getOperation());
+        assertEquals("b", records.get(1).getTableName());
+    }
+
+    @Test
+    public void testOrphanResultLineIgnored() {
+        String log = "2025-10-23 17:34:58,101 DEBUG (BaseJdbcLogger.java:135)- <==      Total: 3\n" +
+                "2025-10-23 17:34:58,102 DEBUG (BaseJdbcLogger.java:135)- ==> Parameters: 1(Integer)\n";
+
+        assertTrue(feed(log).isEmpty());
+    }
+
+    @Test
+    public void testEsRequestLoggerNotUsedAsApiPath() {
+        String log = "2025-10-23 17:34:57,001 INFO (OrderController.java:30)- API: /api/order/detail\n" +
+                "2025-10-23 17:34:57,500 TRACE (RequestLogger.java:90)- curl -iX POST 'http://localhost:9200/order/_search' uri: /order/_search\n" +
+                "2025-10-23 17:34:58,098 DEBUG (BaseJdbcLogger.java:135)- ==>  Preparing: SELECT * FROM t_order WHERE id = ?\n" +
+                "2025-10-23 17:34:58,101 DEBUG (BaseJdbcLogger.java:135)- <==      Total: 1\n";
+
+        List<SqlRecord> records = feed(log);
+
+        assertEquals(1, records.size());
+        assertEquals("/api/order/detail", records.get(0).getApiPath());
+    }
+
+    /**
+     * 按控制台分发器的规则喂入：上下文行交给 tracker，所有行交给状态机
+     */
+    private static List<SqlRecord> feed(String log) {
+        ApiContextTracker context = new ApiContextTracker();
+        SqlStatementAssembler assembler = new SqlStatementAssembler("TestProject", context);
+        List<SqlRecord> records = new ArrayList<>();
+        int start = 0;
+        while (start < log.length()) {
+            int end = log.indexOf('\n', start);
+            if (end < 0) {
+                end = log.length();
+            }
+            int categories = LogLineClassifier.classify(log, start, end);
+            if (LogLineClassifier.has(categories, LogLineClassifier.API_CONTEXT)
+                    && !LogLineClassifier.has(categories, LogLineClassifier.ES | LogLineClassifier.SQL)) {
+                context.onContextLine(log, start, end);
+            }
+            SqlRecord record = assembler.acceptLine(log, start, end);
+            if (record != null) {
+                records.add(record);
+            }
+            start = end + 1;
+        }
+        return records;
+    }
+}
@@ -0,0 +1,99 @@
+package com.shuyixiao.sql.service;
+
+import com.shuyixiao.sql.model.SqlRecord;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * NPlusOneDetector 单元测试
+ */
+public class NPlusOneDetectorTest {
+
+    private static SqlRecord record(String sql, String caller) {
+        return SqlRecord.builder()
+                .operation("SELECT")
+                .tableName("sys_role")
+                .sqlStatement(sql)
+                .apiPath("/api/user/list")
+                .callerClass(caller)
+                .build();
+    }
+
+    @Test
+    public void testReportsOnceWhenThresholdExceeded() {
+        NPlusOneDetector detector = new NPlusOneDetector(2, 1000, 60_000);
+        assertNull(detector.onStatement(1, record("SELECT * FROM sys_user", "UserService.java:20"), 0));
+        assertNull(detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = 1", null), 10));
+        assertNull(detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = 2", null), 20));
+
+        NPlusOneDetector.Finding finding = detector.onStatement(1,
+                record("SELECT * FROM sys_role WHERE user_id = 3", "RoleMapper.java:42"), 30);
+        assertNotNull(finding);
+        assertEquals(3, finding.getCount());
+        assertEquals("/api/user/list", finding.getApiPath());
+        assertEquals("RoleMapper.java:42", finding.getCallerClass());
+        assertEquals("select * from sys_role where user_id = ?", finding.getNormalizedSql());
+
+        // 同一窗口内继续执行不重复报告
+        assertNull(detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = 4", null), 40));
+    }
+
+    @Test
+    public void testNewRequestOrIdleGapStartsNewWindow() {
+        NPlusOneDetector detector = new NPlusOneDetector(2, 1000, 0);
+        detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = ?", null), 0);
+        detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = ?", null), 10);
+        // 新请求
+        assertNull(detector.onStatement(2, record("SELECT * FROM sys_role WHERE user_id = ?", null), 20));
+        detector.onStatement(2, record("SELECT * FROM sys_role WHERE user_id = ?", null), 30);
+        // 超过空闲间隔
+        assertNull(detector.onStatement(2, record("SELECT * FROM sys_role WHERE user_id = ?", null), 2000));
+        detector.onStatement(2, record("SELECT * FROM sys_role WHERE user_id = ?", null), 2010);
+        assertNotNull(detector.onStatement(2, record("SELECT * FROM sys_role WHERE user_id = ?", null), 2020));
+    }
+
+    @Test
+    public void testInterleavedRequestsAreCountedSeparately() {
+        NPlusOneDetector detector = new NPlusOneDetector(2, 1000, 0);
+        // 两个并发请求的语句交错输出，各自执行两次时都不应报告
+        assertNull(detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = ?", null), 0));
+        assertNull(detector.onStatement(2, record("SELECT * FROM sys_role WHERE user_id = ?", null), 5));
+        assertNull(detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = ?", null), 10));
+        assertNull(detector.onStatement(2, record("SELECT * FROM sys_role WHERE user_id = ?", null), 15));
+
+        // 切换请求不会清空另一个请求的计数
+        NPlusOneDetector.Finding first = detector.onStatement(1,
+                record("SELECT * FROM sys_role WHERE user_id = ?", null), 20);
+        assertNotNull(first);
+        assertEquals(3, first.getCount());
+        NPlusOneDetector.Finding second = detector.onStatement(2,
+                record("SELECT * FROM sys_role WHERE user_id = ?", null), 25);
+        assertNotNull(second);
+        assertEquals(3, second.getCount());
+    }
+
+    @Test
+    public void testCooldownSuppressesRepeatedRequests() {
+        NPlusOneDetector detector = new NPlusOneDetector(1, 1000, 60_000);
+        detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = ?", null), 0);
+        assertNotNull(detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = ?", null), 10));
+
+        detector.onStatement(2, record("SELECT * FROM sys_role WHERE user_id = ?", null), 20);
+        assertNull(detector.onStatement(2, record("SELECT * FROM sys_role WHERE user_id = ?", null), 30));
+
+        detector.onStatement(3, record("SELECT * FROM sys_role WHERE user_id = ?", null), 70_000);
+        assertNotNull(detector.onStatement(3, record("SELECT * FROM sys_role WHERE user_id = ?", null), 70_010));
+    }
+
+    @Test
+    public void testStatementsWithoutRequestAreNotCounted() {
+        NPlusOneDetector detector = new NPlusOneDetector(1, 1000, 0);
+        // 没有 API 路径日志的线程序号都是 0，不同线程的语句不能累加到一起
+        for (int i = 0; i < 5; i++) {
+            assertNull(detector.onStatement(0, record("SELECT * FROM sys_role WHERE user_id = " + i, null), i));
+        }
+        detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = 1", null), 10);
+        assertNotNull(detector.onStatement(1, record("SELECT * FROM sys_role WHERE user_id = 2", null), 20));
+    }
+}
@@ -0,0 +1,185 @@
+package com.shuyixiao.sql.service;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.util.LocalDateTimeAdapter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * SqlHistoryArchive 单元测试
+ */
+public class SqlHistoryArchiveTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Gson gson = new GsonBuilder()
+            .registerTypeAdapter(LocalDateTime.class, new LocalDateTimeAdapter())
+            .create();
+
+    private static SqlRecord record(String id, LocalDateTime timestamp) {
+        return SqlRecord.builder()
+                .id(id)
+                .project("demo")
+                .timestamp(timestamp)
+                .operation("SELECT")
+                .tableName("sys_user")
+                .sqlStatement("SELECT * FROM sys_user WHERE id = ?")
+                .parameters(id + "(String)")
+                .apiPath("/api/user")
+                .source("MyBatis")
+                .build();
+    }
+
+    private static LocalDateTime minutesAgo(int minutes) {
+        // LocalDateTimeAdapter 以秒为精度序列化
+        return LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusMinutes(minutes);
+    }
+
+    @Test
+    public void testArchivedRecordsAreReadBackFromSegments() {
+        File dir = folder.getRoot();
+        SqlHistoryArchive archive = new SqlHistoryArchive(dir, gson, 100, 7, 2);
+        archive.archive(record("1", minutesAgo(90)));
+        archive.archive(record("2", minutesAgo(50)));
+        archive.archive(record("3", minutesAgo(10)));
+        archive.flush();
+
+        assertEquals(3, archive.size());
+        assertEquals(Arrays.asList("3", "2"), ids(archive.getRecordsSince(LocalDateTime.now().minusHours(1))));
+        assertTrue(new File(dir, "segment-0.jsonl.gz").exists());
+        assertTrue(new File(dir, "segment-1.idx").exists());
+        archive.close();
+
+        // 重新打开时只读索引恢复摘要，跳过热层中已有的记录
+        SqlHistoryArchive reopened = new SqlHistoryArchive(dir, gson, 100, 7, 2);
+        reopened.load(Collections.singleton("3"));
+        assertEquals(2, reopened.size());
+        List<SqlRecord> all = reopened.getRecordsSince(LocalDateTime.now().minusDays(1));
+        assertEquals(Arrays.asList("2", "1"), ids(all));
+        assertEquals("2(String)", all.get(0).getParameters());
+        reopened.close();
+    }
+
+    @Test
+    public void testSummaryRowsArePagedWithoutFullRecords() {
+        SqlHistoryArchive archive = new SqlHistoryArchive(folder.getRoot(), gson, 100, 7, 2);
+        for (int i = 0; i < 5; i++) {
+            archive.archive(record(String.valueOf(i), minutesAgo(50 - i)));
+        }
+        archive.flush();
+
+        List<SqlRecord> page = archive.getSummaryRows(null, row -> true, 3);
+        assertEquals(Arrays.asList("4", "3", "2"), ids(page));
+        assertTrue(page.get(0).isSummaryOnly());
+        assertNull(page.get(0).getSqlStatement());
+        assertEquals("sys_user", page.get(0).getTableName());
+        assertEquals(minutesAgo(46), page.get(0).getTimestamp());
+        assertEquals(Arrays.asList("4"), ids(archive.getSummaryRows(minutesAgo(47), row -> true, 10)));
+
+        // 按 id 读取完整记录，已不在归档中的 id 不返回
+        assertEquals("1(String)", archive.loadRecords(Arrays.asList("1", "missing")).get("1").getParameters());
+        assertEquals(1, archive.loadRecords(Arrays.asList("1", "missing")).size());
+        archive.close();
+    }
+
+    @Test
+    public void testSearchMatchesFullRecordsAndStopsAtLimit() {
+        SqlHistoryArchive archive = new SqlHistoryArchive(folder.getRoot(), gson, 100, 7, 2);
+        for (int i = 0; i < 6; i++) {
+            archive.archive(record(String.valueOf(i), minutesAgo(60 - i)));
+        }
+        // 尚未写盘的记录也能搜索到
+        List<SqlRecord> unwritten = archive.search(null, record -> record.getParameters().startsWith("5"), 10);
+        assertEquals(Arrays.asList("5"), ids(unwritten));
+        archive.flush();
+
+        List<SqlRecord> even = archive.search(null,
+                record -> Integer.parseInt(record.getId()) % 2 == 0, 2);
+        assertEquals(Arrays.asList("4", "2"), ids(even));
+        assertTrue(even.get(0).isSummaryOnly());
+        archive.close();
+    }
+
+    @Test
+    public void testCapacityDropsOldestSegment() {
+        File dir = folder.getRoot();
+        SqlHistoryArchive archive = new SqlHistoryArchive(dir, gson, 3, 7, 2);
+        for (int i = 0; i < 5; i++) {
+            archive.archive(record(String.valueOf(i), minutesAgo(10 - i)));
+        }
+        archive.flush();
+
+        assertEquals(3, archive.size());
+        assertEquals(Arrays.asList("4", "3", "2"), ids(archive.getRecordsSince(LocalDateTime.now().minusDays(1))));
+        // 分段 0 的记录全部被挤出，文件被删除
+        assertFalse(new File(dir, "segment-0.jsonl.gz").exists());
+        assertFalse(new File(dir, "segment-0.idx").exists());
+        archive.close();
+    }
+
+    @Test
+    public void testRemoveOlderThanSurvivesReload() {
+        File dir = folder.getRoot();
+        SqlHistoryArchive archive = new SqlHistoryArchive(dir, gson, 100, 7, 10);
+        archive.archive(record("old", minutesAgo(3 * 24 * 60)));
+        archive.archive(record("new", minutesAgo(5)));
+        archive.flush();
+
+        assertEquals(1, archive.removeOlderThan(LocalDateTime.now().minusDays(1)));
+        archive.flush();
+        archive.close();
+
+        SqlHistoryArchive reopened = new SqlHistoryArchive(dir, gson, 100, 7, 10);
+        reopened.load(Collections.emptySet());
+        assertEquals(Collections.singletonList("new"), ids(reopened.getRecordsSince(LocalDateTime.now().minusDays(7))));
+        reopened.close();
+    }
+
+    @Test
+    public void testRemoveWhileRecordsArePendingSurvivesReload() {
+        File dir = folder.getRoot();
+        SqlHistoryArchive archive = new SqlHistoryArchive(dir, gson, 100, 7, 10);
+        archive.archive(record("old", minutesAgo(3 * 24 * 60)));
+        archive.archive(record("new", minutesAgo(5)));
+        // 不等写盘完成就删除：无论写盘在删除之前还是之后，索引中都只能留下 new
+        assertEquals(1, archive.removeOlderThan(LocalDateTime.now().minusDays(1)));
+        archive.close();
+
+        SqlHistoryArchive reopened = new SqlHistoryArchive(dir, gson, 100, 7, 10);
+        reopened.load(Collections.emptySet());
+        assertEquals(Collections.singletonList("new"), ids(reopened.getRecordsSince(LocalDateTime.now().minusDays(7))));
+        reopened.close();
+    }
+
+    @Test
+    public void testRetentionAppliedOnLoad() {
+        File dir = folder.getRoot();
+        SqlHistoryArchive archive = new SqlHistoryArchive(dir, gson, 100, 30, 10);
+        archive.archive(record("a", minutesAgo(5 * 24 * 60)));
+        archive.archive(record("b", minutesAgo(1)));
+        archive.close();
+
+        SqlHistoryArchive reopened = new SqlHistoryArchive(dir, gson, 100, 2, 10);
+        reopened.load(Collections.emptySet());
+        assertEquals(1, reopened.size());
+        reopened.close();
+    }
+
+    private static List<String> ids(List<SqlRecord> records) {
+        return records.stream().map(SqlRecord::getId).collect(Collectors.toList());
+    }
+}
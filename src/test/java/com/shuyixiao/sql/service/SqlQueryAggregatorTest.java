@@ -0,0 +1,82 @@
+package com.shuyixiao.sql.service;
+
+import com.shuyixiao.sql.model.SqlQueryStats;
+import com.shuyixiao.sql.model.SqlRecord;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SqlQueryAggregator 单元测试
+ */
+public class SqlQueryAggregatorTest {
+
+    private static SqlRecord record(String sql, String apiPath, String caller, Integer resultCount, Long executionTime) {
+        return SqlRecord.builder()
+                .project("demo")
+                .operation("SELECT")
+                .tableName("sys_user")
+                .sqlStatement(sql)
+                .apiPath(apiPath)
+                .callerClass(caller)
+                .resultCount(resultCount)
+                .executionTime(executionTime)
+                .build();
+    }
+
+    @Test
+    public void testSameShapeAggregatedIntoOneEntry() {
+        SqlQueryAggregator aggregator = new SqlQueryAggregator();
+        aggregator.record(record("SELECT * FROM sys_user WHERE id IN (?, ?)", "/api/user", "UserMapper", 2, 10L));
+        aggregator.record(record("SELECT * FROM sys_user WHERE id IN (?,?,?)", "/api/user", "UserMapper", 3, 30L));
+        aggregator.record(record("SELECT * FROM sys_user  WHERE id IN (?)", "/api/order", "OrderService", 0, null));
+        aggregator.record(record("SELECT count(*) FROM sys_user", "/api/user", "UserMapper", 1, 5L));
+
+        assertEquals(2, aggregator.size());
+        List<SqlQueryStats> top = aggregator.getTopQueries(null, 10);
+        SqlQueryStats stats = top.get(0);
+        assertEquals(3, stats.getCount());
+        assertEquals("select * from sys_user where id in(?+)", stats.getNormalizedSql());
+        assertEquals(Long.valueOf(20), stats.getAverageExecutionTime());
+        assertEquals(30, stats.getMaxExecutionTime());
+        assertArrayEquals(new long[]{1, 0, 2, 0, 0, 0}, stats.getResultHistogram());
+        assertEquals(Long.valueOf(2), stats.getApiPathCounts().get("/api/user"));
+        assertEquals(Long.valueOf(1), stats.getCallerCounts().get("OrderService"));
+    }
+
+    @Test
+    public void testTopQueriesScopedToApiPath() {
+        SqlQueryAggregator aggregator = new SqlQueryAggregator();
+        for (int i = 0; i < 6; i++) {
+            aggregator.record(record("SELECT * FROM a WHERE id = " + i, "/api/list", null, 1, null));
+        }
+        for (int i = 0; i < 3; i++) {
+            aggregator.record(record("SELECT * FROM b WHERE id = " + i, "/api/detail", null, 1, null));
+            aggregator.record(record("SELECT * FROM c WHERE id = ?", "/api/detail", null, 1, null));
+        }
+        aggregator.record(record("SELECT * FROM c WHERE id = ?", "/api/list", null, 1, null));
+
+        List<SqlQueryStats> detail = aggregator.getTopQueries("/api/detail", 10);
+        assertEquals(2, detail.size());
+        assertEquals(3, detail.get(0).getCount("/api/detail"));
+        assertEquals(Arrays.asList("/api/list", "/api/detail"), aggregator.getApiPaths());
+        assertEquals(1, aggregator.getTopQueries(null, 1).size());
+    }
+
+    @Test
+    public void testFingerprintCapEvictsLeastRecentlySeen() {
+        SqlQueryAggregator aggregator = new SqlQueryAggregator(2);
+        aggregator.record(record("SELECT a FROM t", null, null, null, null));
+        aggregator.record(record("SELECT b FROM t", null, null, null, null));
+        aggregator.record(record("SELECT a FROM t", null, null, null, null));
+        aggregator.record(record("SELECT c FROM t", null, null, null, null));
+
+        assertEquals(2, aggregator.size());
+        List<SqlQueryStats> top = aggregator.getTopQueries(null, 10);
+        assertEquals("select a from t", top.get(0).getNormalizedSql());
+        assertEquals("select c from t", top.get(1).getNormalizedSql());
+    }
+}
@@ -0,0 +1,127 @@
+package com.shuyixiao.sql.service;
+
+import com.shuyixiao.sql.model.SqlRecord;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * SqlRecordStore 单元测试
+ */
+public class SqlRecordStoreTest {
+
+    private static SqlRecord record(String id, String operation, String table, String sql, String parameters,
+                                    String apiPath, LocalDateTime timestamp) {
+        return SqlRecord.builder()
+                .id(id)
+                .project("demo")
+                .timestamp(timestamp)
+                .operation(operation)
+                .tableName(table)
+                .sqlStatement(sql)
+                .parameters(parameters)
+                .apiPath(apiPath)
+                .source("MyBatis")
+                .build();
+    }
+
+    private static SqlRecord select(String id, String table, String parameters) {
+        return record(id, "SELECT", table, "SELECT * FROM " + table + " WHERE id = ?", parameters,
+                "/api/" + table, LocalDateTime.now());
+    }
+
+    @Test
+    public void testDuplicateWithinWindowIsSkipped() {
+        SqlRecordStore store = new SqlRecordStore(10, 3);
+        LocalDateTime now = LocalDateTime.now();
+
+        assertTrue(store.add(record("1", "SELECT", "user", "SELECT *  FROM user\n WHERE id = ?", "1(Integer)", null, now)));
+        assertFalse(store.add(record("2", "SELECT", "user", " SELECT * FROM user WHERE id = ? ", "1(Integer)", null, now)));
+        assertTrue(store.add(record("3", "SELECT", "user", "SELECT * FROM user WHERE id = ?", "2(Integer)", null, now)));
+        // 任一侧没有参数时只比较 SQL
+        assertFalse(store.add(record("4", "SELECT", "user", "SELECT * FROM user WHERE id = ?", null, null, now)));
+
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testExpiredRecordsNoLongerDeduplicate() {
+        SqlRecordStore store = new SqlRecordStore(10, 3);
+        LocalDateTime old = LocalDateTime.now().minusSeconds(10);
+
+        assertTrue(store.add(record("1", "DELETE", "job", "DELETE FROM job", null, null, old)));
+        assertTrue(store.add(record("2", "DELETE", "job", "DELETE FROM job", null, null, LocalDateTime.now())));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    public void testRingOverwritesOldestAndKeepsIndexesInSync() {
+        SqlRecordStore store = new SqlRecordStore(3, 3);
+        store.add(select("1", "a", "1"));
+        store.add(select("2", "b", "2"));
+        store.add(select("3", "a", "3"));
+        store.add(select("4", "c", "4"));
+
+        assertEquals(3, store.size());
+        assertEquals(Arrays.asList("4", "3", "2"), ids(store.snapshot()));
+        assertEquals(Arrays.asList("3"), ids(store.getByTable("A")));
+        assertEquals(Arrays.asList("2"), ids(store.getByApiPath("/api/b")));
+        assertEquals(3, store.countByOperation("select"));
+        assertEquals(3, store.distinctTableCount());
+    }
+
+    @Test
+    public void testOperationsIndexMergesNewestFirst() {
+        SqlRecordStore store = new SqlRecordStore(10, 3);
+        LocalDateTime now = LocalDateTime.now();
+        store.add(record("1", "INSERT", "t", "INSERT INTO t VALUES (1)", null, null, now));
+        store.add(record("2", "UPDATE", "t", "UPDATE t SET x = 1", null, null, now));
+        store.add(record("3", "SELECT", "t", "SELECT * FROM t", null, null, now));
+        store.add(record("4", "INSERT", "t", "INSERT INTO t VALUES (2)", null, null, now));
+
+        assertEquals(Arrays.asList("4", "2", "1"), ids(store.getByOperations(Arrays.asList("insert", "UPDATE"))));
+        assertTrue(store.getByOperations(Arrays.asList("DELETE")).isEmpty());
+    }
+
+    @Test
+    public void testRemoveIfRebuildsIndexes() {
+        SqlRecordStore store = new SqlRecordStore(10, 3);
+        store.add(select("1", "a", "1"));
+        store.add(select("2", "b", "2"));
+        store.add(select("3", "a", "3"));
+
+        assertEquals(1, store.removeIf(r -> "a".equals(r.getTableName()) && "1".equals(r.getId())));
+        assertEquals(Arrays.asList("3"), ids(store.getByTable("a")));
+        assertEquals(Arrays.asList("3", "2"), ids(store.snapshot()));
+    }
+
+    @Test
+    public void testTextIndexFollowsOverwrites() {
+        SqlRecordStore store = new SqlRecordStore(2, 3);
+        store.add(select("1", "user_info", "1"));
+        store.add(select("2", "user_role", "2"));
+        assertEquals(Arrays.asList("2", "1"), ids(store.search(Arrays.asList("user"))));
+
+        store.add(select("3", "order_item", "3"));
+        assertEquals(Arrays.asList("2"), ids(store.search(Arrays.asList("user"))));
+        assertEquals(Arrays.asList("3"), ids(store.search(Arrays.asList("order", "item"))));
+
+        store.clear();
+        assertTrue(store.search(Arrays.asList("order")).isEmpty());
+    }
+
+    @Test
+    public void testNormalizedEquals() {
+        assertTrue(SqlRecordStore.normalizedEquals("SELECT  *\nFROM t ", "SELECT * FROM t"));
+        assertFalse(SqlRecordStore.normalizedEquals("SELECT * FROM t", "SELECT * FROMt"));
+        assertFalse(SqlRecordStore.normalizedEquals("SELECT * FROM t", "SELECT * FROM tt"));
+    }
+
+    private static List<String> ids(List<SqlRecord> records) {
+        return records.stream().map(SqlRecord::getId).collect(java.util.stream.Collectors.toList());
+    }
+}
@@ -0,0 +1,123 @@
+package com.shuyixiao.storage;
+
+import com.google.gson.Gson;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * RecordJournal 单元测试
+ */
+public class RecordJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Gson gson = new Gson();
+    private final List<Item> live = new ArrayList<>();
+
+    static class Item {
+        String id;
+        String value;
+
+        Item(String id, String value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    private RecordJournal<Item> journal(File file, int maxRecords) {
+        return new RecordJournal<>("Test", file, gson, Item.class, item -> item.id, maxRecords,
+                () -> new ArrayList<>(live));
+    }
+
+    private void add(RecordJournal<Item> journal, Item item) {
+        live.add(item);
+        journal.append(item);
+    }
+
+    @Test
+    public void testAppendAndReplay() throws IOException {
+        File file = new File(folder.getRoot(), "records.jsonl");
+        RecordJournal<Item> journal = journal(file, 10);
+        add(journal, new Item("1", "a"));
+        add(journal, new Item("2", "b"));
+        journal.close();
+
+        assertEquals(2, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+        assertEquals(List.of("1", "2"), ids(journal(file, 10).replay()));
+    }
+
+    @Test
+    public void testReplaySkipsTornAndDuplicateLines() throws IOException {
+        File file = new File(folder.getRoot(), "records.jsonl");
+        Files.write(file.toPath(), List.of(
+                "{\"id\":\"1\",\"value\":\"a\"}",
+                "{\"id\":\"2\",\"value\":\"b\"}",
+                "{\"id\":\"1\",\"value\":\"a2\"}",
+                "{\"id\":\"3\",\"val"
+        ), StandardCharsets.UTF_8);
+
+        List<Item> replayed = journal(file, 10).replay();
+        assertEquals(List.of("2", "1"), ids(replayed));
+        assertEquals("a2", replayed.get(1).value);
+    }
+
+    @Test
+    public void testReplayKeepsNewestRecords() throws IOException {
+        File file = new File(folder.getRoot(), "records.jsonl");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            lines.add("{\"id\":\"" + i + "\",\"value\":\"v\"}");
+        }
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+
+        assertEquals(List.of("2", "3", "4"), ids(journal(file, 3).replay()));
+    }
+
+    @Test
+    public void testCompactionRewritesSnapshot() throws IOException {
+        File file = new File(folder.getRoot(), "records.jsonl");
+        RecordJournal<Item> journal = journal(file, 2);
+        for (int i = 0; i < 5; i++) {
+            add(journal, new Item(String.valueOf(i), "v"));
+            // 模拟内存存储只保留最新的 2 条
+            if (live.size() > 2) {
+                live.remove(0);
+            }
+            journal.flush();
+        }
+        journal.close();
+
+        // 第 5 条写入后超过 2 倍上限，文件被压缩为当前快照
+        assertEquals(2, Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size());
+        assertEquals(List.of("3", "4"), ids(journal(file, 2).replay()));
+        assertFalse(new File(folder.getRoot(), "records.jsonl.tmp").exists());
+    }
+
+    @Test
+    public void testExplicitCompactAfterClear() throws IOException {
+        File file = new File(folder.getRoot(), "records.jsonl");
+        RecordJournal<Item> journal = journal(file, 10);
+        add(journal, new Item("1", "a"));
+        live.clear();
+        journal.compact();
+        journal.close();
+
+        assertTrue(journal(file, 10).replay().isEmpty());
+    }
+
+    private static List<String> ids(List<Item> items) {
+        return items.stream().map(item -> item.id).collect(Collectors.toList());
+    }
+}
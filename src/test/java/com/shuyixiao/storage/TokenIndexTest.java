@@ -0,0 +1,120 @@
+package com.shuyixiao.storage;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+/**
+ * TokenIndex 单元测试
+ */
+public class TokenIndexTest {
+
+    private static final List<Function<String, String>> FIELDS = Collections.singletonList(Function.identity());
+
+    private static List<String> tokens(String text) {
+        List<String> tokens = new ArrayList<>();
+        TokenIndex.tokenize(text, tokens::add);
+        return tokens;
+    }
+
+    @Test
+    public void testTokenizeSplitsIdentifiers() {
+        assertEquals(Arrays.asList("select", "from", "user_info", "user", "info"),
+                tokens("SELECT * FROM user_info"));
+        assertEquals(Arrays.asList("com", "demo", "userservice", "user", "service"),
+                tokens("com.demo.UserService"));
+        assertEquals(Arrays.asList("__orders_2023", "orders", "2023"),
+                tokens("__orders_2023"));
+        assertTrue(tokens("___ " + "a".repeat(TokenIndex.MAX_TOKEN_LENGTH + 1)).isEmpty());
+    }
+
+    @Test
+    public void testQueryTermsKeepsWholeWords() {
+        assertEquals(Arrays.asList("user_info", "select"), TokenIndex.queryTerms("User_Info  SELECT user_info"));
+        assertTrue(TokenIndex.queryTerms(" = ? ").isEmpty());
+        assertTrue(TokenIndex.queryTerms(null).isEmpty());
+    }
+
+    @Test
+    public void testChineseIsIndexedByAdjacentPairs() {
+        assertEquals(Arrays.asList("查询", "询用", "用户", "户", "api", "user", "list"),
+                tokens("查询用户 /api/user/list"));
+        assertEquals(Arrays.asList("手机", "订单", "单", "列表"), TokenIndex.queryTerms("手机 订单 单 列表"));
+
+        TokenIndex<String> index = new TokenIndex<>(FIELDS);
+        index.addAll(Arrays.asList(
+                "SELECT * FROM goods WHERE name = '华为手机'",
+                "2025-10-18 API: /api/订单列表",
+                "SELECT * FROM goods WHERE name = '手表'"));
+
+        // 词中间、词尾的部分和单字都能查到
+        assertEquals(Collections.singletonList("SELECT * FROM goods WHERE name = '华为手机'"),
+                index.search(TokenIndex.queryTerms("手机")));
+        assertEquals(Collections.singletonList("2025-10-18 API: /api/订单列表"),
+                index.search(TokenIndex.queryTerms("单列")));
+        assertEquals(Arrays.asList("SELECT * FROM goods WHERE name = '手表'",
+                        "SELECT * FROM goods WHERE name = '华为手机'"),
+                index.search(TokenIndex.queryTerms("手")));
+        assertEquals(Collections.singletonList("2025-10-18 API: /api/订单列表"),
+                index.search(TokenIndex.queryTerms("api 列表")));
+        assertTrue(index.search(TokenIndex.queryTerms("手机壳")).isEmpty());
+        assertTrue(TokenIndex.matches(TokenIndex.queryTerms("为手"), "华为手机", FIELDS));
+    }
+
+    @Test
+    public void testPrefixAndQueriesNewestFirst() {
+        TokenIndex<String> index = new TokenIndex<>(FIELDS);
+        index.addAll(Arrays.asList(
+                "SELECT * FROM user_info WHERE id = ?",
+                "UPDATE user_role SET name = ?",
+                "SELECT * FROM order_item"));
+
+        assertEquals(Arrays.asList("UPDATE user_role SET name = ?", "SELECT * FROM user_info WHERE id = ?"),
+                index.search(TokenIndex.queryTerms("user")));
+        assertEquals(Collections.singletonList("SELECT * FROM user_info WHERE id = ?"),
+                index.search(TokenIndex.queryTerms("sel user")));
+        assertEquals(Collections.singletonList("UPDATE user_role SET name = ?"),
+                index.search(TokenIndex.queryTerms("USER_RO")));
+        assertTrue(index.search(TokenIndex.queryTerms("delete user")).isEmpty());
+    }
+
+    @Test
+    public void testRemoveKeepsOtherRecords() {
+        TokenIndex<String> index = new TokenIndex<>(FIELDS);
+        List<String> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            String record = new String("job_" + (i % 3) + " run");
+            records.add(record);
+            index.add(record);
+        }
+        // 先淘汰最旧的，再删除中间的一条
+        for (int i = 0; i < 50; i++) {
+            index.remove(records.get(i));
+        }
+        index.remove(records.get(70));
+        index.remove(records.get(70));
+
+        assertEquals(49, index.size());
+        assertEquals(49, index.search(Collections.singletonList("run")).size());
+        List<String> job1 = index.search(Collections.singletonList("job_1"));
+        assertEquals(15, job1.size());
+        assertSame(records.get(97), job1.get(0));
+        assertFalse(job1.stream().anyMatch(record -> record == records.get(70)));
+
+        index.clear();
+        assertTrue(index.search(Collections.singletonList("run")).isEmpty());
+    }
+
+    @Test
+    public void testMatchesUsesSameRules() {
+        assertTrue(TokenIndex.matches(TokenIndex.queryTerms("order item"), "SELECT * FROM order_item", FIELDS));
+        assertFalse(TokenIndex.matches(TokenIndex.queryTerms("rder"), "SELECT * FROM order_item", FIELDS));
+        assertTrue(TokenIndex.matches(TokenIndex.queryTerms("user serv"), "com.demo.UserService", FIELDS));
+    }
+}
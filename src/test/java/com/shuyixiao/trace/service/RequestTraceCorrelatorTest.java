@@ -0,0 +1,105 @@
+package com.shuyixiao.trace.service;
+
+import com.shuyixiao.console.ApiContextTracker;
+import com.shuyixiao.esdsl.model.EsDslRecord;
+import com.shuyixiao.sql.model.SqlRecord;
+import com.shuyixiao.trace.model.RequestTrace;
+import com.shuyixiao.trace.model.TraceEvent;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * RequestTraceCorrelator 单元测试
+ * 验证按请求归组、耗时合计和最慢事件
+ */
+public class RequestTraceCorrelatorTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2025, 10, 23, 17, 34, 58);
+
+    @Test
+    public void testGroupsRecordsBetweenApiMarkers() {
+        ApiContextTracker context = new ApiContextTracker();
+        assertNull("还没有 API 日志时不属于任何请求", context.getRequestId());
+
+        String line = "2025-10-23 17:34:57,001 INFO (UserController.java:45)- API: /api/user/list";
+        context.onContextLine(line, 0, line.length());
+        String first = context.getRequestId();
+        line = "2025-10-23 17:34:59,001 INFO (OrderController.java:12)- API: /api/order/list";
+        context.onContextLine(line, 0, line.length());
+
+        assertNotNull(first);
+        assertNotEquals(first, context.getRequestId());
+    }
+
+    @Test
+    public void testTotalsAndSlowest() {
+        RequestTraceCorrelator correlator = new RequestTraceCorrelator();
+        correlator.record(sql("r1", 0, 12L));
+        correlator.record(sql("r1", 1, 30L));
+        correlator.record(sql("r1", 2, null));
+        correlator.record(es("r1", 3, 45L));
+        correlator.record(sql("r2", 5, 1L));
+        // 没有请求 ID 的记录不关联
+        assertNull(correlator.record(sql(null, 6, 1L)));
+
+        RequestTrace trace = correlator.getTrace("r1");
+        assertEquals(3, trace.getSqlCount());
+        assertEquals(1, trace.getEsCount());
+        assertEquals(42, trace.getDbTime());
+        assertEquals(45, trace.getEsTime());
+        assertEquals(TraceEvent.Type.ES, trace.getSlowest().getType());
+        assertEquals("/api/user/list", trace.getApiPath());
+        assertEquals(3000, trace.getSpanMillis());
+        assertEquals(4, trace.getEvents().size());
+
+        List<RequestTrace> traces = correlator.getTraces();
+        assertEquals(2, traces.size());
+        assertEquals("r2", traces.get(0).getRequestId());
+    }
+
+    @Test
+    public void testTimelineSortedAndRequestsEvicted() {
+        RequestTraceCorrelator correlator = new RequestTraceCorrelator(2);
+        correlator.record(sql("r1", 2, 1L));
+        // ES 记录异步解析，可能晚于后面的 SQL 到达
+        correlator.record(es("r1", 1, 5L));
+        correlator.record(sql("r2", 3, 1L));
+        correlator.record(sql("r3", 4, 1L));
+
+        assertNull(correlator.getTrace("r1"));
+        assertEquals(2, correlator.size());
+
+        correlator = new RequestTraceCorrelator();
+        correlator.record(sql("r1", 2, 1L));
+        correlator.record(es("r1", 1, 5L));
+        List<TraceEvent> events = correlator.getTrace("r1").getEvents();
+        assertEquals(TraceEvent.Type.ES, events.get(0).getType());
+        assertEquals(T0.plusSeconds(1), correlator.getTrace("r1").getStartTime());
+    }
+
+    private static SqlRecord sql(String requestId, int second, Long executionTime) {
+        return SqlRecord.builder()
+                .timestamp(T0.plusSeconds(second))
+                .sqlStatement("SELECT * FROM sys_user WHERE id = ?")
+                .operation("SELECT")
+                .executionTime(executionTime)
+                .apiPath("/api/user/list")
+                .requestId(requestId)
+                .build();
+    }
+
+    private static EsDslRecord es(String requestId, int second, Long executionTime) {
+        return EsDslRecord.builder()
+                .timestamp(T0.plusSeconds(second))
+                .method("POST")
+                .endpoint("user_index/_search")
+                .dslQuery("{\"query\":{\"match_all\":{}}}")
+                .executionTime(executionTime)
+                .requestId(requestId)
+                .build();
+    }
+}
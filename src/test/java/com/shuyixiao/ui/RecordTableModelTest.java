@@ -0,0 +1,58 @@
+package com.shuyixiao.ui;
+
+import org.junit.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * RecordTableModel 单元测试（只覆盖 EDT 上的整体更新，增量合并依赖 IDE 的 Application）
+ */
+public class RecordTableModelTest {
+
+    @Test
+    public void testNewestRecordIsFirstRow() {
+        TestModel model = new TestModel();
+        model.setRecords(Arrays.asList(30, 20, 10), value -> true);
+
+        assertEquals(3, model.getRowCount());
+        assertEquals(30, model.getValueAt(0, 0));
+        assertEquals(10, model.getValueAt(2, 0));
+        assertNull(model.getRecordAt(3));
+        assertEquals(1, model.indexOf(value -> value == 20));
+        assertEquals(-1, model.indexOf(value -> value == 40));
+    }
+
+    @Test
+    public void testRemoveStaleDeletesOldestRowsOnly() {
+        TestModel model = new TestModel();
+        List<TableModelEvent> events = new ArrayList<>();
+        model.setRecords(Arrays.asList(5, 4, 3, 2, 1), value -> true);
+        model.addTableModelListener(events::add);
+
+        model.setStaleFilter(value -> value < 3);
+        model.removeStale();
+
+        assertEquals(3, model.getRowCount());
+        assertEquals(3, model.getValueAt(2, 0));
+        assertEquals(1, events.size());
+        assertEquals(TableModelEvent.DELETE, events.get(0).getType());
+        assertEquals(3, events.get(0).getFirstRow());
+        assertEquals(4, events.get(0).getLastRow());
+    }
+
+    private static class TestModel extends RecordTableModel<Integer> {
+        TestModel() {
+            super(new String[]{"value"});
+        }
+
+        @Override
+        protected Object getColumnValue(Integer record, int column) {
+            return record;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.shuyixiao.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * ConcurrentLatencyHistogram 单元测试
+ */
+public class ConcurrentLatencyHistogramTest {
+
+    @Test
+    public void testMatchesLatencyHistogram() {
+        ConcurrentLatencyHistogram concurrent = new ConcurrentLatencyHistogram();
+        LatencyHistogram reference = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            concurrent.record(i);
+            reference.record(i);
+        }
+        assertEquals(reference.getTotalCount(), concurrent.getTotalCount());
+        assertEquals(reference.getMax(), concurrent.getMax());
+        for (double p : new double[]{50, 90, 95, 99, 100}) {
+            assertEquals(reference.getPercentile(p), concurrent.getPercentile(p));
+        }
+    }
+
+    @Test
+    public void testConcurrentRecordsAreNotLost() throws InterruptedException {
+        ConcurrentLatencyHistogram histogram = new ConcurrentLatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i + offset);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.getTotalCount());
+        assertEquals(10_002, histogram.getMax());
+    }
+
+    @Test
+    public void testHugeValuesAreClampedAndClearResets() {
+        ConcurrentLatencyHistogram histogram = new ConcurrentLatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(1, histogram.getTotalCount());
+        assertEquals(histogram.getMax(), histogram.getPercentile(50));
+
+        histogram.clear();
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+}
@@ -0,0 +1,59 @@
+package com.shuyixiao.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * LatencyHistogram 单元测试
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10, histogram.getTotalCount());
+        assertEquals(5, histogram.getPercentile(50));
+        assertEquals(10, histogram.getPercentile(99));
+        assertEquals(10, histogram.getMax());
+    }
+
+    @Test
+    public void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10_000; i++) {
+            histogram.record(i);
+        }
+        assertWithin(5_000, histogram.getPercentile(50));
+        assertWithin(9_500, histogram.getPercentile(95));
+        assertWithin(9_900, histogram.getPercentile(99));
+        assertEquals(10_000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testBucketBoundsAreContiguous() {
+        for (long value = 0; value < 100_000; value++) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyAndNegative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getPercentile(95));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 1.125);
+    }
+}